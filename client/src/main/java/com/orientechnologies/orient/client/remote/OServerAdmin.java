@@ -88,6 +88,7 @@ public class OServerAdmin {
       try {
         network.writeString(iUserName);
         network.writeString(iUserPassword);
+        storage.sendCompression(network);
       } finally {
         storage.endRequest(network);
       }
@@ -96,6 +97,7 @@ public class OServerAdmin {
         storage.beginResponse(network);
         sessionId = network.readInt();
         storage.setSessionId(network.getServerURL(), sessionId);
+        storage.readCompression(network);
       } finally {
         storage.endResponse(network);
       }
@@ -30,7 +30,6 @@ import javax.naming.directory.InitialDirContext;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.common.concur.lock.OAdaptiveLock;
-import com.orientechnologies.common.concur.lock.OLock;
 import com.orientechnologies.common.concur.lock.OModificationOperationProhibitedException;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.io.OIOException;
@@ -39,6 +38,7 @@ import com.orientechnologies.orient.client.remote.OStorageRemoteThreadLocal.OSto
 import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.cache.OCacheLevelTwoLocatorRemote;
+import com.orientechnologies.orient.core.command.OCommandCursor;
 import com.orientechnologies.orient.core.command.OCommandRequestAsynch;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
@@ -61,6 +61,8 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerStringAbstract;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
+import com.orientechnologies.orient.core.sql.query.OSQLCursorQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 import com.orientechnologies.orient.core.storage.*;
 import com.orientechnologies.orient.core.tx.OTransaction;
 import com.orientechnologies.orient.core.tx.OTransactionAbstract;
@@ -73,39 +75,41 @@ import com.orientechnologies.orient.enterprise.channel.binary.*;
  * This object is bound to each remote ODatabase instances.
  */
 public class OStorageRemote extends OStorageAbstract implements OStorageProxy, OChannelListener {
-  private static final String                    DEFAULT_HOST         = "localhost";
-  private static final int                       DEFAULT_PORT         = 2424;
-  private static final String                    ADDRESS_SEPARATOR    = ";";
-
-  public static final String                     PARAM_MIN_POOL       = "minpool";
-  public static final String                     PARAM_MAX_POOL       = "maxpool";
-  public static final String                     PARAM_DB_TYPE        = "dbtype";
-
-  private static final String                    DRIVER_NAME          = "OrientDB Java";
-
-  private final ExecutorService                  asynchExecutor;
-  private OContextConfiguration                  clientConfiguration;
-  private int                                    connectionRetry;
-  private int                                    connectionRetryDelay;
-
-  private final List<OChannelBinaryAsynchClient> networkPool          = new ArrayList<OChannelBinaryAsynchClient>();
-  private final OLock                            networkPoolLock      = new OAdaptiveLock();
-  private int                                    networkPoolCursor    = 0;
-
-  protected final List<String>                   serverURLs           = new ArrayList<String>();
-  private OCluster[]                             clusters             = new OCluster[0];
-  protected final Map<String, OCluster>          clusterMap           = new ConcurrentHashMap<String, OCluster>();
-  private int                                    defaultClusterId;
-  private int                                    minPool;
-  private int                                    maxPool;
-  private final ODocument                        clusterConfiguration = new ODocument();
-  private ORemoteServerEventListener             asynchEventListener;
-  private String                                 connectionDbType;
-  private String                                 connectionUserName;
-  private String                                 connectionUserPassword;
-  private Map<String, Object>                    connectionOptions;
-  private final String                           clientId;
-  private final int                              maxReadQueue;
+  private static final String                          DEFAULT_HOST         = "localhost";
+  private static final int                             DEFAULT_PORT         = 2424;
+  private static final String                          ADDRESS_SEPARATOR    = ";";
+
+  public static final String                           PARAM_MIN_POOL       = "minpool";
+  public static final String                           PARAM_MAX_POOL       = "maxpool";
+  public static final String                           PARAM_DB_TYPE        = "dbtype";
+
+  private static final String                          DRIVER_NAME          = "OrientDB Java";
+
+  private final ExecutorService                        asynchExecutor;
+  private OContextConfiguration                        clientConfiguration;
+  private int                                          connectionRetry;
+  private int                                          connectionRetryDelay;
+
+  private final List<OChannelBinaryAsynchClient>       networkPool          = new ArrayList<OChannelBinaryAsynchClient>();
+  private final OAdaptiveLock                          networkPoolLock      = new OAdaptiveLock();
+  private int                                          networkPoolCursor    = 0;
+
+  protected final List<String>                         serverURLs           = new ArrayList<String>();
+  private OCluster[]                                   clusters             = new OCluster[0];
+  protected final Map<String, OCluster>                clusterMap           = new ConcurrentHashMap<String, OCluster>();
+  private int                                          defaultClusterId;
+  private int                                          minPool;
+  private int                                          maxPool;
+  private final boolean                                multiplexed;
+  private final ODocument                              clusterConfiguration = new ODocument();
+  private ORemoteServerEventListener                   asynchEventListener;
+  private String                                       connectionDbType;
+  private String                                       connectionUserName;
+  private String                                       connectionUserPassword;
+  private Map<String, Object>                          connectionOptions;
+  private final String                                 clientId;
+  private final int                                    maxReadQueue;
+  private final Map<String, OChannelBinaryCompression> compressions;
 
   public OStorageRemote(final String iClientId, final String iURL, final String iMode) throws IOException {
     super(iURL, iURL, iMode, 0, new OCacheLevelTwoLocatorRemote()); // NO TIMEOUT @SINCE 1.5
@@ -115,12 +119,14 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     clientConfiguration = new OContextConfiguration();
     connectionRetry = clientConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_RETRY);
     connectionRetryDelay = clientConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_RETRY_DELAY);
+    multiplexed = clientConfiguration.getValueAsBoolean(OGlobalConfiguration.CLIENT_CHANNEL_MULTIPLEX);
     asynchEventListener = new OStorageRemoteAsynchEventListener(this);
     parseServerURLs();
 
     asynchExecutor = Executors.newSingleThreadScheduledExecutor();
 
     maxReadQueue = Runtime.getRuntime().availableProcessors() - 1;
+    compressions = new ConcurrentHashMap<String, OChannelBinaryCompression>();
   }
 
   public int getSessionId() {
@@ -238,6 +244,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
         if (networkPool.size() > 0) {
           try {
             network = beginRequest(OChannelBinaryProtocol.REQUEST_DB_CLOSE);
+            // THE SERVER DOESN'T ANSWER
+            network.skipResponse();
           } finally {
             endRequest(network);
           }
@@ -313,35 +321,15 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
             // SEND THE DATA SEGMENT ID
             network.writeInt(iDataSegmentId);
           network.writeShort((short) iRid.clusterId);
-          network.writeBytes(iContent);
+          network.writeBytes(iContent, getCompression(network));
           network.writeByte(iRecordType);
           network.writeByte((byte) iMode);
 
-        } finally {
-          endRequest(network);
-        }
-
-        switch (iMode) {
-        case 0:
-          // SYNCHRONOUS
-          try {
-            beginResponse(network);
-            iRid.clusterPosition = network.readClusterPosition();
-            ppos.clusterPosition = iRid.clusterPosition;
-            if (network.getSrvProtocolVersion() >= 11) {
-              ppos.recordVersion = network.readVersion();
-            } else
-              ppos.recordVersion = OVersionFactory.instance().createVersion();
-            return new OStorageOperationResult<OPhysicalPosition>(ppos);
-          } finally {
-            endResponse(network);
-          }
-
-        case 1:
-          // ASYNCHRONOUS
-          if (iCallback != null) {
+          switch (iMode) {
+          case 1:
+            // ASYNCHRONOUS
             final int sessionId = getSessionId();
-            Callable<Object> response = new Callable<Object>() {
+            readResponseAsynch(network, new Callable<Object>() {
               public Object call() throws Exception {
                 final OClusterPosition result;
 
@@ -359,10 +347,33 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
                 return null;
               }
 
-            };
-            asynchExecutor.submit(new FutureTask<Object>(response));
+            });
+            break;
+
+          case 2:
+            // NO ANSWER FROM THE SERVER
+            network.skipResponse();
           }
+
+        } finally {
+          endRequest(network);
         }
+
+        if (iMode == 0)
+          // SYNCHRONOUS
+          try {
+            beginResponse(network);
+            iRid.clusterPosition = network.readClusterPosition();
+            ppos.clusterPosition = iRid.clusterPosition;
+            if (network.getSrvProtocolVersion() >= 11) {
+              ppos.recordVersion = network.readVersion();
+            } else
+              ppos.recordVersion = OVersionFactory.instance().createVersion();
+            return new OStorageOperationResult<OPhysicalPosition>(ppos);
+          } finally {
+            endResponse(network);
+          }
+
         return new OStorageOperationResult<OPhysicalPosition>(ppos);
 
       } catch (OModificationOperationProhibitedException mope) {
@@ -444,12 +455,13 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
           if (network.readByte() == 0)
             return new OStorageOperationResult<ORawBuffer>(null);
 
-          final ORawBuffer buffer = new ORawBuffer(network.readBytes(), network.readVersion(), network.readByte());
+          final ORawBuffer buffer = new ORawBuffer(network.readBytes(getCompression(network)), network.readVersion(),
+              network.readByte());
 
           final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
           ORecordInternal<?> record;
           while (network.readByte() == 2) {
-            record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+            record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network, getCompression(network));
 
             if (database != null)
               // PUT IN THE CLIENT LOCAL CACHE
@@ -468,6 +480,69 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     } while (true);
   }
 
+  @Override
+  public List<ORawBuffer> readRecords(final List<ORecordId> iRids, final String iFetchPlan) {
+    checkConnection();
+
+    if (OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting)
+      // PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
+      return Arrays.asList(new ORawBuffer[iRids.size()]);
+
+    OChannelBinaryAsynchClient network = null;
+    do {
+      try {
+
+        boolean batch = false;
+        try {
+          network = getAvailableNetwork();
+          if (network.getSrvProtocolVersion() >= 20) {
+            batch = true;
+            network.writeRequestHeader(OChannelBinaryProtocol.REQUEST_RECORD_LOAD_BATCH, getSessionId());
+            network.writeInt(iRids.size());
+            for (ORecordId rid : iRids)
+              network.writeRID(rid);
+            network.writeString(iFetchPlan != null ? iFetchPlan : "");
+          }
+        } finally {
+          endRequest(network);
+        }
+
+        if (!batch)
+          // OLD SERVER: LOAD THE RECORDS ONE BY ONE
+          return super.readRecords(iRids, iFetchPlan);
+
+        try {
+          beginResponse(network);
+
+          final List<ORawBuffer> buffers = new ArrayList<ORawBuffer>(iRids.size());
+          for (int i = 0; i < iRids.size(); ++i)
+            if (network.readByte() == 0)
+              buffers.add(null);
+            else
+              buffers.add(new ORawBuffer(network.readBytes(getCompression(network)), network.readVersion(), network.readByte()));
+
+          final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+          ORecordInternal<?> record;
+          while (network.readByte() == 2) {
+            record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network, getCompression(network));
+
+            if (database != null)
+              // PUT IN THE CLIENT LOCAL CACHE
+              database.getLevel1Cache().updateRecord(record);
+          }
+          return buffers;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (Exception e) {
+        handleException(network, "Error on read records " + iRids, e);
+
+      }
+    } while (true);
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, int iMode, final ORecordCallback<ORecordVersion> iCallback) {
     checkConnection();
@@ -484,30 +559,16 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
 
         try {
           network.writeRID(iRid);
-          network.writeBytes(iContent);
+          network.writeBytes(iContent, getCompression(network));
           network.writeVersion(iVersion);
           network.writeByte(iRecordType);
           network.writeByte((byte) iMode);
 
-        } finally {
-          endRequest(network);
-        }
-
-        switch (iMode) {
-        case 0:
-          // SYNCHRONOUS
-          try {
-            beginResponse(network);
-            return new OStorageOperationResult<ORecordVersion>(network.readVersion());
-          } finally {
-            endResponse(network);
-          }
-
-        case 1:
-          // ASYNCHRONOUS
-          if (iCallback != null) {
+          switch (iMode) {
+          case 1:
+            // ASYNCHRONOUS
             final int sessionId = getSessionId();
-            Callable<Object> response = new Callable<Object>() {
+            readResponseAsynch(network, new Callable<Object>() {
               public Object call() throws Exception {
                 ORecordVersion result;
 
@@ -524,10 +585,27 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
                 return null;
               }
 
-            };
-            asynchExecutor.submit(new FutureTask<Object>(response));
+            });
+            break;
+
+          case 2:
+            // NO ANSWER FROM THE SERVER
+            network.skipResponse();
           }
+
+        } finally {
+          endRequest(network);
         }
+
+        if (iMode == 0)
+          // SYNCHRONOUS
+          try {
+            beginResponse(network);
+            return new OStorageOperationResult<ORecordVersion>(network.readVersion());
+          } finally {
+            endResponse(network);
+          }
+
         return new OStorageOperationResult<ORecordVersion>(iVersion);
 
       } catch (OModificationOperationProhibitedException mope) {
@@ -902,6 +980,9 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     if (!(iCommand instanceof OSerializableStream))
       throw new OCommandExecutionException("Cannot serialize the command to be executed to the server side.");
 
+    if (iCommand instanceof OSQLCursorQuery<?>)
+      return openCursor((OSQLCursorQuery<?>) iCommand);
+
     OSerializableStream command = iCommand;
     Object result = null;
 
@@ -934,7 +1015,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
 
             // ASYNCH: READ ONE RECORD AT TIME
             while ((status = network.readByte()) > 0) {
-              final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+              final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network,
+                  getCompression(network));
               if (record == null)
                 continue;
 
@@ -960,7 +1042,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
               break;
 
             case 'r':
-              result = OChannelBinaryProtocol.readIdentifiable(network);
+              result = OChannelBinaryProtocol.readIdentifiable(network, getCompression(network));
               if (result instanceof ORecord<?>)
                 database.getLevel1Cache().updateRecord((ORecordInternal<?>) result);
               break;
@@ -969,7 +1051,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
               final int tot = network.readInt();
               final Collection<OIdentifiable> list = new ArrayList<OIdentifiable>(tot);
               for (int i = 0; i < tot; ++i) {
-                final OIdentifiable resultItem = OChannelBinaryProtocol.readIdentifiable(network);
+                final OIdentifiable resultItem = OChannelBinaryProtocol.readIdentifiable(network, getCompression(network));
                 if (resultItem instanceof ORecord<?>)
                   database.getLevel1Cache().updateRecord((ORecordInternal<?>) resultItem);
                 list.add(resultItem);
@@ -991,7 +1073,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
               // LOAD THE FETCHED RECORDS IN CACHE
               byte status;
               while ((status = network.readByte()) > 0) {
-                final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+                final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network,
+                    getCompression(network));
                 if (record != null && status == 2)
                   // PUT IN THE CLIENT LOCAL CACHE
                   database.getLevel1Cache().updateRecord(record);
@@ -1018,6 +1101,143 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     return result;
   }
 
+  /**
+   * Executes the query on the server keeping a cursor open there, then returns the cursor with the first batch of results.
+   */
+  @SuppressWarnings("unchecked")
+  protected OCommandCursor<Object> openCursor(final OSQLCursorQuery<?> iCommand) {
+    OChannelBinaryAsynchClient network = null;
+    do {
+      try {
+
+        boolean cursor = false;
+        try {
+          network = getAvailableNetwork();
+          if (network.getSrvProtocolVersion() >= 21) {
+            cursor = true;
+            network.writeRequestHeader(OChannelBinaryProtocol.REQUEST_COMMAND, getSessionId());
+            network.writeByte((byte) 'c'); // CURSOR
+            network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(iCommand));
+            network.writeInt(iCommand.getFetchSize());
+          }
+        } finally {
+          endRequest(network);
+        }
+
+        if (!cursor) {
+          // OLD SERVER: THE WHOLE RESULT IS RECEIVED AT ONCE
+          final OSQLSynchQuery<Object> query = new OSQLSynchQuery<Object>(iCommand.getText(), iCommand.getLimit());
+          query.setFetchPlan(iCommand.getFetchPlan());
+          final List<Object> result = iCommand.getParameters() != null ? (List<Object>) query.execute(iCommand.getParameters())
+              : (List<Object>) query.execute();
+
+          final OStorageRemoteCursor<Object> resultCursor = new OStorageRemoteCursor<Object>(this, -1, iCommand.getFetchSize());
+          resultCursor.setBatch(result, false);
+          return resultCursor;
+        }
+
+        try {
+          beginResponse(network);
+
+          final OStorageRemoteCursor<Object> resultCursor = new OStorageRemoteCursor<Object>(this, network.readInt(),
+              iCommand.getFetchSize());
+          readCursorBatch(network, resultCursor);
+          return resultCursor;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (Exception e) {
+        handleException(network, "Error on opening a cursor on command: " + iCommand, e);
+
+      }
+    } while (true);
+  }
+
+  /**
+   * Fetches the next batch of results of a cursor open on the server.
+   */
+  public <T> void fetchCursor(final OStorageRemoteCursor<T> iCursor) {
+    checkConnection();
+
+    // THE CURSOR CAN BE READ BY ANOTHER DATABASE OF THE THREAD: USE THE SESSION THAT OPENED IT
+    final String currentServerURL = getServerURL();
+    final int currentSessionId = getSessionId();
+    setSessionId(iCursor.getServerURL(), iCursor.getSessionId());
+    try {
+
+      OChannelBinaryAsynchClient network = null;
+      do {
+        try {
+
+          try {
+            network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND_FETCH);
+            network.writeInt(iCursor.getCursorId());
+            network.writeInt(iCursor.getFetchSize());
+          } finally {
+            endRequest(network);
+          }
+
+          try {
+            beginResponse(network);
+            readCursorBatch(network, iCursor);
+            return;
+          } finally {
+            endResponse(network);
+          }
+
+        } catch (Exception e) {
+          handleException(network, "Error on fetching the results of the cursor " + iCursor.getCursorId(), e);
+
+        }
+      } while (true);
+
+    } finally {
+      setSessionId(currentServerURL, currentSessionId);
+    }
+  }
+
+  /**
+   * Closes a cursor open on the server, stopping its command.
+   */
+  public void closeCursor(final OStorageRemoteCursor<?> iCursor) {
+    checkConnection();
+
+    final String currentServerURL = getServerURL();
+    final int currentSessionId = getSessionId();
+    setSessionId(iCursor.getServerURL(), iCursor.getSessionId());
+    try {
+
+      OChannelBinaryAsynchClient network = null;
+      do {
+        try {
+
+          try {
+            network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND_CLOSE);
+            network.writeInt(iCursor.getCursorId());
+          } finally {
+            endRequest(network);
+          }
+
+          try {
+            beginResponse(network);
+            return;
+          } finally {
+            endResponse(network);
+          }
+
+        } catch (Exception e) {
+          handleException(network, "Error on closing the cursor " + iCursor.getCursorId(), e);
+
+        }
+      } while (true);
+
+    } finally {
+      setSessionId(currentServerURL, currentSessionId);
+    }
+  }
+
   public void commit(final OTransaction iTx, Runnable callback) {
     checkConnection();
 
@@ -1477,8 +1697,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
       try {
         network = getAvailableNetwork();
         try {
-          network.writeByte(OChannelBinaryProtocol.REQUEST_DB_OPEN);
-          network.writeInt(getSessionId());
+          network.writeRequestHeader(OChannelBinaryProtocol.REQUEST_DB_OPEN, getSessionId());
 
           // @SINCE 1.0rc8
           sendClientInfo(network);
@@ -1491,6 +1710,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
           network.writeString(connectionUserName);
           network.writeString(connectionUserPassword);
 
+          sendCompression(network);
+
         } finally {
           endRequest(network);
         }
@@ -1513,6 +1734,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
           if (network.getSrvProtocolVersion() >= 14)
             network.readString();
 
+          readCompression(network);
+
           status = STATUS.OPEN;
 
           return network;
@@ -1544,6 +1767,34 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     }
   }
 
+  /**
+   * Asks the server to compress the records and the command results of the session with the codec configured.
+   */
+  protected void sendCompression(final OChannelBinaryAsynchClient network) throws IOException {
+    if (network.getSrvProtocolVersion() >= 22)
+      network.writeString(clientConfiguration.getValueAsString(OGlobalConfiguration.NETWORK_BINARY_COMPRESSION)).writeInt(
+          clientConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_COMPRESSION_THRESHOLD));
+  }
+
+  /**
+   * Reads the codec accepted by the server, used by all the sessions opened on it.
+   */
+  protected void readCompression(final OChannelBinaryAsynchClient network) throws IOException {
+    if (network.getSrvProtocolVersion() < 22)
+      return;
+
+    final OChannelBinaryCompression compression = OChannelBinaryCompression.getCompression(network.readString(),
+        clientConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_COMPRESSION_THRESHOLD));
+    if (compression != null)
+      compressions.put(network.getServerURL(), compression);
+    else
+      compressions.remove(network.getServerURL());
+  }
+
+  protected OChannelBinaryCompression getCompression(final OChannelBinaryAsynchClient network) {
+    return compressions.get(network.getServerURL());
+  }
+
   /**
    * Parse the URL in the following formats:<br/>
    */
@@ -1703,8 +1954,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
   protected OChannelBinaryAsynchClient beginRequest(final byte iCommand) throws IOException {
     final OChannelBinaryAsynchClient network = getAvailableNetwork();
 
-    network.writeByte(iCommand);
-    network.writeInt(getSessionId());
+    network.writeRequestHeader(iCommand, getSessionId());
 
     return network;
   }
@@ -1713,6 +1963,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     // FIND THE FIRST FREE CHANNEL AVAILABLE
 
     OChannelBinaryAsynchClient network = null;
+    OChannelBinaryAsynchClient sharedNetwork = null;
 
     int beginCursor = networkPoolCursor;
     while (network == null) {
@@ -1752,6 +2003,14 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
         if (networkPoolCursor == beginCursor) {
           // COMPLETE ROUND AND NOT FREE CONNECTIONS FOUND
 
+          // THE POOL LOCK MUST BE FREE TO WAIT FOR A CHANNEL: THE THREAD THAT IS WRITING COULD NEED IT
+          if (multiplexed && networkPool.size() >= minPool && networkPoolLock.getUnderlying().getHoldCount() == 1)
+            sharedNetwork = getSharedNetwork(serverURL);
+
+          if (sharedNetwork != null)
+            // THE CHANNELS ARE SHARED: WAIT FOR THE REQUEST IN WRITING ON THE NEXT ONE INSTEAD OF OPENING A NEW CONNECTION
+            break;
+
           if (networkPool.size() < maxPool) {
             // CREATE NEW CONNECTION
             network = createNetworkConnection();
@@ -1791,9 +2050,31 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
         networkPoolLock.unlock();
       }
     }
+
+    if (network == null) {
+      network = sharedNetwork;
+      network.getLockWrite().lock();
+    }
     return network;
   }
 
+  /**
+   * Returns the next channel of the pool connected to the server in round robin, to write the request as soon as the request in
+   * writing has been sent.
+   */
+  private OChannelBinaryAsynchClient getSharedNetwork(final String iServerURL) {
+    final int size = networkPool.size();
+    for (int i = 0; i < size; ++i) {
+      final int index = (networkPoolCursor + i) % size;
+      final OChannelBinaryAsynchClient n = networkPool.get(index);
+      if (iServerURL == null || n.getServerURL().equals(iServerURL)) {
+        networkPoolCursor = index + 1;
+        return n;
+      }
+    }
+    return null;
+  }
+
   private void removeDeadConnections() {
     // FREE DEAD CONNECTIONS
     int removedDeadConnections = 0;
@@ -1849,6 +2130,32 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     }
   }
 
+  /**
+   * Reads a batch of results of a cursor, putting the records in the local cache.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> void readCursorBatch(final OChannelBinaryAsynchClient iNetwork, final OStorageRemoteCursor<T> iCursor)
+      throws IOException {
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+
+    final List<T> batch = new ArrayList<T>();
+    byte status;
+    while ((status = iNetwork.readByte()) > 0) {
+      final OIdentifiable record = OChannelBinaryProtocol.readIdentifiable(iNetwork, getCompression(iNetwork));
+      if (record == null)
+        continue;
+
+      if (database != null && record instanceof ORecordInternal<?>)
+        database.getLevel1Cache().updateRecord((ORecordInternal<?>) record);
+
+      if (status == 1)
+        // PART OF THE RESULT SET
+        batch.add((T) record);
+    }
+
+    iCursor.setBatch(batch, iNetwork.readByte() == 1);
+  }
+
   /**
    * Starts listening the response.
    */
@@ -1932,12 +2239,12 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
 
     switch (txEntry.type) {
     case ORecordOperation.CREATED:
-      iNetwork.writeBytes(stream);
+      iNetwork.writeBytes(stream, getCompression(iNetwork));
       break;
 
     case ORecordOperation.UPDATED:
       iNetwork.writeVersion(txEntry.getRecord().getRecordVersion());
-      iNetwork.writeBytes(stream);
+      iNetwork.writeBytes(stream, getCompression(iNetwork));
       break;
 
     case ORecordOperation.DELETED:
@@ -2061,25 +2368,11 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
       network.writeVersion(iVersion);
       network.writeByte((byte) iMode);
 
-    } finally {
-      endRequest(network);
-    }
-
-    switch (iMode) {
-    case 0:
-      // SYNCHRONOUS
-      try {
-        beginResponse(network);
-        return network.readByte() == 1;
-      } finally {
-        endResponse(network);
-      }
-
-    case 1:
-      // ASYNCHRONOUS
-      if (iCallback != null) {
+      switch (iMode) {
+      case 1:
+        // ASYNCHRONOUS
         final int sessionId = getSessionId();
-        Callable<Object> response = new Callable<Object>() {
+        readResponseAsynch(network, new Callable<Object>() {
           public Object call() throws Exception {
             Boolean result;
 
@@ -2095,11 +2388,42 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
             iCallback.call(iRid, result);
             return null;
           }
-        };
-        asynchExecutor.submit(new FutureTask<Object>(response));
+        });
+        break;
+
+      case 2:
+        // NO ANSWER FROM THE SERVER
+        network.skipResponse();
       }
+
+    } finally {
+      endRequest(network);
     }
+
+    if (iMode == 0)
+      // SYNCHRONOUS
+      try {
+        beginResponse(network);
+        return network.readByte() == 1;
+      } finally {
+        endResponse(network);
+      }
+
     return false;
   }
 
+  /**
+   * Reads the response of the request being written with the asynchronous executor. Called before the request is ended, so the
+   * executor reads the responses of the channel in the order of the requests.
+   */
+  private void readResponseAsynch(final OChannelBinaryAsynchClient iNetwork, final Callable<Object> iResponse) {
+    final OChannelBinaryAsynchClient.ResponseWaiter waiter = iNetwork.transferResponse();
+    asynchExecutor.submit(new FutureTask<Object>(new Callable<Object>() {
+      public Object call() throws Exception {
+        iNetwork.claimResponse(waiter);
+        return iResponse.call();
+      }
+    }));
+  }
+
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.client.remote;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.orient.core.command.OCommandCursor;
+
+/**
+ * Cursor open on the server: the results are fetched a batch at a time with the session that executed the command, even when the
+ * cursor is read by another database instance of the thread.
+ *
+ * @param <T>
+ *          Type of the results
+ */
+public class OStorageRemoteCursor<T> implements OCommandCursor<T> {
+  private final OStorageRemote storage;
+  private final String         serverURL;
+  private final int            sessionId;
+  private final int            cursorId;
+  private final int            fetchSize;
+  private Iterator<T>          current = Collections.<T> emptyList().iterator();
+  private boolean              open;
+
+  public OStorageRemoteCursor(final OStorageRemote iStorage, final int iCursorId, final int iFetchSize) {
+    storage = iStorage;
+    serverURL = iStorage.getServerURL();
+    sessionId = iStorage.getSessionId();
+    cursorId = iCursorId;
+    fetchSize = iFetchSize;
+  }
+
+  public boolean hasNext() {
+    while (!current.hasNext()) {
+      if (!open)
+        return false;
+
+      storage.fetchCursor(this);
+    }
+    return true;
+  }
+
+  public T next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    return current.next();
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException("remove()");
+  }
+
+  public Iterator<T> iterator() {
+    return this;
+  }
+
+  public void close() {
+    current = Collections.<T> emptyList().iterator();
+    if (open) {
+      open = false;
+      storage.closeCursor(this);
+    }
+  }
+
+  public String getServerURL() {
+    return serverURL;
+  }
+
+  public int getSessionId() {
+    return sessionId;
+  }
+
+  public int getCursorId() {
+    return cursorId;
+  }
+
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  /**
+   * Sets the results just received from the server.
+   *
+   * @param iOpen
+   *          True if the server has more results to fetch
+   */
+  protected void setBatch(final List<T> iBatch, final boolean iOpen) {
+    current = iBatch.iterator();
+    open = iOpen;
+  }
+}
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -230,6 +231,16 @@ public class OStorageRemoteThread implements OStorageProxy {
     }
   }
 
+  @Override
+  public List<ORawBuffer> readRecords(final List<ORecordId> iRids, final String iFetchPlan) {
+    pushSession();
+    try {
+      return delegate.readRecords(iRids, iFetchPlan);
+    } finally {
+      popSession();
+    }
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, ORecordCallback<ORecordVersion> iCallback) {
     pushSession();
@@ -1408,6 +1408,11 @@ public abstract class OMVRBTree<K, V> extends AbstractMap<K, V> implements ONavi
       }
     }
 
+    @Override
+    public boolean hasNext() {
+      return hasPrevious();
+    }
+
     public Map.Entry<K, V> next() {
       return prevEntry();
     }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.command;
+
+import java.util.Iterator;
+
+/**
+ * Results of a command read a batch at a time while the command is still executing. The command is released once all the results
+ * have been read or the cursor is closed.
+ *
+ * @param <T>
+ *          Type of the results
+ * @see OCommandResultCursor
+ */
+public interface OCommandCursor<T> extends Iterator<T>, Iterable<T> {
+  /**
+   * Stops the command and releases the resources of the cursor. The results not read yet are discarded.
+   */
+  public void close();
+}
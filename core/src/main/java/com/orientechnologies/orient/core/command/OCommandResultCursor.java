@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Cursor over the results of a command executed by a thread of its own. The command runs only while the results are fetched: as
+ * soon as a batch is complete the command is suspended until the next fetch. So the database is never used by two threads at the
+ * same time and only a batch of results is kept in memory, unless the command collects them itself, as ORDER BY does. A suspended
+ * command keeps the locks it holds.<br/>
+ * The results that are not records are returned as documents with the result in the field "value".
+ *
+ * @param <T>
+ *          Type of the results
+ */
+public class OCommandResultCursor<T> implements OCommandCursor<T>, OCommandResultListener {
+  private final ODatabaseRecord     database;
+  private final OCommandRequestText command;
+  private final int                 fetchSize;
+  private List<Object>              batch      = new ArrayList<Object>();
+  private int                       batchSize;
+  private Iterator<Object>          current    = Collections.emptyList().iterator();
+  private Thread                    thread;
+  private boolean                   running;
+  private boolean                   ended;
+  private boolean                   closed;
+  private long                      results;
+  private Throwable                 error;
+  private long                      lastAccess = System.currentTimeMillis();
+
+  public OCommandResultCursor(final ODatabaseRecord iDatabase, final OCommandRequestText iCommand, final int iFetchSize) {
+    database = iDatabase;
+    command = iCommand;
+    fetchSize = iFetchSize;
+  }
+
+  /**
+   * Executes the command until the results requested have been collected or the command has ended.
+   *
+   * @param iMax
+   *          Maximum number of results to return
+   * @return The next results, empty when the command has ended
+   */
+  public synchronized List<Object> fetch(final int iMax) {
+    if (closed)
+      throw new OCommandExecutionException("The cursor of the command " + command + " has been closed");
+
+    lastAccess = System.currentTimeMillis();
+    if (ended)
+      return Collections.emptyList();
+
+    batch = new ArrayList<Object>();
+    batchSize = Math.max(iMax, 1);
+
+    if (thread == null) {
+      thread = new Thread(Orient.instance().getThreadGroup(), new Runnable() {
+        public void run() {
+          execute();
+        }
+      }, "OrientDB command cursor");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    // GIVE THE TURN TO THE COMMAND AND WAIT FOR THE BATCH
+    running = true;
+    notifyAll();
+    try {
+      while (running)
+        wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OCommandExecutionException("Interrupted while fetching the results of the command " + command);
+    } finally {
+      lastAccess = System.currentTimeMillis();
+    }
+
+    if (error != null) {
+      if (error instanceof OException)
+        throw (OException) error;
+      throw new OCommandExecutionException("Error on execution of command: " + command, error);
+    }
+
+    final List<Object> result = batch;
+    batch = new ArrayList<Object>();
+    return result;
+  }
+
+  /**
+   * Called by the command for every result: once the batch is complete the command waits for the next fetch.
+   */
+  public synchronized boolean result(final Object iRecord) {
+    if (closed)
+      return false;
+
+    results++;
+    batch.add(iRecord instanceof OIdentifiable ? iRecord : new ODocument().field("value", iRecord));
+    if (batch.size() < batchSize)
+      return true;
+
+    // BATCH COMPLETE: GIVE THE TURN BACK TO THE READER
+    running = false;
+    notifyAll();
+    try {
+      while (!running && !closed)
+        wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    return !closed;
+  }
+
+  public void end() {
+  }
+
+  public synchronized boolean isEnded() {
+    return ended;
+  }
+
+  /**
+   * Tells if the cursor has been waiting for a fetch longer than the timeout.
+   */
+  public synchronized boolean isExpired(final long iTimeout) {
+    return !running && !ended && System.currentTimeMillis() - lastAccess > iTimeout;
+  }
+
+  public OCommandRequestText getCommand() {
+    return command;
+  }
+
+  public boolean hasNext() {
+    while (!current.hasNext()) {
+      synchronized (this) {
+        if (ended || closed)
+          return false;
+      }
+      current = fetch(fetchSize).iterator();
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  public T next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    return (T) current.next();
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException("remove()");
+  }
+
+  public Iterator<T> iterator() {
+    return this;
+  }
+
+  /**
+   * Stops the command and waits for it to release the database.
+   */
+  public synchronized void close() {
+    if (closed)
+      return;
+
+    closed = true;
+    notifyAll();
+
+    if (thread != null && thread != Thread.currentThread())
+      try {
+        while (!ended)
+          wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+  }
+
+  private void execute() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(database);
+    try {
+      command.setResultListener(this);
+      final Object result = database.getStorage().command(command);
+
+      final boolean streamed;
+      synchronized (this) {
+        streamed = results > 0;
+      }
+
+      if (!streamed && result != null)
+        // THE COMMAND HAS RETURNED THE RESULT INSTEAD OF PASSING IT TO THE LISTENER
+        if (OMultiValue.isMultiValue(result)) {
+          for (Object o : OMultiValue.getMultiValueIterable(result))
+            if (!result(o))
+              break;
+        } else
+          result(result);
+
+    } catch (Throwable t) {
+      synchronized (this) {
+        error = t;
+      }
+    } finally {
+      ODatabaseRecordThreadLocal.INSTANCE.remove();
+
+      synchronized (this) {
+        ended = true;
+        running = false;
+        notifyAll();
+      }
+    }
+  }
+}
@@ -63,6 +63,14 @@ public enum OGlobalConfiguration {
 
   DISK_WRITE_CACHE_PART("storage.diskCache.writeCachePart", "Percent of disk cache which is use as write cache", Integer.class, 30),
 
+  DISK_CACHE_PARTITIONS("storage.diskCache.partitions",
+      "Amount of partitions of disk read cache, each partition is guarded by its own lock. Value bigger than 1 decreases contention"
+          + " between threads which read pages concurrently. It is rounded down to power of 2", Integer.class, 1),
+
+  DISK_CACHE_READ_AHEAD_PAGES("storage.diskCache.readAheadPages",
+      "Maximum amount of pages which are asynchronously loaded into disk cache when sequential read of file is detected."
+          + " Is not used by partitioned disk cache. 0 switches read ahead off", Integer.class, 16),
+
   DISK_WRITE_CACHE_PAGE_TTL("storage.diskCache.writeCachePageTTL",
       "Max time till page will be flushed from write cache in seconds", Long.class, 24 * 60 * 60),
 
@@ -92,6 +100,9 @@ public enum OGlobalConfiguration {
 
   WAL_COMMIT_TIMEOUT("storage.wal.commitTimeout", "Maximum interval between WAL commits (in ms.)", Integer.class, 1000),
 
+  WAL_GROUP_COMMIT("storage.wal.groupCommit", "Transaction commit waits till WAL records are synced to the disk. "
+      + "Records of concurrent transactions are flushed together by single fsync", Boolean.class, false),
+
   WAL_SHUTDOWN_TIMEOUT("storage.wal.shutdownTimeout", "Maximum wait interval between events when background flush thread"
       + " will receive shutdown command and when background flush will be stopped (in ms.)", Integer.class, 10000),
 
@@ -103,6 +114,11 @@ public enum OGlobalConfiguration {
       "Amount of processed log operations, after which status of data restore procedure will be printed 0 or negative value, means that status will not be printed",
       Integer.class, 10000),
 
+  WAL_RESTORE_THREADS("storage.wal.restoreThreads",
+      "Amount of threads which apply changes of pages during data restore from WAL. Changes of the same page are always applied"
+          + " by single thread in the order they were logged. 1 means that data are restored by thread which opens storage",
+      Integer.class, 1),
+
   WAL_READ_CACHE_SIZE("storage.wal.readCacheSize", "Size of WAL read cache in amount of pages", Integer.class, 1000),
 
   WAL_FUZZY_CHECKPOINT_SHUTDOWN_TIMEOUT("storage.wal.fuzzyCheckpointShutdownWait",
@@ -255,6 +271,18 @@ public enum OGlobalConfiguration {
   INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT("index.notunique.useSBTreeContainerByDefault",
       "Prefer SBTree based algorithm instead MVRBTree for storing sets of RID", Boolean.class, true),
 
+  INDEX_BULK_LOAD("index.bulkLoad",
+      "Rebuild SBTree indexes sorting the keys and writing the tree from the leaves up, instead of putting keys one by one",
+      Boolean.class, true),
+
+  INDEX_BULK_LOAD_FILL_FACTOR("index.bulkLoad.fillFactor",
+      "Percentage of the SBTree bucket filled by the bulk load of keys, the rest is kept for later insertions (90 by default)",
+      Integer.class, 90),
+
+  INDEX_BULK_LOAD_MAX_KEYS_IN_MEMORY("index.bulkLoad.maxKeysInMemory",
+      "Maximum number of keys kept in memory to sort them during the bulk load of an index. Beyond it sorted runs are written in temporary files and merged. -1 means unlimited",
+      Integer.class, 500000),
+
   // TREEMAP
   MVRBTREE_TIMEOUT("mvrbtree.timeout", "Maximum timeout to get lock against the OMVRB-Tree", Integer.class, 5000),
 
@@ -299,6 +327,10 @@ public enum OGlobalConfiguration {
       "Maximum size of value which can be put in SBTree without creation link to standalone page in bytes (40960 by default)",
       Integer.class, 40960),
 
+  SBTREE_KEY_PREFIX_COMPRESSION("sbtree.keyPrefixCompression",
+      "Whether pages of new SBTree indexes store string and composite keys without their common prefix and separators of leaves shortened to the minimum",
+      Boolean.class, false),
+
   SBTREEBONSAI_BUCKET_SIZE("sbtreebonsai.bucketSize",
       "Size of bucket in OSBTreeBonsai in kB. Contract: bucketSize < storagePageSize, storagePageSize % bucketSize == 0.",
       Integer.class, 2),
@@ -306,6 +338,10 @@ public enum OGlobalConfiguration {
   // COLLECTIONS
   LAZYSET_WORK_ON_STREAM("lazyset.workOnStream", "Upon add avoid unmarshalling set", Boolean.class, true),
 
+  LAZYSET_BATCH_LOAD_SIZE("lazyset.batchLoadSize",
+      "Maximum number of links of a lazy list loaded with a single request to a remote server. 0 loads them one by one",
+      Integer.class, 50),
+
   PREFER_SBTREE_SET("collections.preferSBTreeSet", "This config is experimental.", Boolean.class, false),
 
   // FILE
@@ -403,6 +439,26 @@ public enum OGlobalConfiguration {
 
   NETWORK_BINARY_DEBUG("network.binary.debug", "Debug mode: print all data incoming on the binary channel", Boolean.class, false),
 
+  NETWORK_BINARY_SELECTOR_ENABLED("network.binary.selector.enabled",
+      "Serves the binary connections with selector threads and a pool of workers instead of a thread per connection",
+      Boolean.class, false),
+
+  NETWORK_BINARY_SELECTOR_THREADS("network.binary.selector.threads",
+      "Number of threads waiting for the requests of the idle binary connections", Integer.class, 2),
+
+  NETWORK_BINARY_SELECTOR_WORKERS("network.binary.selector.workers", "Maximum number of threads executing binary requests",
+      Integer.class, 64),
+
+  NETWORK_BINARY_SELECTOR_QUEUE_SIZE("network.binary.selector.queueSize",
+      "Maximum number of binary requests waiting for a worker, beyond that no more requests are read", Integer.class, 1000),
+
+  NETWORK_BINARY_COMPRESSION("network.binary.compression",
+      "Codec the client asks the server to compress the records and the command results with: gzip, snappy or empty for none",
+      String.class, ""),
+
+  NETWORK_BINARY_COMPRESSION_THRESHOLD("network.binary.compression.threshold",
+      "Minimum size in bytes of the records to compress when the binary compression is enabled", Integer.class, 1024),
+
   NETWORK_HTTP_MAX_CONTENT_LENGTH("network.http.maxLength", "TCP/IP max content length in bytes for HTTP requests", Integer.class,
       1000000),
 
@@ -453,11 +509,66 @@ public enum OGlobalConfiguration {
   // COMMAND
   COMMAND_TIMEOUT("command.timeout", "Default timeout for commands expressed in milliseconds", Long.class, 0),
 
+  COMMAND_CURSOR_FETCH_SIZE("command.cursor.fetchSize", "Default number of results read with every batch of a command cursor",
+      Integer.class, 1000),
+
+  COMMAND_CURSOR_TIMEOUT("command.cursor.timeout",
+      "Time in milliseconds a cursor can stay open on the server without fetches, then it's closed with its command", Long.class,
+      60000),
+
+  // QUERY
+  QUERY_ORDER_BY_MAX_RECORDS_IN_MEMORY("query.orderBy.maxRecordsInMemory",
+      "Maximum number of records kept in memory to sort the result of a query. Beyond it sorted runs are written in temporary files and merged. -1 means unlimited",
+      Integer.class, 100000),
+
+  QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY("query.groupBy.maxGroupsInMemory",
+      "Maximum number of groups kept in memory to aggregate the result of a query with GROUP BY. Beyond it the records of the other groups are written in temporary files, partitioned by group, and aggregated afterwards. -1 means unlimited",
+      Integer.class, 100000),
+
+  QUERY_STATEMENT_CACHE_SIZE("query.statementCache.size",
+      "Number of SELECT texts whose parsed statements are kept per database to execute them again without parsing. 0 disables the cache",
+      Integer.class, 500),
+
+  QUERY_INDEX_STATISTICS_HISTOGRAM_BUCKETS("query.indexStatistics.histogramBuckets",
+      "Number of buckets of the histograms of index keys used to estimate how many records a range condition selects",
+      Integer.class, 100),
+
+  QUERY_INDEX_STATISTICS_AUTO_ANALYZE_MAX_KEYS("query.indexStatistics.autoAnalyzeMaxKeys",
+      "Maximum number of keys of an index whose missing or stale statistics are collected by the query that needs them. Statistics of bigger indexes are collected by ANALYZE INDEX. -1 means unlimited",
+      Integer.class, 100000),
+
+  QUERY_INDEX_SCAN_THRESHOLD("query.indexSelection.scanThreshold",
+      "Share of the records of a class, estimated by index statistics, above which a query browses the class instead of using an index. 1 to always use indexes",
+      Float.class, 0.3f),
+
+  QUERY_INDEX_SCAN_MIN_RECORDS("query.indexSelection.scanMinRecords",
+      "Minimum number of records of a class to browse it instead of using an index that selects too many records",
+      Long.class, 10000),
+
+  QUERY_PARALLEL_SCAN("query.parallelScan.enabled",
+      "Scans the clusters of the classes queried without indexes with several threads, each one filtering a range of records",
+      Boolean.class, false),
+
+  QUERY_PARALLEL_SCAN_THREADS("query.parallelScan.threads",
+      "Number of threads shared by the parallel scans. 0 means the number of processors. Read once, at the first parallel scan",
+      Integer.class, 0),
+
+  QUERY_PARALLEL_SCAN_MIN_RECORDS("query.parallelScan.minRecords",
+      "Minimum number of records of a class to scan it with several threads", Long.class, 50000),
+
+  QUERY_PARALLEL_SCAN_RANGE_SIZE("query.parallelScan.rangeSize",
+      "Number of cluster positions scanned by a thread at a time in a parallel scan", Integer.class, 10000),
+
   // CLIENT
   CLIENT_CHANNEL_MIN_POOL("client.channel.minPool", "Minimum pool size", Integer.class, 1),
 
   CLIENT_CHANNEL_MAX_POOL("client.channel.maxPool", "Maximum channel pool size", Integer.class, 20),
 
+  CLIENT_CHANNEL_MULTIPLEX("client.channel.multiplex",
+      "Shares the channels of the pool among the threads: the requests are written back-to-back on the same channel and a thread "
+          + "per channel routes the responses to the threads that wait for them. The pool keeps minPool channels open", Boolean.class,
+      false),
+
   CLIENT_CONNECT_POOL_WAIT_TIMEOUT("client.connectionPool.waitTimeout",
       "Maximum time which client should wait connection from the pool", Integer.class, 5000),
 
@@ -42,6 +42,7 @@ import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.metadata.security.OUser;
 import com.orientechnologies.orient.core.query.OQuery;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.storage.ORecordCallback;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
@@ -164,6 +165,10 @@ public abstract class ODatabaseRecordWrapperAbstract<DB extends ODatabaseRecord>
     return underlying.getRecordType();
   }
 
+  public ORecordSerializer getRecordSerializer() {
+    return underlying.getRecordSerializer();
+  }
+
   public <REC extends ORecordInternal<?>> ORecordIteratorCluster<REC> browseCluster(final String iClusterName) {
     return underlying.browseCluster(iClusterName);
   }
@@ -240,6 +245,10 @@ public abstract class ODatabaseRecordWrapperAbstract<DB extends ODatabaseRecord>
     return (RET) underlying.getRecord(iIdentifiable);
   }
 
+  public List<ORecordInternal<?>> load(final List<? extends ORID> iRecordIds, final String iFetchPlan) {
+    return underlying.load(iRecordIds, iFetchPlan);
+  }
+
   public <RET extends ORecordInternal<?>> RET load(final ORecordInternal<?> iRecord) {
     return (RET) underlying.load(iRecord);
   }
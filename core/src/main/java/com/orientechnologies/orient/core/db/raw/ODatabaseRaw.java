@@ -252,6 +252,17 @@ public class ODatabaseRaw extends OListenerManger<ODatabaseListener> implements
     }
   }
 
+  public List<ORawBuffer> read(final List<ORecordId> iRids, final String iFetchPlan) {
+    OFetchHelper.checkFetchPlanValid(iFetchPlan);
+
+    try {
+      return storage.readRecords(iRids, iFetchPlan);
+
+    } catch (Throwable t) {
+      throw new ODatabaseException("Error on retrieving records " + iRids, t);
+    }
+  }
+
   public OStorageOperationResult<ORecordVersion> save(final int iDataSegmentId, final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, boolean iForceCreate,
       final ORecordCallback<? extends Number> iRecordCreatedCallback, final ORecordCallback<ORecordVersion> iRecordUpdatedCallback) {
@@ -15,12 +15,16 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.List;
+
 import com.orientechnologies.orient.core.db.ODataSegmentStrategy;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
 import com.orientechnologies.orient.core.db.record.ridset.sbtree.OSBTreeCollectionManager;
 import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
 import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 
 /**
  * Generic interface for record based Database implementations.
@@ -64,11 +68,30 @@ public interface ODatabaseRecord extends ODatabaseComplex<ORecordInternal<?>> {
    */
   public <RET extends ORecordInternal<?>> RET getRecord(OIdentifiable iIdentifiable);
 
+  /**
+   * Loads several records with a single read of the storage: a remote database sends one request for all of them. The records
+   * already in the transaction or in the local cache are taken from there.
+   * 
+   * @param iRecordIds
+   *          The record ids of the records to load
+   * @param iFetchPlan
+   *          Fetch plan used, null to load only the records requested
+   * @return The records in the order of the record ids, null for the records not found
+   */
+  public List<ORecordInternal<?>> load(List<? extends ORID> iRecordIds, String iFetchPlan);
+
   /**
    * Returns the default record type for this kind of database.
    */
   public byte getRecordType();
 
+  /**
+   * Returns the serializer used to marshall the documents of this database. It can be changed by setting the custom property
+   * "recordSerializer" of the database with the name of the serializer, i.e.: ALTER DATABASE CUSTOM
+   * recordSerializer=ORecordDocument2binary
+   */
+  public ORecordSerializer getRecordSerializer();
+
   /**
    * Returns true if current configuration retains objects, otherwise false
    * 
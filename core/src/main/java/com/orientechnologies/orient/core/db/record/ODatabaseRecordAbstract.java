@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
@@ -73,6 +74,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.schedule.OSchedulerTrigger;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.ORecordCallback;
@@ -90,9 +92,11 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
   private final OSBTreeCollectionManager              sbTreeCollectionManager;
   private OMetadataDefault                            metadata;
   private OUser                                       user;
+  public static final String                          RECORD_SERIALIZER   = "recordSerializer";
   private static final String                         DEF_RECORD_FORMAT   = "csv";
   private byte                                        recordType;
   private String                                      recordFormat;
+  private ORecordSerializer                           recordSerializer;
   private Map<ORecordHook, ORecordHook.HOOK_POSITION> hooks               = new LinkedHashMap<ORecordHook, ORecordHook.HOOK_POSITION>();
   private final Set<ORecordHook>                      unmodifiableHooks;
   private boolean                                     retainRecords       = true;
@@ -125,6 +129,7 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 
     try {
       super.open(iUserName, iUserPassword);
+      recordSerializer = resolveRecordSerializer();
       sbTreeCollectionManager.startup();
       level1Cache.startup();
 
@@ -185,6 +190,7 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 
     try {
       super.create();
+      recordSerializer = resolveRecordSerializer();
 
       sbTreeCollectionManager.startup();
       level1Cache.startup();
@@ -307,6 +313,44 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return (RET) executeReadRecord((ORecordId) iRecord.getIdentity(), iRecord, iFetchPlan, iIgnoreCache, false);
   }
 
+  public List<ORecordInternal<?>> load(final List<? extends ORID> iRecordIds, final String iFetchPlan) {
+    checkOpeness();
+
+    final ORecordInternal<?>[] records = new ORecordInternal<?>[iRecordIds.size()];
+    final List<ORecordId> toRead = new ArrayList<ORecordId>();
+    final List<Integer> toReadPositions = new ArrayList<Integer>();
+
+    for (int i = 0; i < records.length; ++i) {
+      final ORecordId rid = (ORecordId) iRecordIds.get(i);
+      if (rid.isPersistent() && getTransaction().getRecord(rid) == null && getLevel1Cache().findRecord(rid) == null) {
+        checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, getClusterNameById(rid.getClusterId()));
+        toRead.add(rid);
+        toReadPositions.add(i);
+      } else
+        // IN TRANSACTION, IN CACHE OR NOT PERSISTENT YET: NOTHING TO READ TOGETHER WITH THE OTHERS
+        records[i] = load(rid, iFetchPlan);
+    }
+
+    if (toRead.size() == 1)
+      records[toReadPositions.get(0)] = load(toRead.get(0), iFetchPlan);
+    else if (!toRead.isEmpty())
+      try {
+        final List<ORawBuffer> buffers = underlying.read(toRead, iFetchPlan);
+        for (int i = 0; i < buffers.size(); ++i)
+          records[toReadPositions.get(i)] = fillRecord(toRead.get(i), null, buffers.get(i), false);
+
+      } catch (OException e) {
+        // RE-THROW THE EXCEPTION
+        throw e;
+
+      } catch (Exception e) {
+        // WRAP IT AS ODATABASE EXCEPTION
+        OLogManager.instance().exception("Error on retrieving records " + toRead, e, ODatabaseException.class);
+      }
+
+    return Arrays.asList(records);
+  }
+
   /**
    * Loads a record using a fetch plan.
    */
@@ -509,6 +553,18 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return recordType;
   }
 
+  public ORecordSerializer getRecordSerializer() {
+    return recordSerializer;
+  }
+
+  @Override
+  public <THISDB extends ODatabase> THISDB set(final ATTRIBUTES iAttribute, final Object iValue) {
+    final THISDB result = super.set(iAttribute, iValue);
+    if (iAttribute == ATTRIBUTES.CUSTOM)
+      recordSerializer = resolveRecordSerializer();
+    return result;
+  }
+
   public <RET extends Object> RET newInstance() {
     return (RET) Orient.instance().getRecordFactoryManager().newInstance(recordType);
   }
@@ -704,29 +760,7 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
       }
 
       final ORawBuffer recordBuffer = underlying.read(iRid, iFetchPlan, iIgnoreCache, loadTombstones).getResult();
-      if (recordBuffer == null)
-        return null;
-
-      if (iRecord == null || iRecord.getRecordType() != recordBuffer.recordType)
-        // NO SAME RECORD TYPE: CAN'T REUSE OLD ONE BUT CREATE A NEW ONE FOR IT
-        iRecord = Orient.instance().getRecordFactoryManager().newInstance(recordBuffer.recordType);
-
-      iRecord.fill(iRid, recordBuffer.version, recordBuffer.buffer, false);
-
-      if (iRecord.getRecordVersion().isTombstone())
-        return (RET) iRecord;
-
-      if (callbackHooks(TYPE.BEFORE_READ, iRecord) == RESULT.SKIP)
-        return null;
-
-      iRecord.fromStream(recordBuffer.buffer);
-
-      callbackHooks(TYPE.AFTER_READ, iRecord);
-
-      if (!iIgnoreCache)
-        getLevel1Cache().updateRecord(iRecord);
-
-      return (RET) iRecord;
+      return (RET) fillRecord(iRid, iRecord, recordBuffer, iIgnoreCache);
     } catch (OException e) {
       // RE-THROW THE EXCEPTION
       throw e;
@@ -738,6 +772,36 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return null;
   }
 
+  /**
+   * Fills a record with the content read from the storage, calling the hooks.
+   */
+  private ORecordInternal<?> fillRecord(final ORecordId iRid, ORecordInternal<?> iRecord, final ORawBuffer iRecordBuffer,
+      final boolean iIgnoreCache) {
+    if (iRecordBuffer == null)
+      return null;
+
+    if (iRecord == null || iRecord.getRecordType() != iRecordBuffer.recordType)
+      // NO SAME RECORD TYPE: CAN'T REUSE OLD ONE BUT CREATE A NEW ONE FOR IT
+      iRecord = Orient.instance().getRecordFactoryManager().newInstance(iRecordBuffer.recordType);
+
+    iRecord.fill(iRid, iRecordBuffer.version, iRecordBuffer.buffer, false);
+
+    if (iRecord.getRecordVersion().isTombstone())
+      return iRecord;
+
+    if (callbackHooks(TYPE.BEFORE_READ, iRecord) == RESULT.SKIP)
+      return null;
+
+    iRecord.fromStream(iRecordBuffer.buffer);
+
+    callbackHooks(TYPE.AFTER_READ, iRecord);
+
+    if (!iIgnoreCache)
+      getLevel1Cache().updateRecord(iRecord);
+
+    return iRecord;
+  }
+
   public <RET extends ORecordInternal<?>> RET executeSaveRecord(final ORecordInternal<?> iRecord, String iClusterName,
       final ORecordVersion iVersion, final byte iRecordType, boolean iCallTriggers, final OPERATION_MODE iMode,
       boolean iForceCreate, final ORecordCallback<? extends Number> iRecordCreatedCallback,
@@ -974,6 +1038,8 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 
   public void setInternal(final ATTRIBUTES iAttribute, final Object iValue) {
     underlying.set(iAttribute, iValue);
+    if (iAttribute == ATTRIBUTES.CUSTOM)
+      recordSerializer = resolveRecordSerializer();
   }
 
   public OUser getUser() {
@@ -1082,6 +1148,19 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return ORecordSerializerFactory.instance().getFormatForObject(iObject, recordFormat);
   }
 
+  private ORecordSerializer resolveRecordSerializer() {
+    final String serializerName = underlying.getCustom(RECORD_SERIALIZER);
+    if (serializerName != null) {
+      final ORecordSerializer serializer = ORecordSerializerFactory.instance().getFormat(serializerName);
+      if (serializer != null)
+        return serializer;
+
+      OLogManager.instance().warn(this, "Record serializer '%s' configured in database '%s' is not registered, using the default one",
+          serializerName, getName());
+    }
+    return ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
+  }
+
   @Override
   protected void checkOpeness() {
     if (isClosed())
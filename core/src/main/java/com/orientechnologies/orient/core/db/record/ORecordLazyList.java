@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -22,14 +23,18 @@ import java.util.ListIterator;
 
 import com.orientechnologies.common.collection.OLazyIterator;
 import com.orientechnologies.common.collection.OLazyIteratorListWrapper;
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ORecordMultiValueHelper.MULTIVALUE_CONTENT_TYPE;
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.storage.OStorageProxy;
 
 /**
  * Lazy implementation of ArrayList. It's bound to a source ORecord object to keep track of changes. This avoid to call the
@@ -127,8 +132,15 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
   @Override
   public OLazyIterator<OIdentifiable> iterator() {
     lazyLoad(false);
-    return new OLazyRecordIterator(sourceRecord, new OLazyIteratorListWrapper<OIdentifiable>(super.listIterator()),
-        autoConvertToRecord);
+    final ListIterator<OIdentifiable> it = super.listIterator();
+    return new OLazyRecordIterator(sourceRecord, new OLazyIteratorListWrapper<OIdentifiable>(it) {
+      @Override
+      public OIdentifiable next() {
+        if (autoConvertToRecord && it.hasNext())
+          loadLinksInBatch(it.nextIndex());
+        return super.next();
+      }
+    }, autoConvertToRecord);
   }
 
   @Override
@@ -198,8 +210,10 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
   @Override
   public OIdentifiable get(final int index) {
     lazyLoad(false);
-    if (autoConvertToRecord)
+    if (autoConvertToRecord) {
+      loadLinksInBatch(index);
       convertLink2Record(index);
+    }
     return super.get(index);
   }
 
@@ -302,6 +316,7 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 
     for (int i = 0; i < size(); ++i) {
       try {
+        loadLinksInBatch(i);
         convertLink2Record(i);
       } catch (ORecordNotFoundException e) {
         // LEAVE THE RID DIRTY
@@ -364,6 +379,60 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
     }
   }
 
+  /**
+   * Loads the links starting from the item requested with a single request, when the database is remote. The items loaded are
+   * replaced by their records, the others are left as links to be loaded one by one.
+   * 
+   * @param iFrom
+   *          Position of the first item to load
+   * @see OGlobalConfiguration#LAZYSET_BATCH_LOAD_SIZE
+   */
+  private void loadLinksInBatch(final int iFrom) {
+    if (ridOnly || !autoConvertToRecord || !(super.get(iFrom) instanceof ORecordId))
+      // PRECONDITIONS
+      return;
+
+    final int batchSize = OGlobalConfiguration.LAZYSET_BATCH_LOAD_SIZE.getValueAsInteger();
+    if (batchSize < 2)
+      return;
+
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (database == null || !(database.getStorage() instanceof OStorageProxy))
+      // LOCAL STORAGES READ A RECORD AT A TIME ANYWAY
+      return;
+
+    final List<ORID> rids = new ArrayList<ORID>();
+    final List<Integer> positions = new ArrayList<Integer>();
+    final int tot = super.size();
+    for (int i = iFrom; i < tot && rids.size() < batchSize; ++i) {
+      final OIdentifiable o = super.get(i);
+      if (o instanceof ORecordId && ((ORecordId) o).isPersistent()) {
+        rids.add((ORecordId) o);
+        positions.add(i);
+      }
+    }
+
+    if (rids.size() < 2)
+      return;
+
+    try {
+      final List<ORecordInternal<?>> records = database.load(rids, null);
+
+      marshalling = true;
+      try {
+        for (int i = 0; i < records.size(); ++i)
+          if (records.get(i) != null)
+            super.set(positions.get(i), records.get(i));
+      } finally {
+        marshalling = false;
+      }
+
+    } catch (Exception e) {
+      // THE LINKS ARE LOADED ONE BY ONE
+      OLogManager.instance().debug(this, "Error on loading the links %s of the collection in batch", e, rids);
+    }
+  }
+
   /**
    * Convert the item requested from record to link.
    * 
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.id;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+/**
+ * Set of record ids kept as compressed bitmaps, to intersect and unite the records returned by several indexes cheaply. Record ids
+ * are grouped by cluster and by the high 48 bits of their position: each group keeps the low 16 bits of its positions in a sorted
+ * array while they are few, in a bitmap of 65536 bits otherwise. Record ids that are not persistent or whose position is not a
+ * long are kept as they are.
+ * <p/>
+ * Persistent record ids are returned ordered by cluster and position, the others after them in the order they have been added.
+ */
+public class ORidBitmap extends AbstractCollection<OIdentifiable> {
+  private static final int              MAX_ARRAY_SIZE = 4096;
+  private static final long             HIGH_MASK      = 0xFFFFFFFFFFFFL;
+
+  private final TreeMap<Long, Container> containers    = new TreeMap<Long, Container>();
+  private final Set<ORID>                others        = new LinkedHashSet<ORID>();
+  private int                            size;
+
+  public ORidBitmap() {
+  }
+
+  public ORidBitmap(final Collection<? extends OIdentifiable> identifiables) {
+    for (OIdentifiable identifiable : identifiables)
+      add(identifiable);
+  }
+
+  @Override
+  public boolean add(final OIdentifiable identifiable) {
+    final ORID rid = identifiable.getIdentity();
+    final long key = key(rid);
+    if (key < 0) {
+      if (!others.add(rid))
+        return false;
+
+      size++;
+      return true;
+    }
+
+    final Container container = containers.get(key);
+    final int low = (int) (rid.getClusterPosition().longValue() & 0xFFFF);
+    if (container == null) {
+      containers.put(key, new ArrayContainer().add(low));
+      size++;
+      return true;
+    }
+
+    final int cardinality = container.cardinality();
+    final Container result = container.add(low);
+    if (result != container)
+      containers.put(key, result);
+
+    if (result.cardinality() == cardinality)
+      return false;
+
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    if (!(o instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) o).getIdentity();
+    final long key = key(rid);
+    if (key < 0)
+      return others.contains(rid);
+
+    final Container container = containers.get(key);
+    return container != null && container.contains((int) (rid.getClusterPosition().longValue() & 0xFFFF));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the record ids contained both in this bitmap and in the given one.
+   */
+  public ORidBitmap and(final ORidBitmap other) {
+    final ORidBitmap result = new ORidBitmap();
+
+    final ORidBitmap smaller = containers.size() <= other.containers.size() ? this : other;
+    final ORidBitmap bigger = smaller == this ? other : this;
+    for (Map.Entry<Long, Container> entry : smaller.containers.entrySet()) {
+      final Container otherContainer = bigger.containers.get(entry.getKey());
+      if (otherContainer == null)
+        continue;
+
+      final Container container = entry.getValue().and(otherContainer);
+      if (container.cardinality() > 0) {
+        result.containers.put(entry.getKey(), container);
+        result.size += container.cardinality();
+      }
+    }
+
+    for (ORID rid : others)
+      if (other.others.contains(rid)) {
+        result.others.add(rid);
+        result.size++;
+      }
+
+    return result;
+  }
+
+  /**
+   * Returns the record ids contained in this bitmap or in the given one.
+   */
+  public ORidBitmap or(final ORidBitmap other) {
+    final ORidBitmap result = new ORidBitmap();
+
+    for (Map.Entry<Long, Container> entry : containers.entrySet()) {
+      final Container otherContainer = other.containers.get(entry.getKey());
+      result.containers.put(entry.getKey(), otherContainer == null ? entry.getValue().copy() : entry.getValue().or(otherContainer));
+    }
+    for (Map.Entry<Long, Container> entry : other.containers.entrySet())
+      if (!containers.containsKey(entry.getKey()))
+        result.containers.put(entry.getKey(), entry.getValue().copy());
+
+    result.others.addAll(others);
+    result.others.addAll(other.others);
+
+    for (Container container : result.containers.values())
+      result.size += container.cardinality();
+    result.size += result.others.size();
+    return result;
+  }
+
+  @Override
+  public Iterator<OIdentifiable> iterator() {
+    return new Iterator<OIdentifiable>() {
+      private final Iterator<Map.Entry<Long, Container>> containerIterator = containers.entrySet().iterator();
+      private final Iterator<ORID>                       otherIterator     = others.iterator();
+      private long                                       key;
+      private Container                                  container;
+      private int                                        low               = -1;
+      private ORID                                       next              = fetchNext();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public OIdentifiable next() {
+        if (next == null)
+          throw new NoSuchElementException();
+
+        final ORID result = next;
+        next = fetchNext();
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+
+      private ORID fetchNext() {
+        while (true) {
+          if (container != null) {
+            low = container.next(low + 1);
+            if (low >= 0)
+              return new ORecordId((int) (key >>> 48), new OClusterPositionLong(((key & HIGH_MASK) << 16) | low));
+            container = null;
+          }
+
+          if (!containerIterator.hasNext())
+            return otherIterator.hasNext() ? otherIterator.next() : null;
+
+          final Map.Entry<Long, Container> entry = containerIterator.next();
+          key = entry.getKey();
+          container = entry.getValue();
+          low = -1;
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the key of the container of a record id, -1 if the record id cannot be kept in a container.
+   */
+  private static long key(final ORID rid) {
+    final OClusterPosition position = rid.getClusterPosition();
+    if (rid.getClusterId() < 0 || !(position instanceof OClusterPositionLong) || position.longValue() < 0)
+      return -1;
+
+    return ((long) rid.getClusterId() << 48) | (position.longValue() >>> 16);
+  }
+
+  private abstract static class Container {
+    abstract int cardinality();
+
+    abstract boolean contains(int value);
+
+    /**
+     * Returns the container with the given value: this one or a new one if this container cannot hold it.
+     */
+    abstract Container add(int value);
+
+    /**
+     * Returns the first value equal or greater than the given one, -1 if there is none.
+     */
+    abstract int next(int value);
+
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    abstract Container copy();
+  }
+
+  private static final class ArrayContainer extends Container {
+    private char[] values = new char[4];
+    private int    cardinality;
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(final int value) {
+      return Arrays.binarySearch(values, 0, cardinality, (char) value) >= 0;
+    }
+
+    @Override
+    Container add(final int value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, (char) value);
+      if (index >= 0)
+        return this;
+
+      if (cardinality == MAX_ARRAY_SIZE)
+        return toBitmap().add(value);
+
+      index = -index - 1;
+      if (cardinality == values.length)
+        values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, values.length * 2));
+
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = (char) value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    int next(final int value) {
+      if (value > 0xFFFF)
+        return -1;
+
+      int index = Arrays.binarySearch(values, 0, cardinality, (char) value);
+      if (index < 0)
+        index = -index - 1;
+
+      return index < cardinality ? values[index] : -1;
+    }
+
+    @Override
+    Container and(final Container other) {
+      final ArrayContainer result = new ArrayContainer();
+      result.values = new char[Math.max(1, cardinality)];
+      for (int i = 0; i < cardinality; i++)
+        if (other.contains(values[i]))
+          result.values[result.cardinality++] = values[i];
+
+      return result;
+    }
+
+    @Override
+    Container or(final Container other) {
+      if (other instanceof BitmapContainer)
+        return other.or(this);
+
+      final ArrayContainer otherArray = (ArrayContainer) other;
+      final char[] merged = new char[cardinality + otherArray.cardinality];
+      int i = 0, j = 0, k = 0;
+      while (i < cardinality && j < otherArray.cardinality) {
+        final char value = values[i];
+        final char otherValue = otherArray.values[j];
+        if (value < otherValue) {
+          merged[k++] = value;
+          i++;
+        } else if (value > otherValue) {
+          merged[k++] = otherValue;
+          j++;
+        } else {
+          merged[k++] = value;
+          i++;
+          j++;
+        }
+      }
+      while (i < cardinality)
+        merged[k++] = values[i++];
+      while (j < otherArray.cardinality)
+        merged[k++] = otherArray.values[j++];
+
+      final ArrayContainer result = new ArrayContainer();
+      result.values = merged;
+      result.cardinality = k;
+      return k > MAX_ARRAY_SIZE ? result.toBitmap() : result;
+    }
+
+    @Override
+    Container copy() {
+      final ArrayContainer result = new ArrayContainer();
+      result.values = Arrays.copyOf(values, Math.max(1, cardinality));
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    private BitmapContainer toBitmap() {
+      final BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < cardinality; i++)
+        bitmap.add(values[i]);
+      return bitmap;
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    private final long[] words = new long[1024];
+    private int          cardinality;
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(final int value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(final int value) {
+      final long word = words[value >>> 6];
+      final long newWord = word | (1L << value);
+      if (word != newWord) {
+        words[value >>> 6] = newWord;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    int next(final int value) {
+      int index = value >>> 6;
+      if (index >= words.length)
+        return -1;
+
+      long word = words[index] & (-1L << value);
+      while (word == 0) {
+        if (++index == words.length)
+          return -1;
+        word = words[index];
+      }
+
+      return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    Container and(final Container other) {
+      if (other instanceof ArrayContainer)
+        return other.and(this);
+
+      final BitmapContainer result = new BitmapContainer();
+      for (int i = 0; i < words.length; i++) {
+        result.words[i] = words[i] & ((BitmapContainer) other).words[i];
+        result.cardinality += Long.bitCount(result.words[i]);
+      }
+
+      return result.cardinality <= MAX_ARRAY_SIZE ? result.toArray() : result;
+    }
+
+    @Override
+    Container or(final Container other) {
+      final BitmapContainer result = (BitmapContainer) copy();
+
+      if (other instanceof ArrayContainer) {
+        final ArrayContainer otherArray = (ArrayContainer) other;
+        for (int i = 0; i < otherArray.cardinality; i++)
+          result.add(otherArray.values[i]);
+      } else {
+        result.cardinality = 0;
+        for (int i = 0; i < words.length; i++) {
+          result.words[i] |= ((BitmapContainer) other).words[i];
+          result.cardinality += Long.bitCount(result.words[i]);
+        }
+      }
+
+      return result;
+    }
+
+    @Override
+    Container copy() {
+      final BitmapContainer result = new BitmapContainer();
+      System.arraycopy(words, 0, result.words, 0, words.length);
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    private ArrayContainer toArray() {
+      final ArrayContainer array = new ArrayContainer();
+      array.values = new char[Math.max(1, cardinality)];
+      for (int value = next(0); value >= 0; value = next(value + 1))
+        array.values[array.cardinality++] = (char) value;
+      return array;
+    }
+  }
+}
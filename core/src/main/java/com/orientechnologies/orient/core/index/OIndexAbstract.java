@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.index;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractMap;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -30,6 +31,7 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.concur.lock.OModificationLock;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
 import com.orientechnologies.common.listener.OProgressListener;
@@ -47,7 +49,9 @@ import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.engine.OMVRBTreeIndexEngine;
+import com.orientechnologies.orient.core.index.engine.OSBTreeIndexEngine;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTreeKeySorter;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
@@ -68,6 +72,7 @@ import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
  */
 public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal implements OIndexInternal<T> {
   protected final OModificationLock    modificationLock = new OModificationLock();
+  private final OLockManager<Object, Thread> keyLockManager = new OLockManager<Object, Thread>(true, 0);
 
   protected static final String        CONFIG_MAP_RID   = "mapRid";
   protected static final String        CONFIG_CLUSTERS  = "clusters";
@@ -512,12 +517,15 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
   /**
    * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
+   * If bulk load is supported keys are sorted, then the index is written in bulk once all the records have been browsed.
    */
   public long rebuild(final OProgressListener iProgressListener) {
     long documentIndexed = 0;
 
     final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
 
+    OSBTreeKeySorter<Object> keySorter = null;
+
     modificationLock.requestModificationLock();
     try {
       acquireExclusiveLock();
@@ -540,6 +548,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
         if (iProgressListener != null)
           iProgressListener.onBegin(this, documentTotal);
 
+        if (isBulkLoadSupported())
+          keySorter = ((OSBTreeIndexEngine<T>) indexEngine).createKeySorter();
+
         for (final String clusterName : clustersToIndex)
           try {
             for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
@@ -559,10 +570,10 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
                   try {
                     if (fieldValue instanceof Collection) {
                       for (final Object fieldValueItem : (Collection<?>) fieldValue) {
-                        put(fieldValueItem, doc);
+                        putForRebuild(keySorter, fieldValueItem, doc);
                       }
                     } else
-                      put(fieldValue, doc);
+                      putForRebuild(keySorter, fieldValue, doc);
                   } catch (OIndexException e) {
                     OLogManager.instance().error(
                         this,
@@ -582,6 +593,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
             // END OF CLUSTER REACHED, IGNORE IT
           }
 
+        if (keySorter != null)
+          bulkLoad(keySorter);
+
         if (indexEngine instanceof OMVRBTreeIndexEngine)
           flush();
 
@@ -603,6 +617,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
         throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
 
       } finally {
+        if (keySorter != null)
+          keySorter.close();
+
         rebuilding = false;
         rebuildThread = null;
 
@@ -618,6 +635,52 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     return documentIndexed;
   }
 
+  /**
+   * Tells if {@link #rebuild(OProgressListener)} can sort the keys and load them in bulk instead of putting them one by one.
+   */
+  protected boolean isBulkLoadSupported() {
+    return indexEngine instanceof OSBTreeIndexEngine && OGlobalConfiguration.INDEX_BULK_LOAD.getValueAsBoolean();
+  }
+
+  /**
+   * Creates the value stored for the key when the index is loaded in bulk.
+   * 
+   * @param values
+   *          records that contain the key, in the order they have been browsed
+   */
+  protected abstract T createBulkValue(Object key, List<? extends OIdentifiable> values);
+
+  private void putForRebuild(final OSBTreeKeySorter<Object> keySorter, final Object key, final ODocument document) {
+    if (keySorter == null) {
+      put(key, document);
+      return;
+    }
+
+    final Object collatingKey = getCollatingValue(key);
+    // NULL KEYS ARE NOT INDEXED
+    if (collatingKey != null)
+      keySorter.add(collatingKey, document);
+  }
+
+  private void bulkLoad(final OSBTreeKeySorter<Object> keySorter) {
+    final Iterator<Map.Entry<Object, List<ORID>>> sortedKeys = keySorter.sort();
+
+    ((OSBTreeIndexEngine<T>) indexEngine).bulkLoad(new Iterator<Map.Entry<Object, T>>() {
+      public boolean hasNext() {
+        return sortedKeys.hasNext();
+      }
+
+      public Map.Entry<Object, T> next() {
+        final Map.Entry<Object, List<ORID>> entry = sortedKeys.next();
+        return new AbstractMap.SimpleImmutableEntry<Object, T>(entry.getKey(), createBulkValue(entry.getKey(), entry.getValue()));
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    });
+  }
+
   public boolean remove(final Object key, final OIdentifiable value) {
     checkForRebuild();
 
@@ -638,7 +701,13 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     try {
       acquireSharedLock();
       try {
-        return indexEngine.remove(key);
+        // THE PUTS OF THE SAME KEY READ AND CHANGE ITS VALUES UNDER THE SHARED LOCK TOO
+        lockKey(key);
+        try {
+          return indexEngine.remove(key);
+        } finally {
+          unlockKey(key);
+        }
       } finally {
         releaseSharedLock();
       }
@@ -943,6 +1012,50 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
   protected abstract void commitSnapshot(Map<Object, Object> snapshot);
 
+  /**
+   * Locks the index to read and change the value of a key. The SB-tree latches its pages, so the values of different keys are
+   * changed concurrently under the shared lock of the index and only the changes of the same key wait for each other. The other
+   * engines, and the SB-tree bonsai containers of values that share the same file, are changed under the exclusive lock.
+   */
+  protected void acquireKeyExclusiveLock(final Object key) {
+    if (isLockedByKey(key)) {
+      acquireSharedLock();
+      try {
+        keyLockManager.acquireLock(Thread.currentThread(), key, OLockManager.LOCK.EXCLUSIVE);
+      } catch (RuntimeException e) {
+        releaseSharedLock();
+        throw e;
+      }
+    } else
+      acquireExclusiveLock();
+  }
+
+  protected void releaseKeyExclusiveLock(final Object key) {
+    if (isLockedByKey(key)) {
+      try {
+        keyLockManager.releaseLock(Thread.currentThread(), key, OLockManager.LOCK.EXCLUSIVE);
+      } finally {
+        releaseSharedLock();
+      }
+    } else
+      releaseExclusiveLock();
+  }
+
+  private void lockKey(final Object key) {
+    if (isLockedByKey(key))
+      keyLockManager.acquireLock(Thread.currentThread(), key, OLockManager.LOCK.EXCLUSIVE);
+  }
+
+  private void unlockKey(final Object key) {
+    if (isLockedByKey(key))
+      keyLockManager.releaseLock(Thread.currentThread(), key, OLockManager.LOCK.EXCLUSIVE);
+  }
+
+  private boolean isLockedByKey(final Object key) {
+    return key != null && indexEngine instanceof OSBTreeIndexEngine
+        && !ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm);
+  }
+
   protected abstract void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot);
 
   protected abstract void removeFromSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot);
@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.List;
 import java.util.Map;
 
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -52,6 +53,11 @@ public class OIndexDictionary extends OIndexOneValue {
     }
   }
 
+  @Override
+  protected OIdentifiable createBulkValue(Object key, List<? extends OIdentifiable> values) {
+    return values.get(values.size() - 1);
+  }
+
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
@@ -110,6 +110,14 @@ public class OIndexFullText extends OIndexMultiValues {
     }
   }
 
+  /**
+   * Keys are split in words when they are put, so the index is always rebuilt putting keys one by one.
+   */
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return false;
+  }
+
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     if (key == null)
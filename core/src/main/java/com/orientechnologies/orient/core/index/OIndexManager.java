@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.Set;
 
 import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.dictionary.ODictionary;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
@@ -125,4 +126,24 @@ public interface OIndexManager {
   public void addClusterToIndex(String clusterName, String indexName);
 
   public void removeClusterFromIndex(String clusterName, String indexName);
+
+  /**
+   * Returns the statistics of an index used to estimate the cost of queries. Missing or stale statistics are collected again if
+   * the index is small enough, otherwise the last ones are returned.
+   * 
+   * @param iIndexName
+   *          name of the index
+   * @return statistics of the index or <code>null</code> if they have never been collected.
+   * @see OGlobalConfiguration#QUERY_INDEX_STATISTICS_AUTO_ANALYZE_MAX_KEYS
+   */
+  public OIndexStatistics getIndexStatistics(String iIndexName);
+
+  /**
+   * Collects the statistics of an index browsing all its entries.
+   * 
+   * @param iIndexName
+   *          name of the index
+   * @return the new statistics of the index.
+   */
+  public OIndexStatistics analyzeIndex(String iIndexName);
 }
@@ -30,6 +30,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.orientechnologies.common.concur.resource.OCloseable;
 import com.orientechnologies.common.util.OMultiKey;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -58,6 +59,7 @@ public abstract class OIndexManagerAbstract extends ODocumentWrapperNoClass impl
 
   protected Map<String, OIndex<?>>                            indexes            = new ConcurrentHashMap<String, OIndex<?>>();
   protected final Map<String, Map<OMultiKey, Set<OIndex<?>>>> classPropertyIndex = new HashMap<String, Map<OMultiKey, Set<OIndex<?>>>>();
+  protected final Map<String, OIndexStatistics>               statistics         = new ConcurrentHashMap<String, OIndexStatistics>();
 
   protected String                                            defaultClusterName = OMetadataDefault.CLUSTER_INDEX_NAME;
   protected String                                            manualClusterName  = OMetadataDefault.CLUSTER_MANUAL_INDEX_NAME;
@@ -108,6 +110,7 @@ public abstract class OIndexManagerAbstract extends ODocumentWrapperNoClass impl
     try {
       indexes.clear();
       classPropertyIndex.clear();
+      statistics.clear();
     } finally {
       releaseExclusiveLock();
     }
@@ -205,6 +208,44 @@ public abstract class OIndexManagerAbstract extends ODocumentWrapperNoClass impl
     save();
   }
 
+  @Override
+  public OIndexStatistics getIndexStatistics(final String iIndexName) {
+    final OIndex<?> index = indexes.get(iIndexName.toLowerCase());
+    if (index == null)
+      return null;
+
+    final OIndexStatistics indexStatistics = statistics.get(index.getName().toLowerCase());
+    if (index.isRebuiding())
+      return indexStatistics;
+
+    final long keySize = index.getKeySize();
+    if (indexStatistics != null && !indexStatistics.isStale(keySize))
+      return indexStatistics;
+
+    final int maxKeys = OGlobalConfiguration.QUERY_INDEX_STATISTICS_AUTO_ANALYZE_MAX_KEYS.getValueAsInteger();
+    if (maxKeys > -1 && keySize > maxKeys)
+      // TOO BIG TO BE BROWSED BY A QUERY: KEEP THE LAST STATISTICS UNTIL THE NEXT ANALYZE
+      return indexStatistics;
+
+    return analyzeIndex(index);
+  }
+
+  @Override
+  public OIndexStatistics analyzeIndex(final String iIndexName) {
+    final OIndex<?> index = indexes.get(iIndexName.toLowerCase());
+    if (index == null)
+      throw new OIndexException("Index with name " + iIndexName + " does not exist.");
+
+    return analyzeIndex(index);
+  }
+
+  protected OIndexStatistics analyzeIndex(final OIndex<?> index) {
+    final OIndexStatistics indexStatistics = OIndexStatistics.analyze(index,
+        OGlobalConfiguration.QUERY_INDEX_STATISTICS_HISTOGRAM_BUCKETS.getValueAsInteger());
+    statistics.put(index.getName().toLowerCase(), indexStatistics);
+    return indexStatistics;
+  }
+
   public boolean existsIndex(final String iName) {
     return indexes.containsKey(iName.toLowerCase());
   }
@@ -145,4 +145,14 @@ public class OIndexManagerProxy extends OProxedResource<OIndexManager> implement
   public void removeClusterFromIndex(String clusterName, String indexName) {
     delegate.removeClusterFromIndex(clusterName, indexName);
   }
+
+  @Override
+  public OIndexStatistics getIndexStatistics(String iIndexName) {
+    return delegate.getIndexStatistics(iIndexName);
+  }
+
+  @Override
+  public OIndexStatistics analyzeIndex(String iIndexName) {
+    return delegate.analyzeIndex(iIndexName);
+  }
 }
@@ -42,6 +42,7 @@ import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OCluster.ATTRIBUTES;
 import com.orientechnologies.orient.core.storage.OStorage;
@@ -151,6 +152,7 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
       setDirty();
       save();
 
+      OSQLStatementCache.clear(storage);
       return index;
     } finally {
       releaseExclusiveLock();
@@ -166,11 +168,14 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
       final OIndex<?> idx = indexes.remove(iIndexName.toLowerCase());
       if (idx != null) {
         removeClassPropertyIndex(idx);
+        statistics.remove(iIndexName.toLowerCase());
 
         getDatabase().unregisterListener(idx.getInternal());
         idx.delete();
         setDirty();
         save();
+
+        OSQLStatementCache.clear(getDatabase().getStorage());
       }
       return this;
     } finally {
@@ -98,19 +98,13 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
 
     modificationLock.requestModificationLock();
     try {
-      acquireExclusiveLock();
+      acquireKeyExclusiveLock(key);
       try {
         checkForKeyType(key);
         Set<OIdentifiable> values = indexEngine.get(key);
 
-        if (values == null) {
-          if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm)) {
-            values = new OIndexRIDContainer(getName());
-          } else {
-            values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
-            ((OMVRBTreeRIDSet) values).setAutoConvertToRecord(false);
-          }
-        }
+        if (values == null)
+          values = createValuesContainer();
 
         if (!iSingleValue.getIdentity().isValid())
           ((ORecord<?>) iSingleValue).save();
@@ -121,7 +115,7 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
         return this;
 
       } finally {
-        releaseExclusiveLock();
+        releaseKeyExclusiveLock(key);
       }
     } finally {
       modificationLock.releaseModificationLock();
@@ -143,12 +137,7 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
       values = (Set<OIdentifiable>) snapshotValue;
 
     if (values == null) {
-      if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm)) {
-        values = new OIndexRIDContainer(getName());
-      } else {
-        values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
-        ((OMVRBTreeRIDSet) values).setAutoConvertToRecord(false);
-      }
+      values = createValuesContainer();
 
       snapshot.put(key, values);
     }
@@ -157,6 +146,22 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
     snapshot.put(key, values);
   }
 
+  @Override
+  protected Set<OIdentifiable> createBulkValue(Object key, List<? extends OIdentifiable> values) {
+    final Set<OIdentifiable> container = createValuesContainer();
+    container.addAll(values);
+    return container;
+  }
+
+  private Set<OIdentifiable> createValuesContainer() {
+    if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm))
+      return new OIndexRIDContainer(getName());
+
+    final OMVRBTreeRIDSet values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
+    values.setAutoConvertToRecord(false);
+    return values;
+  }
+
   @Override
   public boolean remove(Object key, final OIdentifiable value) {
     checkForRebuild();
@@ -166,7 +171,7 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
     modificationLock.requestModificationLock();
 
     try {
-      acquireExclusiveLock();
+      acquireKeyExclusiveLock(key);
       try {
 
         Set<OIdentifiable> recs = indexEngine.get(key);
@@ -184,7 +189,7 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
         return false;
 
       } finally {
-        releaseExclusiveLock();
+        releaseKeyExclusiveLock(key);
       }
     } finally {
       modificationLock.releaseModificationLock();
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Statistics of the keys of an index, used to estimate how many records a query reads through it. They contain the number of
+ * entries (key-record pairs), the number of distinct keys and an equi-depth histogram: the keys that split the ordered entries in
+ * buckets of the same size. Statistics are immutable: they are collected again when the index changes too much.
+ *
+ * @see OIndexManager#getIndexStatistics(String)
+ * @see OIndexManager#analyzeIndex(String)
+ */
+public class OIndexStatistics {
+  /**
+   * Share of the entries returned by a range condition when the index has no histogram.
+   */
+  public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+  /**
+   * Change of the number of keys, relative to the one of the statistics, above which statistics are stale.
+   */
+  public static final double STALE_RATIO               = 0.1;
+
+  private final String       indexName;
+  private final long         entries;
+  private final long         distinctKeys;
+  private final List<Object> histogram;
+  private final long         analyzedOn;
+
+  public OIndexStatistics(final String indexName, final long entries, final long distinctKeys, final List<Object> histogram) {
+    this.indexName = indexName;
+    this.entries = entries;
+    this.distinctKeys = distinctKeys;
+    this.histogram = histogram;
+    this.analyzedOn = System.currentTimeMillis();
+  }
+
+  /**
+   * Collects the statistics of an index browsing all its entries. The histogram is built only for indexes that support ordered
+   * iterations.
+   *
+   * @param histogramBuckets
+   *          number of buckets of the histogram
+   */
+  public static OIndexStatistics analyze(final OIndex<?> index, final int histogramBuckets) {
+    final long distinctKeys = index.getKeySize();
+    final long entries = index.getSize();
+
+    if (!index.supportsOrderedIterations() || entries == 0 || histogramBuckets < 1)
+      return new OIndexStatistics(index.getName(), entries, distinctKeys, Collections.emptyList());
+
+    final List<Object> histogram = new ArrayList<Object>(histogramBuckets + 1);
+    final double depth = (double) entries / histogramBuckets;
+
+    Object lastKey = null;
+    long browsedEntries = 0;
+    for (Iterator<? extends Map.Entry<Object, ?>> iterator = index.iterator(); iterator.hasNext();) {
+      final Map.Entry<Object, ?> entry = iterator.next();
+      lastKey = entry.getKey();
+
+      // THE FIRST KEY AND THE ONES THAT END A BUCKET
+      if (histogram.isEmpty() || (browsedEntries >= histogram.size() * depth && histogram.size() < histogramBuckets))
+        histogram.add(lastKey);
+
+      final Object value = entry.getValue();
+      browsedEntries += value instanceof Collection<?> ? ((Collection<?>) value).size() : 1;
+    }
+
+    if (lastKey != null && histogram.get(histogram.size() - 1) != lastKey)
+      histogram.add(lastKey);
+
+    return new OIndexStatistics(index.getName(), entries, distinctKeys, histogram);
+  }
+
+  public String getIndexName() {
+    return indexName;
+  }
+
+  /**
+   * Returns the number of key-record pairs of the index.
+   */
+  public long getEntries() {
+    return entries;
+  }
+
+  public long getDistinctKeys() {
+    return distinctKeys;
+  }
+
+  /**
+   * Returns the keys that bound the buckets of the histogram, in ascending order. Empty if the index does not support ordered
+   * iterations.
+   */
+  public List<Object> getHistogram() {
+    return Collections.unmodifiableList(histogram);
+  }
+
+  public long getAnalyzedOn() {
+    return analyzedOn;
+  }
+
+  /**
+   * Tells whether the index changed too much since the statistics were collected.
+   *
+   * @param keySize
+   *          current number of keys of the index
+   */
+  public boolean isStale(final long keySize) {
+    return Math.abs(keySize - distinctKeys) > distinctKeys * STALE_RATIO;
+  }
+
+  /**
+   * Estimates the records that contain a given key, on average.
+   */
+  public long estimateEquals() {
+    if (distinctKeys == 0)
+      return 0;
+
+    return Math.max(1, entries / distinctKeys);
+  }
+
+  /**
+   * Estimates the records of the keys between two boundaries. Partial composite keys are accepted as boundaries.
+   *
+   * @param from
+   *          left boundary, null if unbounded
+   * @param to
+   *          right boundary, null if unbounded
+   */
+  public long estimateBetween(final Object from, final boolean fromInclusive, final Object to, final boolean toInclusive) {
+    if (histogram.size() < 2)
+      return (long) (entries * DEFAULT_RANGE_SELECTIVITY);
+
+    // BUCKETS IN THE RANGE COUNT FOR ALL THEIR ENTRIES, THE ONES THAT CONTAIN A BOUNDARY FOR HALF OF THEM
+    double buckets = 0;
+    for (int i = 0; i < histogram.size() - 1; i++) {
+      final Object bucketFrom = histogram.get(i);
+      final Object bucketTo = histogram.get(i + 1);
+
+      if (!isAfter(bucketTo, from, fromInclusive) || !isBefore(bucketFrom, to, toInclusive))
+        continue;
+
+      if (isAfter(bucketFrom, from, fromInclusive) && isBefore(bucketTo, to, toInclusive))
+        buckets++;
+      else
+        buckets += 0.5;
+    }
+
+    return (long) Math.ceil(buckets * entries / (histogram.size() - 1));
+  }
+
+  public ODocument toDocument() {
+    final ODocument document = new ODocument();
+    document.field("index", indexName);
+    document.field("entries", entries);
+    document.field("distinctKeys", distinctKeys);
+    document.field("histogramBuckets", Math.max(0, histogram.size() - 1));
+    document.field("analyzedOn", new Date(analyzedOn));
+    return document;
+  }
+
+  @Override
+  public String toString() {
+    return "OIndexStatistics{" + "indexName='" + indexName + '\'' + ", entries=" + entries + ", distinctKeys=" + distinctKeys
+        + ", histogramBuckets=" + Math.max(0, histogram.size() - 1) + '}';
+  }
+
+  private static boolean isAfter(final Object key, final Object from, final boolean fromInclusive) {
+    if (from == null)
+      return true;
+
+    final int result = ODefaultComparator.INSTANCE.compare(key, from);
+    return result > 0 || (result == 0 && fromInclusive);
+  }
+
+  private static boolean isBefore(final Object key, final Object to, final boolean toInclusive) {
+    if (to == null)
+      return true;
+
+    final int result = ODefaultComparator.INSTANCE.compare(key, to);
+    return result < 0 || (result == 0 && toInclusive);
+  }
+}
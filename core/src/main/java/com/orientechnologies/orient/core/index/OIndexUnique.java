@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.index;
 
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,7 +44,7 @@ public class OIndexUnique extends OIndexOneValue {
 
     modificationLock.requestModificationLock();
     try {
-      acquireExclusiveLock();
+      acquireKeyExclusiveLock(key);
       try {
         checkForKeyType(key);
         final OIdentifiable value = indexEngine.get(key);
@@ -65,13 +66,26 @@ public class OIndexUnique extends OIndexOneValue {
         return this;
 
       } finally {
-        releaseExclusiveLock();
+        releaseKeyExclusiveLock(key);
       }
     } finally {
       modificationLock.releaseModificationLock();
     }
   }
 
+  @Override
+  protected OIdentifiable createBulkValue(Object key, List<? extends OIdentifiable> values) {
+    final OIdentifiable value = values.get(0);
+    for (int i = 1; i < values.size(); i++)
+      // THE SAME RECORD CAN INDEX THE SAME KEY MORE THAN ONCE, AS A COLLECTION THAT CONTAINS IT TWICE
+      if (!values.get(i).getIdentity().equals(value.getIdentity()))
+        throw new ORecordDuplicatedException(String.format(
+            "Cannot index record %s: found duplicated key '%s' in index '%s' previously assigned to the record %s", values.get(i)
+                .getIdentity(), key, getName(), value.getIdentity()), value.getIdentity());
+
+    return value;
+  }
+
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
@@ -36,6 +36,7 @@ import com.orientechnologies.orient.core.index.sbtree.OSBTreeInverseMapEntryIter
 import com.orientechnologies.orient.core.index.sbtree.OSBTreeMapEntryIterator;
 import com.orientechnologies.orient.core.index.sbtree.OTreeInternal;
 import com.orientechnologies.orient.core.index.sbtree.local.OSBTree;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTreeKeySorter;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
@@ -107,7 +108,8 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
       identity = identityRecord.getIdentity();
 
       sbTree.create(indexName, keySerializer, (OBinarySerializer<V>) valueSerializer,
-          indexDefinition != null ? indexDefinition.getTypes() : null, storageLocalAbstract);
+          indexDefinition != null ? indexDefinition.getTypes() : null, storageLocalAbstract,
+          OGlobalConfiguration.SBTREE_KEY_PREFIX_COMPRESSION.getValueAsBoolean());
     } finally {
       releaseExclusiveLock();
     }
@@ -365,6 +367,33 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
     }
   }
 
+  /**
+   * Creates a sorter of the keys to load with {@link #bulkLoad(Iterator)}.
+   */
+  public OSBTreeKeySorter<Object> createKeySorter() {
+    acquireSharedLock();
+    try {
+      return sbTree.createKeySorter(OGlobalConfiguration.INDEX_BULK_LOAD_MAX_KEYS_IN_MEMORY.getValueAsInteger());
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * Loads the entries in the empty index writing the tree from the leaves up.
+   *
+   * @param sortedEntries
+   *          entries in ascending order of keys, keys have to be unique
+   */
+  public void bulkLoad(Iterator<Map.Entry<Object, V>> sortedEntries) {
+    acquireExclusiveLock();
+    try {
+      sbTree.bulkLoad(sortedEntries, OGlobalConfiguration.INDEX_BULK_LOAD_FILL_FACTOR.getValueAsInteger());
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
   @Override
   public void getValuesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
       final ValuesTransformer<V> transformer, final ValuesResultListener valuesResultListener) {
@@ -34,8 +34,19 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageVariablePars
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Extendible hash table stored in the pages of the disk cache.
+ * 
+ * Updates are serialized by an update lock, while the exclusive lock is held only to change the directory and the bucket pages
+ * that readers can reach. A full bucket is split into new pages while readers keep working on the old bucket, and the new
+ * buckets are published with the directory update, so a split does not stall the readers of the table.
+ * 
+ * Only the readers gain from it: the put that finds its bucket full still splits the bucket, and the directory node if needed,
+ * before it returns, and the other updates wait for it on the update lock.
+ * 
  * @author Andrey Lomakin
  * @since 12.03.13
  */
@@ -84,6 +95,8 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
   private final KeyHashCodeComparator<K> comparator;
 
+  private final Lock                     updateLock             = new ReentrantLock();
+
   public OLocalHashTable(String metadataConfigurationFileExtension, String treeStateFileExtension, String bucketFileExtension,
       OHashFunction<K> keyHashFunction) {
     super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean());
@@ -108,7 +121,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
   public void create(String name, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer, OType[] keyTypes,
       OStorageLocalAbstract storageLocal) {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       this.storage = storageLocal;
       this.keyTypes = keyTypes;
@@ -138,7 +151,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException e) {
       throw new OIndexException("Error during local hash table creation.", e);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
 
   }
@@ -207,7 +220,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   }
 
   public void put(K key, V value) {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       key = keySerializer.preprocess(key, (Object[]) keyTypes);
 
@@ -217,12 +230,12 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException e) {
       throw new OIndexException("Error during index update", e);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
   public V remove(K key) {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       key = keySerializer.preprocess(key, (Object[]) keyTypes);
 
@@ -270,12 +283,12 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException e) {
       throw new OIndexException("Error during index removal", e);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
   public void clear() {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       for (int i = 0; i < filesMetadata.length; i++) {
         if (filesMetadata[i] != null)
@@ -291,7 +304,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException e) {
       throw new OIndexException("Error during hash table clear", e);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
@@ -373,7 +386,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   }
 
   public void load(String name, OType[] keyTypes, OStorageLocalAbstract storageLocal) {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       this.storage = storageLocal;
       this.keyTypes = keyTypes;
@@ -420,12 +433,12 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException e) {
       throw new OIndexException("Exception during hash table loading", e);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
   public void deleteWithoutLoad(String name, OStorageLocalAbstract storageLocal) {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       storage = storageLocal;
 
@@ -450,7 +463,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException ioe) {
       throw new OIndexException("Can not delete hash table with name " + name, ioe);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
@@ -923,7 +936,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   }
 
   public void rename(String newName) {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       metadataStore.rename(name, newName);
       treeStateStore.rename(name, newName);
@@ -934,12 +947,12 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException ioe) {
       throw new OIndexException("Attempt of rename of hash table was failed", ioe);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
   public void close() {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       flush();
 
@@ -953,12 +966,12 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException e) {
       throw new OIndexException("Error during hash table close", e);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
   public void delete() {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       for (int i = 0; i < filesMetadata.length; i++) {
         if (filesMetadata[i] != null)
@@ -970,7 +983,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException e) {
       throw new OIndexException("Exception during index deletion", e);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
@@ -1136,7 +1149,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   }
 
   public void flush() {
-    acquireExclusiveLock();
+    acquireUpdateLock();
     try {
       saveState();
 
@@ -1150,7 +1163,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     } catch (IOException e) {
       throw new OIndexException("Error during hash table flush", e);
     } finally {
-      releaseExclusiveLock();
+      releaseUpdateLock();
     }
   }
 
@@ -1193,112 +1206,156 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     }
   }
 
+  private void acquireUpdateLock() {
+    updateLock.lock();
+    try {
+      acquireExclusiveLock();
+    } catch (RuntimeException e) {
+      updateLock.unlock();
+      throw e;
+    }
+  }
+
+  private void releaseUpdateLock() {
+    try {
+      releaseExclusiveLock();
+    } finally {
+      updateLock.unlock();
+    }
+  }
+
+  /**
+   * Puts the entry in its bucket, splitting the bucket as many times as needed in this thread: the latency of the put that splits
+   * is not changed by the release of the exclusive lock during the split, which only lets the readers in.
+   */
   private void doPut(K key, V value) throws IOException {
     final long hashCode = keyHashFunction.hashCode(key);
 
-    final BucketPath bucketPath = getBucket(hashCode);
-    long[] node = hashTree[bucketPath.nodeIndex];
+    while (true) {
+      final BucketPath bucketPath = getBucket(hashCode);
+      final long[] node = hashTree[bucketPath.nodeIndex];
 
-    final long bucketPointer = node[bucketPath.itemIndex + bucketPath.hashMapOffset];
-    if (bucketPointer == 0)
-      throw new IllegalStateException("In this version of hash table buckets are added through split only.");
+      final long bucketPointer = node[bucketPath.itemIndex + bucketPath.hashMapOffset];
+      if (bucketPointer == 0)
+        throw new IllegalStateException("In this version of hash table buckets are added through split only.");
 
-    final long pageIndex = getPageIndex(bucketPointer);
-    final int fileLevel = getFileLevel(bucketPointer);
+      final long pageIndex = getPageIndex(bucketPointer);
+      final int fileLevel = getFileLevel(bucketPointer);
 
-    final OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
-    final OCachePointer pagePointer = cacheEntry.getCachePointer();
+      final OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
+      final OCachePointer pagePointer = cacheEntry.getCachePointer();
 
-    pagePointer.acquireExclusiveLock();
-    try {
-      final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer,
-          valueSerializer, keyTypes);
-      final int index = bucket.getIndex(hashCode, key);
+      pagePointer.acquireExclusiveLock();
+      try {
+        final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer,
+            valueSerializer, keyTypes);
+        final int index = bucket.getIndex(hashCode, key);
 
-      if (index > -1) {
-        final int updateResult = bucket.updateEntry(index, value);
-        if (updateResult == 0)
-          return;
+        boolean entryDeleted = false;
+        if (index > -1) {
+          final int updateResult = bucket.updateEntry(index, value);
+          if (updateResult == 0)
+            return;
+
+          if (updateResult == 1) {
+            cacheEntry.markDirty();
+            return;
+          }
+
+          assert updateResult == -1;
 
-        if (updateResult == 1) {
+          bucket.deleteEntry(index);
+          size--;
+          entryDeleted = true;
+        }
+
+        if (bucket.addEntry(hashCode, key, value)) {
           cacheEntry.markDirty();
+
+          size++;
           return;
         }
 
-        assert updateResult == -1;
-
-        bucket.deleteEntry(index);
-        size--;
-      }
+        final int newFileLevel = bucket.getDepth() + 1 - MAX_LEVEL_DEPTH;
+        if (filesMetadata[newFileLevel] == null)
+          filesMetadata[newFileLevel] = createFileMetadata(newFileLevel);
 
-      if (bucket.addEntry(hashCode, key, value)) {
-        cacheEntry.markDirty();
+        final BucketSplitResult splitResult;
+        if (entryDeleted) {
+          // READERS MUST NOT SEE THE BUCKET WITHOUT THE UPDATED ENTRY
+          splitResult = splitBucket(bucket, fileLevel, pageIndex);
+        } else {
+          // ONLY THE UPDATE LOCK IS NEEDED TO FILL THE NEW PAGES: READERS GO ON WITH THE OLD BUCKET UNTIL THE DIRECTORY IS UPDATED
+          releaseExclusiveLock();
+          try {
+            splitResult = splitBucket(bucket, fileLevel, pageIndex);
+          } finally {
+            acquireExclusiveLock();
+          }
+        }
 
-        size++;
-        return;
+        updateDirectoryAfterSplit(bucketPath, node, splitResult);
+      } finally {
+        pagePointer.releaseExclusiveLock();
+        diskCache.release(cacheEntry);
       }
+    }
+  }
 
-      final BucketSplitResult splitResult = splitBucket(bucket, fileLevel, pageIndex);
-
-      final long updatedBucketPointer = splitResult.updatedBucketPointer;
-      final long newBucketPointer = splitResult.newBucketPointer;
-      final int bucketDepth = splitResult.newDepth;
+  private void updateDirectoryAfterSplit(BucketPath bucketPath, long[] node, BucketSplitResult splitResult) {
+    final long updatedBucketPointer = splitResult.updatedBucketPointer;
+    final long newBucketPointer = splitResult.newBucketPointer;
+    final int bucketDepth = splitResult.newDepth;
 
-      if (bucketDepth <= bucketPath.nodeGlobalDepth) {
-        updateNodeAfterBucketSplit(bucketPath, bucketDepth, newBucketPointer, updatedBucketPointer);
-      } else {
-        if (bucketPath.nodeLocalDepth < MAX_LEVEL_DEPTH) {
-          final NodeSplitResult nodeSplitResult = splitNode(bucketPath, node);
+    if (bucketDepth <= bucketPath.nodeGlobalDepth) {
+      updateNodeAfterBucketSplit(bucketPath, bucketDepth, newBucketPointer, updatedBucketPointer);
+    } else {
+      if (bucketPath.nodeLocalDepth < MAX_LEVEL_DEPTH) {
+        final NodeSplitResult nodeSplitResult = splitNode(bucketPath, node);
 
-          assert !(nodeSplitResult.allLeftHashMapsEqual && nodeSplitResult.allRightHashMapsEqual);
+        assert !(nodeSplitResult.allLeftHashMapsEqual && nodeSplitResult.allRightHashMapsEqual);
 
-          final long[] newNode = nodeSplitResult.newNode;
+        final long[] newNode = nodeSplitResult.newNode;
 
-          final int nodeLocalDepth = bucketPath.nodeLocalDepth + 1;
-          final int hashMapSize = 1 << nodeLocalDepth;
+        final int nodeLocalDepth = bucketPath.nodeLocalDepth + 1;
+        final int hashMapSize = 1 << nodeLocalDepth;
 
-          assert nodeSplitResult.allRightHashMapsEqual == checkAllMapsContainSameBucket(newNode, hashMapSize);
+        assert nodeSplitResult.allRightHashMapsEqual == checkAllMapsContainSameBucket(newNode, hashMapSize);
 
-          int newNodeIndex = -1;
-          if (!nodeSplitResult.allRightHashMapsEqual || bucketPath.itemIndex >= MAX_LEVEL_SIZE / 2)
-            newNodeIndex = addNewNode(newNode, nodeLocalDepth);
+        int newNodeIndex = -1;
+        if (!nodeSplitResult.allRightHashMapsEqual || bucketPath.itemIndex >= MAX_LEVEL_SIZE / 2)
+          newNodeIndex = addNewNode(newNode, nodeLocalDepth);
 
-          final int updatedItemIndex = bucketPath.itemIndex << 1;
-          final int updatedOffset = bucketPath.hashMapOffset << 1;
-          final int updatedGlobalDepth = bucketPath.nodeGlobalDepth + 1;
+        final int updatedItemIndex = bucketPath.itemIndex << 1;
+        final int updatedOffset = bucketPath.hashMapOffset << 1;
+        final int updatedGlobalDepth = bucketPath.nodeGlobalDepth + 1;
 
-          boolean allLeftHashMapsEqual = nodeSplitResult.allLeftHashMapsEqual;
-          boolean allRightHashMapsEqual = nodeSplitResult.allRightHashMapsEqual;
+        boolean allLeftHashMapsEqual = nodeSplitResult.allLeftHashMapsEqual;
+        boolean allRightHashMapsEqual = nodeSplitResult.allRightHashMapsEqual;
 
-          if (updatedOffset < MAX_LEVEL_SIZE) {
-            allLeftHashMapsEqual = false;
-            final BucketPath updatedBucketPath = new BucketPath(bucketPath.parent, updatedOffset, updatedItemIndex,
-                bucketPath.nodeIndex, nodeLocalDepth, updatedGlobalDepth);
-            updateNodeAfterBucketSplit(updatedBucketPath, bucketDepth, newBucketPointer, updatedBucketPointer);
-          } else {
-            allRightHashMapsEqual = false;
-            final BucketPath newBucketPath = new BucketPath(bucketPath.parent, updatedOffset - MAX_LEVEL_SIZE, updatedItemIndex,
-                newNodeIndex, nodeLocalDepth, updatedGlobalDepth);
-            updateNodeAfterBucketSplit(newBucketPath, bucketDepth, newBucketPointer, updatedBucketPointer);
-          }
+        if (updatedOffset < MAX_LEVEL_SIZE) {
+          allLeftHashMapsEqual = false;
+          final BucketPath updatedBucketPath = new BucketPath(bucketPath.parent, updatedOffset, updatedItemIndex,
+              bucketPath.nodeIndex, nodeLocalDepth, updatedGlobalDepth);
+          updateNodeAfterBucketSplit(updatedBucketPath, bucketDepth, newBucketPointer, updatedBucketPointer);
+        } else {
+          allRightHashMapsEqual = false;
+          final BucketPath newBucketPath = new BucketPath(bucketPath.parent, updatedOffset - MAX_LEVEL_SIZE, updatedItemIndex,
+              newNodeIndex, nodeLocalDepth, updatedGlobalDepth);
+          updateNodeAfterBucketSplit(newBucketPath, bucketDepth, newBucketPointer, updatedBucketPointer);
+        }
 
-          final long[] updatedNode = hashTree[bucketPath.nodeIndex];
-          updateNodesAfterSplit(bucketPath, updatedNode, newNode, nodeLocalDepth, hashMapSize, allLeftHashMapsEqual,
-              allRightHashMapsEqual, newNodeIndex);
+        final long[] updatedNode = hashTree[bucketPath.nodeIndex];
+        updateNodesAfterSplit(bucketPath, updatedNode, newNode, nodeLocalDepth, hashMapSize, allLeftHashMapsEqual,
+            allRightHashMapsEqual, newNodeIndex);
 
-          if (allLeftHashMapsEqual)
-            deleteNode(bucketPath.nodeIndex);
+        if (allLeftHashMapsEqual)
+          deleteNode(bucketPath.nodeIndex);
 
-        } else {
-          addNewLevelNode(bucketPath, node, newBucketPointer, updatedBucketPointer);
-        }
+      } else {
+        addNewLevelNode(bucketPath, node, newBucketPointer, updatedBucketPointer);
       }
-    } finally {
-      pagePointer.releaseExclusiveLock();
-      diskCache.release(cacheEntry);
     }
-
-    doPut(key, value);
   }
 
   private void updateNodesAfterSplit(BucketPath bucketPath, long[] node, long[] newNode, int nodeLocalDepth, int hashMapSize,
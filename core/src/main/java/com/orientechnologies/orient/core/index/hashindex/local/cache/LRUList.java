@@ -18,16 +18,11 @@ package com.orientechnologies.orient.core.index.hashindex.local.cache;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-import com.orientechnologies.common.hash.OMurmurHash3;
-import com.orientechnologies.common.serialization.types.OLongSerializer;
-
 /**
  * @author Andrey Lomakin
  * @since 25.02.13
  */
 class LRUList implements Iterable<OCacheEntry> {
-  private static final int SEED = 362498820;
-
   private LRUEntry         head;
   private LRUEntry         tail;
 
@@ -246,11 +241,7 @@ class LRUList implements Iterable<OCacheEntry> {
   }
 
   private long hashCode(long fileId, long filePosition) {
-    final byte[] result = new byte[2 * OLongSerializer.LONG_SIZE];
-    OLongSerializer.INSTANCE.serialize(fileId, result, OLongSerializer.LONG_SIZE);
-    OLongSerializer.INSTANCE.serialize(filePosition, result, OLongSerializer.LONG_SIZE);
-
-    return OMurmurHash3.murmurHash3_x64_64(result, SEED);
+    return PageMap.hashCode(fileId, filePosition);
   }
 
   private final class MRUEntryIterator implements Iterator<OCacheEntry> {
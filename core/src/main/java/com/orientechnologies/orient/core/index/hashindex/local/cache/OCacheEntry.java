@@ -13,6 +13,11 @@ public class OCacheEntry {
   boolean       isDirty;
   int           usagesCount;
 
+  /**
+   * Page was loaded by read ahead and was not requested yet.
+   */
+  boolean       readAhead;
+
   public OCacheEntry(long fileId, long pageIndex, OCachePointer dataPointer, boolean dirty) {
     this.fileId = fileId;
     this.pageIndex = pageIndex;
@@ -80,6 +80,14 @@ public class OCachePointer {
     readWriteLock.writeLock().unlock();
   }
 
+  public void acquireSharedLock() {
+    readWriteLock.readLock().lock();
+  }
+
+  public void releaseSharedLock() {
+    readWriteLock.readLock().unlock();
+  }
+
   @Override
   protected void finalize() throws Throwable {
     super.finalize();
@@ -0,0 +1,647 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedException;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+
+/**
+ * 2Q read cache which is split on several partitions. Page is assigned to partition by hash of file id and page index, every
+ * partition has its own 2Q queues, pinned pages and lock, so threads which load different pages do not contend on single lock as
+ * they do in {@link OReadWriteDiskCache}. Operations which work with whole file or whole cache lock all partitions in ascending
+ * order.
+ *
+ * Write cache is shared between all partitions.
+ *
+ * @see OGlobalConfiguration#DISK_CACHE_PARTITIONS
+ */
+public class OPartitionedReadWriteDiskCache implements ODiskCache {
+  /**
+   * Minimal amount of pages in single partition, if cache is too small amount of partitions is decreased.
+   */
+  public static final int  MIN_PARTITION_SIZE = 64;
+
+  private final OWOWCache  writeCache;
+  private final int        pageSize;
+
+  private final Partition[] partitions;
+  private final int         partitionsMask;
+
+  /**
+   * Guards file size between check and allocation of new page.
+   */
+  private final Object      allocationLock = new Object();
+
+  private final String      storageName;
+
+  private String            METRIC_HITS;
+  private String            METRIC_HITS_METADATA;
+  private String            METRIC_MISSED;
+  private String            METRIC_MISSED_METADATA;
+
+  public OPartitionedReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
+      final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize, final int partitionsCount) {
+    this.storageName = storageName;
+    this.pageSize = pageSize;
+
+    int maxSize = normalizeMemory(readCacheMaxMemory, pageSize);
+    if (checkMinSize && maxSize < OReadWriteDiskCache.MIN_CACHE_SIZE)
+      maxSize = OReadWriteDiskCache.MIN_CACHE_SIZE;
+
+    int partitionsNumber = 1;
+    while ((partitionsNumber << 1) <= partitionsCount && maxSize / (partitionsNumber << 1) >= MIN_PARTITION_SIZE)
+      partitionsNumber <<= 1;
+
+    partitions = new Partition[partitionsNumber];
+    partitionsMask = partitionsNumber - 1;
+
+    for (int i = 0; i < partitionsNumber; i++)
+      partitions[i] = new Partition(maxSize / partitionsNumber);
+
+    this.writeCache = new OWOWCache(syncOnPageFlush, pageSize, writeGroupTTL, writeAheadLog, pageFlushInterval, normalizeMemory(
+        writeCacheMaxMemory, pageSize), storageLocal, checkMinSize);
+
+    initProfiler();
+  }
+
+  int getPartitionsCount() {
+    return partitions.length;
+  }
+
+  int getMaxSize() {
+    int maxSize = 0;
+    for (Partition partition : partitions)
+      maxSize += partition.maxSize;
+
+    return maxSize;
+  }
+
+  @Override
+  public long openFile(final String fileName) throws IOException {
+    long fileId = writeCache.isOpen(fileName);
+    if (fileId >= 0)
+      return fileId;
+
+    return writeCache.openFile(fileName);
+  }
+
+  @Override
+  public void openFile(final long fileId) throws IOException {
+    if (writeCache.isOpen(fileId))
+      return;
+
+    writeCache.openFile(fileId);
+  }
+
+  @Override
+  public boolean exists(final String fileName) {
+    return writeCache.exists(fileName);
+  }
+
+  @Override
+  public String fileNameById(long fileId) {
+    return writeCache.fileNameById(fileId);
+  }
+
+  @Override
+  public void pinPage(final OCacheEntry cacheEntry) throws IOException {
+    final Partition partition = partition(cacheEntry.fileId, cacheEntry.pageIndex);
+    partition.lock.lock();
+    try {
+      partition.remove(cacheEntry.fileId, cacheEntry.pageIndex);
+      partition.pinnedPages.put(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry);
+    } finally {
+      partition.lock.unlock();
+    }
+  }
+
+  @Override
+  public void loadPinnedPage(final OCacheEntry cacheEntry) throws IOException {
+    final Partition partition = partition(cacheEntry.fileId, cacheEntry.pageIndex);
+    partition.lock.lock();
+    try {
+      cacheEntry.usagesCount++;
+    } finally {
+      partition.lock.unlock();
+    }
+  }
+
+  @Override
+  public OCacheEntry load(final long fileId, final long pageIndex, final boolean checkPinnedPages) throws IOException {
+    final Partition partition = partition(fileId, pageIndex);
+    partition.lock.lock();
+    try {
+      OCacheEntry cacheEntry = null;
+      if (checkPinnedPages)
+        cacheEntry = partition.pinnedPages.get(fileId, pageIndex);
+
+      if (cacheEntry == null)
+        cacheEntry = partition.updateCache(fileId, pageIndex);
+
+      cacheEntry.usagesCount++;
+      return cacheEntry;
+    } finally {
+      partition.lock.unlock();
+    }
+  }
+
+  @Override
+  public OCacheEntry allocateNewPage(final long fileId) throws IOException {
+    synchronized (allocationLock) {
+      final long filledUpTo = getFilledUpTo(fileId);
+      return load(fileId, filledUpTo, false);
+    }
+  }
+
+  @Override
+  public void release(OCacheEntry cacheEntry) {
+    if (cacheEntry == null)
+      throw new IllegalStateException("record should be released is already free!");
+
+    Future<?> flushFuture = null;
+
+    final Partition partition = partition(cacheEntry.fileId, cacheEntry.pageIndex);
+    partition.lock.lock();
+    try {
+      cacheEntry.usagesCount--;
+
+      if (cacheEntry.usagesCount == 0 && cacheEntry.isDirty) {
+        flushFuture = writeCache.store(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry.dataPointer);
+        cacheEntry.isDirty = false;
+      }
+    } finally {
+      partition.lock.unlock();
+    }
+
+    if (flushFuture != null) {
+      try {
+        flushFuture.get();
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        throw new OException("File flush was interrupted", e);
+      } catch (Exception e) {
+        throw new OException("File flush was abnormally terminated", e);
+      }
+    }
+  }
+
+  @Override
+  public long getFilledUpTo(long fileId) throws IOException {
+    return writeCache.getFilledUpTo(fileId);
+  }
+
+  @Override
+  public void flushFile(long fileId) throws IOException {
+    writeCache.flush(fileId);
+  }
+
+  @Override
+  public void closeFile(final long fileId) throws IOException {
+    closeFile(fileId, true);
+  }
+
+  @Override
+  public void closeFile(long fileId, boolean flush) throws IOException {
+    lockAll();
+    try {
+      writeCache.close(fileId, flush);
+
+      for (Partition partition : partitions)
+        partition.freeFilePages(fileId, true);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  @Override
+  public void deleteFile(long fileId) throws IOException {
+    lockAll();
+    try {
+      if (isOpen(fileId))
+        truncateFile(fileId);
+
+      writeCache.deleteFile(fileId);
+
+      for (Partition partition : partitions)
+        partition.filePages.remove(fileId);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  @Override
+  public void truncateFile(long fileId) throws IOException {
+    lockAll();
+    try {
+      writeCache.truncateFile(fileId);
+
+      for (Partition partition : partitions)
+        partition.freeFilePages(fileId, false);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  @Override
+  public void renameFile(long fileId, String oldFileName, String newFileName) throws IOException {
+    writeCache.renameFile(fileId, oldFileName, newFileName);
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    writeCache.flush();
+  }
+
+  @Override
+  public void clear() throws IOException {
+    writeCache.flush();
+
+    lockAll();
+    try {
+      for (Partition partition : partitions)
+        partition.clear();
+    } finally {
+      unlockAll();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lockAll();
+    try {
+      clear();
+      writeCache.close();
+    } finally {
+      unlockAll();
+    }
+  }
+
+  @Override
+  public void delete() throws IOException {
+    lockAll();
+    try {
+      writeCache.delete();
+
+      for (Partition partition : partitions)
+        partition.clear();
+    } finally {
+      unlockAll();
+    }
+  }
+
+  @Override
+  public boolean wasSoftlyClosed(long fileId) throws IOException {
+    return writeCache.wasSoftlyClosed(fileId);
+  }
+
+  @Override
+  public void setSoftlyClosed(long fileId, boolean softlyClosed) throws IOException {
+    writeCache.setSoftlyClosed(fileId, softlyClosed);
+  }
+
+  @Override
+  public void setSoftlyClosed(boolean softlyClosed) throws IOException {
+    writeCache.setSoftlyClosed(softlyClosed);
+  }
+
+  @Override
+  public boolean isOpen(long fileId) {
+    return writeCache.isOpen(fileId);
+  }
+
+  @Override
+  public OPageDataVerificationError[] checkStoredPages(OCommandOutputListener commandOutputListener) {
+    return writeCache.checkStoredPages(commandOutputListener);
+  }
+
+  @Override
+  public Set<ODirtyPage> logDirtyPagesTable() throws IOException {
+    return writeCache.logDirtyPagesTable();
+  }
+
+  @Override
+  public void forceSyncStoredChanges() throws IOException {
+    writeCache.forceSyncStoredChanges();
+  }
+
+  private Partition partition(long fileId, long pageIndex) {
+    long hash = fileId * 0x9E3779B97F4A7C15L + pageIndex;
+    hash ^= hash >>> 32;
+    hash ^= hash >>> 16;
+
+    return partitions[(int) hash & partitionsMask];
+  }
+
+  private void lockAll() {
+    for (Partition partition : partitions)
+      partition.lock.lock();
+  }
+
+  private void unlockAll() {
+    for (int i = partitions.length - 1; i >= 0; i--)
+      partitions[i].lock.unlock();
+  }
+
+  private int normalizeMemory(long maxSize, int pageSize) {
+    long tmpMaxSize = maxSize / pageSize;
+    if (tmpMaxSize >= Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    } else {
+      return (int) tmpMaxSize;
+    }
+  }
+
+  private void initProfiler() {
+    if (storageName != null) {
+      final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+      METRIC_HITS = profiler.getDatabaseMetric(storageName, "diskCache.hits");
+      METRIC_HITS_METADATA = profiler.getDatabaseMetric(null, "diskCache.hits");
+      METRIC_MISSED = profiler.getDatabaseMetric(storageName, "diskCache.missed");
+      METRIC_MISSED_METADATA = profiler.getDatabaseMetric(null, "diskCache.missed");
+
+      profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.totalMemory"),
+          "Total memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            @Override
+            public Object getValue() {
+              long size = 0;
+              for (Partition partition : partitions)
+                size += partition.am.size() + partition.a1in.size();
+
+              return size * pageSize;
+            }
+          }, profiler.getDatabaseMetric(null, "diskCache.totalMemory"));
+
+      profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.maxMemory"),
+          "Maximum memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            @Override
+            public Object getValue() {
+              return (long) getMaxSize() * pageSize;
+            }
+          }, profiler.getDatabaseMetric(null, "diskCache.maxMemory"));
+    }
+  }
+
+  /**
+   * Part of the cache guarded by its own lock. Contains the same queues as {@link OReadWriteDiskCache} but only for pages which
+   * belong to this partition.
+   */
+  private final class Partition {
+    private final ReentrantLock               lock        = new ReentrantLock();
+
+    private int                               maxSize;
+    private int                               K_IN;
+    private int                               K_OUT;
+
+    private final LRUList                     am          = new LRUList();
+    private final LRUList                     a1out       = new LRUList();
+    private final LRUList                     a1in        = new LRUList();
+
+    private final Map<Long, PageIndexSet>     filePages   = new HashMap<Long, PageIndexSet>();
+    private final PageMap<OCacheEntry>        pinnedPages = new PageMap<OCacheEntry>();
+
+    private Partition(int maxSize) {
+      this.maxSize = maxSize;
+
+      K_IN = maxSize >> 2;
+      K_OUT = maxSize >> 1;
+    }
+
+    private OCacheEntry updateCache(final long fileId, final long pageIndex) throws IOException {
+      final OProfilerMBean profiler = storageName != null ? Orient.instance().getProfiler() : null;
+      final long startTime = storageName != null ? System.currentTimeMillis() : 0;
+
+      OCacheEntry cacheEntry = am.get(fileId, pageIndex);
+
+      if (cacheEntry != null) {
+        am.putToMRU(cacheEntry);
+
+        if (profiler != null && profiler.isRecording())
+          profiler.stopChrono(METRIC_HITS, "Requested item was found in Disk Cache", startTime, METRIC_HITS_METADATA);
+
+        return cacheEntry;
+      }
+
+      if (profiler != null && profiler.isRecording())
+        profiler.stopChrono(METRIC_MISSED, "Requested item was not found in Disk Cache", startTime, METRIC_MISSED_METADATA);
+
+      cacheEntry = a1out.remove(fileId, pageIndex);
+      if (cacheEntry != null) {
+        removeColdestPageIfNeeded();
+
+        OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
+        assert cacheEntry.dataPointer == null;
+        assert !cacheEntry.isDirty;
+
+        cacheEntry.dataPointer = dataPointer;
+
+        am.putToMRU(cacheEntry);
+
+        return cacheEntry;
+      }
+
+      cacheEntry = a1in.get(fileId, pageIndex);
+      if (cacheEntry != null)
+        return cacheEntry;
+
+      removeColdestPageIfNeeded();
+
+      OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
+
+      cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
+      a1in.putToMRU(cacheEntry);
+
+      PageIndexSet pages = filePages.get(fileId);
+      if (pages == null) {
+        pages = new PageIndexSet();
+        filePages.put(fileId, pages);
+      }
+
+      pages.add(pageIndex);
+      return cacheEntry;
+    }
+
+    private void removeColdestPageIfNeeded() throws IOException {
+      if (am.size() + a1in.size() >= maxSize) {
+        if (a1in.size() > K_IN) {
+          OCacheEntry removedFromAInEntry = a1in.removeLRU();
+
+          if (removedFromAInEntry == null) {
+            increaseCacheSize();
+          } else {
+            assert removedFromAInEntry.usagesCount == 0;
+            assert !removedFromAInEntry.isDirty;
+
+            removedFromAInEntry.dataPointer.decrementReferrer();
+            removedFromAInEntry.dataPointer = null;
+
+            a1out.putToMRU(removedFromAInEntry);
+          }
+
+          if (a1out.size() > K_OUT) {
+            OCacheEntry removedEntry = a1out.removeLRU();
+            assert removedEntry.dataPointer == null;
+            assert !removedEntry.isDirty;
+
+            PageIndexSet pageEntries = filePages.get(removedEntry.fileId);
+            pageEntries.remove(removedEntry.pageIndex);
+          }
+        } else {
+          OCacheEntry removedEntry = am.removeLRU();
+
+          if (removedEntry == null) {
+            increaseCacheSize();
+          } else {
+            assert removedEntry.usagesCount == 0;
+            assert !removedEntry.isDirty;
+
+            removedEntry.dataPointer.decrementReferrer();
+            removedEntry.dataPointer = null;
+
+            PageIndexSet pageEntries = filePages.get(removedEntry.fileId);
+            pageEntries.remove(removedEntry.pageIndex);
+          }
+        }
+      }
+    }
+
+    private void increaseCacheSize() {
+      String message = "All records in aIn queue in 2q cache are used!";
+      OLogManager.instance().warn(this, message);
+      if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
+        OLogManager.instance().warn(this, "Cache size will be increased.");
+        maxSize = (int) Math.ceil(maxSize * (1 + OGlobalConfiguration.SERVER_CACHE_INCREASE_STEP.getValueAsFloat()));
+        K_IN = maxSize >> 2;
+        K_OUT = maxSize >> 1;
+      } else {
+        throw new OAllCacheEntriesAreUsedException(message);
+      }
+    }
+
+    /**
+     * Removes pages of given file from partition.
+     *
+     * @param failIfUsed
+     *          if <code>true</code> exception is thrown if one of pages is still in use, otherwise used pages are skipped.
+     */
+    private void freeFilePages(long fileId, boolean failIfUsed) {
+      final PageIndexSet pageIndexes = filePages.get(fileId);
+      if (pageIndexes == null)
+        return;
+
+      for (long pageIndex : pageIndexes.toArray()) {
+        OCacheEntry cacheEntry = get(fileId, pageIndex);
+        if (cacheEntry == null)
+          cacheEntry = pinnedPages.get(fileId, pageIndex);
+
+        if (cacheEntry == null)
+          throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId + " was not found in cache");
+
+        if (cacheEntry.usagesCount == 0) {
+          cacheEntry = remove(fileId, pageIndex);
+          if (cacheEntry == null)
+            cacheEntry = pinnedPages.remove(fileId, pageIndex);
+
+          if (cacheEntry.dataPointer != null) {
+            cacheEntry.dataPointer.decrementReferrer();
+            cacheEntry.dataPointer = null;
+          }
+        } else if (failIfUsed && cacheEntry.dataPointer != null)
+          throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId
+              + " can not be freed because it is used.");
+      }
+
+      pageIndexes.clear();
+    }
+
+    private void clear() {
+      for (OCacheEntry cacheEntry : am)
+        freeEntry(cacheEntry);
+
+      for (OCacheEntry cacheEntry : a1in)
+        freeEntry(cacheEntry);
+
+      for (OCacheEntry pinnedEntry : pinnedPages.values())
+        freeEntry(pinnedEntry);
+
+      a1out.clear();
+      am.clear();
+      a1in.clear();
+      pinnedPages.clear();
+
+      for (PageIndexSet pages : filePages.values())
+        pages.clear();
+    }
+
+    private void freeEntry(OCacheEntry cacheEntry) {
+      if (cacheEntry.usagesCount == 0) {
+        cacheEntry.dataPointer.decrementReferrer();
+        cacheEntry.dataPointer = null;
+      } else
+        throw new OStorageException("Page with index " + cacheEntry.pageIndex + " for file id " + cacheEntry.fileId
+            + " is used and can not be removed");
+    }
+
+    private OCacheEntry get(long fileId, long pageIndex) {
+      OCacheEntry cacheEntry = am.get(fileId, pageIndex);
+      if (cacheEntry != null)
+        return cacheEntry;
+
+      cacheEntry = a1out.get(fileId, pageIndex);
+      if (cacheEntry != null)
+        return cacheEntry;
+
+      return a1in.get(fileId, pageIndex);
+    }
+
+    private OCacheEntry remove(long fileId, long pageIndex) {
+      OCacheEntry cacheEntry = am.remove(fileId, pageIndex);
+      if (cacheEntry != null) {
+        if (cacheEntry.usagesCount > 1)
+          throw new IllegalStateException("Record cannot be removed because it is used!");
+        return cacheEntry;
+      }
+
+      cacheEntry = a1out.remove(fileId, pageIndex);
+      if (cacheEntry != null)
+        return cacheEntry;
+
+      cacheEntry = a1in.remove(fileId, pageIndex);
+      if (cacheEntry != null && cacheEntry.usagesCount > 1)
+        throw new IllegalStateException("Record cannot be removed because it is used!");
+      return cacheEntry;
+    }
+  }
+}
@@ -2,12 +2,13 @@ package com.orientechnologies.orient.core.index.hashindex.local.cache;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
@@ -28,7 +29,18 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWrite
  * @since 7/24/13
  */
 public class OReadWriteDiskCache implements ODiskCache {
-  public static final int                             MIN_CACHE_SIZE = 256;
+  public static final int                             MIN_CACHE_SIZE              = 256;
+
+  /**
+   * Amount of pages which are loaded ahead when sequential access to the file is detected first time, size of window is doubled on
+   * every next read ahead till maximum size is reached.
+   */
+  private static final int                            READ_AHEAD_MIN_WINDOW       = 2;
+
+  /**
+   * Amount of subsequent loads of neighbour pages after which access to the file is considered as sequential.
+   */
+  private static final int                            READ_AHEAD_SEQUENTIAL_LOADS = 2;
 
   private int                                         maxSize;
   private int                                         K_IN;
@@ -43,11 +55,11 @@ public class OReadWriteDiskCache implements ODiskCache {
   /**
    * Contains all pages in cache for given file.
    */
-  private final Map<Long, Set<Long>>                  filePages;
+  private final Map<Long, PageIndexSet>               filePages;
 
   private final Object                                syncObject;
 
-  private final NavigableMap<PinnedPage, OCacheEntry> pinnedPages    = new TreeMap<PinnedPage, OCacheEntry>();
+  private final PageMap<OCacheEntry>                 pinnedPages                 = new PageMap<OCacheEntry>();
 
   private final String                                storageName;
 
@@ -55,23 +67,49 @@ public class OReadWriteDiskCache implements ODiskCache {
   private static String                               METRIC_HITS_METADATA;
   private static String                               METRIC_MISSED;
   private static String                               METRIC_MISSED_METADATA;
+  private static String                               METRIC_READ_AHEAD_PAGES;
+  private static String                               METRIC_READ_AHEAD_PAGES_METADATA;
+  private static String                               METRIC_READ_AHEAD_HITS;
+  private static String                               METRIC_READ_AHEAD_HITS_METADATA;
+  private static String                               METRIC_READ_AHEAD_MISSED;
+  private static String                               METRIC_READ_AHEAD_MISSED_METADATA;
+
+  /**
+   * Maximum amount of pages which are loaded by single read ahead, 0 means that read ahead is switched off.
+   */
+  private final int                                   readAheadPages;
+  private final Map<Long, ReadAheadState>             readAheadStates             = new HashMap<Long, ReadAheadState>();
+  private ExecutorService                             readAheadExecutor;
 
   public OReadWriteDiskCache(final long readCacheMaxMemory, final long writeCacheMaxMemory, final int pageSize,
       final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
       final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize) {
     this(null, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL, pageFlushInterval, storageLocal, writeAheadLog,
-        syncOnPageFlush, checkMinSize);
+        syncOnPageFlush, checkMinSize, 0);
   }
 
   public OReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
       final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
       final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize) {
+    this(storageName, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL, pageFlushInterval, storageLocal,
+        writeAheadLog, syncOnPageFlush, checkMinSize, OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.getValueAsInteger());
+  }
+
+  /**
+   * @param readAheadPages
+   *          maximum amount of pages which are asynchronously loaded ahead when sequential access to the file is detected, 0 switches
+   *          read ahead off.
+   */
+  public OReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
+      final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize, final int readAheadPages) {
     this.storageName = storageName;
     this.pageSize = pageSize;
+    this.readAheadPages = readAheadPages;
 
     initProfiler();
 
-    this.filePages = new HashMap<Long, Set<Long>>();
+    this.filePages = new HashMap<Long, PageIndexSet>();
 
     maxSize = normalizeMemory(readCacheMaxMemory, pageSize);
     if (checkMinSize && maxSize < MIN_CACHE_SIZE)
@@ -110,7 +148,7 @@ public class OReadWriteDiskCache implements ODiskCache {
         return fileId;
 
       fileId = writeCache.openFile(fileName);
-      filePages.put(fileId, new HashSet<Long>());
+      filePages.put(fileId, new PageIndexSet());
 
       return fileId;
     }
@@ -123,7 +161,7 @@ public class OReadWriteDiskCache implements ODiskCache {
         return;
 
       writeCache.openFile(fileId);
-      filePages.put(fileId, new HashSet<Long>());
+      filePages.put(fileId, new PageIndexSet());
     }
   }
 
@@ -145,7 +183,7 @@ public class OReadWriteDiskCache implements ODiskCache {
   public void pinPage(final OCacheEntry cacheEntry) throws IOException {
     synchronized (syncObject) {
       remove(cacheEntry.fileId, cacheEntry.pageIndex);
-      pinnedPages.put(new PinnedPage(cacheEntry.fileId, cacheEntry.pageIndex), cacheEntry);
+      pinnedPages.put(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry);
     }
   }
 
@@ -161,11 +199,15 @@ public class OReadWriteDiskCache implements ODiskCache {
     synchronized (syncObject) {
       OCacheEntry cacheEntry = null;
       if (checkPinnedPages)
-        cacheEntry = pinnedPages.get(new PinnedPage(fileId, pageIndex));
+        cacheEntry = pinnedPages.get(fileId, pageIndex);
 
-      if (cacheEntry == null)
+      if (cacheEntry == null) {
         cacheEntry = updateCache(fileId, pageIndex);
 
+        if (readAheadPages > 0)
+          trackSequentialAccess(fileId, pageIndex);
+      }
+
       cacheEntry.usagesCount++;
       return cacheEntry;
     }
@@ -191,6 +233,13 @@ public class OReadWriteDiskCache implements ODiskCache {
       if (cacheEntry.usagesCount == 0 && cacheEntry.isDirty) {
         flushFuture = writeCache.store(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry.dataPointer);
         cacheEntry.isDirty = false;
+
+        if (readAheadPages > 0) {
+          // THE COPY OF THE PAGE THE READ AHEAD IS READING FROM THE DISK IS STALE NOW
+          final ReadAheadState state = readAheadStates.get(cacheEntry.fileId);
+          if (state != null && cacheEntry.pageIndex >= state.readFrom && cacheEntry.pageIndex < state.readTo)
+            state.changedDuringRead = true;
+        }
       }
     }
 
@@ -227,13 +276,14 @@ public class OReadWriteDiskCache implements ODiskCache {
   public void closeFile(long fileId, boolean flush) throws IOException {
     synchronized (syncObject) {
       writeCache.close(fileId, flush);
+      readAheadStates.remove(fileId);
 
-      final Set<Long> pageIndexes = filePages.get(fileId);
+      final PageIndexSet pageIndexes = filePages.get(fileId);
 
-      for (Long pageIndex : pageIndexes) {
+      for (long pageIndex : pageIndexes.toArray()) {
         OCacheEntry cacheEntry = get(fileId, pageIndex, true);
         if (cacheEntry == null)
-          cacheEntry = pinnedPages.get(new PinnedPage(fileId, pageIndex));
+          cacheEntry = pinnedPages.get(fileId, pageIndex);
 
         if (cacheEntry != null) {
           if (cacheEntry.dataPointer != null) {
@@ -241,7 +291,7 @@ public class OReadWriteDiskCache implements ODiskCache {
               cacheEntry = remove(fileId, pageIndex);
 
               if (cacheEntry == null)
-                cacheEntry = pinnedPages.remove(new PinnedPage(fileId, pageIndex));
+                cacheEntry = pinnedPages.remove(fileId, pageIndex);
             } else
               throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId
                   + " can not be freed because it is used.");
@@ -273,18 +323,19 @@ public class OReadWriteDiskCache implements ODiskCache {
   public void truncateFile(long fileId) throws IOException {
     synchronized (syncObject) {
       writeCache.truncateFile(fileId);
+      readAheadStates.remove(fileId);
 
-      final Set<Long> pageEntries = filePages.get(fileId);
-      for (Long pageIndex : pageEntries) {
+      final PageIndexSet pageEntries = filePages.get(fileId);
+      for (long pageIndex : pageEntries.toArray()) {
         OCacheEntry cacheEntry = get(fileId, pageIndex, true);
         if (cacheEntry == null)
-          cacheEntry = pinnedPages.get(new PinnedPage(fileId, pageIndex));
+          cacheEntry = pinnedPages.get(fileId, pageIndex);
 
         if (cacheEntry != null) {
           if (cacheEntry.usagesCount == 0) {
             cacheEntry = remove(fileId, pageIndex);
             if (cacheEntry == null)
-              cacheEntry = pinnedPages.remove(new PinnedPage(fileId, pageIndex));
+              cacheEntry = pinnedPages.remove(fileId, pageIndex);
 
             if (cacheEntry.dataPointer != null) {
               cacheEntry.dataPointer.decrementReferrer();
@@ -346,7 +397,7 @@ public class OReadWriteDiskCache implements ODiskCache {
     am.clear();
     a1in.clear();
 
-    for (Set<Long> pages : filePages.values())
+    for (PageIndexSet pages : filePages.values())
       pages.clear();
 
     clearPinnedPages();
@@ -367,6 +418,8 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void close() throws IOException {
+    stopReadAhead();
+
     synchronized (syncObject) {
       clear();
       writeCache.close();
@@ -435,8 +488,17 @@ public class OReadWriteDiskCache implements ODiskCache {
     }
 
     cacheEntry = a1in.get(fileId, pageIndex);
-    if (cacheEntry != null)
+    if (cacheEntry != null) {
+      if (cacheEntry.readAhead) {
+        cacheEntry.readAhead = false;
+
+        if (profiler != null && profiler.isRecording())
+          profiler.updateCounter(METRIC_READ_AHEAD_HITS, "Requested page was loaded by read ahead", +1,
+              METRIC_READ_AHEAD_HITS_METADATA);
+      }
+
       return cacheEntry;
+    }
 
     removeColdestPageIfNeeded();
 
@@ -445,9 +507,9 @@ public class OReadWriteDiskCache implements ODiskCache {
     cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
     a1in.putToMRU(cacheEntry);
 
-    Set<Long> pages = filePages.get(fileId);
+    PageIndexSet pages = filePages.get(fileId);
     if (pages == null) {
-      pages = new HashSet<Long>();
+      pages = new PageIndexSet();
       filePages.put(fileId, pages);
     }
 
@@ -456,16 +518,37 @@ public class OReadWriteDiskCache implements ODiskCache {
   }
 
   private void removeColdestPageIfNeeded() throws IOException {
+    removeColdestPageIfNeeded(true);
+  }
+
+  /**
+   * @param increaseCacheSize
+   *          if <code>false</code> and all pages in cache are used, cache size is not increased and method returns <code>false</code>.
+   * @return <code>true</code> if there is room for new page in cache.
+   */
+  private boolean removeColdestPageIfNeeded(boolean increaseCacheSize) throws IOException {
     if (am.size() + a1in.size() >= maxSize) {
       if (a1in.size() > K_IN) {
         OCacheEntry removedFromAInEntry = a1in.removeLRU();
 
         if (removedFromAInEntry == null) {
+          if (!increaseCacheSize)
+            return false;
+
           increaseCacheSize();
         } else {
           assert removedFromAInEntry.usagesCount == 0;
           assert !removedFromAInEntry.isDirty;
 
+          if (removedFromAInEntry.readAhead) {
+            removedFromAInEntry.readAhead = false;
+
+            final OProfilerMBean profiler = storageName != null ? Orient.instance().getProfiler() : null;
+            if (profiler != null && profiler.isRecording())
+              profiler.updateCounter(METRIC_READ_AHEAD_MISSED, "Page loaded by read ahead was removed from cache without use", +1,
+                  METRIC_READ_AHEAD_MISSED_METADATA);
+          }
+
           removedFromAInEntry.dataPointer.decrementReferrer();
           removedFromAInEntry.dataPointer = null;
 
@@ -477,13 +560,16 @@ public class OReadWriteDiskCache implements ODiskCache {
           assert removedEntry.dataPointer == null;
           assert !removedEntry.isDirty;
 
-          Set<Long> pageEntries = filePages.get(removedEntry.fileId);
+          PageIndexSet pageEntries = filePages.get(removedEntry.fileId);
           pageEntries.remove(removedEntry.pageIndex);
         }
       } else {
         OCacheEntry removedEntry = am.removeLRU();
 
         if (removedEntry == null) {
+          if (!increaseCacheSize)
+            return false;
+
           increaseCacheSize();
         } else {
           assert removedEntry.usagesCount == 0;
@@ -492,11 +578,186 @@ public class OReadWriteDiskCache implements ODiskCache {
           removedEntry.dataPointer.decrementReferrer();
           removedEntry.dataPointer = null;
 
-          Set<Long> pageEntries = filePages.get(removedEntry.fileId);
+          PageIndexSet pageEntries = filePages.get(removedEntry.fileId);
           pageEntries.remove(removedEntry.pageIndex);
         }
       }
     }
+
+    return true;
+  }
+
+  /**
+   * Detects sequential access to the file and schedules asynchronous load of next pages. Size of read ahead window is doubled on
+   * each read ahead till {@link #readAheadPages} is reached and is reset on first random access.
+   */
+  private void trackSequentialAccess(long fileId, long pageIndex) throws IOException {
+    ReadAheadState state = readAheadStates.get(fileId);
+    if (state == null) {
+      state = new ReadAheadState();
+      readAheadStates.put(fileId, state);
+    }
+
+    if (pageIndex == state.lastPageIndex + 1)
+      state.sequentialLoads++;
+    else if (pageIndex != state.lastPageIndex) {
+      state.sequentialLoads = 0;
+      state.window = READ_AHEAD_MIN_WINDOW;
+      state.readAheadUpTo = pageIndex + 1;
+    }
+
+    state.lastPageIndex = pageIndex;
+
+    if (state.sequentialLoads < READ_AHEAD_SEQUENTIAL_LOADS || state.inProgress)
+      return;
+
+    // NEXT PAGES ARE LOADED WHEN HALF OF PREVIOUSLY LOADED PAGES IS CONSUMED
+    if (state.readAheadUpTo - pageIndex > state.window / 2)
+      return;
+
+    final long startPageIndex = Math.max(state.readAheadUpTo, pageIndex + 1);
+    final int pageCount = Math.min(state.window, readAheadPages);
+
+    // PAGES ARE APPENDED TO THE END OF FILE, NOTHING TO READ
+    if (startPageIndex >= writeCache.getFilledUpTo(fileId))
+      return;
+
+    state.readAheadUpTo = startPageIndex + pageCount;
+    state.window = Math.min(state.window << 1, readAheadPages);
+    state.inProgress = true;
+
+    if (readAheadExecutor == null)
+      readAheadExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          thread.setName("Disk Cache Read Ahead Task");
+          return thread;
+        }
+      });
+
+    readAheadExecutor.execute(new ReadAheadTask(fileId, startPageIndex, pageCount, state));
+  }
+
+  /**
+   * Loads the pages which are not cached yet. Pages are read from the disk without the cache lock, which is taken only to find the
+   * ranges of pages to read and to put in the cache the pages still missing: the pages loaded meanwhile by other threads are
+   * released, and the whole range is dropped if one of its pages has been changed during the read.
+   */
+  private void readAhead(long fileId, long startPageIndex, int pageCount, ReadAheadState state) throws IOException {
+    final long endPageIndex;
+    synchronized (syncObject) {
+      if (!writeCache.isOpen(fileId) || readAheadStates.get(fileId) != state)
+        return;
+
+      endPageIndex = Math.min(startPageIndex + pageCount, writeCache.getFilledUpTo(fileId));
+    }
+
+    long pageIndex = startPageIndex;
+    while (pageIndex < endPageIndex) {
+      final long rangeEnd;
+      synchronized (syncObject) {
+        while (pageIndex < endPageIndex && isCached(fileId, pageIndex))
+          pageIndex++;
+
+        if (pageIndex >= endPageIndex)
+          return;
+
+        long end = pageIndex + 1;
+        while (end < endPageIndex && !isCached(fileId, end))
+          end++;
+
+        rangeEnd = end;
+        state.readFrom = pageIndex;
+        state.readTo = rangeEnd;
+        state.changedDuringRead = false;
+      }
+
+      final OCachePointer[] dataPointers;
+      try {
+        dataPointers = writeCache.load(fileId, pageIndex, (int) (rangeEnd - pageIndex));
+      } finally {
+        synchronized (syncObject) {
+          state.readFrom = -1;
+          state.readTo = -1;
+        }
+      }
+
+      synchronized (syncObject) {
+        // THE PAGES ARE STALE IF CHANGED OR IF THE FILE HAS BEEN CLOSED OR TRUNCATED DURING THE READ
+        boolean stop = state.changedDuringRead || readAheadStates.get(fileId) != state
+            || dataPointers.length < rangeEnd - pageIndex;
+        int loadedPages = 0;
+
+        for (int i = 0; i < dataPointers.length; i++) {
+          // THE PAGE COULD HAVE BEEN LOADED BY ANOTHER THREAD MEANWHILE
+          final boolean cached = isCached(fileId, pageIndex + i);
+          if (!stop && !cached && !removeColdestPageIfNeeded(false))
+            stop = true;
+
+          if (stop || cached) {
+            dataPointers[i].decrementReferrer();
+            continue;
+          }
+
+          final OCacheEntry cacheEntry = new OCacheEntry(fileId, pageIndex + i, dataPointers[i], false);
+          cacheEntry.readAhead = true;
+          a1in.putToMRU(cacheEntry);
+
+          PageIndexSet pages = filePages.get(fileId);
+          if (pages == null) {
+            pages = new PageIndexSet();
+            filePages.put(fileId, pages);
+          }
+
+          pages.add(pageIndex + i);
+          loadedPages++;
+        }
+
+        final OProfilerMBean profiler = storageName != null ? Orient.instance().getProfiler() : null;
+        if (profiler != null && profiler.isRecording())
+          profiler.updateCounter(METRIC_READ_AHEAD_PAGES, "Amount of pages loaded by read ahead", loadedPages,
+              METRIC_READ_AHEAD_PAGES_METADATA);
+
+        if (stop)
+          return;
+      }
+
+      pageIndex = rangeEnd;
+    }
+  }
+
+  private boolean isCached(long fileId, long pageIndex) {
+    return get(fileId, pageIndex, true) != null || pinnedPages.containsKey(fileId, pageIndex);
+  }
+
+  private void stopReadAhead() {
+    final ExecutorService executor;
+    synchronized (syncObject) {
+      executor = readAheadExecutor;
+      readAheadExecutor = null;
+      readAheadStates.clear();
+    }
+
+    if (executor == null)
+      return;
+
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+        OLogManager.instance().warn(this, "Read ahead of disk cache pages was not finished in time");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OException("Wait of read ahead completion was interrupted", e);
+    }
+  }
+
+  long getReadAheadUpTo(long fileId) {
+    synchronized (syncObject) {
+      final ReadAheadState state = readAheadStates.get(fileId);
+      return state != null ? state.readAheadUpTo : -1;
+    }
   }
 
   private void increaseCacheSize() {
@@ -535,6 +796,8 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void delete() throws IOException {
+    stopReadAhead();
+
     synchronized (syncObject) {
       writeCache.delete();
 
@@ -589,57 +852,43 @@ public class OReadWriteDiskCache implements ODiskCache {
     }
   }
 
-  private class PinnedPage implements Comparable<PinnedPage> {
-    private final long fileId;
-    private final long pageIndex;
-
-    private PinnedPage(long fileId, long pageIndex) {
-      this.fileId = fileId;
-      this.pageIndex = pageIndex;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o)
-        return true;
-      if (o == null || getClass() != o.getClass())
-        return false;
-
-      PinnedPage that = (PinnedPage) o;
+  private static final class ReadAheadState {
+    private long    lastPageIndex = -2;
+    private int     sequentialLoads;
+    private int     window        = READ_AHEAD_MIN_WINDOW;
+    private long    readAheadUpTo;
+    private boolean inProgress;
 
-      if (fileId != that.fileId)
-        return false;
-      if (pageIndex != that.pageIndex)
-        return false;
+    // RANGE OF PAGES READ FROM THE DISK BY THE READ AHEAD TASK, -1 IF NONE
+    private long    readFrom      = -1;
+    private long    readTo        = -1;
+    private boolean changedDuringRead;
+  }
 
-      return true;
-    }
+  private final class ReadAheadTask implements Runnable {
+    private final long           fileId;
+    private final long           startPageIndex;
+    private final int            pageCount;
+    private final ReadAheadState state;
 
-    @Override
-    public String toString() {
-      return "PinnedPage{" + "fileId=" + fileId + ", pageIndex=" + pageIndex + '}';
-    }
-
-    @Override
-    public int hashCode() {
-      int result = (int) (fileId ^ (fileId >>> 32));
-      result = 31 * result + (int) (pageIndex ^ (pageIndex >>> 32));
-      return result;
+    private ReadAheadTask(long fileId, long startPageIndex, int pageCount, ReadAheadState state) {
+      this.fileId = fileId;
+      this.startPageIndex = startPageIndex;
+      this.pageCount = pageCount;
+      this.state = state;
     }
 
     @Override
-    public int compareTo(PinnedPage other) {
-      if (fileId > other.fileId)
-        return 1;
-      if (fileId < other.fileId)
-        return -1;
-
-      if (pageIndex > other.pageIndex)
-        return 1;
-      if (pageIndex < other.pageIndex)
-        return -1;
-
-      return 0;
+    public void run() {
+      try {
+        readAhead(fileId, startPageIndex, pageCount, state);
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "Error during read ahead of pages of file with id %d", e, fileId);
+      } finally {
+        synchronized (syncObject) {
+          state.inProgress = false;
+        }
+      }
     }
   }
 
@@ -651,6 +900,12 @@ public class OReadWriteDiskCache implements ODiskCache {
       METRIC_HITS_METADATA = profiler.getDatabaseMetric(null, "diskCache.hits");
       METRIC_MISSED = profiler.getDatabaseMetric(storageName, "diskCache.missed");
       METRIC_MISSED_METADATA = profiler.getDatabaseMetric(null, "diskCache.missed");
+      METRIC_READ_AHEAD_PAGES = profiler.getDatabaseMetric(storageName, "diskCache.readAheadPages");
+      METRIC_READ_AHEAD_PAGES_METADATA = profiler.getDatabaseMetric(null, "diskCache.readAheadPages");
+      METRIC_READ_AHEAD_HITS = profiler.getDatabaseMetric(storageName, "diskCache.readAheadHits");
+      METRIC_READ_AHEAD_HITS_METADATA = profiler.getDatabaseMetric(null, "diskCache.readAheadHits");
+      METRIC_READ_AHEAD_MISSED = profiler.getDatabaseMetric(storageName, "diskCache.readAheadMissed");
+      METRIC_READ_AHEAD_MISSED_METADATA = profiler.getDatabaseMetric(null, "diskCache.readAheadMissed");
 
       profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.totalMemory"),
           "Total memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
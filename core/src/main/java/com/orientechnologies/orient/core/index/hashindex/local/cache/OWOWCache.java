@@ -19,6 +19,7 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,15 +38,20 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.CRC32;
 
 import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedException;
@@ -71,6 +77,11 @@ public class OWOWCache {
 
   public static final long                                  MAGIC_NUMBER          = 0xFACB03FEL;
 
+  /**
+   * Maximum amount of write groups which follow each other and are flushed by single pass during flush of file.
+   */
+  private static final int                                  FLUSH_BATCH_GROUPS    = 4;
+
   private final ConcurrentSkipListMap<GroupKey, WriteGroup> writeGroups           = new ConcurrentSkipListMap<GroupKey, WriteGroup>();
 
   private Map<String, Long>                                 nameIdMap;
@@ -85,6 +96,10 @@ public class OWOWCache {
   private final OWriteAheadLog                              writeAheadLog;
 
   private final AtomicInteger                               cacheSize             = new AtomicInteger();
+
+  private final AtomicLong                                  flushedPagesCount     = new AtomicLong();
+  private final AtomicLong                                  flushWritesCount      = new AtomicLong();
+  private final AtomicLong                                  flushTime             = new AtomicLong();
   private final OLockManager<GroupKey, Thread>              lockManager           = new OLockManager<GroupKey, Thread>(
                                                                                       true,
                                                                                       OGlobalConfiguration.DISK_WRITE_CACHE_FLUSH_LOCK_TIMEOUT
@@ -127,6 +142,39 @@ public class OWOWCache {
 
     if (pageFlushInterval > 0)
       commitExecutor.scheduleWithFixedDelay(new PeriodicFlushTask(), pageFlushInterval, pageFlushInterval, TimeUnit.MILLISECONDS);
+
+    if (storageLocal != null)
+      initProfiler(storageLocal.getName());
+  }
+
+  private void initProfiler(String storageName) {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+    profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.flushSpeed"),
+        "Bytes per second written by flush of Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            final long time = flushTime.get();
+            return time > 0 ? flushedPagesCount.get() * pageSize * 1000000000L / time : 0;
+          }
+        }, profiler.getDatabaseMetric(null, "diskCache.flushSpeed"));
+
+    profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.pagesPerWrite"),
+        "Average amount of pages written by single write during flush of Disk Cache", METRIC_TYPE.STAT, new OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            final long writes = flushWritesCount.get();
+            return writes > 0 ? ((double) flushedPagesCount.get()) / writes : 0;
+          }
+        }, profiler.getDatabaseMetric(null, "diskCache.pagesPerWrite"));
+  }
+
+  long getFlushedPagesCount() {
+    return flushedPagesCount.get();
+  }
+
+  long getFlushWritesCount() {
+    return flushWritesCount.get();
   }
 
   public long openFile(String fileName) throws IOException {
@@ -339,6 +387,59 @@ public class OWOWCache {
     }
   }
 
+  /**
+   * Loads continuous range of pages. Content of pages which are absent in write cache is read from file by single read operation.
+   * Only pages which are already allocated in file are loaded, so amount of returned pages may be less than requested.
+   */
+  public OCachePointer[] load(long fileId, long startPageIndex, int pageCount) throws IOException {
+    synchronized (syncObject) {
+      final OFileClassic fileClassic = files.get(fileId);
+      if (fileClassic == null)
+        return new OCachePointer[0];
+
+      final long filledUpTo = fileClassic.getFilledUpTo() / pageSize;
+      if (startPageIndex >= filledUpTo || pageCount <= 0)
+        return new OCachePointer[0];
+
+      pageCount = (int) Math.min(pageCount, filledUpTo - startPageIndex);
+
+      final long firstGroupIndex = startPageIndex >>> 4;
+      final long lastGroupIndex = (startPageIndex + pageCount - 1) >>> 4;
+
+      for (long groupIndex = firstGroupIndex; groupIndex <= lastGroupIndex; groupIndex++)
+        lockManager.acquireLock(Thread.currentThread(), new GroupKey(fileId, groupIndex), OLockManager.LOCK.SHARED);
+      try {
+        final byte[] content = new byte[pageCount * pageSize];
+        fileClassic.read(startPageIndex * pageSize, content, content.length);
+
+        final OCachePointer[] pagePointers = new OCachePointer[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+          final long pageIndex = startPageIndex + i;
+          final WriteGroup writeGroup = writeGroups.get(new GroupKey(fileId, pageIndex >>> 4));
+
+          OCachePointer pagePointer = null;
+          if (writeGroup != null)
+            pagePointer = writeGroup.pages[(int) (pageIndex & 15)];
+
+          if (pagePointer == null) {
+            final ODirectMemoryPointer pointer = new ODirectMemoryPointer(pageSize);
+            pointer.set(0, content, i * pageSize, pageSize);
+
+            pagePointer = new OCachePointer(pointer, ODurablePage.getLogSequenceNumberFromPage(pointer));
+          }
+
+          pagePointer.incrementReferrer();
+          pagePointers[i] = pagePointer;
+        }
+
+        return pagePointers;
+      } finally {
+        for (long groupIndex = firstGroupIndex; groupIndex <= lastGroupIndex; groupIndex++)
+          lockManager.releaseLock(Thread.currentThread(), new GroupKey(fileId, groupIndex), OLockManager.LOCK.SHARED);
+      }
+    }
+  }
+
   public void flush(long fileId) {
     final Future<Void> future = commitExecutor.submit(new FileFlushTask(fileId));
     try {
@@ -574,25 +675,110 @@ public class OWOWCache {
     return dataPointer;
   }
 
-  private void flushPage(long fileId, long pageIndex, ODirectMemoryPointer dataPointer) throws IOException {
+  /**
+   * Tries to lock all pages of write group without waiting.
+   * 
+   * @return <code>false</code> if one of pages is used by other thread, in such case none of pages stays locked.
+   */
+  private static boolean tryLockGroupPages(WriteGroup group) {
+    for (int i = 0; i < 16; i++) {
+      final OCachePointer pagePointer = group.pages[i];
+      if (pagePointer != null && !pagePointer.tryAcquireExclusiveLock()) {
+        unlockGroupPages(group, i);
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static void unlockGroupPages(WriteGroup group, int pagesCount) {
+    for (int i = 0; i < pagesCount; i++) {
+      final OCachePointer pagePointer = group.pages[i];
+      if (pagePointer != null)
+        pagePointer.releaseExclusiveLock();
+    }
+  }
+
+  /**
+   * Writes pages of write groups which belong to the same file, groups are sorted by index and their pages are locked by caller.
+   * Pages which follow each other are written by single gathering write and WAL is flushed once for all passed in pages.
+   * 
+   * @return amount of written pages.
+   */
+  private int flushPages(long fileId, List<GroupKey> groupKeys, List<WriteGroup> groups) throws IOException {
+    final long startTime = System.nanoTime();
+
+    final List<Long> pageIndexes = new ArrayList<Long>();
+    final List<OCachePointer> pagePointers = new ArrayList<OCachePointer>();
+    OLogSequenceNumber maxLSN = null;
+
+    for (int n = 0; n < groups.size(); n++) {
+      final WriteGroup group = groups.get(n);
+      final long firstPageIndex = groupKeys.get(n).groupIndex << 4;
+
+      for (int i = 0; i < 16; i++) {
+        final OCachePointer pagePointer = group.pages[i];
+        if (pagePointer != null) {
+          pageIndexes.add(firstPageIndex + i);
+          pagePointers.add(pagePointer);
+
+          final OLogSequenceNumber lsn = ODurablePage.getLogSequenceNumberFromPage(pagePointer.getDataPointer());
+          if (maxLSN == null || maxLSN.compareTo(lsn) < 0)
+            maxLSN = lsn;
+        }
+      }
+    }
+
+    if (pagePointers.isEmpty())
+      return 0;
+
     if (writeAheadLog != null) {
-      OLogSequenceNumber lsn = ODurablePage.getLogSequenceNumberFromPage(dataPointer);
       OLogSequenceNumber flushedLSN = writeAheadLog.getFlushedLSN();
-      if (flushedLSN == null || flushedLSN.compareTo(lsn) < 0)
+      if (flushedLSN == null || flushedLSN.compareTo(maxLSN) < 0)
         writeAheadLog.flush();
     }
 
+    final OFileClassic fileClassic = files.get(fileId);
+    int writes = 0;
+    int runStart = 0;
+
+    while (runStart < pagePointers.size()) {
+      int runEnd = runStart + 1;
+      while (runEnd < pagePointers.size() && pageIndexes.get(runEnd) == pageIndexes.get(runEnd - 1) + 1)
+        runEnd++;
+
+      final ByteBuffer[] buffers = new ByteBuffer[runEnd - runStart];
+      for (int i = runStart; i < runEnd; i++)
+        buffers[i - runStart] = ByteBuffer.wrap(preparePageContent(pagePointers.get(i).getDataPointer()));
+
+      fileClassic.write(pageIndexes.get(runStart) * pageSize, buffers);
+      writes++;
+
+      runStart = runEnd;
+    }
+
+    if (syncOnPageFlush)
+      fileClassic.synch();
+
+    for (OCachePointer pagePointer : pagePointers)
+      pagePointer.setLastFlushedLsn(ODurablePage.getLogSequenceNumberFromPage(pagePointer.getDataPointer()));
+
+    flushedPagesCount.addAndGet(pagePointers.size());
+    flushWritesCount.addAndGet(writes);
+    flushTime.addAndGet(System.nanoTime() - startTime);
+
+    return pagePointers.size();
+  }
+
+  private byte[] preparePageContent(ODirectMemoryPointer dataPointer) {
     final byte[] content = dataPointer.get(0, pageSize);
     OLongSerializer.INSTANCE.serializeNative(MAGIC_NUMBER, content, 0);
 
     final int crc32 = calculatePageCrc(content);
     OIntegerSerializer.INSTANCE.serializeNative(crc32, content, OLongSerializer.LONG_SIZE);
 
-    final OFileClassic fileClassic = files.get(fileId);
-    fileClassic.write(pageIndex * pageSize, content);
-
-    if (syncOnPageFlush)
-      fileClassic.synch();
+    return content;
   }
 
   private static int calculatePageCrc(byte[] pageData) {
@@ -871,24 +1057,14 @@ public class OWOWCache {
           else {
             group.recencyBit = false;
 
-            int flushedPages = 0;
-
-            for (int i = 0; i < 16; i++) {
-              final OCachePointer pagePointer = group.pages[i];
-              if (pagePointer != null) {
-                if (!pagePointer.tryAcquireExclusiveLock())
-                  continue groupsLoop;
-
-                try {
-                  flushPage(groupKey.fileId, (groupKey.groupIndex << 4) + i, pagePointer.getDataPointer());
-                  flushedPages++;
+            if (!tryLockGroupPages(group))
+              continue groupsLoop;
 
-                  final OLogSequenceNumber flushedLSN = ODurablePage.getLogSequenceNumberFromPage(pagePointer.getDataPointer());
-                  pagePointer.setLastFlushedLsn(flushedLSN);
-                } finally {
-                  pagePointer.releaseExclusiveLock();
-                }
-              }
+            final int flushedPages;
+            try {
+              flushedPages = flushPages(groupKey.fileId, Collections.singletonList(groupKey), Collections.singletonList(group));
+            } finally {
+              unlockGroupPages(group, 16);
             }
 
             for (OCachePointer pagePointer : group.pages)
@@ -926,44 +1102,71 @@ public class OWOWCache {
       NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.subMap(firstKey, true, lastKey, true);
       Iterator<Map.Entry<GroupKey, WriteGroup>> entryIterator = subMap.entrySet().iterator();
 
-      groupsLoop: while (entryIterator.hasNext()) {
+      final List<GroupKey> batchKeys = new ArrayList<GroupKey>();
+      final List<WriteGroup> batchGroups = new ArrayList<WriteGroup>();
+
+      while (entryIterator.hasNext()) {
         Map.Entry<GroupKey, WriteGroup> entry = entryIterator.next();
-        final WriteGroup writeGroup = entry.getValue();
-        final GroupKey groupKey = entry.getKey();
 
-        lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
-        try {
-          int flushedPages = 0;
+        if (!batchKeys.isEmpty()
+            && (batchKeys.size() == FLUSH_BATCH_GROUPS || batchKeys.get(batchKeys.size() - 1).groupIndex + 1 != entry.getKey().groupIndex))
+          flushBatch(batchKeys, batchGroups);
 
-          for (int i = 0; i < 16; i++) {
-            OCachePointer pagePointer = writeGroup.pages[i];
+        batchKeys.add(entry.getKey());
+        batchGroups.add(entry.getValue());
+      }
 
-            if (pagePointer != null) {
-              if (!pagePointer.tryAcquireExclusiveLock())
-                continue groupsLoop;
+      if (!batchKeys.isEmpty())
+        flushBatch(batchKeys, batchGroups);
 
-              try {
-                flushPage(groupKey.fileId, (groupKey.groupIndex << 4) + i, pagePointer.getDataPointer());
-                flushedPages++;
-              } finally {
-                pagePointer.releaseExclusiveLock();
-              }
-            }
+      files.get(fileId).synch();
+      return null;
+    }
+
+    /**
+     * Flushes write groups which follow each other by single pass, so pages placed on the edges of groups are written together.
+     * Groups which contain pages used by other threads are left in cache.
+     */
+    private void flushBatch(List<GroupKey> batchKeys, List<WriteGroup> batchGroups) throws IOException {
+      for (GroupKey groupKey : batchKeys)
+        lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
+
+      try {
+        final List<GroupKey> lockedKeys = new ArrayList<GroupKey>(batchKeys.size());
+        final List<WriteGroup> lockedGroups = new ArrayList<WriteGroup>(batchGroups.size());
+
+        for (int i = 0; i < batchKeys.size(); i++) {
+          final WriteGroup writeGroup = batchGroups.get(i);
+          if (writeGroups.get(batchKeys.get(i)) == writeGroup && tryLockGroupPages(writeGroup)) {
+            lockedKeys.add(batchKeys.get(i));
+            lockedGroups.add(writeGroup);
           }
+        }
+
+        final int flushedPages;
+        try {
+          flushedPages = flushPages(fileId, lockedKeys, lockedGroups);
+        } finally {
+          for (WriteGroup writeGroup : lockedGroups)
+            unlockGroupPages(writeGroup, 16);
+        }
 
-          for (OCachePointer pagePointer : writeGroup.pages)
+        for (int i = 0; i < lockedGroups.size(); i++) {
+          for (OCachePointer pagePointer : lockedGroups.get(i).pages)
             if (pagePointer != null)
               pagePointer.decrementReferrer();
 
-          cacheSize.addAndGet(-flushedPages);
-          entryIterator.remove();
-        } finally {
-          lockManager.releaseLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
+          writeGroups.remove(lockedKeys.get(i));
         }
-      }
 
-      files.get(fileId).synch();
-      return null;
+        cacheSize.addAndGet(-flushedPages);
+      } finally {
+        for (GroupKey groupKey : batchKeys)
+          lockManager.releaseLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
+
+        batchKeys.clear();
+        batchGroups.clear();
+      }
     }
   }
 
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.util.Arrays;
+
+/**
+ * Set of indexes of pages of single file which are kept in cache. Indexes are stored in primitive array with linear probing, so
+ * update of set does not allocate objects. Page indexes can not be negative, negative value is used as marker of free slot. Set is
+ * not thread safe.
+ */
+final class PageIndexSet {
+  private static final int  DEFAULT_CAPACITY = 16;
+  private static final long FREE             = -1;
+
+  private long[]            pageIndexes;
+
+  private int               size;
+  private int               nextThreshold;
+
+  PageIndexSet() {
+    init(DEFAULT_CAPACITY);
+  }
+
+  boolean add(long pageIndex) {
+    if (pageIndex < 0)
+      throw new IllegalArgumentException("Page index can not be negative");
+
+    final int mask = pageIndexes.length - 1;
+    int index = index(pageIndex, mask);
+
+    while (pageIndexes[index] != FREE) {
+      if (pageIndexes[index] == pageIndex)
+        return false;
+
+      index = (index + 1) & mask;
+    }
+
+    pageIndexes[index] = pageIndex;
+
+    size++;
+    if (size >= nextThreshold)
+      rehash(pageIndexes.length << 1);
+
+    return true;
+  }
+
+  boolean contains(long pageIndex) {
+    return find(pageIndex) >= 0;
+  }
+
+  boolean remove(long pageIndex) {
+    int index = find(pageIndex);
+    if (index < 0)
+      return false;
+
+    final int mask = pageIndexes.length - 1;
+
+    // SHIFT BACK ENTRIES WHICH FOLLOW REMOVED ONE TO KEEP PROBE SEQUENCES WITHOUT HOLES
+    int next = (index + 1) & mask;
+    while (pageIndexes[next] != FREE) {
+      final int ideal = index(pageIndexes[next], mask);
+
+      if (((next - ideal) & mask) >= ((next - index) & mask)) {
+        pageIndexes[index] = pageIndexes[next];
+        index = next;
+      }
+
+      next = (next + 1) & mask;
+    }
+
+    pageIndexes[index] = FREE;
+    size--;
+
+    return true;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return copy of content of the set, so set can be changed during iteration over the result.
+   */
+  long[] toArray() {
+    final long[] result = new long[size];
+
+    int n = 0;
+    for (long pageIndex : pageIndexes)
+      if (pageIndex != FREE)
+        result[n++] = pageIndex;
+
+    return result;
+  }
+
+  void clear() {
+    if (pageIndexes.length > DEFAULT_CAPACITY)
+      init(DEFAULT_CAPACITY);
+    else {
+      Arrays.fill(pageIndexes, FREE);
+      size = 0;
+    }
+  }
+
+  private int find(long pageIndex) {
+    final int mask = pageIndexes.length - 1;
+    int index = index(pageIndex, mask);
+
+    while (pageIndexes[index] != FREE) {
+      if (pageIndexes[index] == pageIndex)
+        return index;
+
+      index = (index + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  private static int index(long pageIndex, int mask) {
+    return (int) PageMap.hashCode(0, pageIndex) & mask;
+  }
+
+  private void init(int capacity) {
+    pageIndexes = new long[capacity];
+    Arrays.fill(pageIndexes, FREE);
+
+    size = 0;
+    nextThreshold = (int) (capacity * 0.75);
+  }
+
+  private void rehash(int capacity) {
+    final long[] oldPageIndexes = pageIndexes;
+
+    init(capacity);
+
+    final int mask = capacity - 1;
+    for (long pageIndex : oldPageIndexes) {
+      if (pageIndex == FREE)
+        continue;
+
+      int index = index(pageIndex, mask);
+      while (pageIndexes[index] != FREE)
+        index = (index + 1) & mask;
+
+      pageIndexes[index] = pageIndex;
+      size++;
+    }
+  }
+}
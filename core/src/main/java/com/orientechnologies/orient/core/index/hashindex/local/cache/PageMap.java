@@ -0,0 +1,202 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash map which uses pair of file id and page index as key. Keys are kept in primitive arrays and collisions are resolved by linear
+ * probing, so neither lookup nor update of existing key allocates objects. Map is not thread safe.
+ */
+final class PageMap<V> {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private long[]           fileIds;
+  private long[]           pageIndexes;
+  private Object[]         values;
+
+  private int              size;
+  private int              nextThreshold;
+
+  PageMap() {
+    init(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Calculates hash code of page key without allocation of intermediate objects. Finalization step of MurmurHash3 is used to spread
+   * bits of both parts of the key over the result.
+   */
+  static long hashCode(long fileId, long pageIndex) {
+    long hash = fileId * 0x9E3779B97F4A7C15L + pageIndex;
+
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return hash;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(long fileId, long pageIndex) {
+    final int index = find(fileId, pageIndex);
+    if (index < 0)
+      return null;
+
+    return (V) values[index];
+  }
+
+  boolean containsKey(long fileId, long pageIndex) {
+    return find(fileId, pageIndex) >= 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  V put(long fileId, long pageIndex, V value) {
+    if (value == null)
+      throw new IllegalArgumentException("Null values are not supported");
+
+    final int mask = values.length - 1;
+    int index = (int) hashCode(fileId, pageIndex) & mask;
+
+    while (values[index] != null) {
+      if (fileIds[index] == fileId && pageIndexes[index] == pageIndex) {
+        final V oldValue = (V) values[index];
+        values[index] = value;
+        return oldValue;
+      }
+
+      index = (index + 1) & mask;
+    }
+
+    fileIds[index] = fileId;
+    pageIndexes[index] = pageIndex;
+    values[index] = value;
+
+    size++;
+    if (size >= nextThreshold)
+      rehash(values.length << 1);
+
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  V remove(long fileId, long pageIndex) {
+    int index = find(fileId, pageIndex);
+    if (index < 0)
+      return null;
+
+    final V oldValue = (V) values[index];
+    final int mask = values.length - 1;
+
+    // SHIFT BACK ENTRIES WHICH FOLLOW REMOVED ONE TO KEEP PROBE SEQUENCES WITHOUT HOLES
+    int next = (index + 1) & mask;
+    while (values[next] != null) {
+      final int ideal = (int) hashCode(fileIds[next], pageIndexes[next]) & mask;
+
+      if (((next - ideal) & mask) >= ((next - index) & mask)) {
+        fileIds[index] = fileIds[next];
+        pageIndexes[index] = pageIndexes[next];
+        values[index] = values[next];
+
+        index = next;
+      }
+
+      next = (next + 1) & mask;
+    }
+
+    values[index] = null;
+    size--;
+
+    return oldValue;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  List<V> values() {
+    final List<V> result = new ArrayList<V>(size);
+    for (Object value : values)
+      if (value != null)
+        result.add((V) value);
+
+    return result;
+  }
+
+  void clear() {
+    if (values.length > DEFAULT_CAPACITY)
+      init(DEFAULT_CAPACITY);
+    else {
+      Arrays.fill(values, null);
+      size = 0;
+    }
+  }
+
+  private int find(long fileId, long pageIndex) {
+    final int mask = values.length - 1;
+    int index = (int) hashCode(fileId, pageIndex) & mask;
+
+    while (values[index] != null) {
+      if (fileIds[index] == fileId && pageIndexes[index] == pageIndex)
+        return index;
+
+      index = (index + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  private void init(int capacity) {
+    fileIds = new long[capacity];
+    pageIndexes = new long[capacity];
+    values = new Object[capacity];
+
+    size = 0;
+    nextThreshold = (int) (capacity * 0.75);
+  }
+
+  private void rehash(int capacity) {
+    final long[] oldFileIds = fileIds;
+    final long[] oldPageIndexes = pageIndexes;
+    final Object[] oldValues = values;
+
+    init(capacity);
+
+    final int mask = capacity - 1;
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] == null)
+        continue;
+
+      int index = (int) hashCode(oldFileIds[i], oldPageIndexes[i]) & mask;
+      while (values[index] != null)
+        index = (index + 1) & mask;
+
+      fileIds[index] = oldFileIds[i];
+      pageIndexes[index] = oldPageIndexes[i];
+      values[index] = oldValues[i];
+
+      size++;
+    }
+  }
+}
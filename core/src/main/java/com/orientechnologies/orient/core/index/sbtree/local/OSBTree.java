@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,7 @@ import com.orientechnologies.orient.core.serialization.serializer.binary.OBinary
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurableComponent;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OStorageTransaction;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 
@@ -75,6 +77,8 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
   private OBinarySerializer<V>                valueSerializer;
 
+  private boolean                             keyPrefixCompression;
+
   private final boolean                       durableInNonTxMode;
   private static final ODurablePage.TrackMode txTrackMode             = ODurablePage.TrackMode
                                                                           .valueOf(OGlobalConfiguration.INDEX_TX_MODE
@@ -89,10 +93,23 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
   public void create(String name, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer, OType[] keyTypes,
       OStorageLocalAbstract storageLocal) {
+    create(name, keySerializer, valueSerializer, keyTypes, storageLocal, false);
+  }
+
+  /**
+   * Creates the tree.
+   * 
+   * @param keyPrefixCompression
+   *          whether string and composite keys are stored in each page without the prefix common to all its keys, and leaves are
+   *          separated by the shortest keys which can separate them. The choice is kept in the tree pages.
+   */
+  public void create(String name, OBinarySerializer<K> keySerializer, OBinarySerializer<V> valueSerializer, OType[] keyTypes,
+      OStorageLocalAbstract storageLocal, boolean keyPrefixCompression) {
     acquireExclusiveLock();
     try {
       this.storage = storageLocal;
       this.keyTypes = keyTypes;
+      this.keyPrefixCompression = keyPrefixCompression && OSBTreeKeyCompression.isSupported(keySerializer);
 
       this.diskCache = storage.getDiskCache();
 
@@ -111,8 +128,8 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       try {
         super.startDurableOperation(null);
 
-        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), true, keySerializer, keyTypes,
-            valueSerializer, getTrackMode());
+        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), true, keyPrefixCompression,
+            keySerializer, keyTypes, valueSerializer, getTrackMode());
         rootBucket.setKeySerializerId(keySerializer.getId());
         rootBucket.setValueSerializerId(valueSerializer.getId());
         rootBucket.setTreeSize(0);
@@ -159,20 +176,23 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     try {
       key = keySerializer.preprocess(key, (Object[]) keyTypes);
 
-      BucketSearchResult bucketSearchResult = findBucket(key, PartialSearchMode.NONE);
-      if (bucketSearchResult.itemIndex < 0)
-        return null;
-
-      long pageIndex = bucketSearchResult.getLastPathItem();
+      long pageIndex = findLeafBucket(key, PartialSearchMode.NONE);
       OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, pageIndex, false);
       OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+      keyBucketPointer.acquireSharedLock();
       try {
         OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
             valueSerializer, ODurablePage.TrackMode.NONE);
 
-        OSBTreeBucket.SBTreeEntry<K, V> treeEntry = keyBucket.getEntry(bucketSearchResult.itemIndex);
+        // THE BUCKET CAN BE CHANGED BY CONCURRENT PUTS AND REMOVES UNTIL IT IS LATCHED: SEARCH THE KEY AGAIN
+        final int itemIndex = keyBucket.find(key);
+        if (itemIndex < 0)
+          return null;
+
+        OSBTreeBucket.SBTreeEntry<K, V> treeEntry = keyBucket.getEntry(itemIndex);
         return readValue(treeEntry.value);
       } finally {
+        keyBucketPointer.releaseSharedLock();
         diskCache.release(keyBucketCacheEntry);
       }
 
@@ -183,21 +203,39 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
+  /**
+   * Puts the value holding the tree in shared mode if it fits in the leaf bucket of the key, so puts and removes of keys in
+   * different buckets run in parallel. The tree is held in exclusive mode to split buckets and to store values in linked pages.
+   */
   public void put(K key, V value) {
-    acquireExclusiveLock();
     final OStorageTransaction transaction = storage.getStorageTransaction();
-    try {
-      final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
 
-      final int valueSize = valueSerializer.getObjectSize(value);
-      if (keySize > MAX_KEY_SIZE)
-        throw new OSBTreeException("Key size is more than allowed, operation was canceled. Current key size " + keySize
-            + ", allowed  " + MAX_KEY_SIZE);
+    final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
 
-      final boolean createLinkToTheValue = valueSize > MAX_EMBEDDED_VALUE_SIZE;
+    final int valueSize = valueSerializer.getObjectSize(value);
+    if (keySize > MAX_KEY_SIZE)
+      throw new OSBTreeException("Key size is more than allowed, operation was canceled. Current key size " + keySize
+          + ", allowed  " + MAX_KEY_SIZE);
 
-      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+    final boolean createLinkToTheValue = valueSize > MAX_EMBEDDED_VALUE_SIZE;
+
+    key = keySerializer.preprocess(key, (Object[]) keyTypes);
 
+    if (!createLinkToTheValue) {
+      acquireSharedLock();
+      try {
+        if (putInBucket(key, value, transaction))
+          return;
+      } catch (IOException e) {
+        rollback(transaction);
+        throw new OSBTreeException("Error during index update with key " + key + " and value " + value, e);
+      } finally {
+        releaseSharedLock();
+      }
+    }
+
+    acquireExclusiveLock();
+    try {
       startDurableOperation(transaction);
 
       long valueLink = -1;
@@ -270,7 +308,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       diskCache.release(keyBucketCacheEntry);
 
       if (sizeDiff != 0)
-        setSize(size() + sizeDiff);
+        updateSize(sizeDiff);
 
       endDurableOperation(transaction, false);
     } catch (IOException e) {
@@ -281,6 +319,65 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
+  /**
+   * Puts the value in the leaf bucket of the key without splitting it. Must be called holding the tree in shared mode: internal
+   * buckets are changed by splits only, so the leaf bucket found for the key stays the same and it is enough to latch it. The tree
+   * size is changed latching the root bucket.
+   *
+   * @return false if the bucket has to be split or the previous value is stored in linked pages, nothing is changed in this case.
+   */
+  private boolean putInBucket(K key, V value, OStorageTransaction transaction) throws IOException {
+    final long pageIndex = findLeafBucket(key, PartialSearchMode.NONE);
+
+    final OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, pageIndex, false);
+    final OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+
+    keyBucketPointer.acquireExclusiveLock();
+    try {
+      final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
+          valueSerializer, getTrackMode());
+
+      // THE BUCKET CAN BE CHANGED BY CONCURRENT PUTS AND REMOVES UNTIL IT IS LATCHED: SEARCH THE KEY AGAIN
+      final int itemIndex = keyBucket.find(key);
+      if (itemIndex >= 0 && keyBucket.getEntry(itemIndex).value.isLink())
+        return false;
+
+      final OSBTreeValue<V> treeValue = new OSBTreeValue<V>(false, -1, value);
+
+      startDurableOperation(transaction);
+
+      final int sizeDiff;
+      if (itemIndex >= 0) {
+        final int updateResult = keyBucket.updateValue(itemIndex, treeValue);
+        if (updateResult <= 0) {
+          endDurableOperation(transaction, false);
+          return updateResult == 0;
+        }
+
+        sizeDiff = 0;
+      } else {
+        if (!keyBucket.addEntry(-itemIndex - 1, new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key, treeValue), true)) {
+          endDurableOperation(transaction, false);
+          return false;
+        }
+
+        sizeDiff = 1;
+      }
+
+      logPageChanges(keyBucket, fileId, pageIndex, false);
+      keyBucketCacheEntry.markDirty();
+
+      if (sizeDiff != 0)
+        updateSize(sizeDiff);
+
+      endDurableOperation(transaction, false);
+      return true;
+    } finally {
+      keyBucketPointer.releaseExclusiveLock();
+      diskCache.release(keyBucketCacheEntry);
+    }
+  }
+
   private void removeLinkedValue(long removedLink) throws IOException {
     long nextPage = removedLink;
     do {
@@ -503,8 +600,8 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       OCachePointer rootPointer = cacheEntry.getCachePointer();
       rootPointer.acquireExclusiveLock();
       try {
-        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), true, keySerializer, keyTypes,
-            valueSerializer, getTrackMode());
+        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), true, keyPrefixCompression,
+            keySerializer, keyTypes, valueSerializer, getTrackMode());
 
         rootBucket.setKeySerializerId(keySerializer.getId());
         rootBucket.setValueSerializerId(valueSerializer.getId());
@@ -527,6 +624,171 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
+  /**
+   * Creates a sorter of the keys to load with {@link #bulkLoad(Iterator, int)}, that serializes keys like this tree.
+   */
+  public OSBTreeKeySorter<K> createKeySorter(int maxKeysInMemory) {
+    acquireSharedLock();
+    try {
+      return new OSBTreeKeySorter<K>(keySerializer, keyTypes, maxKeysInMemory);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * Loads entries sorted by key in the empty tree, writing buckets from the leaves up instead of putting keys one by one. Leaves are
+   * filled in key order up to the fill factor, then each level of non-leaf buckets is built on the first keys of the level below,
+   * until a level fits in the root bucket. Changes of buckets are not logged in WAL: if the tree is durable the file is flushed once
+   * loaded and a full checkpoint is scheduled. Tree can not be loaded in bulk inside of a transaction.
+   * 
+   * @param entries
+   *          entries in ascending order of keys, keys have to be unique
+   * @param fillFactor
+   *          percentage of bucket space to fill, the rest of space is kept for later insertions
+   */
+  public void bulkLoad(Iterator<? extends Map.Entry<K, V>> entries, int fillFactor) {
+    if (fillFactor < 1 || fillFactor > 100)
+      throw new IllegalArgumentException("Fill factor should be between 1 and 100, but was " + fillFactor);
+
+    if (storage.getStorageTransaction() != null)
+      throw new OSBTreeException("SBTree " + name + " can not be loaded in bulk inside of transaction");
+
+    acquireExclusiveLock();
+    try {
+      if (!isEmptyLeafRoot())
+        throw new OSBTreeException("SBTree " + name + " should be empty to be loaded in bulk");
+
+      startDurableOperation(null);
+      try {
+        writeBuckets(entries, fillFactor);
+      } catch (IOException e) {
+        rollback(null);
+        throw e;
+      } catch (RuntimeException e) {
+        rollback(null);
+        throw e;
+      }
+      endDurableOperation(null, false);
+
+      if (durableInNonTxMode)
+        diskCache.flushFile(fileId);
+    } catch (IOException e) {
+      throw new OSBTreeException("Error during bulk load of sbtree with name " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+
+    if (durableInNonTxMode && storage instanceof OLocalPaginatedStorage)
+      ((OLocalPaginatedStorage) storage).scheduleFullCheckpoint();
+  }
+
+  private void writeBuckets(Iterator<? extends Map.Entry<K, V>> entries, int fillFactor) throws IOException {
+    long treeSize = 0;
+
+    BulkLevel level = new BulkLevel(true, fillFactor);
+    try {
+      K lastKey = null;
+
+      while (entries.hasNext()) {
+        final Map.Entry<K, V> entry = entries.next();
+        final K key = keySerializer.preprocess(entry.getKey(), (Object[]) keyTypes);
+        final V value = entry.getValue();
+
+        final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
+        if (keySize > MAX_KEY_SIZE)
+          throw new OSBTreeException("Key size is more than allowed, operation was canceled. Current key size " + keySize
+              + ", allowed  " + MAX_KEY_SIZE);
+
+        if (lastKey != null && comparator.compare(lastKey, key) >= 0)
+          throw new OSBTreeException("Keys should be loaded in ascending order, but key " + key + " follows key " + lastKey);
+
+        final OSBTreeValue<V> treeValue;
+        if (valueSerializer.getObjectSize(value) > MAX_EMBEDDED_VALUE_SIZE)
+          treeValue = new OSBTreeValue<V>(true, createLinkToTheValue(value), null);
+        else
+          treeValue = new OSBTreeValue<V>(false, -1, value);
+
+        level.addLeafEntry(new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key, treeValue));
+
+        lastKey = key;
+        treeSize++;
+      }
+    } finally {
+      level.close();
+    }
+
+    while (level.pages.size() > 1)
+      level = buildNonLeafLevel(level.pages, level.firstKeys, fillFactor);
+
+    OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
+    OCachePointer rootPointer = rootCacheEntry.getCachePointer();
+    rootPointer.acquireExclusiveLock();
+    try {
+      OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes,
+          valueSerializer, ODurablePage.TrackMode.NONE);
+      rootBucket.setTreeSize(treeSize);
+
+      rootCacheEntry.markDirty();
+    } finally {
+      rootPointer.releaseExclusiveLock();
+      diskCache.release(rootCacheEntry);
+    }
+  }
+
+  private boolean isEmptyLeafRoot() throws IOException {
+    OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
+    OCachePointer rootPointer = rootCacheEntry.getCachePointer();
+    rootPointer.acquireSharedLock();
+    try {
+      OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes,
+          valueSerializer, ODurablePage.TrackMode.NONE);
+      return rootBucket.isLeaf() && rootBucket.isEmpty();
+    } finally {
+      rootPointer.releaseSharedLock();
+      diskCache.release(rootCacheEntry);
+    }
+  }
+
+  /**
+   * Builds the level of non-leaf buckets on top of the given children. Each bucket holds at least two children, so the first child of
+   * a bucket is never the last one of the level.
+   */
+  private BulkLevel buildNonLeafLevel(List<Long> children, List<K> childrenKeys, int fillFactor) throws IOException {
+    final BulkLevel level = new BulkLevel(false, fillFactor);
+    try {
+      int childIndex = 0;
+      while (childIndex < children.size()) {
+        level.newBucket(childrenKeys.get(childIndex));
+        childIndex++;
+
+        while (childIndex < children.size()) {
+          final boolean canStartBucket = children.size() - childIndex >= 2;
+          if (canStartBucket && !level.bucket.isEmpty() && level.isFilled())
+            break;
+
+          final OSBTreeBucket.SBTreeEntry<K, V> entry = new OSBTreeBucket.SBTreeEntry<K, V>(children.get(childIndex - 1),
+              children.get(childIndex), childrenKeys.get(childIndex), null);
+          if (!level.bucket.addEntry(level.bucket.size(), entry, false)) {
+            if (!canStartBucket) {
+              // LAST CHILD DOES NOT FIT: MOVE THE PREVIOUS ONE TO THE NEXT BUCKET
+              assert level.bucket.size() > 1;
+              level.bucket.shrink(level.bucket.size() - 1);
+              childIndex--;
+            }
+            break;
+          }
+
+          childIndex++;
+        }
+      }
+    } finally {
+      level.close();
+    }
+
+    return level;
+  }
+
   public void delete() {
     acquireExclusiveLock();
     try {
@@ -573,6 +835,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
             .getKeySerializerId());
         valueSerializer = (OBinarySerializer<V>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(rootBucket
             .getValueSerializerId());
+        keyPrefixCompression = rootBucket.isKeyPrefixCompression();
       } finally {
         diskCache.release(rootCacheEntry);
       }
@@ -585,7 +848,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
-  private void setSize(long size) throws IOException {
+  private void updateSize(long diff) throws IOException {
     OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
 
     OCachePointer rootPointer = rootCacheEntry.getCachePointer();
@@ -593,7 +856,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     try {
       OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes,
           valueSerializer, getTrackMode());
-      rootBucket.setTreeSize(size);
+      rootBucket.setTreeSize(rootBucket.getTreeSize() + diff);
 
       logPageChanges(rootBucket, fileId, ROOT_INDEX, false);
       rootCacheEntry.markDirty();
@@ -610,11 +873,13 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
       OCachePointer rootPointer = rootCacheEntry.getCachePointer();
 
+      rootPointer.acquireSharedLock();
       try {
         OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes,
             valueSerializer, ODurablePage.TrackMode.NONE);
         return rootBucket.getTreeSize();
       } finally {
+        rootPointer.releaseSharedLock();
         diskCache.release(rootCacheEntry);
       }
     } catch (IOException e) {
@@ -624,13 +889,60 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
+  /**
+   * Removes the key holding the tree in shared mode like {@link #put(Object, Object)}, buckets are never merged. The tree is held in
+   * exclusive mode only to free the linked pages of the removed value.
+   */
   @Override
   public V remove(K key) {
-    acquireExclusiveLock();
-    OStorageTransaction transaction = storage.getStorageTransaction();
+    final OStorageTransaction transaction = storage.getStorageTransaction();
+    key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+    acquireSharedLock();
     try {
-      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+      final long pageIndex = findLeafBucket(key, PartialSearchMode.NONE);
+
+      OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, pageIndex, false);
+      OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+
+      keyBucketPointer.acquireExclusiveLock();
+      try {
+        OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
+            valueSerializer, getTrackMode());
+
+        // THE BUCKET CAN BE CHANGED BY CONCURRENT PUTS AND REMOVES UNTIL IT IS LATCHED: SEARCH THE KEY AGAIN
+        final int itemIndex = keyBucket.find(key);
+        if (itemIndex < 0)
+          return null;
+
+        final OSBTreeValue<V> removed = keyBucket.getEntry(itemIndex).value;
+        if (!removed.isLink()) {
+          startDurableOperation(transaction);
+
+          keyBucket.remove(itemIndex);
+
+          logPageChanges(keyBucket, fileId, pageIndex, false);
+          keyBucketCacheEntry.markDirty();
+
+          updateSize(-1);
+          endDurableOperation(transaction, false);
+
+          return removed.getValue();
+        }
+      } finally {
+        keyBucketPointer.releaseExclusiveLock();
+        diskCache.release(keyBucketCacheEntry);
+      }
+    } catch (IOException e) {
+      rollback(transaction);
+
+      throw new OSBTreeException("Error during removing key " + key + " from sbtree " + name, e);
+    } finally {
+      releaseSharedLock();
+    }
 
+    acquireExclusiveLock();
+    try {
       BucketSearchResult bucketSearchResult = findBucket(key, PartialSearchMode.NONE);
       if (bucketSearchResult.itemIndex < 0)
         return null;
@@ -655,7 +967,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
         keyBucketCacheEntry.markDirty();
 
-        setSize(size() - 1);
+        updateSize(-1);
         endDurableOperation(transaction, false);
 
         return value;
@@ -739,25 +1051,28 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       else
         partialSearchMode = PartialSearchMode.LOWEST_BOUNDARY;
 
-      BucketSearchResult bucketSearchResult = findBucket(key, partialSearchMode);
-
-      long pageIndex = bucketSearchResult.getLastPathItem();
-      int index;
-      if (bucketSearchResult.itemIndex >= 0) {
-        index = inclusive ? bucketSearchResult.itemIndex : bucketSearchResult.itemIndex - 1;
-      } else {
-        index = -bucketSearchResult.itemIndex - 2;
-      }
+      key = enhanceCompositeKey(key, partialSearchMode);
+      long pageIndex = findLeafBucket(key, partialSearchMode);
 
       boolean firstBucket = true;
       resultsLoop: while (true) {
         long nextPageIndex = -1;
         OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
         final OCachePointer pointer = cacheEntry.getCachePointer();
+        pointer.acquireSharedLock();
         try {
           OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
               ODurablePage.TrackMode.NONE);
-          if (!firstBucket)
+
+          int index;
+          if (firstBucket) {
+            // THE BUCKET CAN BE CHANGED BY CONCURRENT PUTS AND REMOVES UNTIL IT IS LATCHED: SEARCH THE KEY AGAIN
+            final int itemIndex = bucket.find(key);
+            if (itemIndex >= 0)
+              index = inclusive ? itemIndex : itemIndex - 1;
+            else
+              index = -itemIndex - 2;
+          } else
             index = bucket.size() - 1;
 
           for (int i = index; i >= 0; i--) {
@@ -771,6 +1086,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
             break;
 
         } finally {
+          pointer.releaseSharedLock();
           diskCache.release(cacheEntry);
         }
 
@@ -812,22 +1128,27 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       else
         partialSearchMode = PartialSearchMode.HIGHEST_BOUNDARY;
 
-      BucketSearchResult bucketSearchResult = findBucket(key, partialSearchMode);
-      long pageIndex = bucketSearchResult.getLastPathItem();
-      int index;
-      if (bucketSearchResult.itemIndex >= 0) {
-        index = inclusive ? bucketSearchResult.itemIndex : bucketSearchResult.itemIndex + 1;
-      } else {
-        index = -bucketSearchResult.itemIndex - 1;
-      }
+      key = enhanceCompositeKey(key, partialSearchMode);
+      long pageIndex = findLeafBucket(key, partialSearchMode);
+      int index = -1;
 
       resultsLoop: while (true) {
         long nextPageIndex = -1;
         final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
         final OCachePointer pointer = cacheEntry.getCachePointer();
+        pointer.acquireSharedLock();
         try {
           OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
               ODurablePage.TrackMode.NONE);
+          if (index < 0) {
+            // THE BUCKET CAN BE CHANGED BY CONCURRENT PUTS AND REMOVES UNTIL IT IS LATCHED: SEARCH THE KEY AGAIN
+            final int itemIndex = bucket.find(key);
+            if (itemIndex >= 0)
+              index = inclusive ? itemIndex : itemIndex + 1;
+            else
+              index = -itemIndex - 1;
+          }
+
           int bucketSize = bucket.size();
           for (int i = index; i < bucketSize; i++) {
             if (!listener.addResult(convertToMapEntry(bucket.getEntry(i))))
@@ -839,6 +1160,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
           else
             break;
         } finally {
+          pointer.releaseSharedLock();
           diskCache.release(cacheEntry);
         }
 
@@ -879,6 +1201,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
       OCacheEntry cacheEntry = diskCache.load(fileId, bucketIndex, false);
       OCachePointer cachePointer = cacheEntry.getCachePointer();
+      cachePointer.acquireSharedLock();
       int itemIndex = 0;
 
       OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
@@ -921,14 +1244,17 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
             }
           }
 
+          cachePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
           cacheEntry = diskCache.load(fileId, bucketIndex, false);
           cachePointer = cacheEntry.getCachePointer();
+          cachePointer.acquireSharedLock();
 
           bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
               ODurablePage.TrackMode.NONE);
         }
       } finally {
+        cachePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
     } catch (IOException e) {
@@ -947,6 +1273,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
       OCacheEntry cacheEntry = diskCache.load(fileId, bucketIndex, false);
       OCachePointer cachePointer = cacheEntry.getCachePointer();
+      cachePointer.acquireSharedLock();
       OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
           ODurablePage.TrackMode.NONE);
 
@@ -989,9 +1316,11 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
             }
           }
 
+          cachePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
           cacheEntry = diskCache.load(fileId, bucketIndex, false);
           cachePointer = cacheEntry.getCachePointer();
+          cachePointer.acquireSharedLock();
 
           bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
               ODurablePage.TrackMode.NONE);
@@ -999,6 +1328,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
             itemIndex = bucket.size() - 1;
         }
       } finally {
+        cachePointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
     } catch (IOException e) {
@@ -1021,16 +1351,8 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       else
         partialSearchModeFrom = PartialSearchMode.HIGHEST_BOUNDARY;
 
-      BucketSearchResult bucketSearchResultFrom = findBucket(keyFrom, partialSearchModeFrom);
-
-      long pageIndexFrom = bucketSearchResultFrom.getLastPathItem();
-
-      int indexFrom;
-      if (bucketSearchResultFrom.itemIndex >= 0) {
-        indexFrom = fromInclusive ? bucketSearchResultFrom.itemIndex : bucketSearchResultFrom.itemIndex + 1;
-      } else {
-        indexFrom = -bucketSearchResultFrom.itemIndex - 1;
-      }
+      keyFrom = enhanceCompositeKey(keyFrom, partialSearchModeFrom);
+      long pageIndexFrom = findLeafBucket(keyFrom, partialSearchModeFrom);
 
       PartialSearchMode partialSearchModeTo;
       if (toInclusive)
@@ -1038,17 +1360,10 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       else
         partialSearchModeTo = PartialSearchMode.LOWEST_BOUNDARY;
 
-      BucketSearchResult bucketSearchResultTo = findBucket(keyTo, partialSearchModeTo);
-      long pageIndexTo = bucketSearchResultTo.getLastPathItem();
+      keyTo = enhanceCompositeKey(keyTo, partialSearchModeTo);
+      long pageIndexTo = findLeafBucket(keyTo, partialSearchModeTo);
 
-      int indexTo;
-      if (bucketSearchResultTo.itemIndex >= 0) {
-        indexTo = toInclusive ? bucketSearchResultTo.itemIndex : bucketSearchResultTo.itemIndex - 1;
-      } else {
-        indexTo = -bucketSearchResultTo.itemIndex - 2;
-      }
-
-      int startIndex = indexFrom;
+      int startIndex = -1;
       int endIndex;
       long pageIndex = pageIndexFrom;
 
@@ -1057,13 +1372,29 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
         final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
         final OCachePointer pointer = cacheEntry.getCachePointer();
+        pointer.acquireSharedLock();
         try {
           OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
               ODurablePage.TrackMode.NONE);
+
+          // THE BUCKETS CAN BE CHANGED BY CONCURRENT PUTS AND REMOVES UNTIL THEY ARE LATCHED: SEARCH THE KEYS AGAIN
+          if (startIndex < 0) {
+            final int itemIndex = bucket.find(keyFrom);
+            if (itemIndex >= 0)
+              startIndex = fromInclusive ? itemIndex : itemIndex + 1;
+            else
+              startIndex = -itemIndex - 1;
+          }
+
           if (pageIndex != pageIndexTo)
             endIndex = bucket.size() - 1;
-          else
-            endIndex = indexTo;
+          else {
+            final int itemIndex = bucket.find(keyTo);
+            if (itemIndex >= 0)
+              endIndex = toInclusive ? itemIndex : itemIndex - 1;
+            else
+              endIndex = -itemIndex - 2;
+          }
 
           for (int i = startIndex; i <= endIndex; i++) {
             if (!listener.addResult(convertToMapEntry(bucket.getEntry(i))))
@@ -1079,6 +1410,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
             break;
 
         } finally {
+          pointer.releaseSharedLock();
           diskCache.release(cacheEntry);
         }
 
@@ -1120,7 +1452,11 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       final int bucketSize = bucketToSplit.size();
 
       int indexToSplit = bucketSize >>> 1;
-      final K separationKey = bucketToSplit.getKey(indexToSplit);
+      final K separationKey;
+      if (splitLeaf && keyPrefixCompression)
+        separationKey = separator(bucketToSplit.getKey(indexToSplit - 1), bucketToSplit.getKey(indexToSplit));
+      else
+        separationKey = bucketToSplit.getKey(indexToSplit);
       final List<OSBTreeBucket.SBTreeEntry<K, V>> rightEntries = new ArrayList<OSBTreeBucket.SBTreeEntry<K, V>>(indexToSplit);
 
       final int startRightIndex = splitLeaf ? indexToSplit : indexToSplit + 1;
@@ -1136,7 +1472,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
         try {
           OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<K, V>(rightBucketPointer.getDataPointer(), splitLeaf,
-              keySerializer, keyTypes, valueSerializer, getTrackMode());
+              keyPrefixCompression, keySerializer, keyTypes, valueSerializer, getTrackMode());
           newRightBucket.addAll(rightEntries);
 
           bucketToSplit.shrink(indexToSplit);
@@ -1250,8 +1586,8 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         OCacheEntry rightBucketEntry = diskCache.allocateNewPage(fileId);
         leftBucketPointer.acquireExclusiveLock();
         try {
-          OSBTreeBucket<K, V> newLeftBucket = new OSBTreeBucket<K, V>(leftBucketPointer.getDataPointer(), splitLeaf, keySerializer,
-              keyTypes, valueSerializer, getTrackMode());
+          OSBTreeBucket<K, V> newLeftBucket = new OSBTreeBucket<K, V>(leftBucketPointer.getDataPointer(), splitLeaf,
+              keyPrefixCompression, keySerializer, keyTypes, valueSerializer, getTrackMode());
           newLeftBucket.addAll(leftEntries);
 
           if (splitLeaf)
@@ -1268,7 +1604,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         rightBucketPointer.acquireExclusiveLock();
         try {
           OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<K, V>(rightBucketPointer.getDataPointer(), splitLeaf,
-              keySerializer, keyTypes, valueSerializer, getTrackMode());
+              keyPrefixCompression, keySerializer, keyTypes, valueSerializer, getTrackMode());
           newRightBucket.addAll(rightEntries);
 
           if (splitLeaf)
@@ -1281,8 +1617,8 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
           diskCache.release(rightBucketEntry);
         }
 
-        bucketToSplit = new OSBTreeBucket<K, V>(bucketPointer.getDataPointer(), false, keySerializer, keyTypes, valueSerializer,
-            getTrackMode());
+        bucketToSplit = new OSBTreeBucket<K, V>(bucketPointer.getDataPointer(), false, keyPrefixCompression, keySerializer, keyTypes,
+            valueSerializer, getTrackMode());
 
         bucketToSplit.setTreeSize(treeSize);
         bucketToSplit.setKeySerializerId(keySerializeId);
@@ -1316,10 +1652,17 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
-  private BucketSearchResult findBucket(K key, PartialSearchMode partialSearchMode) throws IOException {
-    long pageIndex = ROOT_INDEX;
-    final ArrayList<Long> path = new ArrayList<Long>();
+  /**
+   * @return the shortest key greater than the last key of a leaf and not greater than the first key of its right sibling.
+   */
+  private K separator(K lastLeftKey, K firstRightKey) {
+    return (K) OSBTreeKeyCompression.separator(lastLeftKey, firstRightKey);
+  }
 
+  /**
+   * Completes a partial {@link OCompositeKey} with the lowest or highest key items, depending on the search mode.
+   */
+  private K enhanceCompositeKey(K key, PartialSearchMode partialSearchMode) {
     if (!(keySize == 1 || ((OCompositeKey) key).getKeys().size() == keySize || partialSearchMode.equals(PartialSearchMode.NONE))) {
       final OCompositeKey fullKey = new OCompositeKey((Comparable<? super K>) key);
       int itemsToAdd = keySize - fullKey.getKeys().size();
@@ -1336,19 +1679,44 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       key = (K) fullKey;
     }
 
+    return key;
+  }
+
+  /**
+   * Finds the leaf bucket of the key latching one bucket at a time. With the tree in shared mode the item index can be changed by
+   * concurrent puts and removes once the leaf bucket is released, so it has to be searched again after latching the bucket.
+   */
+  private BucketSearchResult findBucket(K key, PartialSearchMode partialSearchMode) throws IOException {
+    return findBucket(key, partialSearchMode, true);
+  }
+
+  /**
+   * Finds the leaf bucket of the key without searching the key in it, for callers that search it again after latching the bucket.
+   */
+  private long findLeafBucket(K key, PartialSearchMode partialSearchMode) throws IOException {
+    return findBucket(key, partialSearchMode, false).getLastPathItem();
+  }
+
+  private BucketSearchResult findBucket(K key, PartialSearchMode partialSearchMode, boolean searchLeaf) throws IOException {
+    long pageIndex = ROOT_INDEX;
+    final ArrayList<Long> path = new ArrayList<Long>();
+
+    key = enhanceCompositeKey(key, partialSearchMode);
+
     while (true) {
       path.add(pageIndex);
       final OCacheEntry bucketEntry = diskCache.load(fileId, pageIndex, false);
       final OCachePointer bucketPointer = bucketEntry.getCachePointer();
 
       final OSBTreeBucket.SBTreeEntry<K, V> entry;
+      bucketPointer.acquireSharedLock();
       try {
         final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(bucketPointer.getDataPointer(), keySerializer, keyTypes,
             valueSerializer, ODurablePage.TrackMode.NONE);
-        final int index = keyBucket.find(key);
-
         if (keyBucket.isLeaf())
-          return new BucketSearchResult(index, path);
+          return new BucketSearchResult(searchLeaf ? keyBucket.find(key) : -1, path);
+
+        final int index = keyBucket.find(key);
 
         if (index >= 0)
           entry = keyBucket.getEntry(index);
@@ -1361,6 +1729,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         }
 
       } finally {
+        bucketPointer.releaseSharedLock();
         diskCache.release(bucketEntry);
       }
 
@@ -1424,6 +1793,132 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     };
   }
 
+  /**
+   * Buckets of a tree level written from left to right by {@link #bulkLoad(Iterator, int)}. The first bucket of a level is written in
+   * the root page and moved to a new page once a second bucket is needed, so the last level built is the root one.
+   */
+  private final class BulkLevel {
+    private final boolean             isLeaf;
+    private final int                 fillFactor;
+
+    private final List<Long>          pages     = new ArrayList<Long>();
+    private final List<K>             firstKeys = new ArrayList<K>();
+
+    private OCacheEntry               cacheEntry;
+    private OCachePointer             cachePointer;
+    private OSBTreeBucket<K, V>       bucket;
+    private int                       reservedSpace;
+
+    private BulkLevel(boolean isLeaf, int fillFactor) {
+      this.isLeaf = isLeaf;
+      this.fillFactor = fillFactor;
+    }
+
+    private boolean isFilled() {
+      return bucket.getFreeSpace() < reservedSpace;
+    }
+
+    private void addLeafEntry(OSBTreeBucket.SBTreeEntry<K, V> entry) throws IOException {
+      if (bucket != null && !isFilled() && bucket.addEntry(bucket.size(), entry, false))
+        return;
+
+      if (bucket != null && keyPrefixCompression)
+        newBucket(separator(bucket.getKey(bucket.size() - 1), entry.key));
+      else
+        newBucket(entry.key);
+
+      final boolean added = bucket.addEntry(0, entry, false);
+      assert added;
+    }
+
+    private void newBucket(K firstKey) throws IOException {
+      final OCacheEntry nextCacheEntry;
+      if (bucket == null)
+        nextCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
+      else {
+        if (cacheEntry.getPageIndex() == ROOT_INDEX)
+          moveRootBucket();
+
+        nextCacheEntry = diskCache.allocateNewPage(fileId);
+        if (isLeaf)
+          bucket.setRightSibling(nextCacheEntry.getPageIndex());
+
+        close();
+      }
+
+      cacheEntry = nextCacheEntry;
+      cachePointer = cacheEntry.getCachePointer();
+      cachePointer.acquireExclusiveLock();
+
+      if (cacheEntry.getPageIndex() == ROOT_INDEX) {
+        final OSBTreeBucket<K, V> oldRootBucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes,
+            valueSerializer, ODurablePage.TrackMode.NONE);
+
+        final byte keySerializerId = oldRootBucket.getKeySerializerId();
+        final byte valueSerializerId = oldRootBucket.getValueSerializerId();
+        final long freeListPage = oldRootBucket.getValuesFreeListFirstIndex();
+        final long treeSize = oldRootBucket.getTreeSize();
+
+        bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), isLeaf, keyPrefixCompression, keySerializer, keyTypes,
+            valueSerializer, ODurablePage.TrackMode.NONE);
+        bucket.setKeySerializerId(keySerializerId);
+        bucket.setValueSerializerId(valueSerializerId);
+        bucket.setValuesFreeListFirstIndex(freeListPage);
+        bucket.setTreeSize(treeSize);
+      } else
+        bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), isLeaf, keyPrefixCompression, keySerializer, keyTypes,
+            valueSerializer, ODurablePage.TrackMode.NONE);
+
+      if (isLeaf && !pages.isEmpty())
+        bucket.setLeftSibling(pages.get(pages.size() - 1));
+
+      pages.add(cacheEntry.getPageIndex());
+      firstKeys.add(firstKey);
+
+      reservedSpace = (int) ((long) bucket.getFreeSpace() * (100 - fillFactor) / 100);
+    }
+
+    private void moveRootBucket() throws IOException {
+      final List<OSBTreeBucket.SBTreeEntry<K, V>> entries = new ArrayList<OSBTreeBucket.SBTreeEntry<K, V>>(bucket.size());
+      for (int i = 0; i < bucket.size(); i++)
+        entries.add(bucket.getEntry(i));
+
+      final OCacheEntry movedCacheEntry = diskCache.allocateNewPage(fileId);
+      final OCachePointer movedPointer = movedCacheEntry.getCachePointer();
+      movedPointer.acquireExclusiveLock();
+
+      final OSBTreeBucket<K, V> movedBucket;
+      try {
+        movedBucket = new OSBTreeBucket<K, V>(movedPointer.getDataPointer(), isLeaf, keyPrefixCompression, keySerializer,
+            keyTypes, valueSerializer, ODurablePage.TrackMode.NONE);
+        movedBucket.addAll(entries);
+      } catch (IOException e) {
+        movedPointer.releaseExclusiveLock();
+        diskCache.release(movedCacheEntry);
+        throw e;
+      }
+
+      close();
+
+      cacheEntry = movedCacheEntry;
+      cachePointer = movedPointer;
+      bucket = movedBucket;
+
+      pages.set(0, movedCacheEntry.getPageIndex());
+    }
+
+    private void close() {
+      if (bucket == null)
+        return;
+
+      cacheEntry.markDirty();
+      cachePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+
+      bucket = null;
+    }
+  }
+
   private static class BucketSearchResult {
     private final int             itemIndex;
     private final ArrayList<Long> path;
@@ -49,7 +49,20 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   private static final int            POSITIONS_ARRAY_OFFSET  = FREE_VALUES_LIST_OFFSET + OLongSerializer.LONG_SIZE;
 
+  /**
+   * Pages with compressed keys store the size of the key prefix and the prefix itself before the positions array.
+   */
+  private static final int            KEY_PREFIX_OFFSET       = POSITIONS_ARRAY_OFFSET;
+
+  private static final byte           LEAF_FLAG               = 1;
+  private static final byte           KEY_PREFIX_FLAG         = 2;
+
   private final boolean               isLeaf;
+  private final boolean               keyPrefixCompression;
+
+  private int                         positionsOffset;
+  private boolean                     keyPrefixLoaded;
+  private Object                      keyPrefix;
 
   private final OBinarySerializer<K>  keySerializer;
   private final OBinarySerializer<V>  valueSerializer;
@@ -60,9 +73,23 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   public OSBTreeBucket(ODirectMemoryPointer cachePointer, boolean isLeaf, OBinarySerializer<K> keySerializer, OType[] keyTypes,
       OBinarySerializer<V> valueSerializer, TrackMode trackMode) throws IOException {
+    this(cachePointer, isLeaf, false, keySerializer, keyTypes, valueSerializer, trackMode);
+  }
+
+  /**
+   * Initializes an empty bucket.
+   * 
+   * @param keyPrefixCompression
+   *          whether keys are stored without the prefix common to all the keys of the bucket, applies to string and composite keys
+   *          only.
+   */
+  public OSBTreeBucket(ODirectMemoryPointer cachePointer, boolean isLeaf, boolean keyPrefixCompression,
+      OBinarySerializer<K> keySerializer, OType[] keyTypes, OBinarySerializer<V> valueSerializer, TrackMode trackMode)
+      throws IOException {
     super(cachePointer, trackMode);
 
     this.isLeaf = isLeaf;
+    this.keyPrefixCompression = keyPrefixCompression && OSBTreeKeyCompression.isSupported(keySerializer);
     this.keySerializer = keySerializer;
     this.keyTypes = keyTypes;
     this.valueSerializer = valueSerializer;
@@ -70,7 +97,13 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
     setIntValue(SIZE_OFFSET, 0);
 
-    setByteValue(IS_LEAF_OFFSET, (byte) (isLeaf ? 1 : 0));
+    byte flags = isLeaf ? LEAF_FLAG : 0;
+    if (this.keyPrefixCompression) {
+      flags |= KEY_PREFIX_FLAG;
+      setIntValue(KEY_PREFIX_OFFSET, 0);
+    }
+
+    setByteValue(IS_LEAF_OFFSET, flags);
     setLongValue(LEFT_SIBLING_OFFSET, -1);
     setLongValue(RIGHT_SIBLING_OFFSET, -1);
 
@@ -79,6 +112,8 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     setByteValue(KEY_SERIALIZER_OFFSET, (byte) -1);
     setByteValue(VALUE_SERIALIZER_OFFSET, (byte) -1);
+
+    positionsOffset = getPositionsOffset();
   }
 
   public OSBTreeBucket(ODirectMemoryPointer cachePointer, OBinarySerializer<K> keySerializer, OType[] keyTypes,
@@ -86,9 +121,17 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     super(cachePointer, trackMode);
     this.keyTypes = keyTypes;
 
-    this.isLeaf = getByteValue(IS_LEAF_OFFSET) > 0;
+    final byte flags = getByteValue(IS_LEAF_OFFSET);
+    this.isLeaf = (flags & LEAF_FLAG) != 0;
+    this.keyPrefixCompression = (flags & KEY_PREFIX_FLAG) != 0;
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
+
+    positionsOffset = getPositionsOffset();
+  }
+
+  public boolean isKeyPrefixCompression() {
+    return keyPrefixCompression;
   }
 
   public byte getKeySerializerId() {
@@ -147,7 +190,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public long remove(int entryIndex) throws IOException {
-    int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + entryIndex * OIntegerSerializer.INT_SIZE);
+    int entryPosition = getIntValue(positionsOffset + entryIndex * OIntegerSerializer.INT_SIZE);
     int keySize = keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
 
     int entrySize;
@@ -175,7 +218,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     int size = size();
     if (entryIndex < size - 1) {
-      moveData(POSITIONS_ARRAY_OFFSET + (entryIndex + 1) * OIntegerSerializer.INT_SIZE, POSITIONS_ARRAY_OFFSET + entryIndex
+      moveData(positionsOffset + (entryIndex + 1) * OIntegerSerializer.INT_SIZE, positionsOffset + entryIndex
           * OIntegerSerializer.INT_SIZE, (size - entryIndex - 1) * OIntegerSerializer.INT_SIZE);
     }
 
@@ -188,7 +231,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     }
     setIntValue(FREE_POINTER_OFFSET, freePointer + entrySize);
 
-    int currentPositionOffset = POSITIONS_ARRAY_OFFSET;
+    int currentPositionOffset = positionsOffset;
 
     for (int i = 0; i < size; i++) {
       int currentEntryPosition = getIntValue(currentPositionOffset);
@@ -204,11 +247,18 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return getIntValue(SIZE_OFFSET);
   }
 
+  /**
+   * @return space left to add entries, the position of each entry included.
+   */
+  public int getFreeSpace() {
+    return getIntValue(FREE_POINTER_OFFSET) - size() * OIntegerSerializer.INT_SIZE - positionsOffset;
+  }
+
   public SBTreeEntry<K, V> getEntry(int entryIndex) {
-    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + positionsOffset);
 
     if (isLeaf) {
-      K key = keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
+      K key = readKey(entryPosition);
       entryPosition += keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
 
       boolean isLinkValue = pagePointer.getByte(entryPosition) > 0;
@@ -228,19 +278,19 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       long rightChild = getLongValue(entryPosition);
       entryPosition += OLongSerializer.LONG_SIZE;
 
-      K key = keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
+      K key = readKey(entryPosition);
 
       return new SBTreeEntry<K, V>(leftChild, rightChild, key, null);
     }
   }
 
   public K getKey(int index) {
-    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + positionsOffset);
 
     if (!isLeaf)
       entryPosition += 2 * OLongSerializer.LONG_SIZE;
 
-    return keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
+    return readKey(entryPosition);
   }
 
   public boolean isLeaf() {
@@ -248,6 +298,11 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public void addAll(List<SBTreeEntry<K, V>> entries) throws IOException {
+    if (keyPrefixCompression && isEmpty()) {
+      rewrite(entries, commonKeyPrefix(entries));
+      return;
+    }
+
     for (int i = 0; i < entries.size(); i++)
       addEntry(i, entries.get(i), false);
   }
@@ -259,6 +314,12 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       treeEntries.add(getEntry(i));
     }
 
+    if (keyPrefixCompression) {
+      // REMAINING KEYS CAN HAVE A LONGER PREFIX
+      rewrite(treeEntries, commonKeyPrefix(treeEntries));
+      return;
+    }
+
     setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
     setIntValue(SIZE_OFFSET, 0);
 
@@ -270,51 +331,73 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public boolean addEntry(int index, SBTreeEntry<K, V> treeEntry, boolean updateNeighbors) throws IOException {
-    final int keySize = keySerializer.getObjectSize(treeEntry.key, (Object[]) keyTypes);
-    int valueSize = 0;
-    int entrySize = keySize;
+    final Object keyPrefix = getKeyPrefix();
+    final byte[] serializedKey = serializeKey(treeEntry.key, keyPrefix);
 
-    if (isLeaf) {
-      if (valueSerializer.isFixedLength())
-        valueSize = valueSerializer.getFixedLength();
-      else {
-        if (treeEntry.value.isLink())
-          valueSize = OLongSerializer.LONG_SIZE;
-        else
-          valueSize = valueSerializer.getObjectSize(treeEntry.value.getValue());
+    if (serializedKey != null && insertEntry(index, treeEntry, serializedKey, updateNeighbors))
+      return true;
+
+    if (!keyPrefixCompression)
+      return false;
+
+    // THE KEY DOES NOT START WITH THE PREFIX OR THE BUCKET IS FULL: KEYS ARE WRITTEN AGAIN IF THE PREFIX OF ALL THE KEYS CHANGES
+    final K firstKey = index == 0 ? treeEntry.key : getKey(0);
+    final K lastKey = index == size() ? treeEntry.key : getKey(size() - 1);
+    final Object newKeyPrefix = OSBTreeKeyCompression.commonPrefix(firstKey, lastKey);
+    if (serializedKey != null && OSBTreeKeyCompression.length(newKeyPrefix) == OSBTreeKeyCompression.length(keyPrefix))
+      return false;
+
+    final int size = size();
+    final List<SBTreeEntry<K, V>> treeEntries = new ArrayList<SBTreeEntry<K, V>>(size + 1);
+    for (int i = 0; i < size; i++)
+      treeEntries.add(getEntry(i));
+
+    treeEntries.add(index, treeEntry);
+
+    if (!isLeaf && updateNeighbors) {
+      if (index < size) {
+        final SBTreeEntry<K, V> nextEntry = treeEntries.get(index + 1);
+        treeEntries.set(index + 1, new SBTreeEntry<K, V>(treeEntry.rightChild, nextEntry.rightChild, nextEntry.key, null));
+      }
+
+      if (index > 0) {
+        final SBTreeEntry<K, V> prevEntry = treeEntries.get(index - 1);
+        treeEntries.set(index - 1, new SBTreeEntry<K, V>(prevEntry.leftChild, treeEntry.leftChild, prevEntry.key, null));
       }
+    }
+
+    return rewrite(treeEntries, newKeyPrefix);
+  }
 
-      entrySize += valueSize + OByteSerializer.BYTE_SIZE;
-    } else
-      entrySize += 2 * OLongSerializer.LONG_SIZE;
+  private boolean insertEntry(int index, SBTreeEntry<K, V> treeEntry, byte[] serializedKey, boolean updateNeighbors)
+      throws IOException {
+    final int entrySize = getEntrySize(treeEntry, serializedKey);
 
     int size = size();
     int freePointer = getIntValue(FREE_POINTER_OFFSET);
-    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET)
+    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + positionsOffset)
       return false;
 
     if (index <= size - 1) {
-      moveData(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, POSITIONS_ARRAY_OFFSET + (index + 1)
-          * OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
+      moveData(positionsOffset + index * OIntegerSerializer.INT_SIZE, positionsOffset + (index + 1) * OIntegerSerializer.INT_SIZE,
+          (size - index) * OIntegerSerializer.INT_SIZE);
     }
 
     freePointer -= entrySize;
 
     setIntValue(FREE_POINTER_OFFSET, freePointer);
-    setIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, freePointer);
+    setIntValue(positionsOffset + index * OIntegerSerializer.INT_SIZE, freePointer);
     setIntValue(SIZE_OFFSET, size + 1);
 
+    final int keySize = serializedKey.length;
     if (isLeaf) {
-      byte[] serializedKey = new byte[keySize];
-      keySerializer.serializeNative(treeEntry.key, serializedKey, 0, (Object[]) keyTypes);
-
       setBinaryValue(freePointer, serializedKey);
       freePointer += keySize;
 
       setByteValue(freePointer, treeEntry.value.isLink() ? (byte) 1 : (byte) 0);
       freePointer += OByteSerializer.BYTE_SIZE;
 
-      byte[] serializedValue = new byte[valueSize];
+      byte[] serializedValue = new byte[entrySize - keySize - OByteSerializer.BYTE_SIZE];
       if (treeEntry.value.isLink())
         OLongSerializer.INSTANCE.serializeNative(treeEntry.value.getLink(), serializedValue, 0);
       else
@@ -328,20 +411,18 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       setLongValue(freePointer, treeEntry.rightChild);
       freePointer += OLongSerializer.LONG_SIZE;
 
-      byte[] serializedKey = new byte[keySize];
-      keySerializer.serializeNative(treeEntry.key, serializedKey, 0, (Object[]) keyTypes);
       setBinaryValue(freePointer, serializedKey);
 
       size++;
 
       if (updateNeighbors && size > 1) {
         if (index < size - 1) {
-          final int nextEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index + 1) * OIntegerSerializer.INT_SIZE);
+          final int nextEntryPosition = getIntValue(positionsOffset + (index + 1) * OIntegerSerializer.INT_SIZE);
           setLongValue(nextEntryPosition, treeEntry.rightChild);
         }
 
         if (index > 0) {
-          final int prevEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index - 1) * OIntegerSerializer.INT_SIZE);
+          final int prevEntryPosition = getIntValue(positionsOffset + (index - 1) * OIntegerSerializer.INT_SIZE);
           setLongValue(prevEntryPosition + OLongSerializer.LONG_SIZE, treeEntry.leftChild);
         }
       }
@@ -350,8 +431,143 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return true;
   }
 
+  private int getEntrySize(SBTreeEntry<K, V> treeEntry, byte[] serializedKey) {
+    if (!isLeaf)
+      return serializedKey.length + 2 * OLongSerializer.LONG_SIZE;
+
+    final int valueSize;
+    if (valueSerializer.isFixedLength())
+      valueSize = valueSerializer.getFixedLength();
+    else if (treeEntry.value.isLink())
+      valueSize = OLongSerializer.LONG_SIZE;
+    else
+      valueSize = valueSerializer.getObjectSize(treeEntry.value.getValue());
+
+    return serializedKey.length + valueSize + OByteSerializer.BYTE_SIZE;
+  }
+
+  /**
+   * Writes all the entries of a bucket with compressed keys again, with the given key prefix if they fit in the page.
+   * 
+   * @return <code>false</code> if the entries do not fit in the page, in which case it is not changed.
+   */
+  private boolean rewrite(List<SBTreeEntry<K, V>> treeEntries, Object newKeyPrefix) throws IOException {
+    byte[] serializedPrefix = serializePrefix(newKeyPrefix);
+    List<byte[]> serializedKeys = serializeKeys(treeEntries, newKeyPrefix, serializedPrefix);
+
+    if (serializedKeys == null && newKeyPrefix != null) {
+      // A SHORT PREFIX COMMON TO FEW KEYS CAN TAKE MORE SPACE THAN IT SAVES
+      newKeyPrefix = null;
+      serializedPrefix = serializePrefix(null);
+      serializedKeys = serializeKeys(treeEntries, null, serializedPrefix);
+    }
+
+    if (serializedKeys == null)
+      return false;
+
+    setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
+    setIntValue(SIZE_OFFSET, 0);
+
+    setIntValue(KEY_PREFIX_OFFSET, serializedPrefix.length);
+    setBinaryValue(KEY_PREFIX_OFFSET + OIntegerSerializer.INT_SIZE, serializedPrefix);
+
+    keyPrefix = newKeyPrefix;
+    keyPrefixLoaded = true;
+    positionsOffset = getPositionsOffset();
+
+    for (int i = 0; i < treeEntries.size(); i++)
+      insertEntry(i, treeEntries.get(i), serializedKeys.get(i), false);
+
+    return true;
+  }
+
+  /**
+   * @return serialized keys of the entries, or <code>null</code> if the entries do not fit in the page.
+   */
+  private List<byte[]> serializeKeys(List<SBTreeEntry<K, V>> treeEntries, Object newKeyPrefix, byte[] serializedPrefix) {
+    final List<byte[]> serializedKeys = new ArrayList<byte[]>(treeEntries.size());
+
+    int pageSize = KEY_PREFIX_OFFSET + OIntegerSerializer.INT_SIZE + serializedPrefix.length;
+    for (SBTreeEntry<K, V> treeEntry : treeEntries) {
+      final byte[] serializedKey = serializeKey(treeEntry.key, newKeyPrefix);
+      pageSize += getEntrySize(treeEntry, serializedKey) + OIntegerSerializer.INT_SIZE;
+      if (pageSize > MAX_PAGE_SIZE_BYTES)
+        return null;
+
+      serializedKeys.add(serializedKey);
+    }
+
+    return serializedKeys;
+  }
+
+  private Object commonKeyPrefix(List<SBTreeEntry<K, V>> treeEntries) {
+    if (treeEntries.size() < 2)
+      return null;
+
+    return OSBTreeKeyCompression.commonPrefix(treeEntries.get(0).key, treeEntries.get(treeEntries.size() - 1).key);
+  }
+
+  /**
+   * @return the key serialized without the prefix, or <code>null</code> if the key does not start with the prefix.
+   */
+  private byte[] serializeKey(K key, Object prefix) {
+    final K storedKey;
+    final OType[] storedKeyTypes;
+    if (prefix == null) {
+      storedKey = key;
+      storedKeyTypes = keyTypes;
+    } else {
+      storedKey = (K) OSBTreeKeyCompression.removePrefix(key, prefix);
+      if (storedKey == null)
+        return null;
+
+      storedKeyTypes = OSBTreeKeyCompression.suffixTypes(keyTypes, prefix);
+    }
+
+    final byte[] serializedKey = new byte[keySerializer.getObjectSize(storedKey, (Object[]) storedKeyTypes)];
+    keySerializer.serializeNative(storedKey, serializedKey, 0, (Object[]) storedKeyTypes);
+    return serializedKey;
+  }
+
+  private byte[] serializePrefix(Object prefix) {
+    if (prefix == null)
+      return new byte[0];
+
+    final byte[] serializedPrefix = new byte[keySerializer.getObjectSize((K) prefix, (Object[]) keyTypes)];
+    keySerializer.serializeNative((K) prefix, serializedPrefix, 0, (Object[]) keyTypes);
+    return serializedPrefix;
+  }
+
+  private K readKey(int entryPosition) {
+    final K key = keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
+
+    final Object prefix = getKeyPrefix();
+    if (prefix == null)
+      return key;
+
+    return (K) OSBTreeKeyCompression.addPrefix(prefix, key);
+  }
+
+  private Object getKeyPrefix() {
+    if (!keyPrefixLoaded) {
+      if (keyPrefixCompression && getIntValue(KEY_PREFIX_OFFSET) > 0)
+        keyPrefix = keySerializer.deserializeFromDirectMemory(pagePointer, KEY_PREFIX_OFFSET + OIntegerSerializer.INT_SIZE);
+
+      keyPrefixLoaded = true;
+    }
+
+    return keyPrefix;
+  }
+
+  private int getPositionsOffset() {
+    if (keyPrefixCompression)
+      return KEY_PREFIX_OFFSET + OIntegerSerializer.INT_SIZE + getIntValue(KEY_PREFIX_OFFSET);
+
+    return POSITIONS_ARRAY_OFFSET;
+  }
+
   public int updateValue(int index, OSBTreeValue<V> value) throws IOException {
-    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + positionsOffset);
     entryPosition += keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition) + OByteSerializer.BYTE_SIZE;
 
     final int newSize = valueSerializer.getObjectSize(value.getValue());
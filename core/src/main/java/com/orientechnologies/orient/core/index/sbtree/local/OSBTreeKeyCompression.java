@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+
+/**
+ * Prefixes and separators of the keys stored in {@link OSBTreeBucket} pages when key prefix compression is enabled. The prefix of a
+ * string key is made of its first characters, the prefix of an {@link OCompositeKey} of its first items. Keys of other types are
+ * not compressed.
+ */
+final class OSBTreeKeyCompression {
+  private static final Comparator<Object> COMPARATOR = ODefaultComparator.INSTANCE;
+
+  private OSBTreeKeyCompression() {
+  }
+
+  public static boolean isSupported(OBinarySerializer<?> keySerializer) {
+    return keySerializer instanceof OStringSerializer || keySerializer instanceof OCompositeKeySerializer;
+  }
+
+  /**
+   * @return the longest prefix of both keys, or <code>null</code> if they do not have one.
+   */
+  public static Object commonPrefix(Object first, Object second) {
+    if (first instanceof String && second instanceof String) {
+      final int length = commonPrefixLength((String) first, (String) second);
+      return length > 0 ? ((String) first).substring(0, length) : null;
+    }
+
+    if (first instanceof OCompositeKey && second instanceof OCompositeKey) {
+      final List<Object> firstItems = ((OCompositeKey) first).getKeys();
+      final int length = commonPrefixLength(firstItems, ((OCompositeKey) second).getKeys());
+      return length > 0 ? new OCompositeKey(firstItems.subList(0, length)) : null;
+    }
+
+    return null;
+  }
+
+  /**
+   * @return the key without the prefix, or <code>null</code> if the key does not start with it.
+   */
+  public static Object removePrefix(Object key, Object prefix) {
+    if (key instanceof String) {
+      final String stringKey = (String) key;
+      return stringKey.startsWith((String) prefix) ? stringKey.substring(((String) prefix).length()) : null;
+    }
+
+    if (key instanceof OCompositeKey) {
+      final List<Object> items = ((OCompositeKey) key).getKeys();
+      final List<Object> prefixItems = ((OCompositeKey) prefix).getKeys();
+      if (commonPrefixLength(items, prefixItems) < prefixItems.size())
+        return null;
+      return new OCompositeKey(items.subList(prefixItems.size(), items.size()));
+    }
+
+    return null;
+  }
+
+  public static Object addPrefix(Object prefix, Object suffix) {
+    if (prefix instanceof String)
+      return (String) prefix + suffix;
+
+    final List<Object> items = new ArrayList<Object>(((OCompositeKey) prefix).getKeys());
+    items.addAll(((OCompositeKey) suffix).getKeys());
+    return new OCompositeKey(items);
+  }
+
+  /**
+   * @return the number of characters or items of the prefix, 0 for <code>null</code>.
+   */
+  public static int length(Object prefix) {
+    if (prefix instanceof String)
+      return ((String) prefix).length();
+    if (prefix instanceof OCompositeKey)
+      return ((OCompositeKey) prefix).getKeys().size();
+    return 0;
+  }
+
+  /**
+   * @return the types of the items of the keys stored without the prefix.
+   */
+  public static OType[] suffixTypes(OType[] keyTypes, Object prefix) {
+    if (keyTypes == null || !(prefix instanceof OCompositeKey))
+      return keyTypes;
+
+    final int prefixSize = ((OCompositeKey) prefix).getKeys().size();
+    if (prefixSize >= keyTypes.length)
+      return new OType[0];
+    return Arrays.copyOfRange(keyTypes, prefixSize, keyTypes.length);
+  }
+
+  /**
+   * Shortest key which can separate two adjacent leaves: greater than the last key of the left leaf and not greater than the first
+   * key of the right one.
+   */
+  public static Object separator(Object lastLeftKey, Object firstRightKey) {
+    if (lastLeftKey instanceof String && firstRightKey instanceof String)
+      return stringSeparator((String) lastLeftKey, (String) firstRightKey);
+
+    if (lastLeftKey instanceof OCompositeKey && firstRightKey instanceof OCompositeKey) {
+      // PARTIAL COMPOSITE KEYS ARE EQUAL TO ANY KEY THEY ARE PREFIX OF, SO ALL ITEMS ARE KEPT AND ONLY THE FIRST DIFFERENT ONE IS
+      // SHORTENED
+      final List<Object> leftItems = ((OCompositeKey) lastLeftKey).getKeys();
+      final List<Object> rightItems = ((OCompositeKey) firstRightKey).getKeys();
+
+      final int index = commonPrefixLength(leftItems, rightItems);
+      if (index >= leftItems.size() || index >= rightItems.size())
+        return firstRightKey;
+
+      final Object leftItem = leftItems.get(index);
+      final Object rightItem = rightItems.get(index);
+      if (!(leftItem instanceof String && rightItem instanceof String))
+        return firstRightKey;
+
+      final String item = stringSeparator((String) leftItem, (String) rightItem);
+      final boolean shortened = item.length() < ((String) rightItem).length();
+
+      final List<Object> items = new ArrayList<Object>(rightItems.size());
+      items.addAll(rightItems.subList(0, index));
+      items.add(item);
+      for (Object rightItemToCopy : rightItems.subList(index + 1, rightItems.size()))
+        if (shortened && rightItemToCopy instanceof String)
+          items.add("");
+        else
+          items.add(rightItemToCopy);
+
+      return new OCompositeKey(items);
+    }
+
+    return firstRightKey;
+  }
+
+  private static String stringSeparator(String lastLeftKey, String firstRightKey) {
+    final int length = commonPrefixLength(lastLeftKey, firstRightKey) + 1;
+    if (length >= firstRightKey.length())
+      return firstRightKey;
+
+    final String separator = firstRightKey.substring(0, length);
+    if (COMPARATOR.compare(lastLeftKey, separator) < 0)
+      return separator;
+    return firstRightKey;
+  }
+
+  private static int commonPrefixLength(String first, String second) {
+    final int length = Math.min(first.length(), second.length());
+    int i = 0;
+    while (i < length && first.charAt(i) == second.charAt(i))
+      i++;
+    return i;
+  }
+
+  private static int commonPrefixLength(List<Object> first, List<Object> second) {
+    final int length = Math.min(first.size(), second.size());
+    int i = 0;
+    while (i < length && COMPARATOR.compare(first.get(i), second.get(i)) == 0)
+      i++;
+    return i;
+  }
+}
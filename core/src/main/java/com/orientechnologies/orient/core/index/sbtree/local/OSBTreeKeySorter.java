@@ -0,0 +1,296 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * Sorts the keys to load in an {@link OSBTree} by {@link OSBTree#bulkLoad(Iterator, int)}, each one with the record that contains
+ * it. Keys are kept in memory up to the given threshold: once reached they are sorted and written with the key serializer of the
+ * tree as a run in a temporary file. Runs are merged while the sorted keys are browsed. Records of the same key are returned in the
+ * order they have been added.
+ *
+ * @see OSBTree#createKeySorter(int)
+ */
+public class OSBTreeKeySorter<K> {
+  private final OBinarySerializer<K>  keySerializer;
+  private final OType[]               keyTypes;
+  private final int                   maxKeysInMemory;
+  private final Comparator<? super K> comparator = ODefaultComparator.INSTANCE;
+
+  private final List<KeyEntry>        entries    = new ArrayList<KeyEntry>();
+  private final List<File>            runs       = new ArrayList<File>();
+
+  /**
+   * @param maxKeysInMemory
+   *          maximum keys to keep in memory before to write them in a temporary file, -1 for unlimited
+   */
+  public OSBTreeKeySorter(OBinarySerializer<K> keySerializer, OType[] keyTypes, int maxKeysInMemory) {
+    this.keySerializer = keySerializer;
+    this.keyTypes = keyTypes;
+    this.maxKeysInMemory = maxKeysInMemory;
+  }
+
+  public void add(K key, OIdentifiable value) {
+    entries.add(new KeyEntry(keySerializer.preprocess(key, (Object[]) keyTypes), value.getIdentity()));
+
+    if (maxKeysInMemory > 0 && entries.size() >= maxKeysInMemory)
+      writeRun();
+  }
+
+  /**
+   * Sorts the added keys.
+   *
+   * @return the distinct keys in ascending order, each one with the records that contain it.
+   */
+  public Iterator<Map.Entry<K, List<ORID>>> sort() {
+    Collections.sort(entries);
+
+    final MergeIterator mergeIterator = new MergeIterator();
+
+    return new Iterator<Map.Entry<K, List<ORID>>>() {
+      private KeyEntry next = mergeIterator.hasNext() ? mergeIterator.next() : null;
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Map.Entry<K, List<ORID>> next() {
+        if (next == null)
+          throw new NoSuchElementException();
+
+        final K key = next.key;
+        final List<ORID> values = new ArrayList<ORID>();
+        do {
+          values.add(next.value);
+          next = mergeIterator.hasNext() ? mergeIterator.next() : null;
+        } while (next != null && comparator.compare(key, next.key) == 0);
+
+        return new AbstractMap.SimpleImmutableEntry<K, List<ORID>>(key, values);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  /**
+   * Returns the number of runs written in temporary files.
+   */
+  public int getRuns() {
+    return runs.size();
+  }
+
+  /**
+   * Deletes the temporary files.
+   */
+  public void close() {
+    for (File run : runs)
+      if (!run.delete())
+        OLogManager.instance().warn(this, "Cannot delete temporary file %s", run);
+    runs.clear();
+    entries.clear();
+  }
+
+  private void writeRun() {
+    Collections.sort(entries);
+
+    try {
+      final File file = File.createTempFile("orientdb-index-", ".tmp");
+      file.deleteOnExit();
+      runs.add(file);
+
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      try {
+        out.writeInt(entries.size());
+        for (KeyEntry entry : entries) {
+          final byte[] serializedKey = new byte[keySerializer.getObjectSize(entry.key, (Object[]) keyTypes)];
+          keySerializer.serializeNative(entry.key, serializedKey, 0, (Object[]) keyTypes);
+
+          out.writeInt(serializedKey.length);
+          out.write(serializedKey);
+          entry.value.toStream(out);
+        }
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      throw new OSBTreeException("Error on writing sorted keys to a temporary file", e);
+    }
+
+    entries.clear();
+  }
+
+  private final class KeyEntry implements Comparable<KeyEntry> {
+    private final K    key;
+    private final ORID value;
+
+    private KeyEntry(K key, ORID value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public int compareTo(KeyEntry other) {
+      return comparator.compare(key, other.key);
+    }
+  }
+
+  /**
+   * Current key of a run. Runs are ordered by their current key, then by the order they have been written.
+   */
+  private final class RunCursor implements Comparable<RunCursor> {
+    private final int                index;
+    private final DataInputStream    in;
+    private final Iterator<KeyEntry> iterator;
+    private int                      remaining;
+    private KeyEntry                 current;
+
+    private RunCursor(int index, File file) throws IOException {
+      this.index = index;
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      iterator = null;
+      remaining = in.readInt();
+    }
+
+    private RunCursor(int index, Iterator<KeyEntry> iterator) {
+      this.index = index;
+      in = null;
+      this.iterator = iterator;
+    }
+
+    private boolean next() throws IOException {
+      if (iterator != null) {
+        current = iterator.hasNext() ? iterator.next() : null;
+        return current != null;
+      }
+
+      if (remaining == 0) {
+        current = null;
+        in.close();
+        return false;
+      }
+
+      remaining--;
+
+      final byte[] serializedKey = new byte[in.readInt()];
+      in.readFully(serializedKey);
+
+      final K key = keySerializer.deserializeNative(serializedKey, 0);
+      current = new KeyEntry(key, new ORecordId().fromStream(in));
+      return true;
+    }
+
+    private void close() throws IOException {
+      if (in != null)
+        in.close();
+    }
+
+    @Override
+    public int compareTo(RunCursor other) {
+      final int result = comparator.compare(current.key, other.current.key);
+      if (result != 0)
+        return result;
+      return index - other.index;
+    }
+  }
+
+  private final class MergeIterator implements Iterator<KeyEntry> {
+    private final PriorityQueue<RunCursor> cursors = new PriorityQueue<RunCursor>();
+
+    private MergeIterator() {
+      try {
+        for (int i = 0; i < runs.size(); ++i)
+          push(new RunCursor(i, runs.get(i)));
+
+        // KEYS IN MEMORY ARE THE LAST ADDED
+        push(new RunCursor(runs.size(), entries.iterator()));
+      } catch (IOException e) {
+        closeCursors();
+        throw new OSBTreeException("Error on reading sorted keys from a temporary file", e);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !cursors.isEmpty();
+    }
+
+    @Override
+    public KeyEntry next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      try {
+        final RunCursor cursor = cursors.poll();
+        final KeyEntry entry = cursor.current;
+        push(cursor);
+        return entry;
+      } catch (IOException e) {
+        closeCursors();
+        throw new OSBTreeException("Error on reading sorted keys from a temporary file", e);
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private void push(RunCursor cursor) throws IOException {
+      if (cursor.next())
+        cursors.add(cursor);
+    }
+
+    private void closeCursors() {
+      for (RunCursor cursor : cursors)
+        try {
+          cursor.close();
+        } catch (IOException e) {
+          OLogManager.instance().warn(this, "Cannot close temporary file of sorted keys", e);
+        }
+      cursors.clear();
+    }
+  }
+}
@@ -42,6 +42,7 @@ import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityReso
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
 import com.orientechnologies.orient.core.storage.OStorageEmbedded;
@@ -400,6 +401,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
       }
     }, true);
 
+    OSQLStatementCache.clear(getDatabase().getStorage());
     return (RET) this;
   }
 
@@ -635,6 +637,9 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
         return null;
       }
     }, true);
+
+    // THE PARSED STATEMENTS REFER TO THE CLASSES OF THE PREVIOUS SCHEMA
+    OSQLStatementCache.clear(db.getStorage());
   }
 
   @Deprecated
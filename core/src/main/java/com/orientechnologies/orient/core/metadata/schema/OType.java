@@ -230,6 +230,10 @@ public enum OType {
     return iValue.toString();
   }
 
+  public byte getId() {
+    return (byte) id;
+  }
+
   public boolean isMultiValue() {
     return this == EMBEDDEDLIST || this == EMBEDDEDMAP || this == EMBEDDEDSET || this == LINKLIST || this == LINKMAP
         || this == LINKSET;
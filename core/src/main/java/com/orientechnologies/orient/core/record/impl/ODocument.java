@@ -231,9 +231,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
    */
   @Override
   public ORecordAbstract<Object> copyTo(final ORecordAbstract<Object> iDestination) {
-    // TODO: REMOVE THIS
-    checkForFields();
-
+    // FIELDS NOT UNMARSHALLED YET ARE NOT LOADED HERE: THE DESTINATION SHARES THE SAME SOURCE AND UNMARSHALLS THEM ON DEMAND
     ODocument destination = (ODocument) iDestination;
 
     super.copyTo(iDestination);
@@ -249,7 +247,8 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
           : new HashMap<String, Object>();
       for (Entry<String, Object> entry : _fieldValues.entrySet())
         ODocumentHelper.copyFieldValue(destination, entry);
-    }
+    } else
+      destination._fieldValues = null;
 
     if (_fieldTypes != null)
       destination._fieldTypes = new HashMap<String, OType>(_fieldTypes);
@@ -1269,7 +1268,14 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
   @Override
   protected void setup() {
     super.setup();
-    _recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
+
+    // USE THE SERIALIZER SELECTED BY THE CURRENT DATABASE IF ANY
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (database != null)
+      _recordFormat = database.getRecordSerializer();
+
+    if (_recordFormat == null)
+      _recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
   }
 
   /**
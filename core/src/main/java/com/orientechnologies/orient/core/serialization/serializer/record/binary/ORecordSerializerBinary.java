@@ -0,0 +1,627 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Set;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.OUserObject2RecordHandler;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializationSetThreadLocal;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.util.ODateHelper;
+
+/**
+ * Binary serializer of documents. The record starts with a header which contains name, type and length of every field, so a single
+ * field can be unmarshalled skipping the values of the other ones. Numbers, dates and links are written as variable length
+ * integers.
+ *
+ * Layout of the record:
+ *
+ * <pre>
+ * +-------+---------+------------+--------------+---------------+----------------------------------+-----------+
+ * | MAGIC | VERSION | CLASS NAME | FIELDS COUNT | HEADER LENGTH | FIELD NAME, TYPE, VALUE LENGTH * | VALUES... |
+ * +-------+---------+------------+--------------+---------------+----------------------------------+-----------+
+ * </pre>
+ *
+ * Scalar types, links with a persistent identity and embedded documents are written in binary form, all the other values (collections,
+ * maps, records to save, custom types) are written with their CSV representation, so their semantic is the same of
+ * {@link ORecordSerializerSchemaAware2CSV}. The first byte of the record is always 0, so records written in CSV format can be
+ * recognized and delegated to the CSV serializer and both the formats can be read from the same database.
+ */
+public class ORecordSerializerBinary implements ORecordSerializer {
+  public static final String                  NAME            = "ORecordDocument2binary";
+  public static final ORecordSerializerBinary INSTANCE        = new ORecordSerializerBinary();
+
+  private static final OProfilerMBean         PROFILER        = Orient.instance().getProfiler();
+
+  private static final byte                   MAGIC           = 0;
+  private static final byte                   CURRENT_VERSION = 1;
+
+  private static final byte                   NULL_TYPE       = -1;
+  private static final byte                   CSV_TYPE_FLAG   = 0x40;
+
+  private static final boolean                LONG_POSITIONS  = OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong;
+
+  /**
+   * @return true if the content has been written by this serializer.
+   */
+  public static boolean isBinary(final byte[] iSource) {
+    return iSource != null && iSource.length > 1 && iSource[0] == MAGIC;
+  }
+
+  public byte[] toStream(final ORecordInternal<?> iRecord, final boolean iOnlyDelta) {
+    if (!(iRecord instanceof ODocument))
+      throw new OSerializationException("Cannot marshall a record of type " + iRecord.getClass().getSimpleName());
+
+    final long timer = PROFILER.startChrono();
+    try {
+      final ODocument record = (ODocument) iRecord;
+      final Set<ODocument> marshalledRecords = OSerializationSetThreadLocal.INSTANCE.get();
+      if (marshalledRecords.contains(record))
+        // PENDING TO BE MARSHALLED
+        return null;
+
+      final OUserObject2RecordHandler objHandler = ODatabaseRecordThreadLocal.INSTANCE.isDefined() ? ODatabaseRecordThreadLocal.INSTANCE
+          .get() : null;
+
+      final OMemoryStream output = new OMemoryStream();
+      documentToStream(record, output, objHandler, marshalledRecords, iOnlyDelta);
+
+      // GET THE OVERSIZE IF ANY
+      final float overSize = record.getSchemaClass() != null ? record.getSchemaClass().getOverSize() : 0;
+
+      // FILL THE REST OF THE RECORD WITH ZEROS IF NEEDED, THEY ARE IGNORED ON READING
+      final int newSize;
+      if (record.hasOwners())
+        // EMBEDDED: GET REAL SIZE
+        newSize = output.size();
+      else if (record.getSize() > output.size() && !OGlobalConfiguration.RECORD_DOWNSIZING_ENABLED.getValueAsBoolean())
+        // FILL ALL THE AVAILABLE SPACE AND AVOID FRAGMENTATION
+        newSize = record.getSize();
+      else if (overSize > 0)
+        newSize = (int) (output.size() * overSize);
+      else
+        newSize = output.size();
+
+      return Arrays.copyOf(output.getInternalBuffer(), Math.max(newSize, output.size()));
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("serializer.record.binary.toStream"), "Serialize record to stream", timer);
+    }
+  }
+
+  public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+    if (!isBinary(iSource))
+      // WRITTEN IN CSV FORMAT
+      return ORecordSerializerSchemaAware2CSV.INSTANCE.fromStream(iSource, iRecord, iFields);
+
+    final long timer = PROFILER.startChrono();
+    try {
+      documentFromStream(iSource, (ODocument) iRecord, iFields);
+      return iRecord;
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("serializer.record.binary.fromStream"), "Deserialize record from stream", timer);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return NAME;
+  }
+
+  private void documentToStream(final ODocument iRecord, final OMemoryStream iOutput, final OUserObject2RecordHandler iObjHandler,
+      final Set<ODocument> iMarshalledRecords, final boolean iOnlyDelta) {
+    if (!iMarshalledRecords.add(iRecord))
+      // PENDING TO BE MARSHALLED
+      return;
+
+    try {
+      iOutput.write(MAGIC);
+      iOutput.write(CURRENT_VERSION);
+
+      if (!iOnlyDelta && iRecord.getSchemaClass() != null)
+        writeString(iOutput, iRecord.getSchemaClass().getStreamableName());
+      else
+        writeVarInt(iOutput, 0);
+
+      final String[] fieldNames = iOnlyDelta && iRecord.isTrackingChanges() ? iRecord.getDirtyFields() : iRecord.fieldNames();
+
+      // VALUES ARE WRITTEN APART BECAUSE THEIR LENGTHS MUST BE KNOWN BEFORE TO WRITE THE HEADER
+      final OMemoryStream header = new OMemoryStream(fieldNames.length * 16);
+      final OMemoryStream values = new OMemoryStream();
+      StringBuilder csvBuffer = null;
+
+      int fields = 0;
+      for (String fieldName : fieldNames) {
+        final Object fieldValue = iRecord.rawField(fieldName);
+        final int valueBegin = values.size();
+
+        OType type = getNativeType(iRecord, fieldName, fieldValue);
+        if (type == OType.TRANSIENT)
+          continue;
+
+        byte typeId;
+        if (fieldValue == null)
+          typeId = NULL_TYPE;
+        else if (type != null) {
+          typeId = type.getId();
+          valueToStream(values, type, fieldValue, iObjHandler, iMarshalledRecords);
+        } else {
+          // NOT SUPPORTED NATIVELY: WRITE THE CSV REPRESENTATION OF THE VALUE
+          if (csvBuffer == null)
+            csvBuffer = new StringBuilder();
+          else
+            csvBuffer.setLength(0);
+
+          type = ORecordSerializerSchemaAware2CSV.INSTANCE.fieldToStream(iRecord, csvBuffer, iObjHandler, fieldName, fieldValue,
+              iMarshalledRecords, true);
+          if (type == OType.TRANSIENT)
+            continue;
+
+          typeId = (byte) (type.getId() | CSV_TYPE_FLAG);
+          writeChars(values, csvBuffer);
+        }
+
+        writeString(header, fieldName);
+        header.write(typeId);
+        writeVarInt(header, values.size() - valueBegin);
+        fields++;
+      }
+
+      writeVarInt(iOutput, fields);
+      writeVarInt(iOutput, header.size());
+      iOutput.write(header.getInternalBuffer(), 0, header.size());
+      iOutput.write(values.getInternalBuffer(), 0, values.size());
+    } finally {
+      iMarshalledRecords.remove(iRecord);
+    }
+  }
+
+  /**
+   * Returns the type of the field if its value can be written in binary form, otherwise null.
+   */
+  private OType getNativeType(final ODocument iRecord, final String iFieldName, final Object iFieldValue) {
+    final OProperty prop = iRecord.getSchemaClass() != null ? iRecord.getSchemaClass().getProperty(iFieldName) : null;
+
+    OType type = prop != null ? prop.getType() : iRecord.fieldType(iFieldName);
+    if (type == OType.TRANSIENT || iFieldValue == null)
+      return type;
+
+    if (type == null) {
+      if (iFieldValue instanceof String)
+        type = OType.STRING;
+      else if (iFieldValue instanceof Integer)
+        type = OType.INTEGER;
+      else if (iFieldValue instanceof Long)
+        type = OType.LONG;
+      else if (iFieldValue instanceof Date)
+        type = OType.DATETIME;
+      else if (iFieldValue instanceof Boolean)
+        type = OType.BOOLEAN;
+      else if (iFieldValue instanceof Double)
+        type = OType.DOUBLE;
+      else if (iFieldValue instanceof Float)
+        type = OType.FLOAT;
+      else if (iFieldValue instanceof Short)
+        type = OType.SHORT;
+      else if (iFieldValue instanceof Byte)
+        type = OType.BYTE;
+      else if (iFieldValue instanceof BigDecimal)
+        type = OType.DECIMAL;
+      else if (iFieldValue instanceof byte[])
+        type = OType.BINARY;
+      else if (iFieldValue instanceof ORID)
+        type = OType.LINK;
+      else if (iFieldValue instanceof ODocument && ((ODocument) iFieldValue).hasOwners())
+        type = OType.EMBEDDED;
+      else
+        return null;
+    }
+
+    // THE VALUE MUST BE EXACTLY OF THE EXPECTED CLASS, OTHERWISE LET THE CSV SERIALIZER CONVERT IT
+    switch (type) {
+    case STRING:
+      return iFieldValue instanceof String ? type : null;
+    case INTEGER:
+      return iFieldValue instanceof Integer ? type : null;
+    case LONG:
+      return iFieldValue instanceof Long ? type : null;
+    case SHORT:
+      return iFieldValue instanceof Short ? type : null;
+    case BYTE:
+      return iFieldValue instanceof Byte ? type : null;
+    case BOOLEAN:
+      return iFieldValue instanceof Boolean ? type : null;
+    case DOUBLE:
+      return iFieldValue instanceof Double ? type : null;
+    case FLOAT:
+      return iFieldValue instanceof Float ? type : null;
+    case DECIMAL:
+      return iFieldValue instanceof BigDecimal ? type : null;
+    case DATE:
+    case DATETIME:
+      return iFieldValue instanceof Date ? type : null;
+    case BINARY:
+      return iFieldValue instanceof byte[] ? type : null;
+    case LINK:
+      // RECORDS ARE DELEGATED BECAUSE THEY COULD NEED TO BE SAVED TO GET THE IDENTITY
+      return iFieldValue instanceof ORID && ((ORID) iFieldValue).isPersistent() ? type : null;
+    case EMBEDDED:
+      return iFieldValue instanceof ODocument ? type : null;
+    default:
+      return null;
+    }
+  }
+
+  private void valueToStream(final OMemoryStream iOutput, final OType iType, final Object iValue,
+      final OUserObject2RecordHandler iObjHandler, final Set<ODocument> iMarshalledRecords) {
+    switch (iType) {
+    case STRING:
+      writeChars(iOutput, (String) iValue);
+      break;
+    case INTEGER:
+      writeVarLong(iOutput, (Integer) iValue);
+      break;
+    case LONG:
+      writeVarLong(iOutput, (Long) iValue);
+      break;
+    case SHORT:
+      writeVarLong(iOutput, (Short) iValue);
+      break;
+    case BYTE:
+      iOutput.write((Byte) iValue);
+      break;
+    case BOOLEAN:
+      iOutput.write((Boolean) iValue ? 1 : 0);
+      break;
+    case DOUBLE:
+      writeLong(iOutput, Double.doubleToLongBits((Double) iValue));
+      break;
+    case FLOAT:
+      writeInt(iOutput, Float.floatToIntBits((Float) iValue));
+      break;
+    case DECIMAL: {
+      final BigDecimal decimal = (BigDecimal) iValue;
+      writeVarLong(iOutput, decimal.scale());
+      final byte[] unscaled = decimal.unscaledValue().toByteArray();
+      iOutput.write(unscaled, 0, unscaled.length);
+      break;
+    }
+    case DATE: {
+      // RESET HOURS, MINUTES, SECONDS AND MILLISECONDS
+      final Calendar calendar = ODateHelper.getDatabaseCalendar();
+      calendar.setTime((Date) iValue);
+      calendar.set(Calendar.HOUR_OF_DAY, 0);
+      calendar.set(Calendar.MINUTE, 0);
+      calendar.set(Calendar.SECOND, 0);
+      calendar.set(Calendar.MILLISECOND, 0);
+      writeVarLong(iOutput, calendar.getTimeInMillis());
+      break;
+    }
+    case DATETIME:
+      writeVarLong(iOutput, ((Date) iValue).getTime());
+      break;
+    case BINARY: {
+      final byte[] content = (byte[]) iValue;
+      iOutput.write(content, 0, content.length);
+      break;
+    }
+    case LINK: {
+      final ORID rid = (ORID) iValue;
+      writeVarLong(iOutput, rid.getClusterId());
+      if (LONG_POSITIONS)
+        writeVarLong(iOutput, rid.getClusterPosition().longValue());
+      else {
+        final byte[] position = rid.getClusterPosition().toStream();
+        iOutput.write(position, 0, position.length);
+      }
+      break;
+    }
+    case EMBEDDED:
+      documentToStream((ODocument) iValue, iOutput, iObjHandler, iMarshalledRecords, false);
+      break;
+    default:
+      throw new OSerializationException("Type " + iType + " is not supported by binary serializer");
+    }
+  }
+
+  private void documentFromStream(final byte[] iSource, final ODocument iRecord, final String[] iFields) {
+    if (iSource[1] > CURRENT_VERSION)
+      throw new OSerializationException("Binary record format version " + iSource[1] + " is not supported, maximum supported is "
+          + CURRENT_VERSION);
+
+    final BytesReader reader = new BytesReader(iSource, 2);
+
+    // UNMARSHALL THE CLASS NAME
+    final int classNameLength = reader.readVarInt();
+    iRecord.setClassNameIfExists(classNameLength > 0 ? reader.readString(classNameLength) : null);
+
+    if (iFields != null && iFields.length == 1 && iFields[0].equals("@class"))
+      // ONLY THE CLASS NAME HAS BEEN REQUESTED: RETURN NOW WITHOUT UNMARSHALL THE ENTIRE RECORD
+      return;
+
+    final boolean partial = iFields != null && iFields.length > 0;
+
+    final int fields = reader.readVarInt();
+    final int headerLength = reader.readVarInt();
+    int valueOffset = reader.offset + headerLength;
+
+    for (int i = 0; i < fields; ++i) {
+      final int nameLength = reader.readVarInt();
+      final int nameOffset = reader.offset;
+      reader.offset += nameLength;
+
+      final byte typeId = reader.readByte();
+      final int valueLength = reader.readVarInt();
+
+      final int currentOffset = valueOffset;
+      valueOffset += valueLength;
+
+      // CHECK IF THE FIELD IS REQUESTED TO BEING UNMARSHALLED WITHOUT TO CREATE THE STRING OF THE NAME
+      final String fieldName = partial ? getRequestedField(iFields, iSource, nameOffset, nameLength) : OBinaryProtocol
+          .bytes2string(iSource, nameOffset, nameLength);
+      if (fieldName == null || iRecord.containsField(fieldName))
+        // NOT REQUESTED OR ALREADY UNMARSHALLED: DON'T OVERWRITE IT
+        continue;
+
+      try {
+        if (typeId == NULL_TYPE) {
+          iRecord.field(fieldName, (Object) null);
+          continue;
+        }
+
+        final OType type;
+        final Object value;
+        if ((typeId & CSV_TYPE_FLAG) != 0) {
+          type = OType.getById((byte) (typeId & ~CSV_TYPE_FLAG));
+
+          final OProperty prop = iRecord.getSchemaClass() != null ? iRecord.getSchemaClass().getProperty(fieldName) : null;
+          final OClass linkedClass = prop != null ? prop.getLinkedClass() : null;
+          final OType linkedType = prop != null ? prop.getLinkedType() : null;
+
+          value = ORecordSerializerSchemaAware2CSV.INSTANCE.fieldFromStream(iRecord, type, linkedClass, linkedType, fieldName,
+              OBinaryProtocol.bytes2string(iSource, currentOffset, valueLength));
+        } else {
+          type = OType.getById(typeId);
+          value = valueFromStream(iRecord, type, iSource, currentOffset, valueLength);
+        }
+
+        if (iRecord.fieldType(fieldName) != null || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET
+            || type == OType.EMBEDDEDMAP || type == OType.EMBEDDED)
+          // SAVE THE TYPE AS EMBEDDED
+          iRecord.field(fieldName, value, type);
+        else
+          iRecord.field(fieldName, value);
+
+      } catch (Exception e) {
+        OLogManager.instance().exception("Error on unmarshalling field '%s' in record %s", e, OSerializationException.class,
+            fieldName, iRecord.getIdentity());
+      }
+    }
+  }
+
+  private Object valueFromStream(final ODocument iRecord, final OType iType, final byte[] iSource, final int iOffset,
+      final int iLength) {
+    final BytesReader reader = new BytesReader(iSource, iOffset);
+
+    switch (iType) {
+    case STRING:
+      return reader.readString(iLength);
+    case INTEGER:
+      return (int) reader.readVarLong();
+    case LONG:
+      return reader.readVarLong();
+    case SHORT:
+      return (short) reader.readVarLong();
+    case BYTE:
+      return reader.readByte();
+    case BOOLEAN:
+      return reader.readByte() != 0;
+    case DOUBLE:
+      return Double.longBitsToDouble(OBinaryProtocol.bytes2long(iSource, iOffset));
+    case FLOAT:
+      return Float.intBitsToFloat(OBinaryProtocol.bytes2int(iSource, iOffset));
+    case DECIMAL: {
+      final int scale = (int) reader.readVarLong();
+      final byte[] unscaled = Arrays.copyOfRange(iSource, reader.offset, iOffset + iLength);
+      return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+    case DATE:
+    case DATETIME:
+      return new Date(reader.readVarLong());
+    case BINARY:
+      return Arrays.copyOfRange(iSource, iOffset, iOffset + iLength);
+    case LINK: {
+      final int clusterId = (int) reader.readVarLong();
+      final OClusterPosition position;
+      if (LONG_POSITIONS)
+        position = OClusterPositionFactory.INSTANCE.valueOf(reader.readVarLong());
+      else
+        position = OClusterPositionFactory.INSTANCE.fromStream(iSource, reader.offset);
+      return new ORecordId(clusterId, position);
+    }
+    case EMBEDDED: {
+      if (iLength == 0)
+        return null;
+
+      // EMBEDDED RECORD: IT'S UNMARSHALLED LAZILY AT THE FIRST ACCESS
+      final ODocument embedded = new ODocument();
+      embedded.fromStream(Arrays.copyOfRange(iSource, iOffset, iOffset + iLength));
+      return embedded.addOwner(iRecord);
+    }
+    default:
+      throw new OSerializationException("Type " + iType + " is not supported by binary serializer");
+    }
+  }
+
+  private static String getRequestedField(final String[] iFields, final byte[] iSource, final int iOffset, final int iLength) {
+    for (String field : iFields)
+      if (field.length() == iLength && equalsAscii(field, iSource, iOffset))
+        return field;
+
+    // NAMES WITH NON ASCII CHARACTERS HAVE DIFFERENT LENGTH IN BYTES, CHECK THEM DECODING THE NAME
+    for (int i = iOffset; i < iOffset + iLength; ++i)
+      if (iSource[i] < 0) {
+        final String fieldName = OBinaryProtocol.bytes2string(iSource, iOffset, iLength);
+        for (String field : iFields)
+          if (field.equals(fieldName))
+            return field;
+        break;
+      }
+
+    return null;
+  }
+
+  private static boolean equalsAscii(final String iName, final byte[] iSource, final int iOffset) {
+    for (int i = 0; i < iName.length(); ++i)
+      if (iName.charAt(i) != iSource[iOffset + i])
+        return false;
+    return true;
+  }
+
+  private static void writeString(final OMemoryStream iOutput, final String iValue) {
+    int length = 0;
+    for (int i = 0; i < iValue.length(); ++i) {
+      final char c = iValue.charAt(i);
+      length += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+
+    writeVarInt(iOutput, length);
+    writeChars(iOutput, iValue);
+  }
+
+  /**
+   * Writes the characters with the same UTF-8 encoding of {@link OBinaryProtocol#string2bytes(String)}.
+   */
+  private static void writeChars(final OMemoryStream iOutput, final CharSequence iValue) {
+    for (int i = 0; i < iValue.length(); ++i) {
+      final char c = iValue.charAt(i);
+
+      if (c < 0x80)
+        iOutput.write(c);
+      else if (c < 0x800) {
+        iOutput.write(0xC0 | c >> 6);
+        iOutput.write(0x80 | c & 0x3F);
+      } else {
+        iOutput.write(0xE0 | c >> 12);
+        iOutput.write(0x80 | c >> 6 & 0x3F);
+        iOutput.write(0x80 | c & 0x3F);
+      }
+    }
+  }
+
+  private static void writeInt(final OMemoryStream iOutput, final int iValue) {
+    iOutput.write(iValue >>> 24);
+    iOutput.write(iValue >>> 16);
+    iOutput.write(iValue >>> 8);
+    iOutput.write(iValue);
+  }
+
+  private static void writeLong(final OMemoryStream iOutput, final long iValue) {
+    writeInt(iOutput, (int) (iValue >>> 32));
+    writeInt(iOutput, (int) iValue);
+  }
+
+  /**
+   * Writes a positive integer using 7 bits for every byte, the highest bit is set if more bytes follow.
+   */
+  private static void writeVarInt(final OMemoryStream iOutput, int iValue) {
+    while ((iValue & ~0x7F) != 0) {
+      iOutput.write((iValue & 0x7F) | 0x80);
+      iValue >>>= 7;
+    }
+    iOutput.write(iValue);
+  }
+
+  /**
+   * Writes a signed long using zig-zag encoding, so values close to zero take few bytes also when they are negative.
+   */
+  private static void writeVarLong(final OMemoryStream iOutput, final long iValue) {
+    long value = (iValue << 1) ^ (iValue >> 63);
+    while ((value & ~0x7FL) != 0) {
+      iOutput.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    iOutput.write((int) value);
+  }
+
+  private static final class BytesReader {
+    private final byte[] bytes;
+    private int          offset;
+
+    private BytesReader(final byte[] iBytes, final int iOffset) {
+      bytes = iBytes;
+      offset = iOffset;
+    }
+
+    private byte readByte() {
+      return bytes[offset++];
+    }
+
+    private int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[offset++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+
+      return value;
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[offset++];
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String readString(final int iLength) {
+      final String value = OBinaryProtocol.bytes2string(bytes, offset, iLength);
+      offset += iLength;
+      return value;
+    }
+  }
+}
@@ -39,12 +39,14 @@ import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
 public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstract {
   private static final long                            serialVersionUID = 1L;
   public static final String                           NAME             = "ORecordDocument2csv";
   public static final ORecordSerializerSchemaAware2CSV INSTANCE         = new ORecordSerializerSchemaAware2CSV();
+  private static final char[]                          FIELD_SEPARATOR  = new char[] { OStringSerializerHelper.RECORD_SEPARATOR };
 
   @Override
   public ORecordSchemaAware<?> newObject(String iClassName) {
@@ -81,11 +83,6 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
       iOutput.append(OStringSerializerHelper.CLASS_SEPARATOR);
     }
 
-    OProperty prop;
-    OType type;
-    OClass linkedClass;
-    OType linkedType;
-    String fieldClassName;
     int i = 0;
 
     final String[] fieldNames = iOnlyDelta && record.isTrackingChanges() ? record.getDirtyFields() : record.fieldNames();
@@ -95,189 +92,19 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 
     // MARSHALL ALL THE FIELDS OR DELTA IF TRACKING IS ENABLED
     for (String fieldName : fieldNames) {
-      Object fieldValue = record.rawField(fieldName);
+      final int fieldBegin = iOutput.length();
       if (i > 0)
         iOutput.append(OStringSerializerHelper.RECORD_SEPARATOR);
 
-      // SEARCH FOR A CONFIGURED PROPERTY
-      prop = record.getSchemaClass() != null ? record.getSchemaClass().getProperty(fieldName) : null;
-      fieldClassName = getClassName(fieldValue);
-
-      type = record.fieldType(fieldName);
-      linkedClass = null;
-      linkedType = null;
-
-      if (prop != null) {
-        // RECOGNIZED PROPERTY
-        type = prop.getType();
-        linkedClass = prop.getLinkedClass();
-        linkedType = prop.getLinkedType();
-
-      } else if (fieldValue != null) {
-        // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
-        if (type == null) {
-          if (fieldValue.getClass() == byte[].class)
-            type = OType.BINARY;
-          else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined() && fieldValue instanceof ORecord<?>) {
-            if (type == null)
-              // DETERMINE THE FIELD TYPE
-              if (fieldValue instanceof ODocument && ((ODocument) fieldValue).hasOwners())
-                type = OType.EMBEDDED;
-              else
-                type = OType.LINK;
-
-            linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), fieldClassName);
-          } else if (fieldValue instanceof ORID)
-            // DETERMINE THE FIELD TYPE
-            type = OType.LINK;
-
-          else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
-              && ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject
-              && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner()).getEntityManager()
-                  .getEntityClass(fieldClassName) != null) {
-            // DETERMINE THE FIELD TYPE
-            type = OType.LINK;
-            linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), fieldClassName);
-          } else if (fieldValue instanceof Date)
-            type = OType.DATETIME;
-          else if (fieldValue instanceof String)
-            type = OType.STRING;
-          else if (fieldValue instanceof Integer || fieldValue instanceof BigInteger)
-            type = OType.INTEGER;
-          else if (fieldValue instanceof Long)
-            type = OType.LONG;
-          else if (fieldValue instanceof Float)
-            type = OType.FLOAT;
-          else if (fieldValue instanceof Short)
-            type = OType.SHORT;
-          else if (fieldValue instanceof Byte)
-            type = OType.BYTE;
-          else if (fieldValue instanceof Double)
-            type = OType.DOUBLE;
-          else if (fieldValue instanceof BigDecimal)
-            type = OType.DECIMAL;
-        }
-
-        if (fieldValue instanceof OMultiCollectionIterator<?>) {
-          type = ((OMultiCollectionIterator<?>) fieldValue).isEmbedded() ? OType.EMBEDDEDLIST : OType.LINKLIST;
-          linkedType = ((OMultiCollectionIterator<?>) fieldValue).isEmbedded() ? OType.EMBEDDED : OType.LINK;
-        } else if (fieldValue instanceof Collection<?> || fieldValue.getClass().isArray()) {
-          final int size = OMultiValue.getSize(fieldValue);
-
-          Boolean autoConvertLinks = null;
-          if (fieldValue instanceof ORecordLazyMultiValue) {
-            autoConvertLinks = ((ORecordLazyMultiValue) fieldValue).isAutoConvertToRecord();
-            if (autoConvertLinks)
-              // DISABLE AUTO CONVERT
-              ((ORecordLazyMultiValue) fieldValue).setAutoConvertToRecord(false);
-          }
-
-          if (autoDetectCollectionType)
-            if (size > 0) {
-              final Object firstValue = OMultiValue.getFirstValue(fieldValue);
-
-              if (firstValue != null) {
-                if (firstValue instanceof ORID) {
-                  linkedClass = null;
-                  linkedType = OType.LINK;
-                  if (fieldValue instanceof Set<?>)
-                    type = OType.LINKSET;
-                  else
-                    type = OType.LINKLIST;
-                } else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
-                    && (firstValue instanceof ODocument && !((ODocument) firstValue).isEmbedded())
-                    && (firstValue instanceof ORecord<?> || (ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE
-                        .get().getDatabaseOwner()).getEntityManager().getEntityClass(getClassName(firstValue)) != null))) {
-                  linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), getClassName(firstValue));
-                  if (type == null) {
-                    // LINK: GET THE CLASS
-                    linkedType = OType.LINK;
-
-                    if (fieldValue instanceof Set<?>)
-                      type = OType.LINKSET;
-                    else
-                      type = OType.LINKLIST;
-                  } else
-                    linkedType = OType.EMBEDDED;
-                } else {
-                  // EMBEDDED COLLECTION
-                  if (firstValue instanceof ODocument
-                      && ((((ODocument) firstValue).hasOwners()) || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDMAP))
-                    linkedType = OType.EMBEDDED;
-                  else if (firstValue instanceof Enum<?>)
-                    linkedType = OType.STRING;
-                  else {
-                    linkedType = OType.getTypeByClass(firstValue.getClass());
-
-                    if (linkedType != OType.LINK)
-                      // EMBEDDED FOR SURE DON'T USE THE LINKED TYPE
-                      linkedType = null;
-                  }
-
-                  if (type == null)
-                    if (fieldValue instanceof OMVRBTreeRIDSet)
-                      type = OType.LINKSET;
-                    else if (fieldValue instanceof Set<?>)
-                      type = OType.EMBEDDEDSET;
-                    else
-                      type = OType.EMBEDDEDLIST;
-                }
-              }
-            } else if (type == null)
-              type = OType.EMBEDDEDLIST;
-
-          if (fieldValue instanceof ORecordLazyMultiValue && autoConvertLinks) {
-            // REPLACE PREVIOUS SETTINGS
-            ((ORecordLazyMultiValue) fieldValue).setAutoConvertToRecord(true);
-          }
-
-        } else if (fieldValue instanceof Map<?, ?> && type == null) {
-          final int size = OMultiValue.getSize(fieldValue);
-
-          Boolean autoConvertLinks = null;
-          if (fieldValue instanceof ORecordLazyMap) {
-            autoConvertLinks = ((ORecordLazyMap) fieldValue).isAutoConvertToRecord();
-            if (autoConvertLinks)
-              // DISABLE AUTO CONVERT
-              ((ORecordLazyMap) fieldValue).setAutoConvertToRecord(false);
-          }
-
-          if (size > 0) {
-            final Object firstValue = OMultiValue.getFirstValue(fieldValue);
-
-            if (firstValue != null) {
-              if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
-                  && (firstValue instanceof ODocument && !((ODocument) firstValue).isEmbedded())
-                  && (firstValue instanceof ORecord<?> || (ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE
-                      .get().getDatabaseOwner()).getEntityManager().getEntityClass(getClassName(firstValue)) != null))) {
-                linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), getClassName(firstValue));
-                // LINK: GET THE CLASS
-                linkedType = OType.LINK;
-                type = OType.LINKMAP;
-              }
-            }
-          }
-
-          if (type == null)
-            type = OType.EMBEDDEDMAP;
-
-          if (fieldValue instanceof ORecordLazyMap && autoConvertLinks)
-            // REPLACE PREVIOUS SETTINGS
-            ((ORecordLazyMap) fieldValue).setAutoConvertToRecord(true);
-        }
-      }
+      iOutput.append(fieldName);
+      iOutput.append(FIELD_VALUE_SEPARATOR);
 
-      if (type == OType.TRANSIENT)
+      if (fieldToStream(record, iOutput, iObjHandler, fieldName, record.rawField(fieldName), iMarshalledRecords,
+          autoDetectCollectionType) == OType.TRANSIENT) {
         // TRANSIENT FIELD
+        iOutput.setLength(fieldBegin);
         continue;
-
-      if (type == null)
-        type = OType.EMBEDDED;
-
-      iOutput.append(fieldName);
-      iOutput.append(FIELD_VALUE_SEPARATOR);
-      fieldToStream((ODocument) iRecord, iOutput, iObjHandler, type, linkedClass, linkedType, fieldName, fieldValue,
-          iMarshalledRecords, true);
+      }
 
       i++;
     }
@@ -320,6 +147,195 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
     return iOutput;
   }
 
+  /**
+   * Serializes the value of a document field. The type is taken from the schema property if any, otherwise from the type set in the
+   * document or, as last chance, it's detected from the value.
+   * 
+   * @return The type used to serialize the value or OType.TRANSIENT if the field must not be serialized: in this case nothing is
+   *         written to the output
+   */
+  public OType fieldToStream(final ODocument iRecord, final StringBuilder iOutput, final OUserObject2RecordHandler iObjHandler,
+      final String iFieldName, final Object iFieldValue, final Set<ODocument> iMarshalledRecords,
+      final boolean iAutoDetectCollectionType) {
+    // SEARCH FOR A CONFIGURED PROPERTY
+    final OProperty prop = iRecord.getSchemaClass() != null ? iRecord.getSchemaClass().getProperty(iFieldName) : null;
+    final String fieldClassName = getClassName(iFieldValue);
+
+    OType type = iRecord.fieldType(iFieldName);
+    OClass linkedClass = null;
+    OType linkedType = null;
+
+    if (prop != null) {
+      // RECOGNIZED PROPERTY
+      type = prop.getType();
+      linkedClass = prop.getLinkedClass();
+      linkedType = prop.getLinkedType();
+
+    } else if (iFieldValue != null) {
+      // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
+      if (type == null) {
+        if (iFieldValue.getClass() == byte[].class)
+          type = OType.BINARY;
+        else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined() && iFieldValue instanceof ORecord<?>) {
+          if (type == null)
+            // DETERMINE THE FIELD TYPE
+            if (iFieldValue instanceof ODocument && ((ODocument) iFieldValue).hasOwners())
+              type = OType.EMBEDDED;
+            else
+              type = OType.LINK;
+
+          linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), fieldClassName);
+        } else if (iFieldValue instanceof ORID)
+          // DETERMINE THE FIELD TYPE
+          type = OType.LINK;
+
+        else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
+            && ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject
+            && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner()).getEntityManager()
+                .getEntityClass(fieldClassName) != null) {
+          // DETERMINE THE FIELD TYPE
+          type = OType.LINK;
+          linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), fieldClassName);
+        } else if (iFieldValue instanceof Date)
+          type = OType.DATETIME;
+        else if (iFieldValue instanceof String)
+          type = OType.STRING;
+        else if (iFieldValue instanceof Integer || iFieldValue instanceof BigInteger)
+          type = OType.INTEGER;
+        else if (iFieldValue instanceof Long)
+          type = OType.LONG;
+        else if (iFieldValue instanceof Float)
+          type = OType.FLOAT;
+        else if (iFieldValue instanceof Short)
+          type = OType.SHORT;
+        else if (iFieldValue instanceof Byte)
+          type = OType.BYTE;
+        else if (iFieldValue instanceof Double)
+          type = OType.DOUBLE;
+        else if (iFieldValue instanceof BigDecimal)
+          type = OType.DECIMAL;
+      }
+
+      if (iFieldValue instanceof OMultiCollectionIterator<?>) {
+        type = ((OMultiCollectionIterator<?>) iFieldValue).isEmbedded() ? OType.EMBEDDEDLIST : OType.LINKLIST;
+        linkedType = ((OMultiCollectionIterator<?>) iFieldValue).isEmbedded() ? OType.EMBEDDED : OType.LINK;
+      } else if (iFieldValue instanceof Collection<?> || iFieldValue.getClass().isArray()) {
+        final int size = OMultiValue.getSize(iFieldValue);
+
+        Boolean autoConvertLinks = null;
+        if (iFieldValue instanceof ORecordLazyMultiValue) {
+          autoConvertLinks = ((ORecordLazyMultiValue) iFieldValue).isAutoConvertToRecord();
+          if (autoConvertLinks)
+            // DISABLE AUTO CONVERT
+            ((ORecordLazyMultiValue) iFieldValue).setAutoConvertToRecord(false);
+        }
+
+        if (iAutoDetectCollectionType)
+          if (size > 0) {
+            final Object firstValue = OMultiValue.getFirstValue(iFieldValue);
+
+            if (firstValue != null) {
+              if (firstValue instanceof ORID) {
+                linkedClass = null;
+                linkedType = OType.LINK;
+                if (iFieldValue instanceof Set<?>)
+                  type = OType.LINKSET;
+                else
+                  type = OType.LINKLIST;
+              } else if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
+                  && (firstValue instanceof ODocument && !((ODocument) firstValue).isEmbedded())
+                  && (firstValue instanceof ORecord<?> || (ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE
+                      .get().getDatabaseOwner()).getEntityManager().getEntityClass(getClassName(firstValue)) != null))) {
+                linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), getClassName(firstValue));
+                if (type == null) {
+                  // LINK: GET THE CLASS
+                  linkedType = OType.LINK;
+
+                  if (iFieldValue instanceof Set<?>)
+                    type = OType.LINKSET;
+                  else
+                    type = OType.LINKLIST;
+                } else
+                  linkedType = OType.EMBEDDED;
+              } else {
+                // EMBEDDED COLLECTION
+                if (firstValue instanceof ODocument
+                    && ((((ODocument) firstValue).hasOwners()) || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDMAP))
+                  linkedType = OType.EMBEDDED;
+                else if (firstValue instanceof Enum<?>)
+                  linkedType = OType.STRING;
+                else {
+                  linkedType = OType.getTypeByClass(firstValue.getClass());
+
+                  if (linkedType != OType.LINK)
+                    // EMBEDDED FOR SURE DON'T USE THE LINKED TYPE
+                    linkedType = null;
+                }
+
+                if (type == null)
+                  if (iFieldValue instanceof OMVRBTreeRIDSet)
+                    type = OType.LINKSET;
+                  else if (iFieldValue instanceof Set<?>)
+                    type = OType.EMBEDDEDSET;
+                  else
+                    type = OType.EMBEDDEDLIST;
+              }
+            }
+          } else if (type == null)
+            type = OType.EMBEDDEDLIST;
+
+        if (iFieldValue instanceof ORecordLazyMultiValue && autoConvertLinks) {
+          // REPLACE PREVIOUS SETTINGS
+          ((ORecordLazyMultiValue) iFieldValue).setAutoConvertToRecord(true);
+        }
+
+      } else if (iFieldValue instanceof Map<?, ?> && type == null) {
+        final int size = OMultiValue.getSize(iFieldValue);
+
+        Boolean autoConvertLinks = null;
+        if (iFieldValue instanceof ORecordLazyMap) {
+          autoConvertLinks = ((ORecordLazyMap) iFieldValue).isAutoConvertToRecord();
+          if (autoConvertLinks)
+            // DISABLE AUTO CONVERT
+            ((ORecordLazyMap) iFieldValue).setAutoConvertToRecord(false);
+        }
+
+        if (size > 0) {
+          final Object firstValue = OMultiValue.getFirstValue(iFieldValue);
+
+          if (firstValue != null) {
+            if (ODatabaseRecordThreadLocal.INSTANCE.isDefined()
+                && (firstValue instanceof ODocument && !((ODocument) firstValue).isEmbedded())
+                && (firstValue instanceof ORecord<?> || (ODatabaseRecordThreadLocal.INSTANCE.get().getDatabaseOwner() instanceof ODatabaseObject && ((ODatabaseObject) ODatabaseRecordThreadLocal.INSTANCE
+                    .get().getDatabaseOwner()).getEntityManager().getEntityClass(getClassName(firstValue)) != null))) {
+              linkedClass = getLinkInfo(ODatabaseRecordThreadLocal.INSTANCE.get(), getClassName(firstValue));
+              // LINK: GET THE CLASS
+              linkedType = OType.LINK;
+              type = OType.LINKMAP;
+            }
+          }
+        }
+
+        if (type == null)
+          type = OType.EMBEDDEDMAP;
+
+        if (iFieldValue instanceof ORecordLazyMap && autoConvertLinks)
+          // REPLACE PREVIOUS SETTINGS
+          ((ORecordLazyMap) iFieldValue).setAutoConvertToRecord(true);
+      }
+    }
+
+    if (type == OType.TRANSIENT)
+      // TRANSIENT FIELD
+      return type;
+
+    if (type == null)
+      type = OType.EMBEDDED;
+
+    fieldToStream(iRecord, iOutput, iObjHandler, type, linkedClass, linkedType, iFieldName, iFieldValue, iMarshalledRecords, true);
+    return type;
+  }
+
   private String getClassName(final Object iValue) {
     if (iValue instanceof ORecordSchemaAware<?>)
       return ((ORecordSchemaAware<?>) iValue).getClassName();
@@ -383,8 +399,6 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
       // ONLY THE CLASS NAME HAS BEEN REQUESTED: RETURN NOW WITHOUT UNMARSHALL THE ENTIRE RECORD
       return iRecord;
 
-    final List<String> fields = OStringSerializerHelper.smartSplit(iContent, OStringSerializerHelper.RECORD_SEPARATOR, true);
-
     String fieldName = null;
     String fieldValue;
     OType type;
@@ -393,9 +407,23 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
     OProperty prop;
     final List<String> fieldList = (iFields != null && iFields.length > 0) ? Arrays.asList(iFields) : null;
 
-    // UNMARSHALL ALL THE FIELDS
-    for (String field : fields) {
-      field = field.trim();
+    int fieldsToFind = -1;
+    if (fieldList != null) {
+      fieldsToFind = 0;
+      for (String f : fieldList)
+        if (!f.startsWith("@"))
+          fieldsToFind++;
+    }
+
+    final StringBuilder fieldBuffer = new StringBuilder();
+    int nextField = 0;
+
+    // UNMARSHALL THE FIELDS ONE BY ONE: IN CASE OF PARTIAL UNMARSHALLING STOP ONCE ALL THE REQUESTED FIELDS HAVE BEEN FOUND
+    while (nextField > -1 && fieldsToFind != 0) {
+      fieldBuffer.setLength(0);
+      nextField = OStringSerializerHelper.parse(iContent, fieldBuffer, nextField, -1, FIELD_SEPARATOR, false, true, true);
+
+      final String field = fieldBuffer.toString().trim();
       boolean uncertainType = false;
 
       try {
@@ -404,14 +432,17 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
           // GET THE FIELD NAME
           fieldName = field.substring(0, pos);
 
+          // CHECK IF THE FIELS IS REQUESTED TO BEING UNMARSHALLED
+          if (fieldList != null) {
+            if (!fieldList.contains(fieldName))
+              continue;
+            fieldsToFind--;
+          }
+
           if (record.containsField(fieldName))
             // ALREADY UNMARSHALLED: DON'T OVERWRITE IT
             continue;
 
-          // CHECK IF THE FIELS IS REQUESTED TO BEING UNMARSHALLED
-          if (fieldList != null && !fieldList.contains(fieldName))
-            continue;
-
           // GET THE FIELD VALUE
           fieldValue = field.length() > pos + 1 ? field.substring(pos + 1) : null;
 
@@ -513,6 +544,15 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
     return iRecord;
   }
 
+  @Override
+  public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+    if (ORecordSerializerBinary.isBinary(iSource))
+      // WRITTEN IN BINARY FORMAT
+      return ORecordSerializerBinary.INSTANCE.fromStream(iSource, iRecord, iFields);
+
+    return super.fromStream(iSource, iRecord, iFields);
+  }
+
   @Override
   public byte[] toStream(ORecordInternal<?> iRecord, boolean iOnlyDelta) {
     final byte[] result = super.toStream(iRecord, iOnlyDelta);
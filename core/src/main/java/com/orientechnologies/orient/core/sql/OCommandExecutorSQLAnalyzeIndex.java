@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.command.OCommandDistributedReplicateRequest;
+import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexManager;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * SQL ANALYZE INDEX command: collects the statistics of an index, or of all the indexes, used to choose the indexes of queries.
+ * Returns the collected statistics.
+ */
+public class OCommandExecutorSQLAnalyzeIndex extends OCommandExecutorSQLAbstract implements OCommandDistributedReplicateRequest {
+  public static final String KEYWORD_ANALYZE = "ANALYZE";
+  public static final String KEYWORD_INDEX   = "INDEX";
+
+  private String             name;
+
+  public OCommandExecutorSQLAnalyzeIndex parse(final OCommandRequest iRequest) {
+    init((OCommandRequestText) iRequest);
+
+    final StringBuilder word = new StringBuilder();
+
+    int oldPos = 0;
+    int pos = nextWord(parserText, parserTextUpperCase, oldPos, word, true);
+    if (pos == -1 || !word.toString().equals(KEYWORD_ANALYZE))
+      throw new OCommandSQLParsingException("Keyword " + KEYWORD_ANALYZE + " not found. Use " + getSyntax(), parserText, oldPos);
+
+    oldPos = pos;
+    pos = nextWord(parserText, parserTextUpperCase, pos, word, true);
+    if (pos == -1 || !word.toString().equals(KEYWORD_INDEX))
+      throw new OCommandSQLParsingException("Keyword " + KEYWORD_INDEX + " not found. Use " + getSyntax(), parserText, oldPos);
+
+    oldPos = pos;
+    pos = nextWord(parserText, parserTextUpperCase, oldPos, word, false);
+    if (pos == -1)
+      throw new OCommandSQLParsingException("Expected index name", parserText, oldPos);
+
+    name = word.toString();
+
+    return this;
+  }
+
+  /**
+   * Execute the ANALYZE INDEX.
+   */
+  public Object execute(final Map<Object, Object> iArgs) {
+    if (name == null)
+      throw new OCommandExecutionException("Cannot execute the command because it has not been parsed yet");
+
+    final ODatabaseRecord database = getDatabase();
+    final OIndexManager indexManager = database.getMetadata().getIndexManager();
+
+    final List<ODocument> result = new ArrayList<ODocument>();
+    if (name.equals("*")) {
+      for (OIndex<?> idx : indexManager.getIndexes())
+        result.add(indexManager.analyzeIndex(idx.getName()).toDocument());
+    } else {
+      if (!indexManager.existsIndex(name))
+        throw new OCommandExecutionException("Index '" + name + "' not found");
+
+      result.add(indexManager.analyzeIndex(name).toDocument());
+    }
+
+    return result;
+  }
+
+  @Override
+  public String getSyntax() {
+    return "ANALYZE INDEX <index-name>|*";
+  }
+}
@@ -33,6 +33,11 @@ import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
   protected OCommandExecutorSQLAbstract delegate;
 
+  private OSQLStatementCache            statementCache;
+  private String                        statementText;
+  private int                           statementCacheVersion;
+  private long                          parseTime;
+
   @SuppressWarnings("unchecked")
   public OCommandExecutorSQLDelegate parse(final OCommandRequest iCommand) {
     if (iCommand instanceof OCommandRequestText) {
@@ -40,6 +45,26 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
       final String text = textRequest.getText();
       final String textUpperCase = text.toUpperCase(Locale.ENGLISH);
 
+      if (textUpperCase.trim().startsWith(OCommandExecutorSQLSelect.KEYWORD_SELECT)) {
+        statementCache = OSQLStatementCache.getCache(getDatabase().getStorage());
+        if (statementCache != null) {
+          statementText = text.trim();
+          statementCacheVersion = statementCache.getVersion();
+
+          final OCommandExecutorSQLSelect statement = statementCache.acquire(statementText);
+          if (statement != null) {
+            // EXECUTE THE PARSED STATEMENT AGAIN
+            delegate = statement;
+            delegate.setContext(context);
+            delegate.setProgressListener(progressListener);
+            statement.reuse(iCommand);
+            return this;
+          }
+        }
+      }
+
+      final long beginParsing = System.nanoTime();
+
       delegate = (OCommandExecutorSQLAbstract) OSQLEngine.getInstance().getCommand(textUpperCase);
       if (delegate == null)
         throw new OCommandExecutorNotFoundException("Cannot find a command executor for the command request: " + iCommand);
@@ -48,13 +73,30 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
       delegate.setLimit(iCommand.getLimit());
       delegate.parse(iCommand);
       delegate.setProgressListener(progressListener);
+
+      parseTime = System.nanoTime() - beginParsing;
+
+      if (statementCache != null) {
+        if (delegate instanceof OCommandExecutorSQLSelect && ((OCommandExecutorSQLSelect) delegate).isReusable())
+          statementCache.updateMiss();
+        else
+          statementCache = null;
+      }
     } else
       throw new OCommandExecutionException("Cannot find a command executor for the command request: " + iCommand);
     return this;
   }
 
   public Object execute(final Map<Object, Object> iArgs) {
-    return delegate.execute(iArgs);
+    final Object result = delegate.execute(iArgs);
+
+    if (statementCache != null && ((OCommandExecutorSQLSelect) delegate).isReusable()) {
+      // THE STATEMENT CAN BE EXECUTED AGAIN FOR THE NEXT REQUEST WITH THE SAME TEXT
+      statementCache.release(statementText, (OCommandExecutorSQLSelect) delegate, statementCacheVersion, parseTime);
+      statementCache = null;
+    }
+
+    return result;
   }
 
   @Override
@@ -95,18 +95,24 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
     final OCommandRequestText textRequest = (OCommandRequestText) iRequest;
 
     init(textRequest);
+    bindRequest(textRequest);
+    return this;
+  }
 
+  /**
+   * Assigns the query that receives the results of the request.
+   */
+  protected void bindRequest(final OCommandRequestText iRequest) {
     if (iRequest instanceof OSQLSynchQuery) {
       request = (OSQLSynchQuery<ORecordSchemaAware<?>>) iRequest;
     } else if (iRequest instanceof OSQLAsynchQuery)
       request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
     else {
       // BUILD A QUERY OBJECT FROM THE COMMAND REQUEST
-      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(textRequest.getText());
-      if (textRequest.getResultListener() != null)
-        request.setResultListener(textRequest.getResultListener());
+      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(iRequest.getText());
+      if (iRequest.getResultListener() != null)
+        request.setResultListener(iRequest.getResultListener());
     }
-    return this;
   }
 
   @Override
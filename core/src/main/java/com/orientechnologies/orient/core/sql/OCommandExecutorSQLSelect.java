@@ -26,33 +26,56 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import com.orientechnologies.common.collection.OCompositeKey;
 import com.orientechnologies.common.collection.OMultiCollectionIterator;
 import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.concur.resource.OSharedResource;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OClassTrigger;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORidBitmap;
+import com.orientechnologies.orient.core.index.OClassIndexManager;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexManager;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorClass;
+import com.orientechnologies.orient.core.metadata.function.OFunctionTrigger;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OClassImpl;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
+import com.orientechnologies.orient.core.metadata.security.ORestrictedAccessHook;
 import com.orientechnologies.orient.core.metadata.security.ORole;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
+import com.orientechnologies.orient.core.metadata.security.OUserTrigger;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
+import com.orientechnologies.orient.core.schedule.OSchedulerTrigger;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
@@ -66,6 +89,7 @@ import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator.INDEX_OPERATION_TYPE;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorBetween;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIn;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
@@ -74,6 +98,7 @@ import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
 import com.orientechnologies.orient.core.sql.query.OSQLQuery;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 
 /**
  * Executes the SQL SELECT statement. the parse() method compiles the query and builds the meta information needed by the execute().
@@ -93,6 +118,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   public static final String          KEYWORD_GROUP                     = "GROUP";
   public static final String          KEYWORD_FETCHPLAN                 = "FETCHPLAN";
   private static final int            MIN_THRESHOLD_USE_INDEX_AS_TARGET = 100;
+  private static final int            MAX_GROUP_BY_PARTITION_LEVEL      = 8;
 
   private Map<String, String>         projectionDefinition              = null;
   private Map<String, Object>         projections                       = null;       // THIS HAS BEEN KEPT FOR COMPATIBILITY; BUT
@@ -102,11 +128,20 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private List<OPair<String, String>> orderedFields;
   private List<String>                groupByFields;
   private Map<Object, ORuntimeResult> groupedResult;
+  private OGroupByPartitions          groupByPartitions;
+  private boolean                     groupByStreamed;
+  private int                         groupsSkipped;
+  private int                         groupsReturned;
+  private int                         partitionedRecordsAggregated;
   private Object                      expandTarget;
   private int                         fetchLimit                        = -1;
   private OIdentifiable               lastRecord;
   private Iterator<OIdentifiable>     subIterator;
   private String                      fetchPlan;
+  private List<OPair<String, String>> parsedOrderedFields;
+  private int                         parsedLimit                       = -1;
+  private int                         parsedSkip;
+  private boolean                     reusable;
 
   /**
    * Compile the filter conditions only the first time.
@@ -156,9 +191,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           else if (w.equals(KEYWORD_ORDER))
             parseOrderBy(w);
           else if (w.equals(KEYWORD_LIMIT))
-            parseLimit(w);
+            parsedLimit = parseLimit(w);
           else if (w.equals(KEYWORD_SKIP) || w.equals(KEYWORD_OFFSET))
-            parseSkip(w);
+            parsedSkip = parseSkip(w);
           else if (w.equals(KEYWORD_FETCHPLAN))
             parseFetchplan(w);
           else if (w.equals(KEYWORD_TIMEOUT))
@@ -172,9 +207,77 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
     }
 
+    if (orderedFields != null)
+      parsedOrderedFields = new ArrayList<OPair<String, String>>(orderedFields);
+    reusable = checkReusable();
+
     return this;
   }
 
+  /**
+   * Tells if the parsed statement can be executed again for another request with the same text, see {@link OSQLStatementCache}.
+   * Only the statements that keep no state of the previous execution out of the fields reset by {@link #reuse(OCommandRequest)}
+   * can: no aggregation, grouping, expansion or LET, and the target is a set of classes or clusters.
+   */
+  public boolean isReusable() {
+    return reusable;
+  }
+
+  /**
+   * Prepares the statement parsed by a previous request to execute the request, without parsing the text again. The indexes to use
+   * are chosen again by the execution, because they depend on the parameters.
+   */
+  public OCommandExecutorSQLSelect reuse(final OCommandRequest iRequest) {
+    final OCommandRequestText textRequest = (OCommandRequestText) iRequest;
+
+    init(textRequest);
+    bindRequest(textRequest);
+
+    if (context == null)
+      context = new OBasicCommandContext();
+
+    if (fetchPlan != null)
+      request.setFetchPlan(fetchPlan);
+
+    limit = parsedLimit > -1 ? parsedLimit : iRequest.getLimit();
+    skip = parsedSkip;
+    orderedFields = parsedOrderedFields != null ? new ArrayList<OPair<String, String>>(parsedOrderedFields) : null;
+
+    parameters = null;
+    target = null;
+    tempResult = null;
+    resultCount = 0;
+    fetchLimit = -1;
+    lastRecord = null;
+    subIterator = null;
+    groupByPartitions = null;
+    groupByStreamed = false;
+    groupsSkipped = 0;
+    groupsReturned = 0;
+    partitionedRecordsAggregated = 0;
+
+    if (compiledFilter != null)
+      compiledFilter.resetParameters();
+
+    return this;
+  }
+
+  private boolean checkReusable() {
+    if (groupedResult != null || expandTarget != null || let != null || parsedTarget == null)
+      return false;
+
+    if (parsedTarget.getTargetClasses() == null && parsedTarget.getTargetClusters() == null || parsedTarget.getTargetRecords() != null
+        || parsedTarget.getTargetVariable() != null || parsedTarget.getTargetIndex() != null)
+      return false;
+
+    if (projections != null)
+      for (Object projection : projections.values())
+        if (projection instanceof OSQLFunctionRuntime)
+          return false;
+
+    return true;
+  }
+
   /**
    * Determine clusters that are used in select operation
    * 
@@ -215,6 +318,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
    * @return this
    */
   public OCommandExecutorSQLSelect boundToLocalNode(long fromId, long toId) {
+    // THE CONDITION IS NOT PART OF THE TEXT
+    reusable = false;
+
     if (fromId == toId) {
       // single node in dht
       return this;
@@ -291,6 +397,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         applyOrderBy();
 
         subIterator = new ArrayList<OIdentifiable>((List<OIdentifiable>) getResult()).iterator();
+        closeSortedResult();
         lastRecord = null;
         tempResult = null;
         groupedResult = null;
@@ -339,6 +446,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       }
       return getResult();
     } finally {
+      closeSortedResult();
+
       if (request.getResultListener() != null)
         request.getResultListener().end();
     }
@@ -359,13 +468,20 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long startFetching = System.currentTimeMillis();
     try {
 
-      // BROWSE ALL THE RECORDS
-      while (target.hasNext())
-        if (!executeSearchRecord(target.next()))
-          break;
+      if (target instanceof OParallelClusterScan)
+        fetchFromParallelScan((OParallelClusterScan) target);
+      else
+        // BROWSE ALL THE RECORDS
+        while (target.hasNext())
+          if (!executeSearchRecord(target.next()))
+            break;
 
     } finally {
       context.setVariable("fetchingFromTargetElapsed", (System.currentTimeMillis() - startFetching));
+
+      if (context.getVariable("estimatedRows") != null && context.getVariable("actualRows") == null)
+        // THE CLASS HAS BEEN BROWSED INSTEAD OF USING AN INDEX
+        context.setVariable("actualRows", context.getVariable("recordReads"));
     }
   }
 
@@ -409,7 +525,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   protected boolean handleResult(final OIdentifiable iRecord, final boolean iCloneIt) {
     lastRecord = null;
 
-    if (orderedFields == null && skip > 0) {
+    // WITH GROUP BY SKIP AND LIMIT APPLY TO THE GROUPS
+    if (orderedFields == null && groupByFields == null && skip > 0) {
       skip--;
       return true;
     }
@@ -425,7 +542,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (!result)
       return false;
 
-    if (orderedFields == null && !isAnyFunctionAggregates() && fetchLimit > -1 && resultCount >= fetchLimit)
+    if (orderedFields == null && groupByFields == null && !isAnyFunctionAggregates() && fetchLimit > -1
+        && resultCount >= fetchLimit)
       // BREAK THE EXECUTION
       return false;
 
@@ -444,32 +562,14 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           return true;
       } else {
         // AGGREGATION/GROUP BY
-        final ODocument doc = (ODocument) iRecord.getRecord();
-        Object fieldValue = null;
-        if (groupByFields != null && !groupByFields.isEmpty()) {
-          if (groupByFields.size() > 1) {
-            // MULTI-FIELD FROUP BY
-            final Object[] fields = new Object[groupByFields.size()];
-            for (int i = 0; i < groupByFields.size(); ++i) {
-              final String field = groupByFields.get(i);
-              if (field.startsWith("$"))
-                fields[i] = context.getVariable(field);
-              else
-                fields[i] = doc.field(field);
-            }
-            fieldValue = fields;
-          } else {
-            final String field = groupByFields.get(0);
-            if (field != null) {
-              if (field.startsWith("$"))
-                fieldValue = context.getVariable(field);
-              else
-                fieldValue = doc.field(field);
-            }
-          }
-        }
+        final Object fieldValue = getGroupByValue((ODocument) iRecord.getRecord());
+
+        if (groupByStreamed && fieldValue != null && !groupedResult.containsKey(getGroupKey(fieldValue)))
+          // THE RECORDS ARE BROWSED IN THE ORDER OF THE GROUPS: THE PREVIOUS GROUP IS COMPLETE
+          if (!returnGroups())
+            return false;
 
-        getProjectionGroup(fieldValue).applyRecord(iRecord);
+        aggregateRecord(iRecord, fieldValue, 0);
         return true;
       }
     }
@@ -480,9 +580,17 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (request.getResultListener() != null)
         result = request.getResultListener().result(iRecord);
 
-    } else {
+    } else if (expandTarget == null) {
 
       // COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
+      if (tempResult == null)
+        tempResult = new OSortedResultCollector(new ODocumentComparator(new ArrayList<OPair<String, String>>(orderedFields)),
+            skip, limit, OGlobalConfiguration.QUERY_ORDER_BY_MAX_RECORDS_IN_MEMORY.getValueAsInteger());
+      ((OSortedResultCollector) tempResult).add(iRecord);
+
+    } else {
+
+      // COLLECT ALL THE RECORDS TO EXPAND THEM AT THE END
       if (tempResult == null)
         tempResult = new ArrayList<OIdentifiable>();
       ((Collection<OIdentifiable>) tempResult).add(iRecord);
@@ -498,34 +606,15 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long begin = System.currentTimeMillis();
     try {
 
-      Object key = null;
       if (groupedResult == null)
         groupedResult = new LinkedHashMap<Object, ORuntimeResult>();
 
-      if (fieldValue != null) {
-        if (fieldValue.getClass().isArray()) {
-          // LOOK IT BY HASH (FASTER THAN COMPARE EACH SINGLE VALUE)
-          final Object[] array = (Object[]) fieldValue;
-
-          final StringBuilder keyArray = new StringBuilder();
-          for (Object o : array) {
-            if (keyArray.length() > 0)
-              keyArray.append(",");
-            if (o != null)
-              keyArray.append(o instanceof OIdentifiable ? ((OIdentifiable) o).getIdentity().toString() : o.toString());
-            else
-              keyArray.append("null");
-          }
-
-          key = keyArray.toString();
-        } else
-          // LOKUP FOR THE FIELD
-          key = fieldValue;
-      }
-
+      final Object key = getGroupKey(fieldValue);
       group = groupedResult.get(key);
       if (group == null) {
-        group = new ORuntimeResult(fieldValue, createProjectionFromDefinition(), resultCount, context);
+        // THE GROUPS OF THE PARTITIONS ARE CREATED AFTER THE BROWSING: THEIR PROGRESSIVE FOLLOWS THE LAST RESULT
+        group = new ORuntimeResult(fieldValue, createProjectionFromDefinition(), resultCount + partitionedRecordsAggregated,
+            context);
         groupedResult.put(key, group);
       }
       return group;
@@ -534,11 +623,106 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  /**
+   * Returns the value of the GROUP BY fields in the record, as array if they are more than one.
+   */
+  private Object getGroupByValue(final ODocument iRecord) {
+    if (groupByFields == null || groupByFields.isEmpty())
+      return null;
+
+    if (groupByFields.size() > 1) {
+      // MULTI-FIELD FROUP BY
+      final Object[] fields = new Object[groupByFields.size()];
+      for (int i = 0; i < groupByFields.size(); ++i) {
+        final String field = groupByFields.get(i);
+        if (field.startsWith("$"))
+          fields[i] = context.getVariable(field);
+        else
+          fields[i] = iRecord.field(field);
+      }
+      return fields;
+    }
+
+    final String field = groupByFields.get(0);
+    if (field == null)
+      return null;
+
+    if (field.startsWith("$"))
+      return context.getVariable(field);
+    return iRecord.field(field);
+  }
+
+  private static Object getGroupKey(final Object iFieldValue) {
+    if (iFieldValue == null || !iFieldValue.getClass().isArray())
+      // LOKUP FOR THE FIELD
+      return iFieldValue;
+
+    // LOOK IT BY HASH (FASTER THAN COMPARE EACH SINGLE VALUE)
+    final Object[] array = (Object[]) iFieldValue;
+
+    final StringBuilder keyArray = new StringBuilder();
+    for (Object o : array) {
+      if (keyArray.length() > 0)
+        keyArray.append(",");
+      if (o != null)
+        keyArray.append(o instanceof OIdentifiable ? ((OIdentifiable) o).getIdentity().toString() : o.toString());
+      else
+        keyArray.append("null");
+    }
+
+    return keyArray.toString();
+  }
+
+  /**
+   * Applies the record to its group. When the groups in memory are already the maximum allowed, the records of the other groups
+   * are written in the partitions of the level, to be aggregated once the groups in memory have been returned.
+   */
+  private void aggregateRecord(final OIdentifiable iRecord, final Object iFieldValue, final int iLevel) {
+    if (groupedResult != null && isGroupByFull(iLevel)) {
+      final Object key = getGroupKey(iFieldValue);
+      if (!groupedResult.containsKey(key)) {
+        if (groupByPartitions == null)
+          groupByPartitions = new OGroupByPartitions(iLevel);
+        groupByPartitions.add(key, iRecord);
+
+        context.updateMetric("groupByPartitionedRecords", +1);
+        return;
+      }
+    }
+
+    getProjectionGroup(iFieldValue).applyRecord(iRecord);
+  }
+
+  private boolean isGroupByFull(final int iLevel) {
+    if (groupByFields == null || groupByStreamed || iLevel > MAX_GROUP_BY_PARTITION_LEVEL)
+      return false;
+
+    final int maxGroups = OGlobalConfiguration.QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY.getValueAsInteger();
+    if (maxGroups < 0 || groupedResult.size() < maxGroups)
+      return false;
+
+    // THE PARTITIONED RECORDS ARE AGGREGATED AFTER THE BROWSING, WHEN THE VARIABLES REFER TO OTHER RECORDS
+    if (let != null && !let.isEmpty())
+      return false;
+    for (String field : groupByFields)
+      if (field.startsWith("$"))
+        return false;
+
+    return true;
+  }
+
   private int getQueryFetchLimit() {
     if (orderedFields != null) {
       return -1;
     }
 
+    return getRequestedLimit();
+  }
+
+  /**
+   * Returns the lowest between the limit of the query and the one of the request, -1 if none is set.
+   */
+  private int getRequestedLimit() {
     final int sqlLimit;
     final int requestLimit;
 
@@ -627,11 +811,400 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   protected void searchInClasses() {
     final OClass cls = parsedTarget.getTargetClasses().keySet().iterator().next();
 
-    if (searchForIndexes(cls)) {
+    if (searchInIndexOrder(cls)) {
+    } else if (searchInGroupOrder(cls)) {
+    } else if (searchForIndexes(cls)) {
+    } else if (searchInParallel(cls)) {
     } else
       super.searchInClasses();
   }
 
+  /**
+   * Browses the index of the ORDER BY field in the requested order instead of sorting the result: the browsing stops as soon as
+   * the records of SKIP and LIMIT have been found. Conditions on the same field in AND with the rest of the filter restrict the
+   * browsed keys, the whole filter is still evaluated on every browsed record.
+   *
+   * @return <code>true</code> if the target has been assigned to the browsing of the index.
+   */
+  private boolean searchInIndexOrder(final OClass iSchemaClass) {
+    if (orderedFields == null || orderedFields.size() != 1 || groupByFields != null || expandTarget != null
+        || isAnyFunctionAggregates())
+      return false;
+
+    final OPair<String, String> orderField = orderedFields.get(0);
+    final boolean ascending = !orderField.getValue().equalsIgnoreCase(KEYWORD_DESC);
+
+    final OIndex<?> index = getOrderIndex(iSchemaClass, orderField.getKey());
+    if (index == null)
+      return false;
+
+    final int requestedLimit = getRequestedLimit();
+    final KeyRange range = new KeyRange();
+    if (compiledFilter != null && compiledFilter.getRootCondition() != null) {
+      collectKeyRange(compiledFilter.getRootCondition(), orderField.getKey(), index.getDefinition(), range);
+
+      if (!range.bounded && !(index.getType().startsWith("UNIQUE") && index.getKeySize() < MIN_THRESHOLD_USE_INDEX_AS_TARGET)) {
+        // RECORDS WITHOUT THE FIELD ARE NOT INDEXED: THEY COME FIRST IN ASCENDING ORDER AND ARE BROWSED AFTER THE INDEX IN
+        // DESCENDING ORDER, WHEN LESS THAN LIMIT RECORDS HAVE BEEN FOUND
+        if (ascending || requestedLimit < 0)
+          return false;
+      }
+
+      if (requestedLimit > -1 && !isIndexOrderCheaper(iSchemaClass, index, requestedLimit + skip))
+        return false;
+    }
+
+    getDatabase().checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, iSchemaClass.getName().toLowerCase());
+
+    final int batchSize = requestedLimit > -1 ? requestedLimit + skip : OIndexOrderedCursor.DEFAULT_BATCH_SIZE;
+    final Iterator<OIdentifiable> cursor = ascending ? new OIndexOrderedCursor(index, true, range.from, range.fromInclusive,
+        range.to, range.toInclusive, batchSize) : new OIndexOrderedCursor(index, false, range.to, range.toInclusive, range.from,
+        range.fromInclusive, batchSize);
+
+    if (ascending || range.bounded || compiledFilter == null || compiledFilter.getRootCondition() == null)
+      target = cursor;
+    else
+      target = new OMultiCollectionIterator<OIdentifiable>().add(cursor).add(
+          new NullFieldIterator(new ORecordIteratorClass<ORecordInternal<?>>(getDatabase(), (ODatabaseRecordAbstract) getDatabase(),
+              iSchemaClass.getName(), true, request.isUseCache(), false), orderField.getKey()));
+
+    if (context.isRecordingMetrics()) {
+      getInvolvedIndexNames().add(index.getName());
+      context.setVariable("orderedByIndex", true);
+    }
+
+    orderedFields = null;
+    fetchLimit = getQueryFetchLimit();
+    return true;
+  }
+
+  /**
+   * Browses the index of the GROUP BY field in the order of its keys: the records of a group are contiguous, so every group is
+   * returned as soon as the browsing reaches the next one and only one group is kept in memory. The browsing stops as soon as the
+   * groups of SKIP and LIMIT have been returned.
+   *
+   * @return <code>true</code> if the target has been assigned to the browsing of the index.
+   */
+  private boolean searchInGroupOrder(final OClass iSchemaClass) {
+    if (groupByFields == null || groupByFields.size() != 1 || expandTarget != null)
+      return false;
+
+    final String groupField = groupByFields.get(0);
+
+    boolean ascending = true;
+    if (orderedFields != null) {
+      // THE GROUPS CAN BE ORDERED ONLY BY THE GROUP BY FIELD ITSELF
+      if (orderedFields.size() != 1 || !orderedFields.get(0).getKey().equals(groupField) || !isFieldProjection(groupField))
+        return false;
+      ascending = !orderedFields.get(0).getValue().equalsIgnoreCase(KEYWORD_DESC);
+    }
+
+    final OIndex<?> index = getOrderIndex(iSchemaClass, groupField);
+    // EQUAL KEYS OF A COLLATED INDEX CAN HOLD DIFFERENT GROUPS
+    if (index == null || !(index.getDefinition().getCollate() instanceof ODefaultCollate))
+      return false;
+
+    final KeyRange range = new KeyRange();
+    if (compiledFilter != null && compiledFilter.getRootCondition() != null) {
+      collectKeyRange(compiledFilter.getRootCondition(), groupField, index.getDefinition(), range);
+
+      // BROWSING THE WHOLE INDEX IS PREFERRED ONLY WHEN NO INDEX CAN SERVE THE FILTER
+      if (!range.bounded && !collectOtherIndexCandidates(iSchemaClass, index).isEmpty())
+        return false;
+    }
+
+    getDatabase().checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, iSchemaClass.getName().toLowerCase());
+
+    // RECORDS WITHOUT THE FIELD ARE NOT INDEXED, THEIR GROUP IS NOT RETURNED ANYWAY
+    target = ascending ? new OIndexOrderedCursor(index, true, range.from, range.fromInclusive, range.to, range.toInclusive,
+        OIndexOrderedCursor.DEFAULT_BATCH_SIZE) : new OIndexOrderedCursor(index, false, range.to, range.toInclusive, range.from,
+        range.fromInclusive, OIndexOrderedCursor.DEFAULT_BATCH_SIZE);
+
+    if (context.isRecordingMetrics()) {
+      getInvolvedIndexNames().add(index.getName());
+      context.setVariable("groupByStreamed", true);
+    }
+
+    groupByStreamed = true;
+    orderedFields = null;
+    return true;
+  }
+
+  /**
+   * Tells whether the projection of the field is the field itself.
+   */
+  private boolean isFieldProjection(final String iField) {
+    if (projections == null)
+      return false;
+
+    final Object projection = projections.get(iField);
+    return projection instanceof OSQLFilterItemField && !((OSQLFilterItemField) projection).hasChainOperators()
+        && iField.equals(((OSQLFilterItemField) projection).getRoot());
+  }
+
+  /**
+   * Returns the index whose keys are the values of the field, in an order that can be browsed.
+   */
+  private static OIndex<?> getOrderIndex(final OClass iSchemaClass, final String iField) {
+    if (iSchemaClass.getProperty(iField) == null)
+      return null;
+
+    final Set<OIndex<?>> involvedIndexes = iSchemaClass.getInvolvedIndexes(iField);
+    if (involvedIndexes == null)
+      return null;
+
+    for (OIndex<?> index : involvedIndexes)
+      if (index.getKeyTypes().length == 1 && index.supportsOrderedIterations() && !index.isRebuiding()
+          && !(index.getDefinition() instanceof OIndexDefinitionMultiValue))
+        return index;
+
+    return null;
+  }
+
+  /**
+   * Restricts the range of keys with the conditions on the field that are in AND with the rest of the condition.
+   */
+  private static void collectKeyRange(OSQLFilterCondition iCondition, final String iField,
+      final OIndexDefinition iIndexDefinition, final KeyRange iRange) {
+    while (iCondition.getOperator() == null) {
+      if (iCondition.getRight() == null && iCondition.getLeft() instanceof OSQLFilterCondition)
+        iCondition = (OSQLFilterCondition) iCondition.getLeft();
+      else
+        return;
+    }
+
+    final OQueryOperator operator = iCondition.getOperator();
+    if (operator instanceof OQueryOperatorAnd) {
+      if (iCondition.getLeft() instanceof OSQLFilterCondition)
+        collectKeyRange((OSQLFilterCondition) iCondition.getLeft(), iField, iIndexDefinition, iRange);
+      if (iCondition.getRight() instanceof OSQLFilterCondition)
+        collectKeyRange((OSQLFilterCondition) iCondition.getRight(), iField, iIndexDefinition, iRange);
+      return;
+    }
+
+    if (!(iCondition.getLeft() instanceof OSQLFilterItemField) || iCondition.getRight() instanceof OSQLFilterItemField)
+      return;
+
+    final OSQLFilterItemField field = (OSQLFilterItemField) iCondition.getLeft();
+    if (field.hasChainOperators() || !iField.equals(field.getRoot()))
+      return;
+
+    if (operator instanceof OQueryOperatorBetween) {
+      if (!(iCondition.getRight() instanceof Object[]))
+        return;
+
+      final Object[] betweenKeys = (Object[]) iCondition.getRight();
+      iRange.restrictFrom(getRangeKey(iIndexDefinition, betweenKeys[0]), true);
+      iRange.restrictTo(getRangeKey(iIndexDefinition, betweenKeys[2]), true);
+      return;
+    }
+
+    final Object key = getRangeKey(iIndexDefinition, iCondition.getRight());
+    if (operator instanceof OQueryOperatorEquals) {
+      iRange.restrictFrom(key, true);
+      iRange.restrictTo(key, true);
+    } else if (operator instanceof OQueryOperatorMajor)
+      iRange.restrictFrom(key, false);
+    else if (operator instanceof OQueryOperatorMajorEquals)
+      iRange.restrictFrom(key, true);
+    else if (operator instanceof OQueryOperatorMinor)
+      iRange.restrictTo(key, false);
+    else if (operator instanceof OQueryOperatorMinorEquals)
+      iRange.restrictTo(key, true);
+  }
+
+  /**
+   * Converts the value of a condition to a key of the index, as it is stored.
+   *
+   * @return the key or <code>null</code> if the value cannot be converted.
+   */
+  private static Object getRangeKey(final OIndexDefinition iIndexDefinition, final Object iValue) {
+    try {
+      final Object key = iIndexDefinition.createValue(OSQLHelper.getValue(iValue));
+      if (key == null)
+        return null;
+
+      return iIndexDefinition.getCollate().transform(key);
+    } catch (RuntimeException e) {
+      // NOT A KEY OF THE INDEX: THE FILTER WILL TELL
+      return null;
+    }
+  }
+
+  /**
+   * Tells whether browsing the index in order is estimated to read less records than the most selective of the other indexes of
+   * the filter, whose result would be sorted. Browsing is chosen when there are no other indexes, the other indexes are kept when
+   * their records cannot be estimated.
+   */
+  private boolean isIndexOrderCheaper(final OClass iSchemaClass, final OIndex<?> iOrderIndex, final int iRecordsToFind) {
+    final List<IndexCandidate> candidates = collectOtherIndexCandidates(iSchemaClass, iOrderIndex);
+    if (candidates.isEmpty())
+      return true;
+
+    if (!estimateIndexCandidates(candidates))
+      return false;
+
+    // THE FILTER IS SUPPOSED TO MATCH AS MANY RECORDS AS THE MOST SELECTIVE INDEX, SPREAD ALONG THE BROWSED INDEX
+    final long indexRows = candidates.get(0).estimatedRows;
+    final long browsedRows = indexRows == 0 ? Long.MAX_VALUE : (long) iRecordsToFind * iSchemaClass.count() / indexRows;
+    return browsedRows < indexRows;
+  }
+
+  /**
+   * Returns the indexes that can serve the filter, but the one passed.
+   */
+  private List<IndexCandidate> collectOtherIndexCandidates(final OClass iSchemaClass, final OIndex<?> iIndex) {
+    final List<OIndexSearchResult> indexSearchResults = new ArrayList<OIndexSearchResult>();
+    analyzeQueryBranch(iSchemaClass, compiledFilter.getRootCondition(), indexSearchResults);
+
+    final List<IndexCandidate> candidates = collectIndexCandidates(iSchemaClass, indexSearchResults);
+    for (Iterator<IndexCandidate> it = candidates.iterator(); it.hasNext();)
+      if (it.next().index.getName().equals(iIndex.getName()))
+        it.remove();
+    return candidates;
+  }
+
+  /**
+   * Scans the clusters of the class with the threads of {@link OParallelClusterScan}, if enabled and if the filter can be evaluated
+   * out of the thread of the database. The records that match are returned in the order of a scan made by this thread. A query that
+   * only counts, sums or finds the minimum or the maximum aggregates every range of the clusters in its thread.
+   */
+  private boolean searchInParallel(final OClass iSchemaClass) {
+    if (!OGlobalConfiguration.QUERY_PARALLEL_SCAN.getValueAsBoolean())
+      return false;
+
+    final ODatabaseRecord database = getDatabase();
+    if (!(database.getStorage() instanceof OStorageEmbedded) || database.getTransaction().isActive())
+      // THE RECORDS CHANGED IN THE TRANSACTION ARE NOT IN THE STORAGE
+      return false;
+
+    if (let != null || expandTarget != null)
+      return false;
+
+    if (compiledFilter != null && !OParallelClusterScan.isThreadSafe(compiledFilter.getRootCondition()))
+      return false;
+
+    final ORID[] range = getRange();
+    if (range[0] != null || range[1] != null)
+      return false;
+
+    database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, iSchemaClass.getName().toLowerCase());
+
+    final int[] clusterIds = OClassImpl.readableClusters(database, iSchemaClass.getPolymorphicClusterIds());
+    if (database.countClusterElements(clusterIds) < OGlobalConfiguration.QUERY_PARALLEL_SCAN_MIN_RECORDS.getValueAsLong())
+      return false;
+
+    final Callable<Map<String, Object>> projectionFactory;
+    if (isParallelAggregation() && !hasReadHooks(database, iSchemaClass))
+      projectionFactory = new Callable<Map<String, Object>>() {
+        @Override
+        public Map<String, Object> call() {
+          return createProjectionFromDefinition();
+        }
+      };
+    else
+      projectionFactory = null;
+
+    target = new OParallelClusterScan(database, clusterIds, compiledFilter, context, projectionFactory);
+    context.setVariable("parallelScan", true);
+    return true;
+  }
+
+  /**
+   * Tells if the projections can be aggregated by range and merged: only COUNT, SUM, MIN and MAX of the fields of the records.
+   */
+  private boolean isParallelAggregation() {
+    if (groupedResult == null || groupByFields != null || projections == null || projections.isEmpty())
+      return false;
+
+    for (Object projection : projections.values()) {
+      if (!(projection instanceof OSQLFunctionRuntime))
+        return false;
+
+      final OSQLFunctionRuntime f = (OSQLFunctionRuntime) projection;
+      final String name = f.getFunction().getName();
+      if (!f.aggregateResults() || !f.getFunction().shouldMergeDistributedResult()
+          || !(name.equals("count") || name.equals("sum") || name.equals("min") || name.equals("max")))
+        return false;
+
+      for (Object parameter : f.getConfiguredParameters())
+        if (!OParallelClusterScan.isThreadSafe(parameter))
+          return false;
+    }
+    return true;
+  }
+
+  /**
+   * Tells if a read hook can skip or change the records of the class or of its subclasses: the threads of the scan aggregate the
+   * records without calling the hooks, so the records are returned to this thread in that case.
+   */
+  private static boolean hasReadHooks(final ODatabaseRecord iDatabase, final OClass iSchemaClass) {
+    for (ORecordHook hook : iDatabase.getHooks())
+      if (!(hook instanceof OClassTrigger || hook instanceof ORestrictedAccessHook || hook instanceof OUserTrigger
+          || hook instanceof OFunctionTrigger || hook instanceof OClassIndexManager || hook instanceof OSchedulerTrigger))
+        // UNKNOWN HOOK: IT COULD BE CALLED ON READ
+        return true;
+
+    return isHookedOnRead(iSchemaClass);
+  }
+
+  private static boolean isHookedOnRead(final OClass iSchemaClass) {
+    if (iSchemaClass.isSubClassOf(OSecurityShared.RESTRICTED_CLASSNAME) || iSchemaClass.isSubClassOf(OClassTrigger.CLASSNAME))
+      return true;
+
+    for (Iterator<OClass> it = iSchemaClass.getBaseClasses(); it.hasNext();)
+      if (isHookedOnRead(it.next()))
+        return true;
+
+    return false;
+  }
+
+  private void fetchFromParallelScan(final OParallelClusterScan iScan) {
+    final ODatabaseRecord database = getDatabase();
+    try {
+      while (iScan.hasNext()) {
+        if (Thread.interrupted())
+          throw new OCommandExecutionException("The select execution has been interrupted");
+
+        if (!context.checkTimeout())
+          return;
+
+        // THE HOOKS ARE CALLED BY THE THREAD OF THE DATABASE, ONCE THE RECORD HAS BEEN FILTERED
+        final ODocument record = (ODocument) iScan.next();
+        if (database.callbackHooks(ORecordHook.TYPE.BEFORE_READ, record) == ORecordHook.RESULT.SKIP)
+          continue;
+        database.callbackHooks(ORecordHook.TYPE.AFTER_READ, record);
+
+        context.setVariable("current", record);
+        if (!handleResult(record, false))
+          // END OF EXECUTION
+          return;
+      }
+
+      if (iScan.getPartialProjections() != null)
+        mergePartialProjections(iScan.getPartialProjections());
+    } finally {
+      iScan.close();
+    }
+  }
+
+  private void mergePartialProjections(final List<Map<String, Object>> iPartialProjections) {
+    final ORuntimeResult group = getProjectionGroup(null);
+
+    for (Entry<String, Object> projection : projections.entrySet()) {
+      final List<Object> results = new ArrayList<Object>(iPartialProjections.size());
+      for (Map<String, Object> partialProjections : iPartialProjections) {
+        final Object result = ((OSQLFunctionRuntime) partialProjections.get(projection.getKey())).getResult();
+        if (result != null)
+          results.add(result);
+      }
+
+      if (!results.isEmpty())
+        group.applyValue(projection.getKey(), ((OSQLFunctionRuntime) projection.getValue()).getFunction()
+            .mergeDistributedResult(results));
+    }
+  }
+
   @SuppressWarnings("rawtypes")
   private boolean searchForIndexes(final OClass iSchemaClass) {
     final ODatabaseRecord database = getDatabase();
@@ -654,6 +1227,104 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       }
     });
 
+    final List<IndexCandidate> candidates = collectIndexCandidates(iSchemaClass, indexSearchResults);
+    final long maxIndexRows = getMaxIndexRows(iSchemaClass);
+
+    // AN INDEX ON SEVERAL FIELDS OF THE CONDITION IS PREFERRED TO THE COMBINATION OF SEVERAL INDEXES
+    if (candidates.isEmpty() || candidates.get(0).fieldCount == 1) {
+      final OIndexCombination combination = planIndexCombination(iSchemaClass, compiledFilter.getRootCondition(), maxIndexRows);
+      if (combination != null && combination.getIndexCount() > 1 && searchByIndexCombination(combination))
+        return true;
+    }
+
+    if (estimateIndexCandidates(candidates) && candidates.get(0).estimatedRows > maxIndexRows) {
+      // BROWSING THE CLASS IS CHEAPER THAN USING ANY INDEX
+      if (context.isRecordingMetrics())
+        context.setVariable("estimatedRows", iSchemaClass.count());
+      return false;
+    }
+
+    for (final IndexCandidate candidate : candidates) {
+      final OIndex index = candidate.index;
+      final OQueryOperator operator = candidate.operator;
+      final List<Object> keyParams = candidate.keyParams;
+
+      INDEX_OPERATION_TYPE opType = null;
+
+      if (context.isRecordingMetrics()) {
+        final Set<String> idxNames = getInvolvedIndexNames();
+        if (index instanceof OChainedIndexProxy) {
+          idxNames.addAll(((OChainedIndexProxy) index).getIndexNames());
+        } else
+          idxNames.add(index.getName());
+      }
+
+      if (projections != null && projections.size() == 1) {
+        final Object v = projections.values().iterator().next();
+        if (v instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) v).getFunction() instanceof OSQLFunctionCount) {
+          if (!(compiledFilter.getRootCondition().getLeft() instanceof OSQLFilterCondition || compiledFilter.getRootCondition()
+              .getRight() instanceof OSQLFilterCondition))
+            // OPTIMIZATION: JUST COUNT IT
+            opType = INDEX_OPERATION_TYPE.COUNT;
+        }
+      }
+
+      if (opType == null)
+        opType = INDEX_OPERATION_TYPE.GET;
+
+      OQueryOperator.IndexResultListener resultListener;
+      if (fetchLimit < 0 || opType == INDEX_OPERATION_TYPE.COUNT)
+        resultListener = null;
+      else
+        resultListener = new IndexResultListener();
+
+      Object result;
+      try {
+        result = operator.executeIndexQuery(context, index, opType, keyParams, resultListener, fetchLimit);
+      } catch (Exception e) {
+        OLogManager
+            .instance()
+            .error(
+                this,
+                "Error on using index %s in query '%s'. Probably you need to rebuild indexes. Now executing query using cluster scan",
+                e, index.getName(), request != null && request.getText() != null ? request.getText() : "");
+
+        return false;
+      }
+
+      if (result == null)
+        continue;
+
+      if (context.isRecordingMetrics() && candidate.estimatedRows > -1) {
+        context.setVariable("estimatedRows", candidate.estimatedRows);
+        if (result instanceof Number)
+          context.setVariable("actualRows", ((Number) result).longValue());
+        else
+          context.setVariable("actualRows", result instanceof Collection<?> ? (long) ((Collection<?>) result).size() : 1L);
+      }
+
+      if (opType == INDEX_OPERATION_TYPE.COUNT) {
+        // OPTIMIZATION: EMBED THE RESULT IN A DOCUMENT AND AVOID THE CLASSIC PATH
+        final String projName = projectionDefinition.keySet().iterator().next();
+        projectionDefinition.clear();
+        getProjectionGroup(null).applyValue(projName, result);
+      } else
+        fillSearchIndexResultSet(result);
+
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Collects the indexes that can be used to evaluate the query subsets, with the parameters of their index query. Collection
+   * stops at the first subset that contains a sub query.
+   */
+  @SuppressWarnings("rawtypes")
+  private static List<IndexCandidate> collectIndexCandidates(final OClass iSchemaClass,
+      final List<OIndexSearchResult> indexSearchResults) {
+    final List<IndexCandidate> candidates = new ArrayList<IndexCandidate>();
+
     // go through all variants to choose which one can be used for index search.
     for (final OIndexSearchResult searchResult : indexSearchResults) {
       final List<OIndex<?>> involvedIndexes = getInvolvedIndexes(iSchemaClass, searchResult);
@@ -682,80 +1353,182 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
         for (final String fieldName : indexDefinition.getFields().subList(0, searchResultFieldsCount)) {
           final Object fieldValue = searchResult.fieldValuePairs.get(fieldName);
           if (fieldValue instanceof OSQLQuery<?>)
-            return false;
+            return candidates;
 
           if (fieldValue != null)
             keyParams.add(fieldValue);
           else {
             if (searchResult.lastValue instanceof OSQLQuery<?>)
-              return false;
+              return candidates;
 
             keyParams.add(searchResult.lastValue);
           }
         }
 
-        INDEX_OPERATION_TYPE opType = null;
+        candidates.add(new IndexCandidate(index, operator, keyParams, searchResult.getFieldCount()));
+      }
+    }
+
+    return candidates;
+  }
 
-        if (context.isRecordingMetrics()) {
-          Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
-          if (idxNames == null) {
-            idxNames = new HashSet<String>();
-            context.setVariable("involvedIndexes", idxNames);
-          }
-          if (index instanceof OChainedIndexProxy) {
-            idxNames.addAll(((OChainedIndexProxy) index).getIndexNames());
-          } else
-            idxNames.add(index.getName());
-        }
+  /**
+   * Searches the records of the condition combining the records returned by the indexes of its sub conditions.
+   * 
+   * @return <code>false</code> if an index cannot evaluate its sub condition.
+   */
+  private boolean searchByIndexCombination(final OIndexCombination combination) {
+    final ORidBitmap result;
+    try {
+      result = combination.execute(context);
+    } catch (Exception e) {
+      OLogManager.instance().error(this,
+          "Error on combining indexes in query '%s'. Probably you need to rebuild indexes. Now executing query using one index", e,
+          request != null && request.getText() != null ? request.getText() : "");
 
-        if (projections != null && projections.size() == 1) {
-          final Object v = projections.values().iterator().next();
-          if (v instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) v).getFunction() instanceof OSQLFunctionCount) {
-            if (!(compiledFilter.getRootCondition().getLeft() instanceof OSQLFilterCondition || compiledFilter.getRootCondition()
-                .getRight() instanceof OSQLFilterCondition))
-              // OPTIMIZATION: JUST COUNT IT
-              opType = INDEX_OPERATION_TYPE.COUNT;
-          }
-        }
+      return false;
+    }
 
-        if (opType == null)
-          opType = INDEX_OPERATION_TYPE.GET;
+    if (result == null)
+      return false;
 
-        OQueryOperator.IndexResultListener resultListener;
-        if (fetchLimit < 0 || opType == INDEX_OPERATION_TYPE.COUNT)
-          resultListener = null;
-        else
-          resultListener = new IndexResultListener();
-
-        Object result;
-        try {
-          result = operator.executeIndexQuery(context, index, opType, keyParams, resultListener, fetchLimit);
-        } catch (Exception e) {
-          OLogManager
-              .instance()
-              .error(
-                  this,
-                  "Error on using index %s in query '%s'. Probably you need to rebuild indexes. Now executing query using cluster scan",
-                  e, index.getName(), request != null && request.getText() != null ? request.getText() : "");
+    if (context.isRecordingMetrics()) {
+      combination.collectIndexNames(getInvolvedIndexNames());
+      if (combination.getEstimatedRows() > -1) {
+        context.setVariable("estimatedRows", combination.getEstimatedRows());
+        context.setVariable("actualRows", (long) result.size());
+      }
+    }
 
-          return false;
-        }
+    fillSearchIndexResultSet(result);
+    return true;
+  }
 
-        if (result == null)
-          continue;
+  /**
+   * Plans the evaluation of a condition combining the indexes of its sub conditions. The sub conditions of an AND that cannot use
+   * an index, or whose index reads more records than the given maximum, are left to the filter of the loaded records.
+   * 
+   * @return the combination of indexes or <code>null</code> if the condition, or a sub condition of an OR, cannot use an index.
+   */
+  private OIndexCombination planIndexCombination(final OClass iSchemaClass, OSQLFilterCondition iCondition, final long maxIndexRows) {
+    if (iCondition == null)
+      return null;
 
-        if (opType == INDEX_OPERATION_TYPE.COUNT) {
-          // OPTIMIZATION: EMBED THE RESULT IN A DOCUMENT AND AVOID THE CLASSIC PATH
-          final String projName = projectionDefinition.keySet().iterator().next();
-          projectionDefinition.clear();
-          getProjectionGroup(null).applyValue(projName, result);
-        } else
-          fillSearchIndexResultSet(result);
+    OQueryOperator operator = iCondition.getOperator();
 
-        return true;
+    while (operator == null) {
+      if (iCondition.getRight() == null && iCondition.getLeft() instanceof OSQLFilterCondition) {
+        iCondition = (OSQLFilterCondition) iCondition.getLeft();
+        operator = iCondition.getOperator();
+      } else {
+        return null;
       }
     }
-    return false;
+
+    final OIndexReuseType indexReuseType = operator.getIndexReuseType(iCondition.getLeft(), iCondition.getRight());
+    if (indexReuseType.equals(OIndexReuseType.INDEX_INTERSECTION) || indexReuseType.equals(OIndexReuseType.INDEX_UNION)) {
+      if (!(iCondition.getLeft() instanceof OSQLFilterCondition && iCondition.getRight() instanceof OSQLFilterCondition))
+        return null;
+
+      OIndexCombination left = planIndexCombination(iSchemaClass, (OSQLFilterCondition) iCondition.getLeft(), maxIndexRows);
+      OIndexCombination right = planIndexCombination(iSchemaClass, (OSQLFilterCondition) iCondition.getRight(), maxIndexRows);
+
+      if (indexReuseType.equals(OIndexReuseType.INDEX_INTERSECTION)) {
+        if (left != null && left.getEstimatedRows() > maxIndexRows)
+          left = null;
+        if (right != null && right.getEstimatedRows() > maxIndexRows)
+          right = null;
+
+        if (left == null)
+          return right;
+        if (right == null)
+          return left;
+        return OIndexCombination.intersection(left, right);
+      }
+
+      if (left == null || right == null)
+        return null;
+
+      final OIndexCombination union = OIndexCombination.union(left, right);
+      return union.getEstimatedRows() > maxIndexRows ? null : union;
+    } else if (indexReuseType.equals(OIndexReuseType.INDEX_METHOD)) {
+      OIndexSearchResult result = createIndexedProperty(iCondition, iCondition.getLeft());
+      if (result == null)
+        result = createIndexedProperty(iCondition, iCondition.getRight());
+
+      if (result == null || !checkIndexExistence(iSchemaClass, result))
+        return null;
+
+      final List<IndexCandidate> candidates = collectIndexCandidates(iSchemaClass, Collections.singletonList(result));
+      if (candidates.isEmpty())
+        return null;
+
+      estimateIndexCandidates(candidates);
+      final IndexCandidate candidate = candidates.get(0);
+      return new OIndexCombination.IndexQuery(candidate.index, candidate.operator, candidate.keyParams, candidate.estimatedRows);
+    }
+
+    return null;
+  }
+
+  /**
+   * Estimates the number of records the candidate indexes read and sorts them by it, when the statistics of all of them can
+   * estimate it. Candidates with the same estimate keep their order, so without statistics the most specific restrictions and the
+   * indexes with less fields are still tried first.
+   * 
+   * @return <code>true</code> if all the candidates have been estimated.
+   */
+  private boolean estimateIndexCandidates(final List<IndexCandidate> candidates) {
+    if (candidates.isEmpty())
+      return false;
+
+    final OIndexManager indexManager = getDatabase().getMetadata().getIndexManager();
+    for (IndexCandidate candidate : candidates) {
+      if (candidate.index instanceof OChainedIndexProxy)
+        return false;
+
+      final OIndexStatistics statistics = indexManager.getIndexStatistics(candidate.index.getName());
+      if (statistics == null)
+        return false;
+
+      try {
+        candidate.estimatedRows = candidate.operator.estimateIndexRows(context, candidate.index, statistics, candidate.keyParams);
+      } catch (RuntimeException e) {
+        // PARAMETERS NOT COMPATIBLE WITH THE INDEX: THE INDEX QUERY WILL TELL
+        OLogManager.instance().debug(this, "Cannot estimate the records read through index %s", e, candidate.index.getName());
+        candidate.estimatedRows = -1;
+      }
+
+      if (candidate.estimatedRows < 0)
+        return false;
+    }
+
+    Collections.sort(candidates);
+    return true;
+  }
+
+  /**
+   * Returns the number of records read through an index above which browsing the class is estimated to be cheaper.
+   */
+  private static long getMaxIndexRows(final OClass iSchemaClass) {
+    final float scanThreshold = OGlobalConfiguration.QUERY_INDEX_SCAN_THRESHOLD.getValueAsFloat();
+    if (scanThreshold >= 1)
+      return Long.MAX_VALUE;
+
+    final long records = iSchemaClass.count();
+    if (records < OGlobalConfiguration.QUERY_INDEX_SCAN_MIN_RECORDS.getValueAsLong())
+      return Long.MAX_VALUE;
+
+    return (long) (records * scanThreshold);
+  }
+
+  private Set<String> getInvolvedIndexNames() {
+    Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
+    if (idxNames == null) {
+      idxNames = new HashSet<String>();
+      context.setVariable("involvedIndexes", idxNames);
+    }
+    return idxNames;
   }
 
   private static List<OIndex<?>> getInvolvedIndexes(OClass iSchemaClass, OIndexSearchResult searchResultFields) {
@@ -1031,6 +1804,15 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long startOrderBy = System.currentTimeMillis();
     try {
 
+      if (tempResult instanceof OSortedResultCollector) {
+        final OSortedResultCollector collector = (OSortedResultCollector) tempResult;
+        tempResult = collector.sort();
+        orderedFields.clear();
+
+        context.setVariable("orderByRuns", collector.getRuns());
+        return;
+      }
+
       if (tempResult instanceof OMultiCollectionIterator) {
         final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
         for (OIdentifiable o : tempResult)
@@ -1046,6 +1828,12 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  private void closeSortedResult() {
+    if (tempResult instanceof OSortedResultCollector)
+      // DELETE THE TEMPORARY FILES OF SORTED RUNS
+      ((OSortedResultCollector) tempResult).close();
+  }
+
   /**
    * Extract the content of collections and/or links and put it as result
    */
@@ -1326,15 +2114,14 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       final long startGroupBy = System.currentTimeMillis();
       try {
 
-        tempResult = new ArrayList<OIdentifiable>();
+        final OGroupByPartitions partitions = groupByPartitions;
+        groupByPartitions = null;
 
-        for (Entry<Object, ORuntimeResult> g : groupedResult.entrySet()) {
-          if (g.getKey() != null || (groupedResult.size() == 1 && groupByFields == null)) {
-            final ODocument doc = g.getValue().getResult();
-            if (doc != null && !doc.isEmpty())
-              ((List<OIdentifiable>) tempResult).add(doc);
-          }
-        }
+        if (returnGroups() && partitions != null)
+          aggregatePartitions(partitions);
+
+        if (tempResult == null && (orderedFields != null || expandTarget != null))
+          tempResult = new ArrayList<OIdentifiable>();
 
       } finally {
         context.setVariable("groupByElapsed", (System.currentTimeMillis() - startGroupBy));
@@ -1342,6 +2129,97 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  /**
+   * Aggregates the records of every partition in turn and returns their groups. The groups of a partition that do not fit in
+   * memory are written in the partitions of the next level, aggregated right after.
+   *
+   * @return <code>false</code> if the limit of the query has been reached.
+   */
+  private boolean aggregatePartitions(final OGroupByPartitions iPartitions) {
+    try {
+      for (int i = 0; i < iPartitions.getPartitions(); ++i) {
+        groupedResult = new LinkedHashMap<Object, ORuntimeResult>();
+
+        for (Iterator<OIdentifiable> it = iPartitions.browse(i); it.hasNext();) {
+          final OIdentifiable record = it.next();
+          partitionedRecordsAggregated++;
+          context.setVariable("current", record);
+          aggregateRecord(record, getGroupByValue((ODocument) record.getRecord()), iPartitions.getLevel() + 1);
+        }
+
+        final OGroupByPartitions nextPartitions = groupByPartitions;
+        groupByPartitions = null;
+
+        if (!returnGroups() || nextPartitions != null && !aggregatePartitions(nextPartitions)) {
+          if (nextPartitions != null)
+            nextPartitions.close();
+          return false;
+        }
+      }
+      return true;
+
+    } finally {
+      iPartitions.close();
+    }
+  }
+
+  /**
+   * Returns the groups in memory and removes them.
+   *
+   * @return <code>false</code> if the limit of the query has been reached.
+   */
+  private boolean returnGroups() {
+    final boolean singleGroup = groupedResult.size() == 1 && groupByFields == null;
+
+    try {
+      for (Entry<Object, ORuntimeResult> g : groupedResult.entrySet()) {
+        if (g.getKey() != null || singleGroup) {
+          final ODocument doc = g.getValue().getResult();
+          if (doc != null && !doc.isEmpty())
+            if (!returnGroup(doc))
+              return false;
+        }
+      }
+      return true;
+
+    } finally {
+      groupedResult.clear();
+    }
+  }
+
+  private boolean returnGroup(final ODocument iGroup) {
+    if (orderedFields == null && expandTarget == null) {
+      // SEND THE GROUP INLINE, SKIP AND LIMIT APPLY TO THE GROUPS
+      if (groupsSkipped < skip) {
+        groupsSkipped++;
+        return true;
+      }
+
+      if (request.getResultListener() != null && !request.getResultListener().result(iGroup))
+        return false;
+
+      final int requestedLimit = getRequestedLimit();
+      return requestedLimit < 0 || ++groupsReturned < requestedLimit;
+
+    } else if (expandTarget == null) {
+
+      // COLLECT ALL THE GROUPS AND ORDER THEM AT THE END
+      if (tempResult == null)
+        tempResult = new OSortedResultCollector(new ODocumentComparator(new ArrayList<OPair<String, String>>(orderedFields)),
+            skip, limit, OGlobalConfiguration.QUERY_ORDER_BY_MAX_RECORDS_IN_MEMORY.getValueAsInteger());
+      ((OSortedResultCollector) tempResult).add(iGroup);
+
+    } else {
+
+      // COLLECT ALL THE GROUPS TO EXPAND THEM AT THE END
+      if (tempResult == null)
+        tempResult = new ArrayList<OIdentifiable>();
+      ((Collection<OIdentifiable>) tempResult).add(iGroup);
+    }
+
+    return true;
+  }
+
   private static boolean checkIndexExistence(final OClass iSchemaClass, final OIndexSearchResult result) {
     if (!iSchemaClass.areIndexed(result.fields()))
       return false;
@@ -1454,44 +2332,6 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       }
     }
 
-    if (orderedFields != null && !orderedFields.isEmpty()) {
-      if (parsedTarget.getTargetClasses() != null) {
-        final OClass cls = parsedTarget.getTargetClasses().keySet().iterator().next();
-        final OPair<String, String> orderByFirstField = orderedFields.iterator().next();
-        final OProperty p = cls.getProperty(orderByFirstField.getKey());
-        if (p != null) {
-          final Set<OIndex<?>> involvedIndexes = cls.getInvolvedIndexes(orderByFirstField.getKey());
-          if (involvedIndexes != null && !involvedIndexes.isEmpty()) {
-            for (OIndex<?> idx : involvedIndexes) {
-              if (idx.getKeyTypes().length == 1 && idx.supportsOrderedIterations()) {
-                if (idx.getType().startsWith("UNIQUE") && idx.getKeySize() < MIN_THRESHOLD_USE_INDEX_AS_TARGET
-                    || compiledFilter == null) {
-                  if (orderByFirstField.getValue().equalsIgnoreCase("asc"))
-                    target = (Iterator<? extends OIdentifiable>) idx.valuesIterator();
-                  else
-                    target = (Iterator<? extends OIdentifiable>) idx.valuesInverseIterator();
-
-                  if (context.isRecordingMetrics()) {
-                    Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
-                    if (idxNames == null) {
-                      idxNames = new HashSet<String>();
-                      context.setVariable("involvedIndexes", idxNames);
-                    }
-                    idxNames.add(idx.getName());
-                  }
-
-                  orderedFields = null;
-
-                  fetchLimit = getQueryFetchLimit();
-                  break;
-                }
-              }
-            }
-          }
-        }
-      }
-    }
-
     return false;
   }
 
@@ -1503,6 +2343,98 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  private static final class IndexCandidate implements Comparable<IndexCandidate> {
+    private final OIndex<?>      index;
+    private final OQueryOperator operator;
+    private final List<Object>   keyParams;
+    private final int            fieldCount;
+    private long                 estimatedRows = -1;
+
+    private IndexCandidate(final OIndex<?> index, final OQueryOperator operator, final List<Object> keyParams, final int fieldCount) {
+      this.index = index;
+      this.operator = operator;
+      this.keyParams = keyParams;
+      this.fieldCount = fieldCount;
+    }
+
+    @Override
+    public int compareTo(final IndexCandidate other) {
+      return estimatedRows < other.estimatedRows ? -1 : (estimatedRows == other.estimatedRows ? 0 : 1);
+    }
+  }
+
+  /**
+   * Range of the keys of an index, each bound is <code>null</code> when not restricted.
+   */
+  private static final class KeyRange {
+    private Object  from;
+    private boolean fromInclusive;
+    private Object  to;
+    private boolean toInclusive;
+    private boolean bounded;
+
+    private void restrictFrom(final Object key, final boolean inclusive) {
+      if (key == null)
+        return;
+
+      bounded = true;
+      final int compare = from == null ? 1 : ODefaultComparator.INSTANCE.compare(key, from);
+      if (compare > 0 || compare == 0 && !inclusive) {
+        from = key;
+        fromInclusive = inclusive;
+      }
+    }
+
+    private void restrictTo(final Object key, final boolean inclusive) {
+      if (key == null)
+        return;
+
+      bounded = true;
+      final int compare = to == null ? -1 : ODefaultComparator.INSTANCE.compare(key, to);
+      if (compare < 0 || compare == 0 && !inclusive) {
+        to = key;
+        toInclusive = inclusive;
+      }
+    }
+  }
+
+  /**
+   * Returns the records of the class that have no value for the field, so they are not in its index.
+   */
+  private static final class NullFieldIterator implements Iterator<OIdentifiable> {
+    private final Iterator<? extends OIdentifiable> records;
+    private final String                            field;
+    private OIdentifiable                           next;
+
+    private NullFieldIterator(final Iterator<? extends OIdentifiable> records, final String field) {
+      this.records = records;
+      this.field = field;
+    }
+
+    public boolean hasNext() {
+      while (next == null && records.hasNext()) {
+        final ORecord<?> record = records.next().getRecord();
+        if (record instanceof ODocument && ((ODocument) record).field(field) == null)
+          next = record;
+      }
+
+      return next != null;
+    }
+
+    public OIdentifiable next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      final OIdentifiable result = next;
+      next = null;
+      return result;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+
   private final class IndexResultListener implements OQueryOperator.IndexResultListener {
     private final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
 
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+
+/**
+ * Records of the GROUP BY groups that do not fit in memory, written in temporary files partitioned by the hash of their group key.
+ * All the records of a group are in the same partition, so every partition can be aggregated alone once the groups in memory have
+ * been returned. The hash depends on the level of the partitions: the groups of a partition that does not fit in memory are spread
+ * on all the partitions of the next level.
+ *
+ * @see com.orientechnologies.orient.core.config.OGlobalConfiguration#QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY
+ */
+final class OGroupByPartitions {
+  private static final int         PARTITIONS = 16;
+
+  private final int                level;
+  private final File[]             files      = new File[PARTITIONS];
+  private final DataOutputStream[] outputs    = new DataOutputStream[PARTITIONS];
+  private final int[]              sizes      = new int[PARTITIONS];
+  private long                     records;
+
+  OGroupByPartitions(final int iLevel) {
+    level = iLevel;
+  }
+
+  void add(final Object iKey, final OIdentifiable iRecord) {
+    final int partition = getPartition(iKey);
+
+    try {
+      if (outputs[partition] == null) {
+        files[partition] = File.createTempFile("orientdb-groupby-", ".tmp");
+        files[partition].deleteOnExit();
+        outputs[partition] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[partition])));
+      }
+
+      OSortedResultCollector.writeRecord(outputs[partition], iRecord);
+    } catch (IOException e) {
+      throw new OCommandExecutionException("Error on writing grouped records to a temporary file", e);
+    }
+
+    sizes[partition]++;
+    records++;
+  }
+
+  int getLevel() {
+    return level;
+  }
+
+  int getPartitions() {
+    return PARTITIONS;
+  }
+
+  /**
+   * Returns the number of records written in all the partitions.
+   */
+  long getRecords() {
+    return records;
+  }
+
+  /**
+   * Browses the records of a partition. The temporary file of the partition is deleted once browsed.
+   */
+  Iterator<OIdentifiable> browse(final int iPartition) {
+    if (outputs[iPartition] == null)
+      return new PartitionIterator(iPartition, null);
+
+    try {
+      outputs[iPartition].close();
+      outputs[iPartition] = null;
+
+      return new PartitionIterator(iPartition, new DataInputStream(new BufferedInputStream(new FileInputStream(files[iPartition]))));
+    } catch (IOException e) {
+      throw new OCommandExecutionException("Error on reading grouped records from a temporary file", e);
+    }
+  }
+
+  /**
+   * Deletes the temporary files.
+   */
+  void close() {
+    for (int i = 0; i < PARTITIONS; ++i) {
+      if (outputs[i] != null)
+        try {
+          outputs[i].close();
+        } catch (IOException e) {
+          OLogManager.instance().warn(this, "Cannot close temporary file of grouped records", e);
+        }
+      outputs[i] = null;
+
+      deleteFile(i);
+    }
+  }
+
+  private void deleteFile(final int iPartition) {
+    if (files[iPartition] != null && !files[iPartition].delete())
+      OLogManager.instance().warn(this, "Cannot delete temporary file %s", files[iPartition]);
+    files[iPartition] = null;
+  }
+
+  private int getPartition(final Object iKey) {
+    int hash = (iKey != null ? iKey.hashCode() : 0) ^ (level * 0x9E3779B9);
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    return (hash & Integer.MAX_VALUE) % PARTITIONS;
+  }
+
+  private final class PartitionIterator implements Iterator<OIdentifiable> {
+    private final int             partition;
+    private final DataInputStream in;
+    private int                   remaining;
+
+    private PartitionIterator(final int iPartition, final DataInputStream iIn) {
+      partition = iPartition;
+      in = iIn;
+      remaining = iIn != null ? sizes[iPartition] : 0;
+    }
+
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    public OIdentifiable next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      try {
+        final OIdentifiable record = OSortedResultCollector.readRecord(in);
+        if (--remaining == 0) {
+          in.close();
+          deleteFile(partition);
+        }
+        return record;
+      } catch (IOException e) {
+        throw new OCommandExecutionException("Error on reading grouped records from a temporary file", e);
+      }
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORidBitmap;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperator.INDEX_OPERATION_TYPE;
+
+/**
+ * Evaluates a condition made of AND and OR sub conditions with several indexes: the records of an AND condition are the
+ * intersection of the records returned for its sub conditions, the ones of an OR condition their union. Record ids are combined in
+ * {@link ORidBitmap}s, so only the records of the final result are loaded.
+ */
+abstract class OIndexCombination {
+  /**
+   * Returns the estimated number of records, -1 if unknown.
+   */
+  abstract long getEstimatedRows();
+
+  abstract int getIndexCount();
+
+  abstract void collectIndexNames(Set<String> indexNames);
+
+  /**
+   * Executes the index queries and combines their results.
+   *
+   * @return the record ids or <code>null</code> if an index cannot evaluate its condition.
+   */
+  abstract ORidBitmap execute(OCommandContext context);
+
+  static OIndexCombination intersection(final OIndexCombination left, final OIndexCombination right) {
+    return new Intersection(left, right);
+  }
+
+  static OIndexCombination union(final OIndexCombination left, final OIndexCombination right) {
+    return new Union(left, right);
+  }
+
+  static final class IndexQuery extends OIndexCombination {
+    private final OIndex<?>      index;
+    private final OQueryOperator operator;
+    private final List<Object>   keyParams;
+    private final long           estimatedRows;
+
+    IndexQuery(final OIndex<?> index, final OQueryOperator operator, final List<Object> keyParams, final long estimatedRows) {
+      this.index = index;
+      this.operator = operator;
+      this.keyParams = keyParams;
+      this.estimatedRows = estimatedRows;
+    }
+
+    @Override
+    long getEstimatedRows() {
+      return estimatedRows;
+    }
+
+    @Override
+    int getIndexCount() {
+      return 1;
+    }
+
+    @Override
+    void collectIndexNames(final Set<String> indexNames) {
+      if (index instanceof OChainedIndexProxy)
+        indexNames.addAll(((OChainedIndexProxy<?>) index).getIndexNames());
+      else
+        indexNames.add(index.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    ORidBitmap execute(final OCommandContext context) {
+      final Object result = operator.executeIndexQuery(context, index, INDEX_OPERATION_TYPE.GET, keyParams, null, -1);
+      if (result == null)
+        return null;
+
+      if (result instanceof Collection<?>)
+        return new ORidBitmap((Collection<OIdentifiable>) result);
+
+      final ORidBitmap bitmap = new ORidBitmap();
+      bitmap.add((OIdentifiable) result);
+      return bitmap;
+    }
+  }
+
+  private static final class Intersection extends OIndexCombination {
+    private final OIndexCombination first;
+    private final OIndexCombination second;
+
+    private Intersection(final OIndexCombination left, final OIndexCombination right) {
+      // THE MOST SELECTIVE FIRST: IF IT RETURNS NOTHING THE OTHER IS NOT QUERIED
+      if (right.getEstimatedRows() > -1 && (left.getEstimatedRows() < 0 || right.getEstimatedRows() < left.getEstimatedRows())) {
+        first = right;
+        second = left;
+      } else {
+        first = left;
+        second = right;
+      }
+    }
+
+    @Override
+    long getEstimatedRows() {
+      return first.getEstimatedRows();
+    }
+
+    @Override
+    int getIndexCount() {
+      return first.getIndexCount() + second.getIndexCount();
+    }
+
+    @Override
+    void collectIndexNames(final Set<String> indexNames) {
+      first.collectIndexNames(indexNames);
+      second.collectIndexNames(indexNames);
+    }
+
+    @Override
+    ORidBitmap execute(final OCommandContext context) {
+      final ORidBitmap firstResult = first.execute(context);
+      if (firstResult == null || firstResult.isEmpty())
+        return firstResult;
+
+      final ORidBitmap secondResult = second.execute(context);
+      if (secondResult == null)
+        return null;
+
+      return firstResult.and(secondResult);
+    }
+  }
+
+  private static final class Union extends OIndexCombination {
+    private final OIndexCombination left;
+    private final OIndexCombination right;
+
+    private Union(final OIndexCombination left, final OIndexCombination right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    long getEstimatedRows() {
+      if (left.getEstimatedRows() < 0 || right.getEstimatedRows() < 0)
+        return -1;
+
+      return left.getEstimatedRows() + right.getEstimatedRows();
+    }
+
+    @Override
+    int getIndexCount() {
+      return left.getIndexCount() + right.getIndexCount();
+    }
+
+    @Override
+    void collectIndexNames(final Set<String> indexNames) {
+      left.collectIndexNames(indexNames);
+      right.collectIndexNames(indexNames);
+    }
+
+    @Override
+    ORidBitmap execute(final OCommandContext context) {
+      final ORidBitmap leftResult = left.execute(context);
+      if (leftResult == null)
+        return null;
+
+      final ORidBitmap rightResult = right.execute(context);
+      if (rightResult == null)
+        return null;
+
+      return leftResult.or(rightResult);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Browses the records of an index in the order of its keys, ascending or descending, between two optional keys. Entries are
+ * fetched with {@link OIndex#getEntriesMajor(Object, boolean, OIndex.IndexEntriesResultListener)} or
+ * {@link OIndex#getEntriesMinor(Object, boolean, OIndex.IndexEntriesResultListener)} in batches that end on a key boundary: the
+ * index is not locked while the records are consumed and the browsing costs only the batches read before the caller stops.
+ */
+final class OIndexOrderedCursor implements Iterator<OIdentifiable> {
+  static final int                        DEFAULT_BATCH_SIZE = 100;
+  private static final int                MAX_BATCH_SIZE     = 8000;
+
+  private final OIndex<?>                 index;
+  private final boolean                   ascending;
+  private final Object                    lastKey;
+  private final boolean                   lastInclusive;
+  private final LinkedList<OIdentifiable> batch              = new LinkedList<OIdentifiable>();
+
+  private Object                          fromKey;
+  private boolean                         fromInclusive;
+  private int                             batchSize;
+  private boolean                         ended;
+
+  /**
+   * @param firstKey
+   *          key to start from, <code>null</code> to start from the first key in the browsing order
+   * @param lastKey
+   *          key to stop at, <code>null</code> to browse up to the last key in the browsing order
+   * @param batchSize
+   *          number of records of the first batch, the next batches double it
+   */
+  OIndexOrderedCursor(final OIndex<?> index, final boolean ascending, final Object firstKey, final boolean firstInclusive,
+      final Object lastKey, final boolean lastInclusive, final int batchSize) {
+    this.index = index;
+    this.ascending = ascending;
+    this.fromKey = firstKey;
+    this.fromInclusive = firstInclusive;
+    this.lastKey = lastKey;
+    this.lastInclusive = lastInclusive;
+    this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+  }
+
+  public boolean hasNext() {
+    if (batch.isEmpty() && !ended)
+      fetch();
+
+    return !batch.isEmpty();
+  }
+
+  public OIdentifiable next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+
+    return batch.removeFirst();
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException("remove");
+  }
+
+  private void fetch() {
+    if (fromKey == null) {
+      final Iterator<? extends Map.Entry<Object, ?>> entries = ascending ? index.iterator() : index.inverseIterator();
+      if (!entries.hasNext()) {
+        ended = true;
+        return;
+      }
+
+      fromKey = entries.next().getKey();
+      fromInclusive = true;
+    }
+
+    final BatchListener listener = new BatchListener();
+    if (ascending)
+      index.getEntriesMajor(fromKey, fromInclusive, listener);
+    else
+      index.getEntriesMinor(fromKey, fromInclusive, listener);
+
+    // THE INDEX HAS BEEN BROWSED TO THE END OR UP TO THE LAST KEY
+    if (!listener.stoppedOnKeyBoundary)
+      ended = true;
+
+    if (listener.key != null) {
+      fromKey = listener.key;
+      fromInclusive = false;
+    }
+
+    batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+  }
+
+  private final class BatchListener implements OIndex.IndexEntriesResultListener {
+    private Object  key;
+    private boolean stoppedOnKeyBoundary;
+
+    public boolean addResult(final ODocument entry) {
+      final Object entryKey = entry.field("key");
+
+      if (lastKey != null) {
+        final int compare = ODefaultComparator.INSTANCE.compare(entryKey, lastKey);
+        if (ascending ? compare > 0 || compare == 0 && !lastInclusive : compare < 0 || compare == 0 && !lastInclusive)
+          return false;
+      }
+
+      // ALL THE RECORDS OF A KEY ARE IN THE SAME BATCH, SO THE NEXT ONE STARTS AFTER IT
+      if (batch.size() >= batchSize && ODefaultComparator.INSTANCE.compare(entryKey, key) != 0) {
+        stoppedOnKeyBoundary = true;
+        return false;
+      }
+
+      key = entryKey;
+      batch.add(entry.<OIdentifiable> field("rid", OType.LINK));
+      return true;
+    }
+  }
+}
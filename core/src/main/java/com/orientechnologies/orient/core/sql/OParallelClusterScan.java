@@ -0,0 +1,308 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.OClusterPositionLong;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemParameter;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
+import com.orientechnologies.orient.core.sql.query.OSQLQuery;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Scans clusters with the threads of a shared pool. The clusters are split in ranges of positions, every range is read from the
+ * storage and filtered by a worker thread, and the documents that match are returned in the order of the ranges: the same order of
+ * a scan made by the caller, so SKIP and LIMIT apply to the same records. Only the ranges of a window ahead of the consumed one are
+ * scanned at the same time.<br/>
+ * The records are read from the storage, not from the local cache of the database, and the hooks are left to the caller.
+ * Aggregating queries can compute a partial result for every range instead of returning the records: see
+ * {@link #getPartialProjections()}.
+ *
+ * @see OGlobalConfiguration#QUERY_PARALLEL_SCAN
+ */
+final class OParallelClusterScan implements Iterator<OIdentifiable> {
+  private static ExecutorService              executor;
+
+  private final ODatabaseRecord               database;
+  private final OStorage                      storage;
+  private final OSQLFilter                    filter;
+  private final OCommandContext               context;
+  private final Map<String, Object>           variables;
+  private final Callable<Map<String, Object>> projectionFactory;
+  private final List<Range>                   ranges         = new ArrayList<Range>();
+  private final LinkedList<Future<Range>>     running        = new LinkedList<Future<Range>>();
+  private final List<Map<String, Object>>     partialProjections;
+  private final int                           window;
+  private volatile boolean                    stopped;
+  private int                                 nextRange;
+  private Iterator<ODocument>                 current;
+
+  /**
+   * @param iProjectionFactory
+   *          creates the aggregating projections of a range, <code>null</code> to return the records that match
+   */
+  OParallelClusterScan(final ODatabaseRecord iDatabase, final int[] iClusterIds, final OSQLFilter iFilter,
+      final OCommandContext iContext, final Callable<Map<String, Object>> iProjectionFactory) {
+    database = iDatabase;
+    storage = iDatabase.getStorage();
+    filter = iFilter;
+    context = iContext;
+    variables = iContext.getVariables();
+    projectionFactory = iProjectionFactory;
+    partialProjections = iProjectionFactory != null ? new ArrayList<Map<String, Object>>() : null;
+    window = getThreads() * 2;
+
+    final int rangeSize = OGlobalConfiguration.QUERY_PARALLEL_SCAN_RANGE_SIZE.getValueAsInteger();
+    for (int clusterId : iClusterIds) {
+      final OClusterPosition[] dataRange = storage.getClusterDataRange(clusterId);
+      if (!dataRange[0].isValid())
+        // EMPTY CLUSTER
+        continue;
+
+      if (!(dataRange[0] instanceof OClusterPositionLong)) {
+        ranges.add(new Range(clusterId, dataRange[0], dataRange[1]));
+        continue;
+      }
+
+      final long last = dataRange[1].longValue();
+      for (long from = dataRange[0].longValue(); from <= last; from += rangeSize)
+        ranges.add(new Range(clusterId, OClusterPositionFactory.INSTANCE.valueOf(from), OClusterPositionFactory.INSTANCE.valueOf(Math
+            .min(from + rangeSize - 1, last))));
+    }
+  }
+
+  /**
+   * Tells if the filter can be evaluated by several threads at the same time: only fields of the record, parameters and constants
+   * are allowed, no functions, variables, sub-queries or links to traverse.
+   */
+  static boolean isThreadSafe(final Object iValue) {
+    if (iValue instanceof OSQLFilterCondition) {
+      final OSQLFilterCondition condition = (OSQLFilterCondition) iValue;
+      return isThreadSafe(condition.getLeft()) && isThreadSafe(condition.getRight());
+    }
+
+    if (iValue instanceof OSQLFilterItemParameter)
+      return true;
+
+    if (iValue instanceof OSQLFilterItemField)
+      return iValue.getClass() == OSQLFilterItemField.class && !((OSQLFilterItemField) iValue).hasChainOperators();
+
+    if (iValue instanceof OSQLFilterItem || iValue instanceof OSQLFunctionRuntime || iValue instanceof OSQLQuery<?>)
+      return false;
+
+    if (iValue instanceof Collection<?>) {
+      for (Object item : (Collection<?>) iValue)
+        if (!isThreadSafe(item))
+          return false;
+    }
+
+    return true;
+  }
+
+  public boolean hasNext() {
+    while (current == null || !current.hasNext()) {
+      if (running.isEmpty() && nextRange >= ranges.size())
+        return false;
+
+      current = waitNextRange().result.iterator();
+    }
+    return true;
+  }
+
+  public OIdentifiable next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    return current.next();
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException("remove");
+  }
+
+  /**
+   * Returns the aggregating projections of all the ranges, once all the ranges have been scanned.
+   */
+  List<Map<String, Object>> getPartialProjections() {
+    return partialProjections;
+  }
+
+  /**
+   * Stops the ranges that are running and waits for their threads.
+   */
+  void close() {
+    stopped = true;
+    while (!running.isEmpty())
+      try {
+        running.removeFirst().get();
+      } catch (Exception e) {
+        // IGNORE THE ERRORS OF THE STOPPED RANGES
+      }
+  }
+
+  private Range waitNextRange() {
+    while (running.size() < window && nextRange < ranges.size()) {
+      final Range next = ranges.get(nextRange++);
+      if (projectionFactory != null)
+        // THE PROJECTIONS ARE PARSED BY THE THREAD OF THE DATABASE
+        try {
+          next.projections = projectionFactory.call();
+        } catch (Exception e) {
+          throw new OCommandExecutionException("Error on creating the projections of a parallel scan", e);
+        }
+
+      running.add(getExecutor().submit(next));
+    }
+
+    final Range range;
+    try {
+      range = running.removeFirst().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OCommandExecutionException("The select execution has been interrupted");
+    } catch (ExecutionException e) {
+      close();
+      throw new OCommandExecutionException("Error on scanning cluster " + e.getCause(), e.getCause());
+    }
+
+    context.updateMetric("recordReads", range.recordReads);
+    context.updateMetric("documentReads", range.documentReads);
+    context.updateMetric("parallelScanRanges", +1);
+
+    if (partialProjections != null)
+      partialProjections.add(range.projections);
+
+    return range;
+  }
+
+  private static int getThreads() {
+    final int threads = OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.getValueAsInteger();
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null)
+      executor = Executors.newFixedThreadPool(getThreads(), new ThreadFactory() {
+        private final AtomicInteger serial = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          thread.setName("Parallel Cluster Scan " + serial.incrementAndGet());
+          return thread;
+        }
+      });
+    return executor;
+  }
+
+  /**
+   * Positions of a cluster scanned by a worker thread, with the documents found there.
+   */
+  private final class Range implements Callable<Range> {
+    private final int              clusterId;
+    private final OClusterPosition from;
+    private final OClusterPosition to;
+    private final List<ODocument>  result = new ArrayList<ODocument>();
+    private Map<String, Object>    projections;
+    private long                   recordReads;
+    private long                   documentReads;
+
+    private Range(final int iClusterId, final OClusterPosition iFrom, final OClusterPosition iTo) {
+      clusterId = iClusterId;
+      from = iFrom;
+      to = iTo;
+    }
+
+    public Range call() throws Exception {
+      // THE DOCUMENTS ARE UNMARSHALLED WITH THE SCHEMA OF THE DATABASE
+      ODatabaseRecordThreadLocal.INSTANCE.set(database);
+      try {
+        final OCommandContext rangeContext = new OBasicCommandContext();
+        for (Entry<String, Object> variable : variables.entrySet())
+          rangeContext.setVariable(variable.getKey(), variable.getValue());
+
+        final ODocument aggregate = projections != null ? new ODocument() : null;
+
+        OPhysicalPosition[] positions = storage.ceilingPhysicalPositions(clusterId, new OPhysicalPosition(from));
+        while (positions.length > 0 && !stopped) {
+          for (OPhysicalPosition position : positions) {
+            if (position.clusterPosition.compareTo(to) > 0)
+              return this;
+
+            final ORecordId rid = new ORecordId(clusterId, position.clusterPosition);
+            final ORawBuffer buffer = storage.readRecord(rid, null, false, null, false).getResult();
+            if (buffer == null)
+              continue;
+
+            recordReads++;
+            if (buffer.recordType != ODocument.RECORD_TYPE)
+              continue;
+
+            documentReads++;
+            final ODocument document = new ODocument();
+            document.fill(rid, buffer.version, buffer.buffer, false);
+
+            rangeContext.setVariable("current", document);
+            if (filter != null && !Boolean.TRUE.equals(filter.evaluate(document, null, rangeContext)))
+              continue;
+
+            if (projections != null)
+              ORuntimeResult.applyRecord(aggregate, projections, rangeContext, document);
+            else
+              result.add(document);
+          }
+
+          positions = storage.higherPhysicalPositions(clusterId, positions[positions.length - 1]);
+        }
+        return this;
+      } finally {
+        ODatabaseRecordThreadLocal.INSTANCE.remove();
+      }
+    }
+  }
+}
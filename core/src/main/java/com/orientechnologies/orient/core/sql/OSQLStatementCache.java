@@ -0,0 +1,178 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Parsed SELECT statements of a database, by text, ready to be executed again without parsing the text. A parsed statement is
+ * used by one execution at a time: it is taken from the cache before the execution and put back once the execution is completed,
+ * so several idle statements can be kept for the same text. The least recently used texts are evicted beyond
+ * {@link OGlobalConfiguration#QUERY_STATEMENT_CACHE_SIZE}. The cache is cleared on every change of the schema or of the indexes.
+ *
+ * @see OCommandExecutorSQLSelect#isReusable()
+ */
+public class OSQLStatementCache {
+  private static final int                   MAX_IDLE_STATEMENTS = 16;
+
+  private final String                       databaseName;
+  private final Map<String, CachedStatement> statements;
+  private int                                version;
+  private long                               hits;
+  private long                               misses;
+
+  public OSQLStatementCache(final String iDatabaseName, final int iMaxSize) {
+    databaseName = iDatabaseName;
+    statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, CachedStatement> iEldest) {
+        return size() > iMaxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the statement cache of the storage, <code>null</code> if the cache is disabled.
+   */
+  public static OSQLStatementCache getCache(final OStorage iStorage) {
+    final int maxSize = OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger();
+    if (maxSize <= 0)
+      return null;
+
+    return iStorage.getResource(OSQLStatementCache.class.getSimpleName(), new Callable<OSQLStatementCache>() {
+      public OSQLStatementCache call() {
+        return new OSQLStatementCache(iStorage.getName(), maxSize);
+      }
+    });
+  }
+
+  /**
+   * Removes all the statements of the storage, if its cache has been created.
+   */
+  public static void clear(final OStorage iStorage) {
+    if (iStorage.existsResource(OSQLStatementCache.class.getSimpleName()))
+      iStorage.<OSQLStatementCache> getResource(OSQLStatementCache.class.getSimpleName(), null).clear();
+  }
+
+  /**
+   * Takes an idle parsed statement with the text.
+   *
+   * @return the statement, to be prepared with {@link OCommandExecutorSQLSelect#reuse(com.orientechnologies.orient.core.command.OCommandRequest)}
+   *         , or <code>null</code> if there is none.
+   */
+  public OCommandExecutorSQLSelect acquire(final String iText) {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+    final OCommandExecutorSQLSelect statement;
+    final long parseTime;
+    synchronized (this) {
+      final CachedStatement cached = statements.get(iText);
+      if (cached == null || cached.idle.isEmpty())
+        return null;
+
+      statement = cached.idle.pop();
+      parseTime = cached.parseTime;
+      hits++;
+    }
+
+    if (profiler.isRecording()) {
+      profiler.updateCounter(profiler.getDatabaseMetric(databaseName, "query.statementCache.hit"),
+          "Parsed statement reused from the statement cache", +1);
+      profiler.updateCounter(profiler.getDatabaseMetric(databaseName, "query.statementCache.parseTimeSaved"),
+          "Time saved by reusing parsed statements, in microseconds", parseTime / 1000);
+    }
+    return statement;
+  }
+
+  /**
+   * Puts back a statement taken with {@link #acquire(String)} or just parsed, once its execution is completed.
+   *
+   * @param iVersion
+   *          version of the cache read before the statement has been parsed or acquired, see {@link #getVersion()}
+   * @param iParseTime
+   *          time spent parsing the statement, in nanoseconds
+   */
+  public synchronized void release(final String iText, final OCommandExecutorSQLSelect iStatement, final int iVersion,
+      final long iParseTime) {
+    if (iVersion != version)
+      // THE SCHEMA OR THE INDEXES HAVE CHANGED IN THE MEANTIME
+      return;
+
+    CachedStatement cached = statements.get(iText);
+    if (cached == null) {
+      cached = new CachedStatement(iParseTime);
+      statements.put(iText, cached);
+    }
+
+    if (cached.idle.size() < MAX_IDLE_STATEMENTS)
+      cached.idle.push(iStatement);
+  }
+
+  /**
+   * Counts a statement parsed because no idle statement was found.
+   */
+  public void updateMiss() {
+    synchronized (this) {
+      misses++;
+    }
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording())
+      profiler.updateCounter(profiler.getDatabaseMetric(databaseName, "query.statementCache.miss"),
+          "Statement parsed because not found in the statement cache", +1);
+  }
+
+  public synchronized int getVersion() {
+    return version;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized int getSize() {
+    return statements.size();
+  }
+
+  public synchronized void clear() {
+    statements.clear();
+    version++;
+  }
+
+  private static final class CachedStatement {
+    private final long                             parseTime;
+    private final Deque<OCommandExecutorSQLSelect> idle = new ArrayDeque<OCommandExecutorSQLSelect>();
+
+    private CachedStatement(final long iParseTime) {
+      parseTime = iParseTime;
+    }
+  }
+}
@@ -0,0 +1,615 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Collects the records to sort for the ORDER BY clause. If the query has a LIMIT only the first SKIP + LIMIT records are kept in a
+ * bounded heap. Otherwise records are kept in memory up to the configured threshold: once reached, the records in memory are sorted
+ * and written as a run in a temporary file. Runs are merged while the result is browsed. The ordering is stable like the one of
+ * {@link java.util.Collections#sort(List, Comparator)}: records with the same values keep the order they have been collected.
+ *
+ * @see com.orientechnologies.orient.core.config.OGlobalConfiguration#QUERY_ORDER_BY_MAX_RECORDS_IN_MEMORY
+ */
+public class OSortedResultCollector implements Iterable<OIdentifiable> {
+  private final Comparator<OIdentifiable>   comparator;
+  private final int                         skip;
+  private final int                         limit;
+  private final int                         maxRecordsInMemory;
+
+  private final PriorityQueue<HeapEntry>    heap;
+  private final int                         heapSize;
+  private long                              sequence;
+
+  private static final byte                 RECORD_IDENTITY = 0;
+  private static final byte                 RECORD_STORED   = 1;
+  private static final byte                 RECORD_DOCUMENT = 2;
+  private static final byte                 NO_TYPE         = -1;
+
+  private final List<OIdentifiable>         records         = new ArrayList<OIdentifiable>();
+  private final List<File>                  runs            = new ArrayList<File>();
+
+  /**
+   * @param iComparator
+   *          comparator of the records
+   * @param iSkip
+   *          records to skip, 0 for none
+   * @param iLimit
+   *          maximum records to return, -1 for unlimited
+   * @param iMaxRecordsInMemory
+   *          maximum records to keep in memory before to write them in a temporary file, -1 for unlimited
+   */
+  public OSortedResultCollector(final Comparator<OIdentifiable> iComparator, final int iSkip, final int iLimit,
+      final int iMaxRecordsInMemory) {
+    comparator = iComparator;
+    skip = Math.max(iSkip, 0);
+    limit = iLimit;
+    maxRecordsInMemory = iMaxRecordsInMemory;
+
+    if (limit > -1 && (maxRecordsInMemory < 0 || skip + limit <= maxRecordsInMemory)) {
+      heapSize = skip + limit;
+      // THE HEAD IS THE GREATEST RECORD, THE FIRST TO REMOVE WHEN A LOWER ONE IS FOUND
+      heap = new PriorityQueue<HeapEntry>(heapSize + 1, new Comparator<HeapEntry>() {
+        public int compare(final HeapEntry iEntry1, final HeapEntry iEntry2) {
+          return iEntry2.compareTo(iEntry1);
+        }
+      });
+    } else {
+      heapSize = -1;
+      heap = null;
+    }
+  }
+
+  public void add(final OIdentifiable iRecord) {
+    if (heap != null) {
+      final HeapEntry entry = new HeapEntry(iRecord, sequence++);
+      if (heap.size() < heapSize)
+        heap.add(entry);
+      else if (entry.compareTo(heap.peek()) < 0) {
+        heap.poll();
+        heap.add(entry);
+      }
+      return;
+    }
+
+    records.add(iRecord);
+    if (maxRecordsInMemory > 0 && records.size() >= maxRecordsInMemory)
+      writeRun();
+  }
+
+  /**
+   * Sorts the collected records.
+   *
+   * @return the sorted records as list if all of them are in memory, skip and limit have still to be applied. If runs have been
+   *         written returns this object that merges them while browsed, applying skip and limit.
+   */
+  public Iterable<OIdentifiable> sort() {
+    if (heap != null) {
+      final HeapEntry[] entries = heap.toArray(new HeapEntry[heap.size()]);
+      heap.clear();
+      Arrays.sort(entries);
+
+      final List<OIdentifiable> result = new ArrayList<OIdentifiable>(entries.length);
+      for (HeapEntry entry : entries)
+        result.add(entry.record);
+      return result;
+    }
+
+    Collections.sort(records, comparator);
+    if (runs.isEmpty())
+      return records;
+
+    return this;
+  }
+
+  /**
+   * Returns the number of runs written in temporary files.
+   */
+  public int getRuns() {
+    return runs.size();
+  }
+
+  /**
+   * Deletes the temporary files.
+   */
+  public void close() {
+    for (File run : runs)
+      if (!run.delete())
+        OLogManager.instance().warn(this, "Cannot delete temporary file %s", run);
+    runs.clear();
+  }
+
+  /**
+   * Merges the sorted runs with the records in memory. Call {@link #sort()} before.
+   */
+  public Iterator<OIdentifiable> iterator() {
+    return new MergeIterator();
+  }
+
+  private void writeRun() {
+    Collections.sort(records, comparator);
+
+    try {
+      final File file = File.createTempFile("orientdb-orderby-", ".tmp");
+      file.deleteOnExit();
+      runs.add(file);
+
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      try {
+        out.writeInt(records.size());
+        for (OIdentifiable record : records)
+          writeRecord(out, record);
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      throw new OCommandExecutionException("Error on writing sorted records to a temporary file", e);
+    }
+
+    records.clear();
+  }
+
+  /**
+   * Writes the record without side effects on the database. Stored records which are not modified are written as their identity
+   * and loaded again when read. Other documents, like the ones of projections, are written field by field with the type of every
+   * value, with the links written as identities: records linked and not saved yet are never saved.
+   */
+  static void writeRecord(final DataOutputStream iOut, final OIdentifiable iRecord) throws IOException {
+    final ORID rid = iRecord.getIdentity();
+
+    if (!(iRecord instanceof ODocument)) {
+      // IDENTITY ONLY
+      iOut.writeByte(RECORD_IDENTITY);
+      iOut.writeUTF(rid.toString());
+      return;
+    }
+
+    final ODocument document = (ODocument) iRecord;
+    if (rid.isPersistent() && !document.isDirty()) {
+      iOut.writeByte(RECORD_STORED);
+      iOut.writeUTF(rid.toString());
+      return;
+    }
+
+    iOut.writeByte(RECORD_DOCUMENT);
+    iOut.writeUTF(rid.toString());
+
+    final ORecordVersion version = document.getRecordVersion();
+    version.getSerializer().writeTo((DataOutput) iOut, version);
+
+    writeDocument(iOut, document);
+  }
+
+  static OIdentifiable readRecord(final DataInputStream iIn) throws IOException {
+    final byte recordType = iIn.readByte();
+    final ORecordId rid = new ORecordId(iIn.readUTF());
+
+    if (recordType == RECORD_IDENTITY)
+      return rid;
+
+    if (recordType == RECORD_STORED) {
+      final ORecordInternal<?> record = ODatabaseRecordThreadLocal.INSTANCE.get().load(rid);
+      // DELETED IN THE MEANTIME
+      return record != null ? record : rid;
+    }
+
+    final ORecordVersion version = OVersionFactory.instance().createVersion();
+    version.getSerializer().readFrom((DataInput) iIn, version);
+
+    final ODocument document = readDocument(iIn);
+    document.fill(rid, version, null, false);
+    return document;
+  }
+
+  private static void writeDocument(final DataOutputStream iOut, final ODocument iDocument) throws IOException {
+    final String className = iDocument.getClassName();
+    iOut.writeBoolean(className != null);
+    if (className != null)
+      iOut.writeUTF(className);
+
+    iOut.writeBoolean(iDocument.isOrdered());
+
+    final String[] fieldNames = iDocument.fieldNames();
+    iOut.writeInt(fieldNames.length);
+    for (String fieldName : fieldNames) {
+      iOut.writeUTF(fieldName);
+
+      final OType fieldType = iDocument.fieldType(fieldName);
+      iOut.writeByte(fieldType != null ? fieldType.getId() : NO_TYPE);
+
+      writeValue(iOut, iDocument.rawField(fieldName));
+    }
+  }
+
+  private static ODocument readDocument(final DataInputStream iIn) throws IOException {
+    final ODocument document = new ODocument();
+    if (iIn.readBoolean())
+      document.setClassNameIfExists(iIn.readUTF());
+
+    document.setOrdered(iIn.readBoolean());
+
+    final int fields = iIn.readInt();
+    for (int i = 0; i < fields; i++) {
+      final String fieldName = iIn.readUTF();
+      final byte fieldType = iIn.readByte();
+      final Object value = readValue(iIn);
+
+      if (fieldType != NO_TYPE)
+        document.field(fieldName, value, OType.getById(fieldType));
+      else
+        document.field(fieldName, value);
+    }
+
+    document.unsetDirty();
+    return document;
+  }
+
+  private static void writeValue(final DataOutputStream iOut, final Object iValue) throws IOException {
+    if (iValue == null) {
+      iOut.writeByte(NO_TYPE);
+
+    } else if (iValue instanceof Boolean) {
+      iOut.writeByte(OType.BOOLEAN.getId());
+      iOut.writeBoolean((Boolean) iValue);
+
+    } else if (iValue instanceof Integer) {
+      iOut.writeByte(OType.INTEGER.getId());
+      iOut.writeInt((Integer) iValue);
+
+    } else if (iValue instanceof Short) {
+      iOut.writeByte(OType.SHORT.getId());
+      iOut.writeShort((Short) iValue);
+
+    } else if (iValue instanceof Long) {
+      iOut.writeByte(OType.LONG.getId());
+      iOut.writeLong((Long) iValue);
+
+    } else if (iValue instanceof Float) {
+      iOut.writeByte(OType.FLOAT.getId());
+      iOut.writeFloat((Float) iValue);
+
+    } else if (iValue instanceof Double) {
+      iOut.writeByte(OType.DOUBLE.getId());
+      iOut.writeDouble((Double) iValue);
+
+    } else if (iValue instanceof Byte) {
+      iOut.writeByte(OType.BYTE.getId());
+      iOut.writeByte((Byte) iValue);
+
+    } else if (iValue instanceof String) {
+      iOut.writeByte(OType.STRING.getId());
+      writeBytes(iOut, ((String) iValue).getBytes("UTF-8"));
+
+    } else if (iValue instanceof Date) {
+      iOut.writeByte(OType.DATETIME.getId());
+      iOut.writeLong(((Date) iValue).getTime());
+
+    } else if (iValue instanceof BigDecimal) {
+      iOut.writeByte(OType.DECIMAL.getId());
+      iOut.writeUTF(iValue.toString());
+
+    } else if (iValue instanceof byte[]) {
+      iOut.writeByte(OType.BINARY.getId());
+      writeBytes(iOut, (byte[]) iValue);
+
+    } else if (iValue instanceof ODocument && !((ODocument) iValue).getIdentity().isPersistent()) {
+      // EMBEDDED OR NOT SAVED: NEVER SAVE IT
+      iOut.writeByte(OType.EMBEDDED.getId());
+      writeDocument(iOut, (ODocument) iValue);
+
+    } else if (iValue instanceof OIdentifiable) {
+      iOut.writeByte(OType.LINK.getId());
+      iOut.writeUTF(((OIdentifiable) iValue).getIdentity().toString());
+
+    } else if (iValue instanceof Map<?, ?>) {
+      iOut.writeByte(OType.EMBEDDEDMAP.getId());
+      final Map<?, ?> map = (Map<?, ?>) iValue;
+      iOut.writeInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeValue(iOut, entry.getKey());
+        writeValue(iOut, entry.getValue());
+      }
+
+    } else if (iValue instanceof Collection<?> || iValue instanceof ORecordLazyMultiValue) {
+      iOut.writeByte(iValue instanceof Set<?> ? OType.EMBEDDEDSET.getId() : OType.EMBEDDEDLIST.getId());
+
+      // LINKS OF LAZY COLLECTIONS ARE NOT LOADED
+      final List<Object> items = new ArrayList<Object>();
+      if (iValue instanceof ORecordLazyMultiValue)
+        for (Iterator<OIdentifiable> it = ((ORecordLazyMultiValue) iValue).rawIterator(); it.hasNext();)
+          items.add(it.next());
+      else
+        items.addAll((Collection<?>) iValue);
+
+      iOut.writeInt(items.size());
+      for (Object item : items)
+        writeValue(iOut, item);
+
+    } else if (iValue instanceof Serializable) {
+      iOut.writeByte(OType.CUSTOM.getId());
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      final ObjectOutputStream objectOut = new ObjectOutputStream(buffer);
+      objectOut.writeObject(iValue);
+      objectOut.close();
+      writeBytes(iOut, buffer.toByteArray());
+
+    } else
+      throw new OCommandExecutionException("Cannot write the value of class " + iValue.getClass().getName()
+          + " to the temporary file of sorted records");
+  }
+
+  private static Object readValue(final DataInputStream iIn) throws IOException {
+    final byte type = iIn.readByte();
+    if (type == NO_TYPE)
+      return null;
+
+    switch (OType.getById(type)) {
+    case BOOLEAN:
+      return iIn.readBoolean();
+    case INTEGER:
+      return iIn.readInt();
+    case SHORT:
+      return iIn.readShort();
+    case LONG:
+      return iIn.readLong();
+    case FLOAT:
+      return iIn.readFloat();
+    case DOUBLE:
+      return iIn.readDouble();
+    case BYTE:
+      return iIn.readByte();
+    case STRING:
+      return new String(readBytes(iIn), "UTF-8");
+    case DATETIME:
+      return new Date(iIn.readLong());
+    case DECIMAL:
+      return new BigDecimal(iIn.readUTF());
+    case BINARY:
+      return readBytes(iIn);
+    case EMBEDDED:
+      return readDocument(iIn);
+    case LINK:
+      return new ORecordId(iIn.readUTF());
+
+    case EMBEDDEDMAP: {
+      final int size = iIn.readInt();
+      final Map<Object, Object> map = new LinkedHashMap<Object, Object>(size);
+      for (int i = 0; i < size; i++)
+        map.put(readValue(iIn), readValue(iIn));
+      return map;
+    }
+
+    case EMBEDDEDSET:
+    case EMBEDDEDLIST: {
+      final int size = iIn.readInt();
+      final Collection<Object> items = type == OType.EMBEDDEDSET.getId() ? new LinkedHashSet<Object>(size)
+          : new ArrayList<Object>(size);
+      for (int i = 0; i < size; i++)
+        items.add(readValue(iIn));
+      return items;
+    }
+
+    case CUSTOM:
+      try {
+        final ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(readBytes(iIn)));
+        try {
+          return objectIn.readObject();
+        } finally {
+          objectIn.close();
+        }
+      } catch (ClassNotFoundException e) {
+        throw new OCommandExecutionException("Cannot read a value from the temporary file of sorted records", e);
+      }
+
+    default:
+      throw new OCommandExecutionException("Unexpected type " + type + " in the temporary file of sorted records");
+    }
+  }
+
+  private static void writeBytes(final DataOutputStream iOut, final byte[] iBytes) throws IOException {
+    iOut.writeInt(iBytes.length);
+    iOut.write(iBytes);
+  }
+
+  private static byte[] readBytes(final DataInputStream iIn) throws IOException {
+    final byte[] bytes = new byte[iIn.readInt()];
+    iIn.readFully(bytes);
+    return bytes;
+  }
+
+  private final class HeapEntry implements Comparable<HeapEntry> {
+    private final OIdentifiable record;
+    private final long          sequence;
+
+    private HeapEntry(final OIdentifiable iRecord, final long iSequence) {
+      record = iRecord;
+      sequence = iSequence;
+    }
+
+    public int compareTo(final HeapEntry iOther) {
+      final int result = comparator.compare(record, iOther.record);
+      if (result != 0)
+        return result;
+      return sequence < iOther.sequence ? -1 : (sequence == iOther.sequence ? 0 : 1);
+    }
+  }
+
+  /**
+   * Current record of a run. Runs are ordered by their current record, then by the order they have been written.
+   */
+  private final class RunCursor implements Comparable<RunCursor> {
+    private final int                     index;
+    private final DataInputStream         in;
+    private final Iterator<OIdentifiable> iterator;
+    private int                           remaining;
+    private OIdentifiable                 current;
+
+    private RunCursor(final int iIndex, final File iFile) throws IOException {
+      index = iIndex;
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(iFile)));
+      iterator = null;
+      remaining = in.readInt();
+    }
+
+    private RunCursor(final int iIndex, final Iterator<OIdentifiable> iIterator) {
+      index = iIndex;
+      in = null;
+      iterator = iIterator;
+    }
+
+    private boolean next() throws IOException {
+      if (iterator != null) {
+        current = iterator.hasNext() ? iterator.next() : null;
+        return current != null;
+      }
+
+      if (remaining == 0) {
+        current = null;
+        in.close();
+        return false;
+      }
+
+      remaining--;
+      current = readRecord(in);
+      return true;
+    }
+
+    private void close() throws IOException {
+      if (in != null)
+        in.close();
+    }
+
+    public int compareTo(final RunCursor iOther) {
+      final int result = comparator.compare(current, iOther.current);
+      if (result != 0)
+        return result;
+      return index - iOther.index;
+    }
+  }
+
+  private final class MergeIterator implements Iterator<OIdentifiable> {
+    private final PriorityQueue<RunCursor> cursors = new PriorityQueue<RunCursor>();
+    private int                            returned;
+
+    private MergeIterator() {
+      try {
+        for (int i = 0; i < runs.size(); ++i)
+          push(new RunCursor(i, runs.get(i)));
+
+        // RECORDS IN MEMORY ARE THE LAST COLLECTED
+        push(new RunCursor(runs.size(), records.iterator()));
+
+        for (int i = 0; i < skip && !cursors.isEmpty(); ++i)
+          nextRecord();
+        returned = 0;
+
+      } catch (IOException e) {
+        closeCursors();
+        throw new OCommandExecutionException("Error on reading sorted records from a temporary file", e);
+      }
+    }
+
+    public boolean hasNext() {
+      if (limit > -1 && returned >= limit) {
+        closeCursors();
+        return false;
+      }
+      return !cursors.isEmpty();
+    }
+
+    public OIdentifiable next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      try {
+        return nextRecord();
+      } catch (IOException e) {
+        closeCursors();
+        throw new OCommandExecutionException("Error on reading sorted records from a temporary file", e);
+      }
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private OIdentifiable nextRecord() throws IOException {
+      final RunCursor cursor = cursors.poll();
+      final OIdentifiable record = cursor.current;
+      push(cursor);
+      returned++;
+      return record;
+    }
+
+    private void push(final RunCursor iCursor) throws IOException {
+      if (iCursor.next())
+        cursors.add(iCursor);
+    }
+
+    private void closeCursors() {
+      for (RunCursor cursor : cursors)
+        try {
+          cursor.close();
+        } catch (IOException e) {
+          OLogManager.instance().warn(this, "Cannot close temporary file of sorted records", e);
+        }
+      cursors.clear();
+    }
+  }
+}
@@ -35,10 +35,10 @@ import com.orientechnologies.orient.core.sql.method.misc.OSQLMethodField;
  * 
  */
 public class OSQLFilterItemField extends OSQLFilterItemAbstract {
-  protected Set<String> preLoadedFields;
-  protected String[]    preLoadedFieldsArray;
-  protected String      name;
-  protected OCollate    collate;
+  protected Set<String>       preLoadedFields;
+  protected volatile String[] preLoadedFieldsArray;
+  protected String            name;
+  protected OCollate          collate;
 
   public OSQLFilterItemField(final OBaseParser iQueryToParse, final String iName) {
     super(iQueryToParse, iName);
@@ -50,12 +50,24 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
 
     final ODocument doc = (ODocument) iRecord.getRecord();
 
-    if (preLoadedFieldsArray == null && preLoadedFields != null && preLoadedFields.size() > 0 && preLoadedFields.size() < 5) {
-      // TRANSFORM THE SET IN ARRAY ONLY THE FIRST TIME AND IF FIELDS ARE MORE THAN ONE, OTHERWISE GO WITH THE DEFAULT BEHAVIOR
-      preLoadedFieldsArray = new String[preLoadedFields.size()];
-      preLoadedFields.toArray(preLoadedFieldsArray);
+    if (name.length() > 0 && name.charAt(0) == '@') {
+      // RECORD ATTRIBUTE: NO FIELDS TO UNMARSHALL
+      collate = null;
+      return transformValue(iRecord, iContext, ODocumentHelper.getFieldValue(doc, name));
     }
 
+    if (preLoadedFieldsArray == null)
+      if (preLoadedFields == null || preLoadedFields.isEmpty())
+        // NOT PART OF A CONDITION (PROJECTION, ORDER BY, ...): UNMARSHALL THE FIELD ONLY
+        preLoadedFieldsArray = new String[] { name };
+      else if (preLoadedFields.size() < 5) {
+        // TRANSFORM THE SET IN ARRAY ONLY THE FIRST TIME AND IF FIELDS ARE MORE THAN ONE, OTHERWISE GO WITH THE DEFAULT BEHAVIOR.
+        // THE ARRAY IS ASSIGNED ONCE FILLED: THE ITEM CAN BE EVALUATED BY SEVERAL THREADS
+        final String[] fields = new String[preLoadedFields.size()];
+        preLoadedFields.toArray(fields);
+        preLoadedFieldsArray = fields;
+      }
+
     // UNMARSHALL THE SINGLE FIELD
     if (doc.deserializeFields(preLoadedFieldsArray)) {
       // FIELD FOUND
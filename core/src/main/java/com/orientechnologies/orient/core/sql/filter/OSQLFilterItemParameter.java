@@ -53,4 +53,11 @@ public class OSQLFilterItemParameter implements OSQLFilterItem {
 	public void setValue(Object value) {
 		this.value = value;
 	}
+
+	/**
+	 * Unbinds the value, to execute the parsed statement again.
+	 */
+	public void reset() {
+		value = NOT_SETTED;
+	}
 }
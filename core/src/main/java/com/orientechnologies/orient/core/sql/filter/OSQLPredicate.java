@@ -368,6 +368,17 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     }
   }
 
+  /**
+   * Unbinds the parameters bound by the last execution.
+   */
+  public void resetParameters() {
+    if (parameterItems == null)
+      return;
+
+    for (OSQLFilterItemParameter value : parameterItems)
+      value.reset();
+  }
+
   public OSQLFilterItemParameter addParameter(final String iName) {
     final String name;
     if (iName.charAt(0) == OStringSerializerHelper.PARAMETER_NAMED) {
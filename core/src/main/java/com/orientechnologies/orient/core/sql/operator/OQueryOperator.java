@@ -22,8 +22,11 @@ import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 import com.orientechnologies.orient.core.sql.operator.math.*;
@@ -140,6 +143,24 @@ public abstract class OQueryOperator {
     return null;
   }
 
+  /**
+   * Estimates how many records {@link #executeIndexQuery} returns for given parameters, using the statistics of the index. The
+   * estimate drives the choice between the indexes involved in a query and the scan of the class.
+   * 
+   * @param iContext
+   *          Context of the query.
+   * @param index
+   *          Instance of index that will be used to calculate result of operator execution.
+   * @param statistics
+   *          Statistics of the index.
+   * @param keyParams
+   *          Parameters of query is used to calculate query result.
+   * @return Estimated number of records or -1 if the operator cannot estimate it.
+   */
+  public long estimateIndexRows(OCommandContext iContext, OIndex<?> index, OIndexStatistics statistics, List<Object> keyParams) {
+    return -1;
+  }
+
   @Override
   public String toString() {
     return keyword;
@@ -204,6 +225,59 @@ public abstract class OQueryOperator {
     return ORDER.EQUAL;
   }
 
+  /**
+   * Estimates the records of an equality condition: the average records of a key when all the fields of the index are involved,
+   * the records of the keys that start with the given values otherwise.
+   */
+  protected long estimateEqualityIndexRows(final OIndex<?> index, final OIndexStatistics statistics, final List<Object> keyParams) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+    if (indexDefinition.getParamCount() == keyParams.size())
+      return statistics.estimateEquals();
+
+    final Object key = ((OCompositeIndexDefinition) indexDefinition).createSingleValue(keyParams);
+    if (key == null)
+      return -1;
+
+    return statistics.estimateBetween(key, true, key, true);
+  }
+
+  /**
+   * Estimates the records of a range condition on the last field involved, the previous ones being in equality conditions.
+   * 
+   * @param major
+   *          <code>true</code> if the range is bounded on the left, <code>false</code> if it is bounded on the right
+   * @param inclusive
+   *          <code>true</code> if the boundary is included in the range
+   */
+  protected long estimateRangeIndexRows(final OIndex<?> index, final OIndexStatistics statistics, final List<Object> keyParams,
+      final boolean major, final boolean inclusive) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+
+    if (indexDefinition.getParamCount() == 1) {
+      final Object key;
+      if (indexDefinition instanceof OIndexDefinitionMultiValue)
+        key = ((OIndexDefinitionMultiValue) indexDefinition).createSingleValue(keyParams.get(0));
+      else
+        key = indexDefinition.createValue(keyParams);
+
+      if (key == null)
+        return -1;
+
+      return major ? statistics.estimateBetween(key, inclusive, null, false) : statistics.estimateBetween(null, false, key,
+          inclusive);
+    }
+
+    final OCompositeIndexDefinition compositeIndexDefinition = (OCompositeIndexDefinition) indexDefinition;
+    final Object key = compositeIndexDefinition.createSingleValue(keyParams);
+    final Object equalityKey = compositeIndexDefinition.createSingleValue(keyParams.subList(0, keyParams.size() - 1));
+
+    if (key == null || equalityKey == null)
+      return -1;
+
+    return major ? statistics.estimateBetween(key, inclusive, equalityKey, true) : statistics.estimateBetween(equalityKey, true,
+        key, inclusive);
+  }
+
   protected void updateProfiler(final OCommandContext iContext, final OIndex<?> index, final List<Object> keyParams,
       final OIndexDefinition indexDefinition) {
     if (iContext.isRecordingMetrics())
@@ -28,6 +28,7 @@ import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
@@ -161,6 +162,32 @@ public class OQueryOperatorBetween extends OQueryOperatorEqualityNotNulls {
     return result;
   }
 
+  @Override
+  public long estimateIndexRows(OCommandContext iContext, OIndex<?> index, OIndexStatistics statistics, List<Object> keyParams) {
+    final OIndexDefinition indexDefinition = index.getDefinition();
+    final Object[] betweenKeys = (Object[]) keyParams.get(keyParams.size() - 1);
+
+    final List<Object> keyOneParams = new ArrayList<Object>(keyParams.subList(0, keyParams.size() - 1));
+    keyOneParams.add(OSQLHelper.getValue(betweenKeys[0]));
+    final List<Object> keyTwoParams = new ArrayList<Object>(keyParams.subList(0, keyParams.size() - 1));
+    keyTwoParams.add(OSQLHelper.getValue(betweenKeys[2]));
+
+    final Object keyOne;
+    final Object keyTwo;
+    if (indexDefinition.getParamCount() == 1) {
+      keyOne = indexDefinition.createValue(keyOneParams);
+      keyTwo = indexDefinition.createValue(keyTwoParams);
+    } else {
+      keyOne = ((OCompositeIndexDefinition) indexDefinition).createSingleValue(keyOneParams);
+      keyTwo = ((OCompositeIndexDefinition) indexDefinition).createSingleValue(keyTwoParams);
+    }
+
+    if (keyOne == null || keyTwo == null)
+      return -1;
+
+    return statistics.estimateBetween(keyOne, true, keyTwo, true);
+  }
+
   @Override
   public ORID getBeginRidRange(final Object iLeft, final Object iRight) {
     validate(iRight);
@@ -29,6 +29,7 @@ import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 
 /**
@@ -197,6 +198,11 @@ public class OQueryOperatorContains extends OQueryOperatorEqualityNotNulls {
     return result;
   }
 
+  @Override
+  public long estimateIndexRows(OCommandContext iContext, OIndex<?> index, OIndexStatistics statistics, List<Object> keyParams) {
+    return estimateEqualityIndexRows(index, statistics, keyParams);
+  }
+
   @Override
   public ORID getBeginRidRange(Object iLeft, Object iRight) {
     return null;
@@ -31,6 +31,7 @@ import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.index.OPropertyMapIndexDefinition;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
@@ -180,6 +181,11 @@ public class OQueryOperatorContainsValue extends OQueryOperatorEqualityNotNulls
     return result;
   }
 
+  @Override
+  public long estimateIndexRows(OCommandContext iContext, OIndex<?> index, OIndexStatistics statistics, List<Object> keyParams) {
+    return estimateEqualityIndexRows(index, statistics, keyParams);
+  }
+
   @Override
   public ORID getBeginRidRange(Object iLeft, Object iRight) {
     return null;
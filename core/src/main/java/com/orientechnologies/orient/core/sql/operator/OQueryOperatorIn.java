@@ -24,6 +24,7 @@ import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
@@ -158,6 +159,14 @@ public class OQueryOperatorIn extends OQueryOperatorEqualityNotNulls {
     return result;
   }
 
+  @Override
+  public long estimateIndexRows(OCommandContext iContext, OIndex<?> index, OIndexStatistics statistics, List<Object> keyParams) {
+    if (index.getDefinition().getParamCount() != 1 || !(keyParams.get(0) instanceof List<?>))
+      return -1;
+
+    return ((List<?>) keyParams.get(0)).size() * statistics.estimateEquals();
+  }
+
   @Override
   public ORID getBeginRidRange(Object iLeft, Object iRight) {
     final Iterable<?> ridCollection;
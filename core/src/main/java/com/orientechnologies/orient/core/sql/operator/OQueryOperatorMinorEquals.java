@@ -114,6 +114,11 @@ public class OQueryOperatorMinorEquals extends OQueryOperatorEqualityNotNulls {
     return result;
   }
 
+  @Override
+  public long estimateIndexRows(OCommandContext iContext, OIndex<?> index, OIndexStatistics statistics, List<Object> keyParams) {
+    return estimateRangeIndexRows(index, statistics, keyParams, false, true);
+  }
+
   @Override
   public ORID getBeginRidRange(Object iLeft, Object iRight) {
     return null;
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.query;
+
+import com.orientechnologies.orient.core.command.OCommandCursor;
+import com.orientechnologies.orient.core.command.OCommandResultCursor;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.storage.OStorageProxy;
+
+/**
+ * SQL query that returns a cursor instead of the whole result: the records are read a batch at a time while the query is still
+ * executing, so the memory used does not grow with the result. Against a remote database the query executes on the server and
+ * every batch is fetched with a request. Read the cursor until the end or close it, otherwise the query is released only when the
+ * cursor times out.
+ *
+ * <pre>
+ * OCommandCursor&lt;ODocument&gt; cursor = db.command(new OSQLCursorQuery&lt;ODocument&gt;(&quot;select from Account&quot;, 1000)).execute();
+ * </pre>
+ *
+ * @param <T>
+ *          Record type to return.
+ * @see OGlobalConfiguration#COMMAND_CURSOR_FETCH_SIZE
+ * @see OGlobalConfiguration#COMMAND_CURSOR_TIMEOUT
+ */
+@SuppressWarnings("serial")
+public class OSQLCursorQuery<T> extends OSQLAsynchQuery<T> implements Iterable<T> {
+  private int fetchSize = OGlobalConfiguration.COMMAND_CURSOR_FETCH_SIZE.getValueAsInteger();
+
+  /**
+   * Empty constructor for unmarshalling.
+   */
+  public OSQLCursorQuery() {
+  }
+
+  public OSQLCursorQuery(final String iText) {
+    super(iText);
+  }
+
+  public OSQLCursorQuery(final String iText, final int iFetchSize) {
+    super(iText);
+    fetchSize = iFetchSize;
+  }
+
+  /**
+   * Opens the cursor.
+   *
+   * @return The {@link OCommandCursor} over the result
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <RET> RET execute(final Object... iArgs) {
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
+    if (database == null)
+      throw new OQueryParsingException("No database configured");
+
+    setParameters(iArgs);
+
+    if (database.getStorage() instanceof OStorageProxy)
+      // THE CURSOR STAYS ON THE SERVER
+      return (RET) database.getStorage().command(this);
+
+    return (RET) new OCommandResultCursor<T>(database, this, fetchSize);
+  }
+
+  public OCommandCursor<T> iterator() {
+    return execute();
+  }
+
+  /**
+   * Returns the number of records read with every batch.
+   */
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  public OSQLCursorQuery<T> setFetchSize(final int iFetchSize) {
+    fetchSize = iFetchSize;
+    return this;
+  }
+
+  @Override
+  public boolean isAsynchronous() {
+    return false;
+  }
+}
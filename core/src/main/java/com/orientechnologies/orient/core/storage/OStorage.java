@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.storage;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -88,6 +89,14 @@ public interface OStorage extends OBackupable, OSharedContainer {
   public OStorageOperationResult<ORawBuffer> readRecord(ORecordId iRid, String iFetchPlan, boolean iIgnoreCache,
       ORecordCallback<ORawBuffer> iCallback, boolean loadTombstones);
 
+  /**
+   * Reads several records at once. The records are read in cluster and position order, the storages on the network read them
+   * with a single request.
+   * 
+   * @return The buffers of the records in the order of the record ids, null for the records not found
+   */
+  public List<ORawBuffer> readRecords(List<ORecordId> iRids, String iFetchPlan);
+
   public OStorageOperationResult<ORecordVersion> updateRecord(ORecordId iRecordId, byte[] iContent, ORecordVersion iVersion,
       byte iRecordType, int iMode, ORecordCallback<ORecordVersion> iCallback);
 
@@ -15,6 +15,11 @@
  */
 package com.orientechnologies.orient.core.storage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
@@ -31,6 +36,7 @@ import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.exception.OSecurityException;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.metadata.OMetadata;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
@@ -176,6 +182,24 @@ public abstract class OStorageAbstract extends OSharedContainerImpl implements O
     return tot;
   }
 
+  public List<ORawBuffer> readRecords(final List<ORecordId> iRids, final String iFetchPlan) {
+    final List<Integer> order = new ArrayList<Integer>(iRids.size());
+    for (int i = 0; i < iRids.size(); ++i)
+      order.add(i);
+
+    // READ IN CLUSTER AND POSITION ORDER: THE RECORDS OF THE SAME PAGES ARE READ TOGETHER
+    Collections.sort(order, new Comparator<Integer>() {
+      public int compare(final Integer iFirst, final Integer iSecond) {
+        return iRids.get(iFirst).compareTo(iRids.get(iSecond));
+      }
+    });
+
+    final ORawBuffer[] buffers = new ORawBuffer[iRids.size()];
+    for (int i : order)
+      buffers[i] = readRecord(iRids.get(i), iFetchPlan, false, null, false).getResult();
+    return Arrays.asList(buffers);
+  }
+
   public <V> V callInLock(final Callable<V> iCallable, final boolean iExclusiveLock) {
     if (iExclusiveLock)
       lock.acquireExclusiveLock();
@@ -83,6 +83,27 @@ public class OFileClassic extends OAbstractFile {
     }
   }
 
+  /**
+   * Writes content of passed in buffers one after another starting from given position. Buffers are passed to the file channel as
+   * single gathering write, so adjacent pages are stored by one system call.
+   */
+  public void write(long iOffset, ByteBuffer[] iBuffers) throws IOException {
+    acquireWriteLock();
+    try {
+      long bytesToWrite = 0;
+      for (ByteBuffer buffer : iBuffers)
+        bytesToWrite += buffer.remaining();
+
+      channel.position(iOffset + HEADER_SIZE);
+      while (bytesToWrite > 0)
+        bytesToWrite -= channel.write(iBuffers);
+
+      setDirty();
+    } finally {
+      releaseWriteLock();
+    }
+  }
+
   private void writeInternal(long iOffset, byte[] iData, int iSize, int iArrayOffset) throws IOException {
     if (iData != null) {
       iOffset += HEADER_SIZE;
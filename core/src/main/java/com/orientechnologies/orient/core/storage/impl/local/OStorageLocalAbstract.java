@@ -48,7 +48,7 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
   protected volatile OWriteAheadLog writeAheadLog;
   protected volatile ODiskCache     diskCache;
 
-  protected OStorageTransaction     transaction = null;
+  protected final ThreadLocal<OStorageTransaction> transaction = new ThreadLocal<OStorageTransaction>();
 
   public OStorageLocalAbstract(String name, String filePath, String mode) {
     super(name, filePath, mode);
@@ -72,13 +72,12 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
 
   public abstract boolean check(boolean b, OCommandOutputListener dbCheckTest);
 
+  /**
+   * Returns storage transaction which is committed by current thread. Transactions are bound to the thread which commits them so
+   * several transactions which do not touch the same clusters and indexes may be committed concurrently.
+   */
   public OStorageTransaction getStorageTransaction() {
-    lock.acquireSharedLock();
-    try {
-      return transaction;
-    } finally {
-      lock.releaseSharedLock();
-    }
+    return transaction.get();
   }
 
   @Override
@@ -110,28 +109,32 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
     if (writeAheadLog == null)
       return;
 
-    writeAheadLog.log(new OAtomicUnitEndRecord(transaction.getOperationUnitId(), false));
+    writeAheadLog.log(new OAtomicUnitEndRecord(transaction.get().getOperationUnitId(), false));
   }
 
   protected void startStorageTx(OTransaction clientTx) throws IOException {
     if (writeAheadLog == null)
       return;
 
-    if (transaction != null && transaction.getClientTx().getId() != clientTx.getId())
+    final OStorageTransaction storageTransaction = transaction.get();
+    if (storageTransaction != null && storageTransaction.getClientTx().getId() != clientTx.getId())
       rollback(clientTx);
 
-    transaction = new OStorageTransaction(clientTx, OOperationUnitId.generateId());
+    final OStorageTransaction newTransaction = new OStorageTransaction(clientTx, OOperationUnitId.generateId());
+    transaction.set(newTransaction);
 
-    OLogSequenceNumber startLSN = writeAheadLog.log(new OAtomicUnitStartRecord(true, transaction.getOperationUnitId()));
-    transaction.setStartLSN(startLSN);
+    OLogSequenceNumber startLSN = writeAheadLog.log(new OAtomicUnitStartRecord(true, newTransaction.getOperationUnitId()));
+    newTransaction.setStartLSN(startLSN);
   }
 
   protected void rollbackStorageTx() throws IOException {
-    if (writeAheadLog == null || transaction == null)
+    final OStorageTransaction storageTransaction = transaction.get();
+    if (writeAheadLog == null || storageTransaction == null)
       return;
 
-    writeAheadLog.log(new OAtomicUnitEndRecord(transaction.getOperationUnitId(), true));
-    final List<OWALRecord> operationUnit = readOperationUnit(transaction.getStartLSN(), transaction.getOperationUnitId());
+    writeAheadLog.log(new OAtomicUnitEndRecord(storageTransaction.getOperationUnitId(), true));
+    final List<OWALRecord> operationUnit = readOperationUnit(storageTransaction.getStartLSN(),
+        storageTransaction.getOperationUnitId());
     undoOperation(operationUnit);
   }
 
@@ -180,27 +183,7 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
       }
 
       if (record instanceof OUpdatePageRecord) {
-        OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) record;
-        final long fileId = updatePageRecord.getFileId();
-        final long pageIndex = updatePageRecord.getPageIndex();
-
-        if (!diskCache.isOpen(fileId))
-          diskCache.openFile(fileId);
-
-        OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
-        OCachePointer cachePointer = cacheEntry.getCachePointer();
-        cachePointer.acquireExclusiveLock();
-        try {
-          ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
-
-          OPageChanges pageChanges = updatePageRecord.getChanges();
-          durablePage.revertChanges(pageChanges);
-
-          durablePage.setLsn(updatePageRecord.getPrevLsn());
-        } finally {
-          cachePointer.releaseExclusiveLock();
-          diskCache.release(cacheEntry);
-        }
+        revertPageChanges((OUpdatePageRecord) record);
       } else {
         OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
             record.getClass());
@@ -209,6 +192,29 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
     }
   }
 
+  protected void revertPageChanges(OUpdatePageRecord updatePageRecord) throws IOException {
+    final long fileId = updatePageRecord.getFileId();
+    final long pageIndex = updatePageRecord.getPageIndex();
+
+    if (!diskCache.isOpen(fileId))
+      diskCache.openFile(fileId);
+
+    OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
+    OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireExclusiveLock();
+    try {
+      ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
+
+      OPageChanges pageChanges = updatePageRecord.getChanges();
+      durablePage.revertChanges(pageChanges);
+
+      durablePage.setLsn(updatePageRecord.getPrevLsn());
+    } finally {
+      cachePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+  }
+
   protected boolean checkFirstAtomicUnitRecord(int index, OWALRecord record) {
     boolean isAtomicUnitStartRecord = record instanceof OAtomicUnitStartRecord;
     if (isAtomicUnitStartRecord && index != 0) {
@@ -21,6 +21,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.concur.lock.OModificationLock;
@@ -36,6 +38,8 @@ import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageClusterConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.config.OStoragePaginatedClusterConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
 import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.db.record.ridset.sbtree.OIndexRIDContainer;
 import com.orientechnologies.orient.core.engine.local.OEngineLocalPaginated;
@@ -43,6 +47,7 @@ import com.orientechnologies.orient.core.exception.OConcurrentModificationExcept
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OFastConcurrentModificationException;
 import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.exception.OTransactionAbortedException;
 import com.orientechnologies.orient.core.id.OClusterPosition;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
@@ -51,6 +56,7 @@ import com.orientechnologies.orient.core.index.engine.OSBTreeIndexEngine;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.*;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
 import com.orientechnologies.orient.core.metadata.OMetadataDefault;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.*;
 import com.orientechnologies.orient.core.storage.impl.local.ODataLocal;
@@ -162,10 +168,18 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         * diskCacheSize);
     long readCacheSize = diskCacheSize - writeCacheSize;
 
-    diskCache = new OReadWriteDiskCache(name, readCacheSize, writeCacheSize,
-        OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB,
-        OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
-        OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true);
+    final int diskCachePartitions = OGlobalConfiguration.DISK_CACHE_PARTITIONS.getValueAsInteger();
+    if (diskCachePartitions > 1)
+      diskCache = new OPartitionedReadWriteDiskCache(name, readCacheSize, writeCacheSize,
+          OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB,
+          OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
+          OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true,
+          diskCachePartitions);
+    else
+      diskCache = new OReadWriteDiskCache(name, readCacheSize, writeCacheSize,
+          OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB,
+          OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
+          OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true);
   }
 
   public void open(final String iUserName, final String iUserPassword, final Map<String, Object> iProperties) {
@@ -442,6 +456,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     long recordsProcessed = 0;
     int reportInterval = OGlobalConfiguration.WAL_REPORT_AFTER_OPERATIONS_DURING_RESTORE.getValueAsInteger();
 
+    final int restoreThreads = OGlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger();
+    final ParallelPageRestore parallelRestore = restoreThreads > 1 ? new ParallelPageRestore(restoreThreads) : null;
+
     Map<OOperationUnitId, List<OWALRecord>> operationUnits = new HashMap<OOperationUnitId, List<OWALRecord>>();
     try {
       while (lsn != null) {
@@ -463,7 +480,12 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
           if (operationUnitRecord instanceof OAtomicUnitEndRecord) {
             OAtomicUnitEndRecord atomicUnitEndRecord = (OAtomicUnitEndRecord) walRecord;
 
-            if (atomicUnitEndRecord.isRollback())
+            if (parallelRestore != null) {
+              if (atomicUnitEndRecord.isRollback())
+                parallelRestore.undo(records);
+              else
+                parallelRestore.redo(records);
+            } else if (atomicUnitEndRecord.isRollback())
               undoOperation(records);
             else
               redoOperation(records);
@@ -474,17 +496,30 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
           OLogManager.instance().warn(this, "Record %s will be skipped during data restore.", walRecord);
 
         recordsProcessed++;
-        if (reportInterval > 0 && recordsProcessed % reportInterval == 0)
-          OLogManager.instance().info(this, "%d operations were processed, current LSN is %s last LSN is %s", recordsProcessed,
-              lsn, writeAheadLog.end());
+        if (reportInterval > 0 && recordsProcessed % reportInterval == 0) {
+          if (parallelRestore != null)
+            OLogManager.instance().info(this,
+                "%d operations were processed, %d page changes were applied, current LSN is %s last LSN is %s", recordsProcessed,
+                parallelRestore.getAppliedChanges(), lsn, writeAheadLog.end());
+          else
+            OLogManager.instance().info(this, "%d operations were processed, current LSN is %s last LSN is %s", recordsProcessed,
+                lsn, writeAheadLog.end());
+        }
 
         lsn = writeAheadLog.next(lsn);
       }
     } catch (OWALPageBrokenException e) {
       OLogManager.instance().error(this,
           "Data restore was paused because broken WAL page was found. The rest of changes will be rolled back.");
+    } finally {
+      if (parallelRestore != null)
+        parallelRestore.waitTillApplied();
     }
 
+    if (parallelRestore != null)
+      OLogManager.instance().info(this, "%d page changes were applied by %d threads", parallelRestore.getAppliedChanges(),
+          restoreThreads);
+
     rollbackAllUnfinishedWALOperations(operationUnits);
   }
 
@@ -498,28 +533,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         continue;
 
       if (record instanceof OUpdatePageRecord) {
-        final OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) record;
-
-        final long fileId = updatePageRecord.getFileId();
-        final long pageIndex = updatePageRecord.getPageIndex();
-
-        if (!diskCache.isOpen(fileId))
-          diskCache.openFile(fileId);
-
-        final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
-        final OCachePointer cachePointer = cacheEntry.getCachePointer();
-        cachePointer.acquireExclusiveLock();
-        try {
-          ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
-          durablePage.restoreChanges(updatePageRecord.getChanges());
-          durablePage.setLsn(updatePageRecord.getLsn());
-
-          cacheEntry.markDirty();
-        } finally {
-          cachePointer.releaseExclusiveLock();
-          diskCache.release(cacheEntry);
-        }
-
+        restorePageChanges((OUpdatePageRecord) record);
       } else {
         OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
             record.getClass());
@@ -528,6 +542,28 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     }
   }
 
+  private void restorePageChanges(OUpdatePageRecord updatePageRecord) throws IOException {
+    final long fileId = updatePageRecord.getFileId();
+    final long pageIndex = updatePageRecord.getPageIndex();
+
+    if (!diskCache.isOpen(fileId))
+      diskCache.openFile(fileId);
+
+    final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
+    final OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireExclusiveLock();
+    try {
+      ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
+      durablePage.restoreChanges(updatePageRecord.getChanges());
+      durablePage.setLsn(updatePageRecord.getLsn());
+
+      cacheEntry.markDirty();
+    } finally {
+      cachePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+  }
+
   private void rollbackAllUnfinishedWALOperations(Map<OOperationUnitId, List<OWALRecord>> operationUnits) throws IOException {
     for (List<OWALRecord> operationUnit : operationUnits.values()) {
       if (operationUnit.isEmpty())
@@ -1424,54 +1460,170 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     return null;
   }
 
+  /**
+   * Commits transaction. Instead of exclusive lock on the whole storage only clusters which are touched by transaction are locked
+   * (in order of their ids to avoid deadlocks), so transactions which modify different clusters are committed concurrently. Indexes
+   * are locked by transaction itself before commit is started.
+   */
   public void commit(final OTransaction clientTx, Runnable callback) {
     modificationLock.requestModificationLock();
     try {
-      lock.acquireExclusiveLock();
+      lock.acquireSharedLock();
       try {
         if (writeAheadLog == null)
           throw new OStorageException("WAL mode is not active. Transactions are not supported in given mode");
 
-        startStorageTx(clientTx);
+        final SortedMap<Integer, OPaginatedCluster> lockedClusters = new TreeMap<Integer, OPaginatedCluster>();
+        try {
+          lockTxClusters(clientTx.getCurrentRecordEntries(), lockedClusters);
 
-        final List<ORecordOperation> tmpEntries = new ArrayList<ORecordOperation>();
+          startStorageTx(clientTx);
 
-        while (clientTx.getCurrentRecordEntries().iterator().hasNext()) {
-          for (ORecordOperation txEntry : clientTx.getCurrentRecordEntries())
-            tmpEntries.add(txEntry);
+          final List<ORecordOperation> tmpEntries = new ArrayList<ORecordOperation>();
 
-          clientTx.clearRecordEntries();
+          while (clientTx.getCurrentRecordEntries().iterator().hasNext()) {
+            for (ORecordOperation txEntry : clientTx.getCurrentRecordEntries())
+              tmpEntries.add(txEntry);
 
-          for (ORecordOperation txEntry : tmpEntries)
-            // COMMIT ALL THE SINGLE ENTRIES ONE BY ONE
-            commitEntry(clientTx, txEntry);
-        }
+            clientTx.clearRecordEntries();
 
-        if (callback != null)
-          callback.run();
+            // RECORDS NOT REACHABLE FROM THE ENTRIES CAN STILL BE ADDED DURING SERIALIZATION (BY HOOKS), LOCK THEIR CLUSTERS TOO
+            lockAddedTxClusters(tmpEntries, lockedClusters);
 
-        endStorageTx();
+            for (ORecordOperation txEntry : tmpEntries)
+              // COMMIT ALL THE SINGLE ENTRIES ONE BY ONE
+              commitEntry(clientTx, txEntry);
+          }
 
-        OTransactionAbstract.updateCacheFromEntries(clientTx, clientTx.getAllRecordEntries(), false);
+          if (callback != null)
+            callback.run();
 
-      } catch (Exception e) {
-        // WE NEED TO CALL ROLLBACK HERE, IN THE LOCK
-        OLogManager.instance().debug(this, "Error during transaction commit, transaction will be rolled back (tx-id=%d)", e,
-            clientTx.getId());
-        rollback(clientTx);
-        if (e instanceof OException)
-          throw ((OException) e);
-        else
-          throw new OStorageException("Error during transaction commit.", e);
+          endStorageTx();
+
+          OTransactionAbstract.updateCacheFromEntries(clientTx, clientTx.getAllRecordEntries(), false);
+
+        } catch (Exception e) {
+          // WE NEED TO CALL ROLLBACK HERE, IN THE LOCK
+          OLogManager.instance().debug(this, "Error during transaction commit, transaction will be rolled back (tx-id=%d)", e,
+              clientTx.getId());
+          rollback(clientTx);
+          if (e instanceof OException)
+            throw ((OException) e);
+          else
+            throw new OStorageException("Error during transaction commit.", e);
+        } finally {
+          transaction.set(null);
+
+          for (OPaginatedCluster cluster : lockedClusters.values())
+            cluster.releaseTxLock();
+        }
       } finally {
-        transaction = null;
-        lock.releaseExclusiveLock();
+        lock.releaseSharedLock();
       }
     } finally {
       modificationLock.releaseModificationLock();
     }
   }
 
+  /**
+   * Locks, before anything is written, the clusters of the entries and of the new or modified records reachable from them, which
+   * are saved during the serialization of the entries. Locks are acquired in ascending cluster id order.
+   */
+  private void lockTxClusters(final Iterable<? extends ORecordOperation> txEntries,
+      final SortedMap<Integer, OPaginatedCluster> lockedClusters) {
+    for (Map.Entry<Integer, OPaginatedCluster> entry : collectTxClusters(txEntries, lockedClusters).entrySet()) {
+      entry.getValue().acquireTxLock();
+      lockedClusters.put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Locks the clusters of the entries added while the transaction was already being written. The locks held are never released
+   * before the end of the commit, so only a cluster with an id higher than the locked ones is waited for: a cluster with a lower
+   * id is locked only if it's free, otherwise the transaction is aborted to avoid deadlocks with the other commits.
+   */
+  private void lockAddedTxClusters(final Iterable<? extends ORecordOperation> txEntries,
+      final SortedMap<Integer, OPaginatedCluster> lockedClusters) {
+    for (Map.Entry<Integer, OPaginatedCluster> entry : collectTxClusters(txEntries, lockedClusters).entrySet()) {
+      final OPaginatedCluster cluster = entry.getValue();
+
+      if (lockedClusters.isEmpty() || entry.getKey() > lockedClusters.lastKey())
+        cluster.acquireTxLock();
+      else if (!cluster.tryAcquireTxLock())
+        throw new OTransactionAbortedException("Cluster '" + cluster.getName()
+            + "' is locked by another transaction and can't be locked in order, because records of clusters with higher ids"
+            + " have already been written. Retry the transaction");
+
+      lockedClusters.put(entry.getKey(), cluster);
+    }
+  }
+
+  private SortedMap<Integer, OPaginatedCluster> collectTxClusters(final Iterable<? extends ORecordOperation> txEntries,
+      final SortedMap<Integer, OPaginatedCluster> lockedClusters) {
+    final SortedMap<Integer, OPaginatedCluster> clusters = new TreeMap<Integer, OPaginatedCluster>();
+    final Set<ORecord<?>> visited = Collections.newSetFromMap(new IdentityHashMap<ORecord<?>, Boolean>());
+
+    for (ORecordOperation txEntry : txEntries) {
+      final ORecord<?> record = txEntry.getRecord();
+      addTxCluster(record, clusters);
+
+      if (txEntry.type != ORecordOperation.DELETED)
+        collectReachableClusters(record, visited, clusters);
+    }
+
+    clusters.keySet().removeAll(lockedClusters.keySet());
+    return clusters;
+  }
+
+  private void addTxCluster(final ORecord<?> record, final SortedMap<Integer, OPaginatedCluster> clusters) {
+    int clusterId = record.getIdentity().getClusterId();
+    if (clusterId == ORID.CLUSTER_ID_INVALID && record instanceof ODocument && ((ODocument) record).getSchemaClass() != null)
+      clusterId = ((ODocument) record).getSchemaClass().getDefaultClusterId();
+
+    final OCluster cluster = getClusterById(clusterId);
+    if (cluster instanceof OPaginatedCluster)
+      clusters.put(cluster.getId(), (OPaginatedCluster) cluster);
+  }
+
+  /**
+   * Browses the value to find the linked records that the serializer saves in the transaction, without loading lazy links.
+   */
+  private void collectReachableClusters(final Object value, final Set<ORecord<?>> visited,
+      final SortedMap<Integer, OPaginatedCluster> clusters) {
+    if (value instanceof ODocument) {
+      final ODocument document = (ODocument) value;
+      if (!visited.add(document))
+        return;
+
+      final ORID rid = document.getIdentity();
+      if (!document.isEmbedded() && ((rid.isNew() && !rid.isTemporary()) || document.isDirty()))
+        addTxCluster(document, clusters);
+
+      for (Object fieldValue : document.fieldValues())
+        collectReachableClusters(fieldValue, visited, clusters);
+
+    } else if (value instanceof ORID) {
+      final ORID rid = (ORID) value;
+      if (rid.isValid() && rid.isNew()) {
+        final OCluster cluster = getClusterById(rid.getClusterId());
+        if (cluster instanceof OPaginatedCluster)
+          clusters.put(cluster.getId(), (OPaginatedCluster) cluster);
+      }
+
+    } else if (value instanceof ORecordLazyMultiValue) {
+      final Iterator<OIdentifiable> iterator = ((ORecordLazyMultiValue) value).rawIterator();
+      while (iterator.hasNext())
+        collectReachableClusters(iterator.next(), visited, clusters);
+
+    } else if (value instanceof Collection<?>) {
+      for (Object item : (Collection<?>) value)
+        collectReachableClusters(item, visited, clusters);
+
+    } else if (value instanceof Map<?, ?>)
+      for (Object item : ((Map<?, ?>) value).values())
+        collectReachableClusters(item, visited, clusters);
+  }
+
   private void commitEntry(final OTransaction clientTx, final ORecordOperation txEntry) throws IOException {
 
     if (txEntry.type != ORecordOperation.DELETED && !txEntry.getRecord().isDirty())
@@ -1563,15 +1715,16 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     checkOpeness();
     modificationLock.requestModificationLock();
     try {
-      lock.acquireExclusiveLock();
+      lock.acquireSharedLock();
       try {
-        if (transaction == null)
+        final OStorageTransaction storageTransaction = transaction.get();
+        if (storageTransaction == null)
           return;
 
         if (writeAheadLog == null)
           throw new OStorageException("WAL mode is not active. Transactions are not supported in given mode");
 
-        if (transaction.getClientTx().getId() != clientTx.getId())
+        if (storageTransaction.getClientTx().getId() != clientTx.getId())
           throw new OStorageException(
               "Passed in and active transaction are different transactions. Passed in transaction can not be rolled back.");
 
@@ -1582,8 +1735,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       } catch (IOException e) {
         throw new OStorageException("Error during transaction rollback.", e);
       } finally {
-        transaction = null;
-        lock.releaseExclusiveLock();
+        transaction.set(null);
+        lock.releaseSharedLock();
       }
     } finally {
       modificationLock.releaseModificationLock();
@@ -1992,4 +2145,169 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     cluster.getExternalModificationLock().allowModifications();
 
   }
+
+  /**
+   * Applies changes of pages restored from WAL by several threads. Changes of the same page are always applied by the same thread
+   * in the order they were submitted, so for every page changes are applied in the same order as during sequential restore.
+   */
+  private final class ParallelPageRestore {
+    private final PageRestoreTask                      STOP_TASK      = new PageRestoreTask(null, false);
+
+    private final List<BlockingQueue<PageRestoreTask>> queues;
+    private final List<Thread>                         workers;
+
+    private final AtomicReference<Throwable>           failure        = new AtomicReference<Throwable>();
+    private final AtomicLong                           appliedChanges = new AtomicLong();
+
+    private ParallelPageRestore(int threads) {
+      queues = new ArrayList<BlockingQueue<PageRestoreTask>>(threads);
+      workers = new ArrayList<Thread>(threads);
+
+      for (int i = 0; i < threads; i++) {
+        final BlockingQueue<PageRestoreTask> queue = new ArrayBlockingQueue<PageRestoreTask>(1024);
+        final Thread worker = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            applyChanges(queue);
+          }
+        });
+
+        worker.setDaemon(true);
+        worker.setName("WAL Restore Task #" + i + " of storage " + name);
+        worker.start();
+
+        queues.add(queue);
+        workers.add(worker);
+      }
+    }
+
+    private void redo(List<OWALRecord> records) throws IOException {
+      for (int i = 0; i < records.size(); i++) {
+        OWALRecord record = records.get(i);
+        if (checkFirstAtomicUnitRecord(i, record))
+          continue;
+
+        if (checkLastAtomicUnitRecord(i, record, records.size()))
+          continue;
+
+        submit(record, false);
+      }
+    }
+
+    private void undo(List<OWALRecord> records) throws IOException {
+      for (int i = records.size() - 1; i >= 0; i--) {
+        OWALRecord record = records.get(i);
+        if (checkFirstAtomicUnitRecord(i, record))
+          continue;
+
+        if (checkLastAtomicUnitRecord(i, record, records.size()))
+          continue;
+
+        submit(record, true);
+      }
+    }
+
+    private void submit(OWALRecord record, boolean undo) throws IOException {
+      if (!(record instanceof OUpdatePageRecord)) {
+        OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
+            record.getClass());
+        assert false : "Invalid WAL record type was passed " + record.getClass().getName();
+        return;
+      }
+
+      checkFailure();
+
+      final OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) record;
+      final long fileId = updatePageRecord.getFileId();
+      final long pageIndex = updatePageRecord.getPageIndex();
+
+      // FILES ARE OPENED BY SINGLE THREAD TO AVOID CONCURRENT OPEN OF THE SAME FILE
+      if (!diskCache.isOpen(fileId))
+        diskCache.openFile(fileId);
+
+      long hash = fileId * 31 + pageIndex;
+      hash ^= hash >>> 32;
+      final int queueIndex = (int) ((hash & Integer.MAX_VALUE) % queues.size());
+
+      try {
+        queues.get(queueIndex).put(new PageRestoreTask(updatePageRecord, undo));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OStorageException("Data restore was interrupted", e);
+      }
+    }
+
+    private void applyChanges(BlockingQueue<PageRestoreTask> queue) {
+      while (true) {
+        final PageRestoreTask task;
+        try {
+          task = queue.take();
+        } catch (InterruptedException e) {
+          failure.compareAndSet(null, e);
+          return;
+        }
+
+        if (task == STOP_TASK)
+          return;
+
+        // AFTER FIRST FAILURE CHANGES ARE ONLY DRAINED TO RELEASE THREAD WHICH READS LOG
+        if (failure.get() != null)
+          continue;
+
+        try {
+          if (task.undo)
+            revertPageChanges(task.record);
+          else
+            restorePageChanges(task.record);
+
+          appliedChanges.incrementAndGet();
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      }
+    }
+
+    private long getAppliedChanges() {
+      return appliedChanges.get();
+    }
+
+    /**
+     * Waits till all submitted changes are applied and stops worker threads.
+     */
+    private void waitTillApplied() throws IOException {
+      try {
+        for (BlockingQueue<PageRestoreTask> queue : queues)
+          queue.put(STOP_TASK);
+
+        for (Thread worker : workers)
+          worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OStorageException("Data restore was interrupted", e);
+      }
+
+      checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+      final Throwable e = failure.get();
+      if (e == null)
+        return;
+
+      if (e instanceof IOException)
+        throw (IOException) e;
+
+      throw new OStorageException("Error during data restore", e);
+    }
+  }
+
+  private static final class PageRestoreTask {
+    private final OUpdatePageRecord record;
+    private final boolean           undo;
+
+    private PageRestoreTask(OUpdatePageRecord record, boolean undo) {
+      this.record = record;
+      this.undo = undo;
+    }
+  }
 }
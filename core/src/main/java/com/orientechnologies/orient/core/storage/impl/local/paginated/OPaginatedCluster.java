@@ -1491,6 +1491,27 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
     return externalModificationLock;
   }
 
+  /**
+   * Locks cluster till the end of transaction commit, so changes of transaction are not visible to other threads till they are
+   * completely applied. Lock is reentrant so cluster operations called by the same thread are not blocked.
+   */
+  public void acquireTxLock() {
+    acquireExclusiveLock();
+  }
+
+  /**
+   * Locks cluster till the end of transaction commit only if it's not locked by other threads.
+   *
+   * @return true if the lock has been acquired
+   */
+  public boolean tryAcquireTxLock() {
+    return tryAcquireExclusiveLock();
+  }
+
+  public void releaseTxLock() {
+    releaseExclusiveLock();
+  }
+
   private static final class AddEntryResult {
     private final long           pageIndex;
     private final int            pagePosition;
@@ -24,8 +24,10 @@ import java.util.zip.CRC32;
 
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfilerMBean;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
@@ -37,6 +39,7 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstrac
  */
 public class OWriteAheadLog {
   private static final long           ONE_KB                  = 1024L;
+  private static final int            MAX_PAGES_PER_WRITE     = 64;
 
   public static final String          MASTER_RECORD_EXTENSION = ".wmr";
   public static final String          WAL_SEGMENT_EXTENSION   = ".wal";
@@ -71,6 +74,13 @@ public class OWriteAheadLog {
 
   private boolean                     closed;
 
+  private final boolean               groupCommit;
+  private final Object                groupCommitLock         = new Object();
+  private boolean                     groupCommitFlushInProgress;
+  private int                         pendingGroupCommits;
+  private long                        groupCommitFailures;
+  private Throwable                   groupCommitError;
+
   private static String calculateWalPath(OStorageLocalAbstract storage) {
     String walPath = OGlobalConfiguration.WAL_LOCATION.getValueAsString();
     if (walPath == null)
@@ -87,10 +97,23 @@ public class OWriteAheadLog {
 
   public OWriteAheadLog(int maxPagesCacheSize, int commitDelay, long maxSegmentSize, long maxLogSize, OStorageLocalAbstract storage)
       throws IOException {
+    this(maxPagesCacheSize, commitDelay, maxSegmentSize, maxLogSize, OGlobalConfiguration.WAL_GROUP_COMMIT.getValueAsBoolean(),
+        storage);
+  }
+
+  /**
+   * @param groupCommit
+   *          if <code>true</code> thread which logs {@link OAtomicUnitEndRecord} waits till this record is flushed and synced to the
+   *          disk. Records of all atomic units which are finished while WAL is flushed are flushed together by next thread which
+   *          waits for flush, so single fsync is performed for whole group of concurrent transactions.
+   */
+  public OWriteAheadLog(int maxPagesCacheSize, int commitDelay, long maxSegmentSize, long maxLogSize, boolean groupCommit,
+      OStorageLocalAbstract storage) throws IOException {
     this.maxPagesCacheSize = maxPagesCacheSize;
     this.commitDelay = commitDelay;
     this.maxSegmentSize = maxSegmentSize;
     this.maxLogSize = maxLogSize;
+    this.groupCommit = groupCommit;
     this.storage = storage;
 
     try {
@@ -317,6 +340,15 @@ public class OWriteAheadLog {
   }
 
   public OLogSequenceNumber log(OWALRecord record) throws IOException {
+    final OLogSequenceNumber lsn = appendRecord(record);
+
+    if (groupCommit && record instanceof OAtomicUnitEndRecord)
+      waitTillFlushed(lsn);
+
+    return lsn;
+  }
+
+  private OLogSequenceNumber appendRecord(OWALRecord record) throws IOException {
     synchronized (syncObject) {
       checkForClose();
 
@@ -370,6 +402,91 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * Waits till the record is flushed, flushing the log itself if no other thread is doing it. If a flush fails, all the commits
+   * which were waiting for it fail too instead of retrying the flush.
+   */
+  private void waitTillFlushed(OLogSequenceNumber lsn) throws IOException {
+    final long failures;
+    synchronized (groupCommitLock) {
+      pendingGroupCommits++;
+      failures = groupCommitFailures;
+    }
+
+    while (true) {
+      final int batchSize;
+
+      synchronized (groupCommitLock) {
+        while (groupCommitFlushInProgress && !isFlushed(lsn)) {
+          try {
+            groupCommitLock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OStorageException("Thread was interrupted during WAL group commit", e);
+          }
+        }
+
+        if (isFlushed(lsn))
+          return;
+
+        if (groupCommitFailures != failures)
+          throw new OStorageException("Error during WAL group commit flush, record " + lsn + " is not durable", groupCommitError);
+
+        groupCommitFlushInProgress = true;
+        batchSize = pendingGroupCommits;
+        pendingGroupCommits = 0;
+      }
+
+      Throwable error = null;
+      try {
+        groupCommitFlush(batchSize);
+      } catch (RuntimeException e) {
+        error = e;
+        throw e;
+      } catch (Error e) {
+        error = e;
+        throw e;
+      } finally {
+        synchronized (groupCommitLock) {
+          groupCommitFlushInProgress = false;
+          if (error != null) {
+            // FAIL THE COMMITS WAITING FOR THIS FLUSH
+            groupCommitFailures++;
+            groupCommitError = error;
+          }
+          groupCommitLock.notifyAll();
+        }
+      }
+    }
+  }
+
+  private boolean isFlushed(OLogSequenceNumber lsn) {
+    final OLogSequenceNumber flushed = flushedLsn;
+    return flushed != null && flushed.compareTo(lsn) >= 0;
+  }
+
+  private void groupCommitFlush(int batchSize) {
+    final LogSegment last;
+    synchronized (syncObject) {
+      checkForClose();
+
+      last = logSegments.get(logSegments.size() - 1);
+    }
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    final long timer = profiler.startChrono();
+
+    last.flush(true);
+
+    profiler.stopChrono("db." + storage.getName() + ".wal.groupCommitFlush", "Flush and sync of WAL pages by group commit",
+        timer, "db.*.wal.groupCommitFlush");
+    profiler.updateCounter("db." + storage.getName() + ".wal.groupCommitFlushes", "Amount of WAL flushes performed by group commit",
+        +1, "db.*.wal.groupCommitFlushes");
+    profiler.updateCounter("db." + storage.getName() + ".wal.groupCommitUnits",
+        "Amount of atomic units made durable by group commit, divided by amount of flushes gives average batch size", batchSize,
+        "db.*.wal.groupCommitUnits");
+  }
+
   public long size() {
     synchronized (syncObject) {
       return logSize;
@@ -597,7 +714,7 @@ public class OWriteAheadLog {
 
     public void startFlush() {
       if (commitDelay > 0)
-        commitExecutor.scheduleAtFixedRate(new FlushTask(), commitDelay, commitDelay, TimeUnit.MILLISECONDS);
+        commitExecutor.scheduleAtFixedRate(new FlushTask(false), commitDelay, commitDelay, TimeUnit.MILLISECONDS);
     }
 
     public void stopFlush(boolean flush) {
@@ -961,26 +1078,45 @@ public class OWriteAheadLog {
     }
 
     public void flush() {
+      flush(false);
+    }
+
+    /**
+     * @param force
+     *          if <code>true</code> pages are flushed even if background flush has already been marked content of cache as flushed,
+     *          it guarantees that all records which were logged before this call are flushed.
+     */
+    public void flush(boolean force) {
+      if (force)
+        flushNewData = true;
+
       final HashMap<Long, byte[]> pageCache = readCache.get();
       if (pageCache != null)
         pageCache.clear();
 
       if (!commitExecutor.isShutdown()) {
         try {
-          commitExecutor.submit(new FlushTask()).get();
+          commitExecutor.submit(new FlushTask(true)).get();
         } catch (InterruptedException e) {
           Thread.interrupted();
           throw new OStorageException("Thread was interrupted during flush", e);
         } catch (ExecutionException e) {
-          throw new OStorageException("Error during WAL segment " + getPath() + " flush.");
+          throw new OStorageException("Error during WAL segment " + getPath() + " flush.", e.getCause());
         }
       } else {
-        new FlushTask().run();
+        new FlushTask(true).run();
       }
     }
 
     private final class FlushTask implements Runnable {
-      private FlushTask() {
+      private final boolean propagateErrors;
+
+      /**
+       * @param propagateErrors
+       *          if <code>false</code> errors are only logged, so the periodical background flush is not cancelled by them.
+       */
+      private FlushTask(boolean propagateErrors) {
+        this.propagateErrors = propagateErrors;
       }
 
       @Override
@@ -988,6 +1124,9 @@ public class OWriteAheadLog {
         try {
           commit();
         } catch (Throwable e) {
+          if (propagateErrors)
+            throw new OStorageException("Error during WAL segment " + getPath() + " flush.", e);
+
           OLogManager.instance().error(this, "Error during WAL background flush", e);
         }
       }
@@ -1047,17 +1186,27 @@ public class OWriteAheadLog {
 
         synchronized (rndFile) {
           rndFile.seek(filePointer);
+
+          // PAGES ARE WRITTEN BY BIG SEQUENTIAL CHUNKS INSTEAD OF PAGE BY PAGE
+          final byte[] content = new byte[Math.min(pagesToFlush.length, MAX_PAGES_PER_WRITE) * OWALPage.PAGE_SIZE];
+          int contentOffset = 0;
           for (int i = 0; i < pagesToFlush.length; i++) {
             ODirectMemoryPointer dataPointer = pagesToFlush[i];
-            byte[] pageContent = dataPointer.get(0, OWALPage.PAGE_SIZE);
+            dataPointer.get(0, content, contentOffset, OWALPage.PAGE_SIZE);
             if (i == pagesToFlush.length - 1)
               dataPointer.free();
 
-            flushPage(pageContent);
+            calculatePageCRC(content, contentOffset);
+            contentOffset += OWALPage.PAGE_SIZE;
             filePointer += OWALPage.PAGE_SIZE;
+
+            if (contentOffset == content.length || i == pagesToFlush.length - 1) {
+              rndFile.write(content, 0, contentOffset);
+              contentOffset = 0;
+            }
           }
 
-          if (OGlobalConfiguration.WAL_SYNС_ON_PAGE_FLUSH.getValueAsBoolean())
+          if (groupCommit || OGlobalConfiguration.WAL_SYNС_ON_PAGE_FLUSH.getValueAsBoolean())
             rndFile.getFD().sync();
         }
 
@@ -1074,12 +1223,10 @@ public class OWriteAheadLog {
         assert !pagesCache.isEmpty();
       }
 
-      private void flushPage(byte[] content) throws IOException {
+      private void calculatePageCRC(byte[] content, int pageOffset) {
         CRC32 crc32 = new CRC32();
-        crc32.update(content, OIntegerSerializer.INT_SIZE, OWALPage.PAGE_SIZE - OIntegerSerializer.INT_SIZE);
-        OIntegerSerializer.INSTANCE.serializeNative((int) crc32.getValue(), content, 0);
-
-        rndFile.write(content);
+        crc32.update(content, pageOffset + OIntegerSerializer.INT_SIZE, OWALPage.PAGE_SIZE - OIntegerSerializer.INT_SIZE);
+        OIntegerSerializer.INSTANCE.serializeNative((int) crc32.getValue(), content, pageOffset);
       }
     }
   }
@@ -95,6 +95,11 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
                 lockedIndexes.add(index);
               }
 
+            if (useSBTree && lockedIndexes != null)
+              // STORAGE DOES NOT LOCK ITSELF EXCLUSIVELY DURING COMMIT, KEEP INVOLVED INDEXES LOCKED TILL THE END OF IT
+              for (OIndexAbstract<?> index : lockedIndexes)
+                index.acquireExclusiveLock();
+
             if (!useSBTree) {
               // SEARCH FOR INDEX BASED ON DOCUMENT TOUCHED
               final Collection<? extends OIndex<?>> indexes = database.getMetadata().getIndexManager().getIndexes();
@@ -192,10 +197,8 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
           } finally {
             // RELEASE INDEX LOCKS IF ANY
             if (lockedIndexes != null) {
-              if (!useSBTree) {
-                for (OIndexAbstract<?> index : lockedIndexes)
-                  index.releaseExclusiveLock();
-              }
+              for (OIndexAbstract<?> index : lockedIndexes)
+                index.releaseExclusiveLock();
 
               for (OIndexAbstract<?> index : lockedIndexes)
                 index.releaseModificationLock();
@@ -0,0 +1,130 @@
+package com.orientechnologies.orient.core.id;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+@Test
+public class RidBitmapTest {
+  public void testAddAndContains() {
+    final ORidBitmap bitmap = new ORidBitmap();
+
+    Assert.assertTrue(bitmap.add(rid(5, 10)));
+    Assert.assertTrue(bitmap.add(rid(5, 70000)));
+    Assert.assertTrue(bitmap.add(rid(6, 10)));
+    Assert.assertFalse(bitmap.add(rid(5, 10)));
+
+    Assert.assertEquals(bitmap.size(), 3);
+    Assert.assertTrue(bitmap.contains(rid(5, 10)));
+    Assert.assertTrue(bitmap.contains(rid(5, 70000)));
+    Assert.assertFalse(bitmap.contains(rid(5, 11)));
+    Assert.assertFalse(bitmap.contains(rid(7, 10)));
+  }
+
+  public void testDenseContainer() {
+    final ORidBitmap bitmap = new ORidBitmap();
+    for (int i = 0; i < 65536; i += 3)
+      bitmap.add(rid(1, i));
+
+    Assert.assertEquals(bitmap.size(), 65536 / 3 + 1);
+    for (int i = 0; i < 65536; i++)
+      Assert.assertEquals(bitmap.contains(rid(1, i)), i % 3 == 0);
+
+    int expected = 0;
+    for (OIdentifiable identifiable : bitmap) {
+      Assert.assertEquals(identifiable.getIdentity(), rid(1, expected));
+      expected += 3;
+    }
+    Assert.assertEquals(expected, 65538);
+  }
+
+  public void testIterationOrder() {
+    final Random random = new Random(42);
+    final ORidBitmap bitmap = new ORidBitmap();
+    final TreeSet<ORID> expected = new TreeSet<ORID>();
+    for (int i = 0; i < 10000; i++) {
+      final ORID rid = rid(random.nextInt(5), random.nextInt(1000000));
+      bitmap.add(rid);
+      expected.add(rid);
+    }
+
+    // NOT PERSISTENT RECORDS ARE RETURNED AT THE END
+    final ORID temporary = new ORecordId(3, OClusterPositionFactory.INSTANCE.valueOf(-2));
+    bitmap.add(temporary);
+
+    final List<ORID> rids = new ArrayList<ORID>();
+    for (OIdentifiable identifiable : bitmap)
+      rids.add(identifiable.getIdentity());
+
+    Assert.assertEquals(bitmap.size(), expected.size() + 1);
+    Assert.assertEquals(rids.subList(0, expected.size()), new ArrayList<ORID>(expected));
+    Assert.assertEquals(rids.get(rids.size() - 1), temporary);
+  }
+
+  public void testAndOr() {
+    final Random random = new Random(7);
+    for (int density : new int[] { 100, 10000, 60000 }) {
+      final ORidBitmap first = new ORidBitmap();
+      final ORidBitmap second = new ORidBitmap();
+      final Set<ORID> firstSet = new HashSet<ORID>();
+      final Set<ORID> secondSet = new HashSet<ORID>();
+
+      for (int i = 0; i < density; i++) {
+        final ORID firstRid = rid(random.nextInt(2), random.nextInt(131072));
+        first.add(firstRid);
+        firstSet.add(firstRid);
+
+        final ORID secondRid = rid(random.nextInt(2), random.nextInt(131072));
+        second.add(secondRid);
+        secondSet.add(secondRid);
+      }
+
+      final Set<ORID> intersection = new HashSet<ORID>(firstSet);
+      intersection.retainAll(secondSet);
+      assertSameRids(first.and(second), intersection);
+      assertSameRids(second.and(first), intersection);
+
+      final Set<ORID> union = new HashSet<ORID>(firstSet);
+      union.addAll(secondSet);
+      assertSameRids(first.or(second), union);
+
+      // OPERANDS ARE NOT MODIFIED
+      assertSameRids(first, firstSet);
+      assertSameRids(second, secondSet);
+    }
+  }
+
+  public void testUnionIsIndependent() {
+    final ORidBitmap first = new ORidBitmap();
+    first.add(rid(1, 1));
+    final ORidBitmap union = first.or(new ORidBitmap());
+
+    union.add(rid(1, 2));
+    Assert.assertFalse(first.contains(rid(1, 2)));
+    Assert.assertEquals(first.size(), 1);
+  }
+
+  private static void assertSameRids(final ORidBitmap bitmap, final Set<ORID> expected) {
+    Assert.assertEquals(bitmap.size(), expected.size());
+
+    final Set<ORID> rids = new HashSet<ORID>();
+    for (OIdentifiable identifiable : bitmap)
+      rids.add(identifiable.getIdentity());
+    Assert.assertEquals(rids, expected);
+
+    for (ORID rid : expected)
+      Assert.assertTrue(bitmap.contains(rid));
+  }
+
+  private static ORID rid(final int clusterId, final long position) {
+    return new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(position));
+  }
+}
@@ -0,0 +1,149 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionLong;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+
+/**
+ * Puts the same keys from many threads in SB-tree indexes, whose puts run under the shared lock of the index: the changes of
+ * the same key must still be serialized.
+ */
+@Test
+public class IndexConcurrentPutTest {
+  private static final int    THREADS = 8;
+  private static final int    KEYS    = 5000;
+
+  private String              url;
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    url = "plocal:" + buildDirectory + "/indexConcurrentPutTest";
+    db = new ODatabaseDocumentTx(url);
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testUniqueKeyIsPutOnce() throws Exception {
+    final OIndex<?> index = db.getMetadata().getIndexManager()
+        .createIndex("concurrentUnique", OClass.INDEX_TYPE.UNIQUE.toString(), new OSimpleKeyIndexDefinition(OType.INTEGER), null,
+            null, null);
+    Assert.assertEquals(((OIndexInternal<?>) index).getAlgorithm(), ODefaultIndexFactory.SBTREE_ALGORITHM);
+
+    int duplicates = 0;
+    for (Future<Integer> future : putFromAllThreads("concurrentUnique"))
+      duplicates += future.get();
+
+    Assert.assertEquals(duplicates, KEYS * (THREADS - 1));
+    Assert.assertEquals(index.getSize(), KEYS);
+  }
+
+  public void testNotUniqueKeyKeepsAllValues() throws Exception {
+    final boolean sbTreeContainer = OGlobalConfiguration.INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT.getValueAsBoolean();
+    OGlobalConfiguration.INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT.setValue(false);
+    final OIndex<?> index;
+    try {
+      // THE VALUES ARE EMBEDDED IN THE SB-TREE, SO THE PUTS OF DIFFERENT KEYS RUN CONCURRENTLY
+      index = db.getMetadata().getIndexManager()
+          .createIndex("concurrentNotUnique", OClass.INDEX_TYPE.NOTUNIQUE.toString(),
+              new OSimpleKeyIndexDefinition(OType.INTEGER), null, null, null);
+    } finally {
+      OGlobalConfiguration.INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT.setValue(sbTreeContainer);
+    }
+    Assert.assertEquals(((OIndexInternal<?>) index).getAlgorithm(), ODefaultIndexFactory.SBTREE_ALGORITHM);
+
+    for (Future<Integer> future : putFromAllThreads("concurrentNotUnique"))
+      Assert.assertEquals(future.get().intValue(), 0);
+
+    Assert.assertEquals(index.getKeySize(), KEYS);
+    for (int i = 0; i < KEYS; i++)
+      Assert.assertEquals(((Collection<?>) index.get(i)).size(), THREADS, "key " + i);
+  }
+
+  private List<Future<Integer>> putFromAllThreads(final String iIndexName) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+      for (int n = 0; n < THREADS; n++)
+        futures.add(executor.submit(new Putter(iIndexName, n, start)));
+
+      start.countDown();
+      for (Future<Integer> future : futures)
+        future.get(5, TimeUnit.MINUTES);
+
+      return futures;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private final class Putter implements Callable<Integer> {
+    private final String         indexName;
+    private final int            thread;
+    private final CountDownLatch start;
+
+    private Putter(String indexName, int thread, CountDownLatch start) {
+      this.indexName = indexName;
+      this.thread = thread;
+      this.start = start;
+    }
+
+    @Override
+    public Integer call() throws Exception {
+      final ODatabaseDocumentTx database = new ODatabaseDocumentTx(url).open("admin", "admin");
+      try {
+        @SuppressWarnings("unchecked")
+        final OIndex<OIdentifiable> index = (OIndex<OIdentifiable>) database.getMetadata().getIndexManager().getIndex(indexName);
+
+        start.await();
+
+        // EVERY THREAD PUTS ALL THE KEYS WITH ITS OWN VALUE
+        int duplicates = 0;
+        for (int i = 0; i < KEYS; i++)
+          try {
+            index.put(i, new ORecordId(1, new OClusterPositionLong(i * THREADS + thread)));
+          } catch (ORecordDuplicatedException e) {
+            duplicates++;
+          }
+
+        return duplicates;
+      } finally {
+        database.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class IndexRebuildTest {
+  private static final int    RECORDS = 10000;
+
+  private ODatabaseDocumentTx db;
+  private int                 maxKeysInMemory;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/indexRebuildTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass oClass = db.getMetadata().getSchema().createClass("Person");
+    oClass.createProperty("id", OType.INTEGER);
+    oClass.createProperty("group", OType.INTEGER);
+    oClass.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Person").field("id", i).field("group", i % 100).field("tags", Arrays.asList("tag" + i % 3, "all")).save();
+
+    // SORTED KEYS ARE WRITTEN IN SEVERAL TEMPORARY FILES
+    maxKeysInMemory = OGlobalConfiguration.INDEX_BULK_LOAD_MAX_KEYS_IN_MEMORY.getValueAsInteger();
+    OGlobalConfiguration.INDEX_BULK_LOAD_MAX_KEYS_IN_MEMORY.setValue(RECORDS / 7);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    for (OIndex<?> index : db.getMetadata().getSchema().getClass("Person").getIndexes())
+      db.getMetadata().getIndexManager().dropIndex(index.getName());
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OGlobalConfiguration.INDEX_BULK_LOAD_MAX_KEYS_IN_MEMORY.setValue(maxKeysInMemory);
+    db.drop();
+  }
+
+  public void testUniqueIndex() {
+    final OIndex<?> index = db.getMetadata().getSchema().getClass("Person")
+        .createIndex("Person.id", OClass.INDEX_TYPE.UNIQUE, "id");
+
+    Assert.assertEquals(index.getSize(), RECORDS);
+    for (int i = 0; i < RECORDS; i += 7) {
+      final OIdentifiable rid = (OIdentifiable) index.get(i);
+      Assert.assertEquals(((ODocument) rid.getRecord()).field("id"), i);
+    }
+
+    Assert.assertEquals(index.getValuesBetween(100, 199).size(), 100);
+    Assert.assertEquals(index.getValuesMajor(RECORDS - 10, true).size(), 10);
+
+    Assert.assertEquals(index.rebuild(), RECORDS);
+    Assert.assertEquals(index.getSize(), RECORDS);
+  }
+
+  @Test(expectedExceptions = OIndexException.class)
+  public void testUniqueIndexWithDuplicatedKeys() {
+    db.getMetadata().getSchema().getClass("Person").createIndex("Person.group", OClass.INDEX_TYPE.UNIQUE, "group");
+  }
+
+  public void testUniqueIndexWithKeyRepeatedByTheSameRecord() {
+    final OClass oClass = db.getMetadata().getSchema().createClass("Tagged");
+    oClass.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Tagged").field("tags", Arrays.asList("tag" + i, "tag" + i)).save();
+
+    try {
+      final OIndex<?> index = oClass.createIndex("Tagged.tags", OClass.INDEX_TYPE.UNIQUE, "tags");
+
+      Assert.assertEquals(index.getSize(), RECORDS);
+      for (int i = 0; i < RECORDS; i += 7) {
+        final OIdentifiable rid = (OIdentifiable) index.get("tag" + i);
+        Assert.assertEquals(((ODocument) rid.getRecord()).field("tags"), Arrays.asList("tag" + i, "tag" + i));
+      }
+
+      Assert.assertEquals(index.rebuild(), RECORDS);
+      Assert.assertEquals(index.getSize(), RECORDS);
+    } finally {
+      db.getMetadata().getSchema().dropClass("Tagged");
+    }
+  }
+
+  public void testNotUniqueIndex() {
+    final OIndex<?> index = db.getMetadata().getSchema().getClass("Person")
+        .createIndex("Person.group", OClass.INDEX_TYPE.NOTUNIQUE, "group");
+
+    Assert.assertEquals(index.getKeySize(), 100);
+    for (int i = 0; i < 100; i++) {
+      final Collection<OIdentifiable> rids = (Collection<OIdentifiable>) index.get(i);
+      Assert.assertEquals(rids.size(), RECORDS / 100);
+      for (OIdentifiable rid : rids)
+        Assert.assertEquals(((ODocument) rid.getRecord()).field("group"), i);
+    }
+  }
+
+  public void testCollectionIndex() {
+    final OIndex<?> index = db.getMetadata().getSchema().getClass("Person")
+        .createIndex("Person.tags", OClass.INDEX_TYPE.NOTUNIQUE, "tags");
+
+    Assert.assertEquals(index.getKeySize(), 4);
+    Assert.assertEquals(((Collection<?>) index.get("all")).size(), RECORDS);
+    Assert.assertEquals(((Collection<?>) index.get("tag0")).size(), (RECORDS + 2) / 3);
+    Assert.assertEquals(((Collection<?>) index.get("tag1")).size(), (RECORDS + 1) / 3);
+    Assert.assertEquals(((Collection<?>) index.get("tag2")).size(), RECORDS / 3);
+  }
+
+  public void testCompositeIndex() {
+    final OIndex<?> index = db.getMetadata().getSchema().getClass("Person")
+        .createIndex("Person.groupId", OClass.INDEX_TYPE.UNIQUE, "group", "id");
+
+    Assert.assertEquals(index.getSize(), RECORDS);
+    for (int i = 0; i < RECORDS; i += 7) {
+      final OIdentifiable rid = (OIdentifiable) index.get(new OCompositeKey(i % 100, i));
+      Assert.assertEquals(((ODocument) rid.getRecord()).field("id"), i);
+    }
+
+    Assert.assertEquals(index.getValuesBetween(new OCompositeKey(5), new OCompositeKey(5)).size(), RECORDS / 100);
+  }
+}
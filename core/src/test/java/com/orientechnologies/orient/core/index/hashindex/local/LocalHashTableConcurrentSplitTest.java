@@ -0,0 +1,164 @@
+package com.orientechnologies.orient.core.index.hashindex.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
+
+/**
+ * Reads the keys already in the table while a writer adds enough keys to split the buckets many times: the writer releases the
+ * lock of the table while the entries of a split bucket are copied to the new ones.
+ */
+@Test
+public class LocalHashTableConcurrentSplitTest {
+  private static final int                 PRESENT_KEYS_COUNT = 20000;
+  private static final int                 ADDED_KEYS_COUNT   = 400000;
+  private static final int                 READERS            = 4;
+
+  private ODatabaseDocumentTx              databaseDocumentTx;
+
+  private OLocalHashTable<Integer, String> localHashTable;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("local:" + buildDirectory + "/localHashTableConcurrentSplitTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    // THE ENTRIES ARE ITERATED IN THE ORDER OF THE KEYS
+    OHashFunction<Integer> hashFunction = new OHashFunction<Integer>() {
+      @Override
+      public long hashCode(Integer value) {
+        return Long.MAX_VALUE / 2 + value;
+      }
+    };
+
+    localHashTable = new OLocalHashTable<Integer, String>(".imc", ".tsc", ".obf", hashFunction);
+
+    localHashTable.create("localHashTableConcurrentSplitTest", OIntegerSerializer.INSTANCE, OStringSerializer.INSTANCE, null,
+        (OStorageLocal) databaseDocumentTx.getStorage());
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    localHashTable.clear();
+    localHashTable.delete();
+    databaseDocumentTx.drop();
+  }
+
+  public void testPresentKeysAreFoundDuringSplits() throws Exception {
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    final SortedSet<Integer> keys = new TreeSet<Integer>();
+
+    final List<Integer> presentKeys = new ArrayList<Integer>();
+    while (presentKeys.size() < PRESENT_KEYS_COUNT) {
+      final int key = random.nextInt();
+      if (keys.add(key)) {
+        localHashTable.put(key, key + "");
+        presentKeys.add(key);
+      }
+    }
+
+    final List<Integer> addedKeys = new ArrayList<Integer>();
+    while (addedKeys.size() < ADDED_KEYS_COUNT) {
+      final int key = random.nextInt();
+      if (keys.add(key))
+        addedKeys.add(key);
+    }
+
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    final ExecutorService executorService = Executors.newFixedThreadPool(READERS + 1);
+    try {
+      final List<Future<Long>> readers = new ArrayList<Future<Long>>();
+      for (int i = 0; i < READERS; i++)
+        readers.add(executorService.submit(new Reader(presentKeys, writing)));
+
+      final Future<Void> writer = executorService.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          try {
+            for (int key : addedKeys)
+              localHashTable.put(key, key + "");
+          } finally {
+            writing.set(false);
+          }
+          return null;
+        }
+      });
+
+      writer.get(5, TimeUnit.MINUTES);
+      for (Future<Long> reader : readers)
+        Assert.assertTrue(reader.get(1, TimeUnit.MINUTES) > 0);
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    Assert.assertEquals(localHashTable.size(), keys.size());
+
+    for (int key : keys)
+      Assert.assertEquals(localHashTable.get(key), key + "", key + " key is absent");
+
+    OHashIndexBucket.Entry<Integer, String>[] entries = localHashTable.ceilingEntries(Integer.MIN_VALUE);
+    int curPos = 0;
+    for (int key : keys) {
+      Assert.assertEquals(entries[curPos].key.intValue(), key);
+      Assert.assertEquals(entries[curPos].value, key + "");
+
+      curPos++;
+      if (curPos >= entries.length) {
+        entries = localHashTable.higherEntries(entries[entries.length - 1].key);
+        curPos = 0;
+      }
+    }
+    Assert.assertEquals(entries.length, 0);
+  }
+
+  private final class Reader implements Callable<Long> {
+    private final List<Integer> presentKeys;
+    private final AtomicBoolean writing;
+
+    private Reader(List<Integer> presentKeys, AtomicBoolean writing) {
+      this.presentKeys = presentKeys;
+      this.writing = writing;
+    }
+
+    @Override
+    public Long call() throws Exception {
+      final MersenneTwisterFast random = new MersenneTwisterFast();
+
+      long reads = 0;
+      while (writing.get()) {
+        final int key = presentKeys.get(random.nextInt(presentKeys.size()));
+        Assert.assertEquals(localHashTable.get(key), key + "", key + " key is absent while the buckets are split");
+        reads++;
+      }
+
+      return reads;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class PageIndexSetTest {
+  public void testAddRemove() {
+    final PageIndexSet pageIndexSet = new PageIndexSet();
+
+    Assert.assertTrue(pageIndexSet.add(0));
+    Assert.assertTrue(pageIndexSet.add(10));
+    Assert.assertFalse(pageIndexSet.add(10));
+
+    Assert.assertEquals(pageIndexSet.size(), 2);
+    Assert.assertTrue(pageIndexSet.contains(0));
+    Assert.assertTrue(pageIndexSet.contains(10));
+    Assert.assertFalse(pageIndexSet.contains(5));
+
+    Assert.assertTrue(pageIndexSet.remove(0));
+    Assert.assertFalse(pageIndexSet.remove(0));
+    Assert.assertEquals(pageIndexSet.toArray(), new long[] { 10 });
+
+    pageIndexSet.clear();
+    Assert.assertTrue(pageIndexSet.isEmpty());
+    Assert.assertFalse(pageIndexSet.contains(10));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeIndexIsRejected() {
+    new PageIndexSet().add(-1);
+  }
+
+  public void testRandomOperations() {
+    final PageIndexSet pageIndexSet = new PageIndexSet();
+    final TreeSet<Long> expected = new TreeSet<Long>();
+
+    final long seed = System.currentTimeMillis();
+    System.out.println("testRandomOperations seed : " + seed);
+    final Random random = new Random(seed);
+
+    for (int i = 0; i < 200000; i++) {
+      final long pageIndex = random.nextInt(20000);
+
+      if (random.nextInt(3) == 0)
+        Assert.assertEquals(pageIndexSet.remove(pageIndex), expected.remove(pageIndex));
+      else
+        Assert.assertEquals(pageIndexSet.add(pageIndex), expected.add(pageIndex));
+    }
+
+    Assert.assertEquals(pageIndexSet.size(), expected.size());
+
+    final long[] content = pageIndexSet.toArray();
+    Arrays.sort(content);
+
+    Assert.assertEquals(content.length, expected.size());
+    int n = 0;
+    for (long pageIndex : expected)
+      Assert.assertEquals(content[n++], pageIndex);
+  }
+}
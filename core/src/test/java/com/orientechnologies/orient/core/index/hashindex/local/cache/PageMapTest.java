@@ -0,0 +1,64 @@
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class PageMapTest {
+  public void testPutGetRemove() {
+    final PageMap<String> pageMap = new PageMap<String>();
+
+    Assert.assertNull(pageMap.put(1, 10, "one"));
+    Assert.assertNull(pageMap.put(2, 10, "two"));
+    Assert.assertEquals(pageMap.put(1, 10, "three"), "one");
+
+    Assert.assertEquals(pageMap.size(), 2);
+    Assert.assertEquals(pageMap.get(1, 10), "three");
+    Assert.assertEquals(pageMap.get(2, 10), "two");
+    Assert.assertNull(pageMap.get(1, 11));
+
+    Assert.assertEquals(pageMap.remove(1, 10), "three");
+    Assert.assertNull(pageMap.remove(1, 10));
+    Assert.assertFalse(pageMap.containsKey(1, 10));
+    Assert.assertTrue(pageMap.containsKey(2, 10));
+    Assert.assertEquals(pageMap.size(), 1);
+
+    pageMap.clear();
+    Assert.assertTrue(pageMap.isEmpty());
+    Assert.assertNull(pageMap.get(2, 10));
+  }
+
+  public void testRandomOperations() {
+    final PageMap<Long> pageMap = new PageMap<Long>();
+    final Map<String, Long> expected = new HashMap<String, Long>();
+
+    final long seed = System.currentTimeMillis();
+    System.out.println("testRandomOperations seed : " + seed);
+    final Random random = new Random(seed);
+
+    for (int i = 0; i < 200000; i++) {
+      final long fileId = random.nextInt(8);
+      final long pageIndex = random.nextInt(5000);
+      final String key = fileId + ":" + pageIndex;
+
+      if (random.nextInt(3) == 0)
+        Assert.assertEquals(pageMap.remove(fileId, pageIndex), expected.remove(key));
+      else {
+        final long value = random.nextLong();
+        Assert.assertEquals(pageMap.put(fileId, pageIndex, value), expected.put(key, value));
+      }
+    }
+
+    Assert.assertEquals(pageMap.size(), expected.size());
+    Assert.assertEquals(new HashSet<Long>(pageMap.values()), new HashSet<Long>(expected.values()));
+
+    for (long fileId = 0; fileId < 8; fileId++)
+      for (long pageIndex = 0; pageIndex < 5000; pageIndex++)
+        Assert.assertEquals(pageMap.get(fileId, pageIndex), expected.get(fileId + ":" + pageIndex));
+  }
+}
@@ -0,0 +1,187 @@
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class PartitionedReadWriteDiskCacheTest {
+  private static final int               PARTITIONS   = 4;
+  private static final int               PAGES_COUNT  = 2000;
+  private static final int               THREADS      = 8;
+
+  private final int                      systemOffset = OIntegerSerializer.INT_SIZE + 3 * OLongSerializer.LONG_SIZE;
+  private final int                      pageSize     = 8 + systemOffset;
+
+  private OPartitionedReadWriteDiskCache buffer;
+  private OLocalPaginatedStorage         storageLocal;
+  private String                         fileName;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/PartitionedReadWriteDiskCacheTest");
+
+    fileName = "partitionedReadWriteDiskCacheTest.tst";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    buffer = new OPartitionedReadWriteDiskCache(null, 4 * OPartitionedReadWriteDiskCache.MIN_PARTITION_SIZE * pageSize,
+        15000 * pageSize, pageSize, 10000, -1, storageLocal, null, true, false, PARTITIONS);
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    if (buffer != null) {
+      buffer.delete();
+      buffer = null;
+    }
+
+    File idMapFile = new File(storageLocal.getConfiguration().getDirectory() + "/name_id_map.cm");
+    if (idMapFile.exists())
+      Assert.assertTrue(idMapFile.delete());
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    storageLocal.delete();
+  }
+
+  public void testPartitionsCountIsLimitedByCacheSize() throws IOException {
+    Assert.assertEquals(buffer.getPartitionsCount(), PARTITIONS);
+    Assert.assertEquals(buffer.getMaxSize(), PARTITIONS * OPartitionedReadWriteDiskCache.MIN_PARTITION_SIZE);
+
+    final OPartitionedReadWriteDiskCache smallCache = new OPartitionedReadWriteDiskCache(null,
+        2 * OPartitionedReadWriteDiskCache.MIN_PARTITION_SIZE * pageSize, 15000 * pageSize, pageSize, 10000, -1, storageLocal, null,
+        true, false, 7);
+    try {
+      Assert.assertEquals(smallCache.getPartitionsCount(), 2);
+    } finally {
+      smallCache.close();
+    }
+  }
+
+  public void testPagesArePreservedAfterEviction() throws IOException {
+    final long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < PAGES_COUNT; i++)
+      writePage(fileId, i);
+
+    buffer.flushBuffer();
+    buffer.clear();
+
+    for (int i = PAGES_COUNT - 1; i >= 0; i--)
+      assertPage(fileId, i);
+  }
+
+  public void testPinnedPageIsLoaded() throws IOException {
+    final long fileId = buffer.openFile(fileName);
+    writePage(fileId, 0);
+
+    final OCacheEntry cacheEntry = buffer.load(fileId, 0, false);
+    buffer.pinPage(cacheEntry);
+    buffer.release(cacheEntry);
+
+    final OCacheEntry pinnedEntry = buffer.load(fileId, 0, true);
+    Assert.assertSame(pinnedEntry, cacheEntry);
+    buffer.release(pinnedEntry);
+
+    buffer.loadPinnedPage(pinnedEntry);
+    Assert.assertEquals(pinnedEntry.usagesCount, 1);
+    buffer.release(pinnedEntry);
+  }
+
+  public void testTruncateFile() throws IOException {
+    final long fileId = buffer.openFile(fileName);
+    for (int i = 0; i < 100; i++)
+      writePage(fileId, i);
+
+    buffer.truncateFile(fileId);
+    Assert.assertEquals(buffer.getFilledUpTo(fileId), 0);
+
+    writePage(fileId, 0);
+    assertPage(fileId, 0);
+  }
+
+  public void testConcurrentLoad() throws Exception {
+    final long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < PAGES_COUNT; i++)
+      writePage(fileId, i);
+
+    buffer.flushBuffer();
+
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int n = 0; n < THREADS; n++)
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final Random random = new Random();
+          startLatch.await();
+
+          for (int i = 0; i < 20000; i++)
+            assertPage(fileId, random.nextInt(PAGES_COUNT));
+
+          return null;
+        }
+      }));
+
+    startLatch.countDown();
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    executor.shutdown();
+  }
+
+  private void writePage(long fileId, int pageIndex) throws IOException {
+    final OCacheEntry cacheEntry = buffer.load(fileId, pageIndex, false);
+    final OCachePointer pointer = cacheEntry.getCachePointer();
+
+    pointer.acquireExclusiveLock();
+    try {
+      pointer.getDataPointer().setLong(systemOffset, pageIndex);
+      cacheEntry.markDirty();
+    } finally {
+      pointer.releaseExclusiveLock();
+    }
+
+    buffer.release(cacheEntry);
+  }
+
+  private void assertPage(long fileId, int pageIndex) throws IOException {
+    final OCacheEntry cacheEntry = buffer.load(fileId, pageIndex, false);
+    Assert.assertEquals(cacheEntry.getCachePointer().getDataPointer().getLong(systemOffset), pageIndex);
+    buffer.release(cacheEntry);
+  }
+}
@@ -843,6 +843,51 @@ public class ReadWriteDiskCacheTest {
     Assert.assertEquals(dirtyPagesRecord.getDirtyPages(), dirtyPages);
   }
 
+  public void testSequentialLoadTriggersReadAhead() throws Exception {
+    buffer.close();
+    buffer = new OReadWriteDiskCache(null, 64 * (8 + systemOffset), 15000 * (8 + systemOffset), 8 + systemOffset, 10000, -1,
+        storageLocal, writeAheadLog, true, false, 8);
+
+    long fileId = buffer.openFile(fileName);
+    for (int i = 0; i < 32; i++) {
+      OCacheEntry cacheEntry = buffer.load(fileId, i, false);
+      OCachePointer dataPointer = cacheEntry.getCachePointer();
+
+      dataPointer.acquireExclusiveLock();
+      dataPointer.getDataPointer().set(systemOffset, new byte[] { (byte) i, 1, 2, seed, 4, 5, 6, (byte) i }, 0, 8);
+      cacheEntry.markDirty();
+      dataPointer.releaseExclusiveLock();
+
+      buffer.release(cacheEntry);
+    }
+
+    buffer.flushBuffer();
+    buffer.clear();
+
+    for (int i = 0; i < 3; i++)
+      buffer.release(buffer.load(fileId, i, false));
+
+    Assert.assertEquals(buffer.getReadAheadUpTo(fileId), 5);
+
+    long timeout = System.currentTimeMillis() + 10000;
+    while (buffer.getA1in().get(fileId, 4) == null && System.currentTimeMillis() < timeout)
+      Thread.sleep(10);
+
+    for (int i = 3; i < 5; i++) {
+      OCacheEntry cacheEntry = buffer.getA1in().get(fileId, i);
+      Assert.assertNotNull(cacheEntry);
+      Assert.assertTrue(cacheEntry.readAhead);
+    }
+
+    for (int i = 0; i < 32; i++) {
+      OCacheEntry cacheEntry = buffer.load(fileId, i, false);
+      Assert.assertFalse(cacheEntry.readAhead);
+      Assert.assertEquals(cacheEntry.getCachePointer().getDataPointer().get(systemOffset, 8), new byte[] { (byte) i, 1, 2, seed, 4,
+          5, 6, (byte) i });
+      buffer.release(cacheEntry);
+    }
+  }
+
   private void updateFilePage(long pageIndex, long offset, byte[] value) throws IOException {
     String path = storageLocal.getConfiguration().getDirectory() + "/readWriteDiskCacheTest.tst";
 
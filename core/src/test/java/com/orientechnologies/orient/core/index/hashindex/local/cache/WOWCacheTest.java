@@ -244,6 +244,43 @@ public class WOWCacheTest {
     }
   }
 
+  public void testAdjacentPagesAreFlushedTogether() throws Exception {
+    wowCache.close();
+    wowCache = new OWOWCache(true, pageSize, 10000, writeAheadLog, -1, 1000, storageLocal, false);
+
+    Random random = new Random();
+    long fileId = wowCache.openFile(fileName);
+
+    final NavigableMap<Long, byte[]> pageIndexDataMap = new TreeMap<Long, byte[]>();
+    for (long i = 0; i < 40; i++)
+      pageIndexDataMap.put(i, null);
+    for (long i = 50; i < 60; i++)
+      pageIndexDataMap.put(i, null);
+
+    for (Map.Entry<Long, byte[]> entry : pageIndexDataMap.entrySet()) {
+      byte[] data = new byte[8];
+      random.nextBytes(data);
+
+      entry.setValue(data);
+
+      final OCachePointer cachePointer = wowCache.load(fileId, entry.getKey());
+      cachePointer.acquireExclusiveLock();
+      cachePointer.getDataPointer().set(systemOffset, data, 0, data.length);
+      cachePointer.releaseExclusiveLock();
+
+      wowCache.store(fileId, entry.getKey(), cachePointer);
+      cachePointer.decrementReferrer();
+    }
+
+    wowCache.flush();
+
+    Assert.assertEquals(wowCache.getFlushedPagesCount(), 50);
+    Assert.assertEquals(wowCache.getFlushWritesCount(), 2);
+
+    for (Map.Entry<Long, byte[]> entry : pageIndexDataMap.entrySet())
+      assertFile(entry.getKey(), entry.getValue(), new OLogSequenceNumber(0, 0));
+  }
+
   private void assertFile(long pageIndex, byte[] value, OLogSequenceNumber lsn) throws IOException {
     String path = storageLocal.getConfiguration().getDirectory() + File.separator + fileName;
 
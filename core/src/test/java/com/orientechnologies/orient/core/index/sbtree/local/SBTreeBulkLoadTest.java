@@ -0,0 +1,237 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+@Test
+public class SBTreeBulkLoadTest {
+  private static final int                KEYS_COUNT = 100000;
+
+  private ODatabaseDocumentTx             databaseDocumentTx;
+  private OSBTree<Integer, OIdentifiable> sbTree;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localSBTreeBulkLoadTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, false);
+    sbTree.create("sbTreeBulkLoad", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying());
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    sbTree.clear();
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    sbTree.clear();
+    sbTree.delete();
+    databaseDocumentTx.drop();
+  }
+
+  public void testBulkLoadFullBuckets() {
+    bulkLoadEvenKeys(100);
+    checkEvenKeys();
+  }
+
+  public void testBulkLoadSeveralLevels() {
+    // FEW ENTRIES IN EACH BUCKET BUILD A TREE OF SEVERAL LEVELS
+    bulkLoadEvenKeys(1);
+    checkEvenKeys();
+  }
+
+  public void testPutAndRemoveAfterBulkLoad() {
+    bulkLoadEvenKeys(90);
+
+    for (int i = 1; i < 2 * KEYS_COUNT; i += 2)
+      sbTree.put(i, createValue(i));
+
+    for (int i = 0; i < 2 * KEYS_COUNT; i += 4)
+      Assert.assertEquals(sbTree.remove(i), createValue(i));
+
+    Assert.assertEquals(sbTree.size(), KEYS_COUNT + KEYS_COUNT / 2);
+    for (int i = 0; i < 2 * KEYS_COUNT; i++)
+      if (i % 4 == 0)
+        Assert.assertNull(sbTree.get(i));
+      else
+        Assert.assertEquals(sbTree.get(i), createValue(i), i + " key is absent");
+
+    Assert.assertEquals((int) sbTree.firstKey(), 1);
+    Assert.assertEquals((int) sbTree.lastKey(), 2 * KEYS_COUNT - 1);
+  }
+
+  public void testBulkLoadSingleBucket() {
+    final List<Map.Entry<Integer, OIdentifiable>> entries = new ArrayList<Map.Entry<Integer, OIdentifiable>>();
+    for (int i = 0; i < 10; i++)
+      entries.add(new AbstractMap.SimpleEntry<Integer, OIdentifiable>(i, createValue(i)));
+
+    sbTree.bulkLoad(entries.iterator(), 90);
+
+    Assert.assertEquals(sbTree.size(), 10);
+    for (int i = 0; i < 10; i++)
+      Assert.assertEquals(sbTree.get(i), createValue(i));
+
+    Assert.assertEquals(sbTree.getValuesMajor(5, true, -1).size(), 5);
+  }
+
+  public void testBulkLoadNoEntries() {
+    sbTree.bulkLoad(Collections.<Map.Entry<Integer, OIdentifiable>> emptyList().iterator(), 90);
+
+    Assert.assertEquals(sbTree.size(), 0);
+    Assert.assertNull(sbTree.firstKey());
+
+    sbTree.put(1, createValue(1));
+    Assert.assertEquals(sbTree.get(1), createValue(1));
+  }
+
+  @Test(expectedExceptions = OSBTreeException.class)
+  public void testBulkLoadInNotEmptyTree() {
+    sbTree.put(1, createValue(1));
+
+    final List<Map.Entry<Integer, OIdentifiable>> entries = new ArrayList<Map.Entry<Integer, OIdentifiable>>();
+    entries.add(new AbstractMap.SimpleEntry<Integer, OIdentifiable>(2, createValue(2)));
+
+    sbTree.bulkLoad(entries.iterator(), 90);
+  }
+
+  @Test(expectedExceptions = OSBTreeException.class)
+  public void testBulkLoadUnsortedKeys() {
+    final List<Map.Entry<Integer, OIdentifiable>> entries = new ArrayList<Map.Entry<Integer, OIdentifiable>>();
+    entries.add(new AbstractMap.SimpleEntry<Integer, OIdentifiable>(2, createValue(2)));
+    entries.add(new AbstractMap.SimpleEntry<Integer, OIdentifiable>(1, createValue(1)));
+
+    sbTree.bulkLoad(entries.iterator(), 90);
+  }
+
+  public void testKeySorterGroupsValuesInAddOrder() {
+    final OSBTreeKeySorter<Integer> keySorter = sbTree.createKeySorter(1000);
+    try {
+      final MersenneTwisterFast random = new MersenneTwisterFast();
+      final int[] keys = new int[10000];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = random.nextInt(1000);
+        keySorter.add(keys[i], createValue(i));
+      }
+
+      Assert.assertEquals(keySorter.getRuns(), 10);
+
+      int previousKey = -1;
+      int values = 0;
+      final Iterator<Map.Entry<Integer, List<ORID>>> sortedKeys = keySorter.sort();
+      while (sortedKeys.hasNext()) {
+        final Map.Entry<Integer, List<ORID>> entry = sortedKeys.next();
+        Assert.assertTrue(entry.getKey() > previousKey);
+        previousKey = entry.getKey();
+
+        int previousPosition = -1;
+        for (ORID rid : entry.getValue()) {
+          final int position = (int) rid.getClusterPosition().longValue();
+          Assert.assertEquals(keys[position], (int) entry.getKey());
+          Assert.assertTrue(position > previousPosition);
+          previousPosition = position;
+          values++;
+        }
+      }
+
+      Assert.assertEquals(values, keys.length);
+    } finally {
+      keySorter.close();
+    }
+  }
+
+  private void bulkLoadEvenKeys(int fillFactor) {
+    final OSBTreeKeySorter<Integer> keySorter = sbTree.createKeySorter(KEYS_COUNT / 10);
+    try {
+      final List<Integer> keys = new ArrayList<Integer>(KEYS_COUNT);
+      for (int i = 0; i < KEYS_COUNT; i++)
+        keys.add(2 * i);
+      Collections.shuffle(keys);
+
+      for (int key : keys)
+        keySorter.add(key, createValue(key));
+
+      final Iterator<Map.Entry<Integer, List<ORID>>> sortedKeys = keySorter.sort();
+      sbTree.bulkLoad(new Iterator<Map.Entry<Integer, OIdentifiable>>() {
+        @Override
+        public boolean hasNext() {
+          return sortedKeys.hasNext();
+        }
+
+        @Override
+        public Map.Entry<Integer, OIdentifiable> next() {
+          final Map.Entry<Integer, List<ORID>> entry = sortedKeys.next();
+          Assert.assertEquals(entry.getValue().size(), 1);
+          return new AbstractMap.SimpleEntry<Integer, OIdentifiable>(entry.getKey(), entry.getValue().get(0));
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      }, fillFactor);
+    } finally {
+      keySorter.close();
+    }
+  }
+
+  private void checkEvenKeys() {
+    Assert.assertEquals(sbTree.size(), KEYS_COUNT);
+
+    for (int i = 0; i < 2 * KEYS_COUNT; i++)
+      if (i % 2 == 0)
+        Assert.assertEquals(sbTree.get(i), createValue(i), i + " key is absent");
+      else
+        Assert.assertNull(sbTree.get(i));
+
+    Assert.assertEquals((int) sbTree.firstKey(), 0);
+    Assert.assertEquals((int) sbTree.lastKey(), 2 * (KEYS_COUNT - 1));
+
+    Assert.assertEquals(sbTree.getValuesBetween(1000, true, 2999, true, -1).size(), 1000);
+    Assert.assertEquals(sbTree.getValuesMajor(2 * (KEYS_COUNT - 100), true, -1).size(), 100);
+    Assert.assertEquals(sbTree.getValuesMinor(198, false, -1).size(), 99);
+
+    int previousKey = -1;
+    for (OIdentifiable value : sbTree.getValuesMajor(0, true, -1)) {
+      final int key = (int) value.getIdentity().getClusterPosition().longValue();
+      Assert.assertEquals(key, previousKey + (previousKey < 0 ? 1 : 2));
+      previousKey = key;
+    }
+    Assert.assertEquals(previousKey, 2 * (KEYS_COUNT - 1));
+  }
+
+  private static ORecordId createValue(int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+}
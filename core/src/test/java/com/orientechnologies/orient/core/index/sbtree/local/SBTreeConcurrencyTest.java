@@ -0,0 +1,161 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+@Test
+public class SBTreeConcurrencyTest {
+  private static final int                THREADS         = 4;
+  private static final int                KEYS_PER_THREAD = 20000;
+
+  private ODatabaseDocumentTx             databaseDocumentTx;
+  private OSBTree<Integer, OIdentifiable> sbTree;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localSBTreeConcurrencyTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, false);
+    sbTree.create("sbTreeConcurrency", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying());
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    sbTree.clear();
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    sbTree.clear();
+    sbTree.delete();
+    databaseDocumentTx.drop();
+  }
+
+  public void testConcurrentPutAndGet() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+    try {
+      final AtomicBoolean writing = new AtomicBoolean(true);
+
+      final List<Future<Void>> writers = new ArrayList<Future<Void>>();
+      for (int n = 0; n < THREADS; n++) {
+        final int thread = n;
+        writers.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            // KEYS OF THE THREADS ARE INTERLEAVED TO CHANGE THE SAME BUCKETS
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+              final int key = i * THREADS + thread;
+              sbTree.put(key, createValue(key));
+            }
+            return null;
+          }
+        }));
+      }
+
+      final Future<Void> reader = executor.submit(new Callable<Void>() {
+        public Void call() throws Exception {
+          while (writing.get()) {
+            Integer previous = null;
+            for (OIdentifiable value : sbTree.getValuesMajor(0, true, 1000)) {
+              final int key = (int) value.getIdentity().getClusterPosition().longValue();
+              if (previous != null)
+                Assert.assertTrue(previous < key);
+              previous = key;
+            }
+
+            final OIdentifiable value = sbTree.get(0);
+            if (value != null)
+              Assert.assertEquals(value, createValue(0));
+          }
+          return null;
+        }
+      });
+
+      for (Future<Void> writer : writers)
+        writer.get();
+      writing.set(false);
+      reader.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(sbTree.size(), THREADS * KEYS_PER_THREAD);
+    for (int key = 0; key < THREADS * KEYS_PER_THREAD; key++)
+      Assert.assertEquals(sbTree.get(key), createValue(key), key + " key is absent");
+
+    Assert.assertEquals((int) sbTree.firstKey(), 0);
+    Assert.assertEquals((int) sbTree.lastKey(), THREADS * KEYS_PER_THREAD - 1);
+    Assert.assertEquals(sbTree.getValuesBetween(100, true, 199, true, -1).size(), 100);
+  }
+
+  public void testConcurrentRemove() throws Exception {
+    for (int key = 0; key < THREADS * KEYS_PER_THREAD; key++)
+      sbTree.put(key, createValue(key));
+
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int n = 0; n < THREADS; n++) {
+        final int thread = n;
+        futures.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            // EVEN KEYS ARE REMOVED, ODD KEYS ARE UPDATED
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+              final int key = i * THREADS + thread;
+              if (key % 2 == 0)
+                Assert.assertEquals(sbTree.remove(key), createValue(key));
+              else
+                sbTree.put(key, createValue(-key));
+            }
+            return null;
+          }
+        }));
+      }
+
+      for (Future<Void> future : futures)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(sbTree.size(), THREADS * KEYS_PER_THREAD / 2);
+    for (int key = 0; key < THREADS * KEYS_PER_THREAD; key++)
+      if (key % 2 == 0)
+        Assert.assertNull(sbTree.get(key));
+      else
+        Assert.assertEquals(sbTree.get(key), createValue(-key));
+  }
+
+  private static ORecordId createValue(final int iKey) {
+    return new ORecordId(Math.abs(iKey) % 32000, OClusterPositionFactory.INSTANCE.valueOf(iKey));
+  }
+}
@@ -0,0 +1,229 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+
+@Test
+public class SBTreeKeyPrefixCompressionTest {
+  private static final int    KEYS_COUNT = 50000;
+
+  private ODatabaseDocumentTx databaseDocumentTx;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localSBTreeKeyPrefixCompressionTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    databaseDocumentTx.drop();
+  }
+
+  public void testBucketStoresMoreKeys() throws Exception {
+    final int plainSize = fillBucket(false);
+    final int compressedSize = fillBucket(true);
+
+    Assert.assertTrue(compressedSize > 2 * plainSize, compressedSize + " keys in compressed bucket, " + plainSize + " in plain one");
+  }
+
+  public void testBucketKeyWithoutPrefix() throws Exception {
+    final ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    try {
+      final OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(pointer, true, true,
+          OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+      final List<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>> entries = new ArrayList<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>>();
+      for (int i = 0; i < 100; i++)
+        entries.add(createEntry(stringKey(i), i));
+      bucket.addAll(entries);
+
+      Assert.assertTrue(bucket.addEntry(0, createEntry("another key", 100), false));
+      Assert.assertTrue(bucket.addEntry(bucket.size(), createEntry("zebra", 101), false));
+      Assert.assertEquals(bucket.size(), 102);
+
+      Assert.assertEquals(bucket.find("another key"), 0);
+      Assert.assertEquals(bucket.getEntry(bucket.size() - 1).value.getValue(), createValue(101));
+      for (int i = 0; i < 100; i++) {
+        final int index = bucket.find(stringKey(i));
+        Assert.assertEquals(index, i + 1);
+        Assert.assertEquals(bucket.getEntry(index).value.getValue(), createValue(i));
+      }
+
+      bucket.remove(0);
+      bucket.shrink(50);
+      Assert.assertEquals(bucket.size(), 50);
+      for (int i = 0; i < 50; i++)
+        Assert.assertEquals(bucket.getKey(i), stringKey(i));
+
+      final OSBTreeBucket<String, OIdentifiable> loadedBucket = new OSBTreeBucket<String, OIdentifiable>(pointer,
+          OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+      Assert.assertTrue(loadedBucket.isKeyPrefixCompression());
+      Assert.assertEquals(loadedBucket.find(stringKey(25)), 25);
+    } finally {
+      pointer.free();
+    }
+  }
+
+  public void testStringKeys() throws Exception {
+    final OSBTree<String, OIdentifiable> sbTree = new OSBTree<String, OIdentifiable>(".sbt", 1, false);
+    sbTree.create("sbTreeStringKeyPrefix", OStringSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying(), true);
+    try {
+      final List<Integer> keys = new ArrayList<Integer>(KEYS_COUNT);
+      for (int i = 0; i < KEYS_COUNT; i++)
+        keys.add(i);
+      Collections.shuffle(keys);
+
+      for (int key : keys)
+        sbTree.put(stringKey(key), createValue(key));
+
+      for (int i = 0; i < KEYS_COUNT; i += 2)
+        Assert.assertEquals(sbTree.remove(stringKey(i)), createValue(i));
+
+      Assert.assertEquals(sbTree.size(), KEYS_COUNT / 2);
+      for (int i = 0; i < KEYS_COUNT; i++)
+        if (i % 2 == 0)
+          Assert.assertNull(sbTree.get(stringKey(i)));
+        else
+          Assert.assertEquals(sbTree.get(stringKey(i)), createValue(i));
+
+      Assert.assertEquals(sbTree.firstKey(), stringKey(1));
+      Assert.assertEquals(sbTree.lastKey(), stringKey(KEYS_COUNT - 1));
+      Assert.assertEquals(sbTree.getValuesBetween(stringKey(1000), true, stringKey(2999), true, -1).size(), 1000);
+      Assert.assertEquals(sbTree.getValuesMajor(stringKey(KEYS_COUNT - 200), true, -1).size(), 100);
+
+      final OSBTree<String, OIdentifiable> loadedTree = new OSBTree<String, OIdentifiable>(".sbt", 1, false);
+      loadedTree.load("sbTreeStringKeyPrefix", null, (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying());
+      loadedTree.put("a key", createValue(-1));
+      Assert.assertEquals(loadedTree.get("a key"), createValue(-1));
+      Assert.assertEquals(loadedTree.get(stringKey(1)), createValue(1));
+    } finally {
+      sbTree.clear();
+      sbTree.delete();
+    }
+  }
+
+  public void testBulkLoad() throws Exception {
+    final OSBTree<String, OIdentifiable> sbTree = new OSBTree<String, OIdentifiable>(".sbt", 1, false);
+    sbTree.create("sbTreeBulkLoadKeyPrefix", OStringSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying(), true);
+    try {
+      final List<Map.Entry<String, OIdentifiable>> entries = new ArrayList<Map.Entry<String, OIdentifiable>>(KEYS_COUNT);
+      for (int i = 0; i < KEYS_COUNT; i += 2)
+        entries.add(new AbstractMap.SimpleEntry<String, OIdentifiable>(stringKey(i), createValue(i)));
+
+      sbTree.bulkLoad(entries.iterator(), 100);
+
+      for (int i = 1; i < KEYS_COUNT; i += 2)
+        sbTree.put(stringKey(i), createValue(i));
+
+      Assert.assertEquals(sbTree.size(), KEYS_COUNT);
+      for (int i = 0; i < KEYS_COUNT; i++)
+        Assert.assertEquals(sbTree.get(stringKey(i)), createValue(i));
+      Assert.assertEquals(sbTree.getValuesMinor(stringKey(500), false, -1).size(), 500);
+    } finally {
+      sbTree.clear();
+      sbTree.delete();
+    }
+  }
+
+  public void testCompositeKeys() throws Exception {
+    final OSBTree<OCompositeKey, OIdentifiable> sbTree = new OSBTree<OCompositeKey, OIdentifiable>(".sbt", 2, false);
+    sbTree.create("sbTreeCompositeKeyPrefix", OCompositeKeySerializer.INSTANCE, OLinkSerializer.INSTANCE, new OType[] {
+        OType.LONG, OType.STRING }, (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying(), true);
+    try {
+      final List<Integer> keys = new ArrayList<Integer>(KEYS_COUNT);
+      for (int i = 0; i < KEYS_COUNT; i++)
+        keys.add(i);
+      Collections.shuffle(keys);
+
+      for (int key : keys)
+        sbTree.put(compositeKey(key), createValue(key));
+
+      for (int i = 0; i < KEYS_COUNT; i++)
+        Assert.assertEquals(sbTree.get(compositeKey(i)), createValue(i));
+
+      Assert.assertEquals(sbTree.size(), KEYS_COUNT);
+      Assert.assertEquals(sbTree.firstKey(), compositeKey(0));
+      Assert.assertEquals(sbTree.lastKey(), compositeKey(KEYS_COUNT - 1));
+
+      // PARTIAL KEYS SELECT ALL THE NAMES OF A TENANT
+      Assert.assertEquals(sbTree.getValuesBetween(new OCompositeKey(3L), true, new OCompositeKey(3L), true, -1).size(), 1000);
+      Assert.assertEquals(sbTree.getValuesMajor(new OCompositeKey(40L), false, -1).size(), KEYS_COUNT - 41000);
+      Assert.assertEquals(sbTree.getValuesMinor(new OCompositeKey(10L), false, -1).size(), 10000);
+    } finally {
+      sbTree.clear();
+      sbTree.delete();
+    }
+  }
+
+  private int fillBucket(boolean keyPrefixCompression) throws Exception {
+    final ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    try {
+      final OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(pointer, true,
+          keyPrefixCompression, OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.NONE);
+
+      int size = 0;
+      while (bucket.addEntry(size, createEntry(stringKey(size), size), false))
+        size++;
+
+      Assert.assertEquals(bucket.size(), size);
+      for (int i = 0; i < size; i++) {
+        Assert.assertEquals(bucket.find(stringKey(i)), i);
+        Assert.assertEquals(bucket.getEntry(i).value.getValue(), createValue(i));
+      }
+
+      return size;
+    } finally {
+      pointer.free();
+    }
+  }
+
+  private static String stringKey(int key) {
+    return String.format("tenant-00000000000000000001/organization-units/persons/%08d", key);
+  }
+
+  private static OCompositeKey compositeKey(int key) {
+    return new OCompositeKey((long) (key / 1000), String.format("persons/all/name-%08d", key));
+  }
+
+  private static OSBTreeBucket.SBTreeEntry<String, OIdentifiable> createEntry(String key, int value) {
+    return new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(-1, -1, key, new OSBTreeValue<OIdentifiable>(false, -1,
+        createValue(value)));
+  }
+
+  private static ORecordId createValue(int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+}
@@ -0,0 +1,112 @@
+package com.orientechnologies.orient.core.record.impl;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class ODocumentLazyDeserializationTest {
+  private static final int    FIELDS = 20;
+
+  private ODatabaseDocumentTx db;
+  private ORID                rid;
+
+  @BeforeMethod
+  public void setUp() {
+    db = new ODatabaseDocumentTx("memory:documentLazyDeserializationTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    db.drop();
+  }
+
+  public void testCopyDoesNotUnmarshallFields() {
+    createDocument();
+
+    final ODocument document = db.load(rid);
+    Assert.assertEquals(document.field("field3"), "value3");
+    Assert.assertEquals(document.fields(), 1);
+
+    final ODocument copy = document.copy();
+    Assert.assertEquals(copy.fields(), 1);
+    Assert.assertSame(copy.toStream(), document.toStream());
+
+    Assert.assertEquals(copy.field("field7"), "value7");
+    Assert.assertEquals(copy.fields(), 2);
+    Assert.assertEquals(document.fields(), 1);
+
+    Assert.assertEquals(copy.fieldNames().length, FIELDS);
+    Assert.assertEquals(copy.field("field19"), "value19");
+  }
+
+  public void testFilterAndProjectionsUnmarshallOnlyInvolvedFields() {
+    createDocument();
+
+    List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Lazy where field5 = 'value5'"));
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(((ODocument) db.getLevel1Cache().findRecord(rid)).fields(), 1);
+    Assert.assertEquals(result.get(0).fields(), 1);
+    Assert.assertEquals(result.get(0).field("field11"), "value11");
+    Assert.assertEquals(result.get(0).fieldNames().length, FIELDS);
+
+    db.getLevel1Cache().invalidate();
+
+    result = db.query(new OSQLSynchQuery<ODocument>("select field1, field2, @rid as id from Lazy where field5 = 'value5'"));
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0).field("field1"), "value1");
+    Assert.assertEquals(result.get(0).field("field2"), "value2");
+    Assert.assertEquals(result.get(0).field("id", ORID.class), rid);
+    Assert.assertEquals(((ODocument) db.getLevel1Cache().findRecord(rid)).fields(), 1);
+  }
+
+  public void testChangeOfPartiallyLoadedDocumentKeepsAllFields() {
+    createDocument();
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Lazy where field5 = 'value5'"));
+    final ODocument document = result.get(0);
+    Assert.assertEquals(document.fields(), 1);
+
+    document.field("field5", "changed");
+    document.save();
+
+    db.getLevel1Cache().invalidate();
+
+    final ODocument loaded = db.load(rid);
+    Assert.assertEquals(loaded.fieldNames().length, FIELDS);
+    Assert.assertEquals(loaded.field("field5"), "changed");
+    Assert.assertEquals(loaded.field("field0"), "value0");
+    Assert.assertEquals(loaded.field("field19"), "value19");
+  }
+
+  public void testBinarySerializer() {
+    db.command(new OCommandSQL("alter database custom recordSerializer=" + ORecordSerializerBinary.NAME)).execute();
+    testFilterAndProjectionsUnmarshallOnlyInvolvedFields();
+  }
+
+  private void createDocument() {
+    db.getMetadata().getSchema().createClass("Lazy");
+
+    final ODocument document = new ODocument("Lazy");
+    for (int i = 0; i < FIELDS; i++)
+      document.field("field" + i, "value" + i);
+    document.save();
+    rid = document.getIdentity();
+
+    db.getLevel1Cache().invalidate();
+  }
+}
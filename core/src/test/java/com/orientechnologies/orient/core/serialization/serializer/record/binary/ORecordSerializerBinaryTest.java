@@ -0,0 +1,233 @@
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+
+@Test
+public class ORecordSerializerBinaryTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeMethod
+  public void setUp() {
+    db = new ODatabaseDocumentTx("memory:recordSerializerBinaryTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    db.drop();
+  }
+
+  public void testScalarTypes() {
+    final ODocument document = new ODocument();
+    document.field("string", "Luca è 中");
+    document.field("integer", -12);
+    document.field("long", Long.MAX_VALUE);
+    document.field("short", (short) 300);
+    document.field("byte", (byte) 7);
+    document.field("boolean", true);
+    document.field("float", 3.5f);
+    document.field("double", -1.25d);
+    document.field("decimal", new BigDecimal("-12345678901234567890.123"));
+    document.field("datetime", new Date(1234567890123L));
+    document.field("binary", new byte[] { 1, 2, 3 });
+    document.field("link", new ORecordId("#10:20"));
+    document.field("null", (Object) null);
+
+    final byte[] content = ORecordSerializerBinary.INSTANCE.toStream(document, false);
+    Assert.assertTrue(ORecordSerializerBinary.isBinary(content));
+
+    final ODocument result = new ODocument();
+    ORecordSerializerBinary.INSTANCE.fromStream(content, result, null);
+
+    Assert.assertEquals(result.fieldNames(), document.fieldNames());
+    Assert.assertEquals(result.field("string"), "Luca è 中");
+    Assert.assertEquals(result.field("integer"), -12);
+    Assert.assertEquals(result.field("long"), Long.MAX_VALUE);
+    Assert.assertEquals(result.field("short"), (short) 300);
+    Assert.assertEquals(result.field("byte"), (byte) 7);
+    Assert.assertEquals(result.field("boolean"), true);
+    Assert.assertEquals(result.field("float"), 3.5f);
+    Assert.assertEquals(result.field("double"), -1.25d);
+    Assert.assertEquals(result.field("decimal"), new BigDecimal("-12345678901234567890.123"));
+    Assert.assertEquals(result.field("datetime"), new Date(1234567890123L));
+    Assert.assertEquals(result.field("binary"), new byte[] { 1, 2, 3 });
+    Assert.assertEquals(result.field("link", OType.LINK), new ORecordId("#10:20"));
+    Assert.assertTrue(result.containsField("null"));
+    Assert.assertNull(result.field("null"));
+  }
+
+  public void testSchemaClassLinksAndCollections() {
+    final OClass person = db.getMetadata().getSchema().createClass("Person");
+    person.createProperty("name", OType.STRING);
+    person.createProperty("age", OType.INTEGER);
+    person.createProperty("address", OType.EMBEDDED);
+    person.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+
+    final ODocument friend = new ODocument("Person");
+    friend.field("name", "Jay");
+    friend.save();
+
+    final ODocument address = new ODocument();
+    address.field("city", "Rome");
+    address.field("zip", 100);
+
+    final Map<String, Object> map = new HashMap<String, Object>();
+    map.put("one", 1);
+    map.put("two", "2");
+
+    final Set<String> set = new HashSet<String>(Arrays.asList("a", "b"));
+
+    final List<OIdentifiable> friends = new ArrayList<OIdentifiable>();
+    friends.add(friend.getIdentity());
+
+    final ODocument document = new ODocument("Person");
+    document.field("name", "Luca");
+    document.field("age", 40);
+    document.field("address", address);
+    document.field("tags", Arrays.asList("x", "y"));
+    document.field("map", map);
+    document.field("set", set);
+    document.field("friends", friends);
+    document.field("bestFriend", friend);
+
+    final ODocument newFriend = new ODocument("Person");
+    newFriend.field("name", "Nick");
+    document.field("newFriend", newFriend);
+
+    final byte[] content = ORecordSerializerBinary.INSTANCE.toStream(document, false);
+    Assert.assertTrue(newFriend.getIdentity().isPersistent());
+
+    final ODocument result = new ODocument();
+    ORecordSerializerBinary.INSTANCE.fromStream(content, result, null);
+
+    Assert.assertEquals(result.getClassName(), "Person");
+    Assert.assertEquals(result.field("name"), "Luca");
+    Assert.assertEquals(result.field("age"), 40);
+
+    final ODocument resultAddress = result.field("address");
+    Assert.assertTrue(resultAddress.isEmbedded());
+    Assert.assertEquals(resultAddress.field("city"), "Rome");
+    Assert.assertEquals(resultAddress.field("zip"), 100);
+
+    Assert.assertEquals(result.field("tags"), Arrays.asList("x", "y"));
+    Assert.assertEquals(result.field("map"), map);
+    Assert.assertEquals(result.field("set"), set);
+    Assert.assertEquals(((List<?>) result.field("friends")).size(), 1);
+    Assert.assertEquals(((OIdentifiable) ((List<?>) result.field("friends")).get(0)).getIdentity(), friend.getIdentity());
+    Assert.assertEquals(result.field("bestFriend", OType.LINK), friend.getIdentity());
+    Assert.assertEquals(result.field("newFriend", OType.LINK), newFriend.getIdentity());
+  }
+
+  public void testPartialDeserialization() {
+    final ODocument document = new ODocument();
+    for (int i = 0; i < 20; i++)
+      document.field("field" + i, "value" + i);
+    document.field("fè", "non ascii");
+
+    final byte[] content = ORecordSerializerBinary.INSTANCE.toStream(document, false);
+
+    final ODocument result = new ODocument();
+    ORecordSerializerBinary.INSTANCE.fromStream(content, result, new String[] { "field7", "fè", "missing" });
+
+    Assert.assertEquals(result.fields(), 2);
+    Assert.assertEquals(result.rawField("field7"), "value7");
+    Assert.assertEquals(result.rawField("fè"), "non ascii");
+
+    // FIELDS ALREADY UNMARSHALLED ARE NOT OVERWRITTEN
+    result.field("field7", "changed");
+    ORecordSerializerBinary.INSTANCE.fromStream(content, result, null);
+    Assert.assertEquals(result.fields(), 21);
+    Assert.assertEquals(result.rawField("field7"), "changed");
+    Assert.assertEquals(result.rawField("field19"), "value19");
+  }
+
+  public void testBothFormatsAreReadable() {
+    final ODocument document = new ODocument();
+    document.field("name", "Luca");
+    document.field("numbers", Arrays.asList(1, 2, 3));
+
+    final byte[] csv = ORecordSerializerSchemaAware2CSV.INSTANCE.toStream(document, false);
+    final byte[] binary = ORecordSerializerBinary.INSTANCE.toStream(document, false);
+
+    Assert.assertFalse(ORecordSerializerBinary.isBinary(csv));
+    Assert.assertTrue(ORecordSerializerBinary.isBinary(binary));
+
+    final ODocument fromCsv = new ODocument();
+    ORecordSerializerBinary.INSTANCE.fromStream(csv, fromCsv, null);
+    Assert.assertEquals(fromCsv.field("name"), "Luca");
+    Assert.assertEquals(fromCsv.field("numbers"), Arrays.asList(1, 2, 3));
+
+    final ODocument fromBinary = new ODocument();
+    ORecordSerializerSchemaAware2CSV.INSTANCE.fromStream(binary, fromBinary, null);
+    Assert.assertEquals(fromBinary.field("name"), "Luca");
+    Assert.assertEquals(fromBinary.field("numbers"), Arrays.asList(1, 2, 3));
+  }
+
+  public void testSerializerIsSelectedPerDatabase() {
+    final ODocument csvDocument = new ODocument();
+    csvDocument.field("name", "csv");
+    csvDocument.save();
+
+    Assert.assertFalse(ORecordSerializerBinary.isBinary(readContent(csvDocument.getIdentity())));
+
+    db.command(new OCommandSQL("alter database custom " + "recordSerializer=" + ORecordSerializerBinary.NAME)).execute();
+    Assert.assertSame(db.getRecordSerializer(), ORecordSerializerBinary.INSTANCE);
+
+    final ODocument binaryDocument = new ODocument();
+    binaryDocument.field("name", "binary");
+    binaryDocument.field("embedded", new ODocument().field("value", 1), OType.EMBEDDED);
+    binaryDocument.save();
+
+    Assert.assertTrue(ORecordSerializerBinary.isBinary(readContent(binaryDocument.getIdentity())));
+
+    db.getLevel1Cache().invalidate();
+
+    final ODocument loadedCsv = db.load(csvDocument.getIdentity());
+    Assert.assertEquals(loadedCsv.field("name"), "csv");
+
+    final ODocument loadedBinary = db.load(binaryDocument.getIdentity());
+    Assert.assertEquals(loadedBinary.field("name"), "binary");
+    Assert.assertEquals(loadedBinary.field("embedded.value"), 1);
+
+    final ODatabaseDocumentTx other = new ODatabaseDocumentTx(db.getURL());
+    other.open("admin", "admin");
+    try {
+      Assert.assertSame(other.getRecordSerializer(), ORecordSerializerBinary.INSTANCE);
+    } finally {
+      other.close();
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    }
+  }
+
+  private byte[] readContent(final ORID iRid) {
+    return db.getStorage().readRecord((ORecordId) iRid, null, false, null, false).getResult().buffer;
+  }
+}
@@ -0,0 +1,99 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandCursor;
+import com.orientechnologies.orient.core.command.OCommandResultCursor;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLCursorQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class CursorQueryTest {
+  private static final int    RECORDS = 1000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:cursorQueryTest");
+    db.create();
+
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Event").field("value", i).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testAllResultsAreReturnedInOrder() {
+    final String query = "select from Event where value >= 100";
+    final List<ORID> expected = getRids(db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query)));
+
+    final OCommandCursor<ODocument> cursor = db.command(new OSQLCursorQuery<ODocument>(query, 7)).execute();
+    final List<ORID> rids = new ArrayList<ORID>();
+    for (ODocument document : cursor)
+      rids.add(document.getIdentity());
+
+    Assert.assertEquals(rids, expected);
+    Assert.assertFalse(cursor.hasNext());
+  }
+
+  public void testParameters() {
+    final OCommandCursor<ODocument> cursor = db.command(new OSQLCursorQuery<ODocument>("select from Event where value < ?", 10))
+        .execute(25);
+
+    int count = 0;
+    while (cursor.hasNext()) {
+      Assert.assertTrue(cursor.next().<Integer> field("value") < 25);
+      count++;
+    }
+    Assert.assertEquals(count, 25);
+  }
+
+  public void testBatchesAreFetchedOnDemand() {
+    final OCommandResultCursor<ODocument> cursor = db.command(new OSQLCursorQuery<ODocument>("select from Event", 10)).execute();
+
+    Assert.assertEquals(cursor.fetch(10).size(), 10);
+    Assert.assertEquals(cursor.fetch(25).size(), 25);
+    Assert.assertFalse(cursor.isEnded());
+
+    cursor.close();
+    Assert.assertTrue(cursor.isEnded());
+    Assert.assertFalse(cursor.hasNext());
+
+    // THE DATABASE IS FREE AGAIN
+    Assert.assertEquals(db.countClass("Event"), RECORDS);
+  }
+
+  public void testEmptyResult() {
+    final OCommandCursor<ODocument> cursor = db.command(new OSQLCursorQuery<ODocument>("select from Event where value < 0"))
+        .execute();
+    Assert.assertFalse(cursor.hasNext());
+  }
+
+  public void testValuesAreWrappedInDocuments() {
+    final OCommandCursor<ODocument> cursor = db.command(new OSQLCursorQuery<ODocument>("select count(*) from Event")).execute();
+
+    Assert.assertTrue(cursor.hasNext());
+    Assert.assertEquals(cursor.next().<Number> field("count").intValue(), RECORDS);
+    Assert.assertFalse(cursor.hasNext());
+  }
+
+  private static List<ORID> getRids(final Iterable<ODocument> iResult) {
+    final List<ORID> rids = new ArrayList<ORID>();
+    for (ODocument document : iResult)
+      rids.add(document.getIdentity());
+    return rids;
+  }
+}
@@ -0,0 +1,161 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class GroupByTest {
+  private static final int    RECORDS = 2000;
+  private static final int    CITIES  = 500;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/groupByTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass oClass = db.getMetadata().getSchema().createClass("Sale");
+    oClass.createProperty("day", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    oClass.createProperty("city", OType.STRING);
+    oClass.createProperty("amount", OType.INTEGER);
+
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Sale").field("day", i / 10).field("city", "c" + (i % CITIES)).field("amount", i).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testGroupsBeyondMemoryArePartitioned() {
+    final int maxGroups = OGlobalConfiguration.QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY.getValueAsInteger();
+    OGlobalConfiguration.QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(10);
+    try {
+      final String query = "select city, count(*) as total, sum(amount) as amount from Sale group by city";
+
+      final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+      Assert.assertTrue(explain.<Number> field("groupByPartitionedRecords").intValue() > 0);
+
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+      Assert.assertEquals(result.size(), CITIES);
+
+      final boolean[] found = new boolean[CITIES];
+      for (ODocument group : result) {
+        final int city = Integer.parseInt(group.<String> field("city").substring(1));
+        Assert.assertFalse(found[city]);
+        found[city] = true;
+
+        Assert.assertEquals(group.<Number> field("total").intValue(), RECORDS / CITIES);
+        Assert.assertEquals(group.<Number> field("amount").intValue(), expectedCityAmount(city));
+      }
+    } finally {
+      OGlobalConfiguration.QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(maxGroups);
+    }
+  }
+
+  public void testPartitionedGroupsAreOrdered() {
+    final int maxGroups = OGlobalConfiguration.QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY.getValueAsInteger();
+    OGlobalConfiguration.QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(10);
+    try {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+          "select city, sum(amount) as amount from Sale group by city order by city desc limit 5"));
+
+      final List<String> cities = new ArrayList<String>();
+      for (ODocument group : result)
+        cities.add(group.<String> field("city"));
+      Assert.assertEquals(cities.toString(), "[c99, c98, c97, c96, c95]");
+      Assert.assertEquals(result.get(0).<Number> field("amount").intValue(), expectedCityAmount(99));
+    } finally {
+      OGlobalConfiguration.QUERY_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(maxGroups);
+    }
+  }
+
+  public void testSkipAndLimitApplyToGroups() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select city, count(*) as total from Sale group by city skip 10 limit 20"));
+
+    Assert.assertEquals(result.size(), 20);
+    for (ODocument group : result)
+      Assert.assertEquals(group.<Number> field("total").intValue(), RECORDS / CITIES);
+  }
+
+  public void testStreamedGroupsStopAtLimit() {
+    final String query = "select day, count(*) as total from Sale group by day limit 3";
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertEquals(explain.field("groupByStreamed"), Boolean.TRUE);
+    Assert.assertTrue(explain.<Number> field("documentReads").intValue() <= 40, explain.field("documentReads") + " records read");
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(result.size(), 3);
+    for (int i = 0; i < result.size(); i++) {
+      Assert.assertEquals(result.get(i).field("day"), i);
+      Assert.assertEquals(result.get(i).<Number> field("total").intValue(), 10);
+    }
+  }
+
+  public void testStreamedGroupsInDescendingRange() {
+    final String query = "select day, sum(amount) as amount from Sale where day between 10 and 19 group by day order by day desc";
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertEquals(explain.field("groupByStreamed"), Boolean.TRUE);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(result.size(), 10);
+    for (int i = 0; i < result.size(); i++) {
+      final int day = 19 - i;
+      Assert.assertEquals(result.get(i).field("day"), day);
+      Assert.assertEquals(result.get(i).<Number> field("amount").intValue(), day * 100 + 45);
+    }
+  }
+
+  public void testStreamedGroupsAreSentToListener() {
+    final List<ODocument> received = new ArrayList<ODocument>();
+    db.command(new OSQLAsynchQuery<ODocument>("select day, count(*) as total from Sale group by day", new OCommandResultListener() {
+      @Override
+      public boolean result(final Object iRecord) {
+        received.add((ODocument) iRecord);
+        return received.size() < 4;
+      }
+
+      @Override
+      public void end() {
+      }
+    })).execute();
+
+    Assert.assertEquals(received.size(), 4);
+    Assert.assertEquals(received.get(3).field("day"), 3);
+  }
+
+  private static int expectedCityAmount(final int city) {
+    int amount = 0;
+    for (int i = city; i < RECORDS; i += CITIES)
+      amount += i;
+    return amount;
+  }
+}
@@ -0,0 +1,131 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class IndexCombinationTest {
+  private static final int    RECORDS = 20000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/indexCombinationTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass oClass = db.getMetadata().getSchema().createClass("Person");
+    oClass.createProperty("city", OType.STRING).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    oClass.createProperty("age", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    oClass.createProperty("gender", OType.STRING).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    oClass.createProperty("name", OType.STRING);
+
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Person").field("city", city(i)).field("age", age(i)).field("gender", gender(i)).field("name", "name" + i % 10)
+          .save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testIntersection() {
+    final ODocument explain = db.command(new OCommandSQL("explain select from Person where city = 'city7' and age = 7")).execute();
+
+    int expected = 0;
+    for (int i = 0; i < RECORDS; i++)
+      if (city(i).equals("city7") && age(i) == 7)
+        expected++;
+
+    Assert.assertTrue(expected > 0);
+    Assert.assertEquals(explain.<Set<String>> field("involvedIndexes").size(), 2);
+    Assert.assertEquals(explain.field("actualRows"), (long) expected);
+    Assert.assertEquals(explain.field("resultSize"), expected);
+  }
+
+  public void testIntersectionWithFilter() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from Person where city = 'city7' and age < 50 and name = 'name7'"));
+
+    int expected = 0;
+    for (int i = 0; i < RECORDS; i++)
+      if (city(i).equals("city7") && age(i) < 50 && i % 10 == 7)
+        expected++;
+
+    Assert.assertTrue(expected > 0);
+    Assert.assertEquals(result.size(), expected);
+    for (ODocument document : result) {
+      Assert.assertEquals(document.field("city"), "city7");
+      Assert.assertTrue(document.<Integer> field("age") < 50);
+      Assert.assertEquals(document.field("name"), "name7");
+    }
+  }
+
+  public void testUnion() {
+    final ODocument explain = db.command(new OCommandSQL("explain select from Person where city = 'city7' or age = 3")).execute();
+
+    int expected = 0;
+    for (int i = 0; i < RECORDS; i++)
+      if (city(i).equals("city7") || age(i) == 3)
+        expected++;
+
+    Assert.assertEquals(explain.<Set<String>> field("involvedIndexes").size(), 2);
+    Assert.assertEquals(explain.field("actualRows"), (long) expected);
+    Assert.assertEquals(explain.field("resultSize"), expected);
+  }
+
+  public void testUnionWithoutIndex() {
+    final ODocument explain = db.command(new OCommandSQL("explain select from Person where city = 'city7' or name = 'name3'"))
+        .execute();
+
+    Assert.assertNull(explain.field("involvedIndexes"));
+    Assert.assertEquals(explain.field("resultSize"), RECORDS / 10 + RECORDS / 1000);
+  }
+
+  public void testUnselectiveIndexIsNotCombined() {
+    final ODocument explain = db.command(new OCommandSQL("explain select from Person where gender = 'F' and age = 3")).execute();
+
+    final Set<String> involvedIndexes = explain.field("involvedIndexes");
+    Assert.assertEquals(involvedIndexes.size(), 1);
+    Assert.assertTrue(involvedIndexes.contains("Person.age"));
+
+    int expected = 0;
+    for (int i = 0; i < RECORDS; i++)
+      if (gender(i).equals("F") && age(i) == 3)
+        expected++;
+    Assert.assertEquals(explain.field("resultSize"), expected);
+  }
+
+  private static String city(int i) {
+    return "city" + i % 1000;
+  }
+
+  private static int age(int i) {
+    return i % 97;
+  }
+
+  private static String gender(int i) {
+    return i % 2 == 0 ? "M" : "F";
+  }
+}
@@ -0,0 +1,177 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class IndexOrderTest {
+  private static final int    RECORDS      = 3000;
+  private static final int    NULL_RECORDS = 30;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/indexOrderTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass oClass = db.getMetadata().getSchema().createClass("Event");
+    oClass.createProperty("createdAt", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    oClass.createProperty("status", OType.STRING);
+    oClass.createProperty("id", OType.INTEGER);
+
+    for (int i = 0; i < RECORDS; i++) {
+      final ODocument document = new ODocument("Event").field("id", i).field("status", status(i));
+      if (createdAt(i) != null)
+        document.field("createdAt", createdAt(i));
+      document.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testDescendingWithLimit() {
+    final ODocument explain = db.command(new OCommandSQL("explain select from Event order by createdAt desc limit 20")).execute();
+    Assert.assertEquals(explain.field("orderedByIndex"), Boolean.TRUE);
+    Assert.assertEquals(explain.field("resultSize"), 20);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Event order by createdAt desc limit 20"));
+    assertCreatedAt(result, expectedCreatedAt(null, false).subList(0, 20));
+  }
+
+  public void testAscendingRange() {
+    final String query = "select from Event where createdAt >= 100 and createdAt < 500 order by createdAt asc limit 10";
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertEquals(explain.field("orderedByIndex"), Boolean.TRUE);
+    Assert.assertTrue(explain.<Number> field("documentReads").intValue() <= 12, explain.field("documentReads") + " records read");
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    assertCreatedAt(result, Arrays.asList(100, 100, 100, 101, 101, 101, 102, 102, 102, 103));
+  }
+
+  public void testDescendingBetweenWithoutLimit() {
+    final ODocument explain = db.command(
+        new OCommandSQL("explain select from Event where createdAt between 10 and 20 order by createdAt desc")).execute();
+    Assert.assertEquals(explain.field("orderedByIndex"), Boolean.TRUE);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from Event where createdAt between 10 and 20 order by createdAt desc"));
+    Assert.assertEquals(result.size(), 33);
+    Assert.assertEquals(result.get(0).field("createdAt"), 20);
+    Assert.assertEquals(result.get(32).field("createdAt"), 10);
+  }
+
+  public void testDescendingWithFilterAndSkip() {
+    final String query = "select from Event where status = 'open' order by createdAt desc skip 5 limit 10";
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertEquals(explain.field("orderedByIndex"), Boolean.TRUE);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    assertCreatedAt(result, expectedCreatedAt("open", false).subList(5, 15));
+  }
+
+  public void testDescendingReachesRecordsWithoutField() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from Event where status = 'new' order by createdAt desc limit 100"));
+
+    final List<Integer> expected = expectedCreatedAt("new", false);
+    Assert.assertTrue(expected.size() < 100);
+    Assert.assertTrue(expected.contains(null));
+    assertCreatedAt(result, expected);
+  }
+
+  public void testAscendingWithFilterIsSorted() {
+    final String query = "select from Event where status = 'new' order by createdAt asc limit 5";
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertNull(explain.field("orderedByIndex"));
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    assertCreatedAt(result, expectedCreatedAt("new", true).subList(0, 5));
+  }
+
+  public void testSeveralOrderFieldsAreSorted() {
+    final String query = "select from Event order by createdAt desc, id asc limit 6";
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertNull(explain.field("orderedByIndex"));
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
+    Assert.assertEquals(result.size(), 6);
+    for (int i = 1; i < result.size(); i++)
+      if (result.get(i).field("createdAt").equals(result.get(i - 1).field("createdAt")))
+        Assert.assertTrue(result.get(i).<Integer> field("id") > result.get(i - 1).<Integer> field("id"));
+  }
+
+  private static void assertCreatedAt(final List<ODocument> result, final List<Integer> expected) {
+    final List<Integer> createdAt = new ArrayList<Integer>();
+    for (ODocument document : result)
+      createdAt.add(document.<Integer> field("createdAt"));
+
+    Assert.assertEquals(createdAt, expected);
+  }
+
+  /**
+   * Returns the creation times of the records with the status, records without creation time first in ascending order.
+   */
+  private static List<Integer> expectedCreatedAt(final String status, final boolean ascending) {
+    final List<Integer> result = new ArrayList<Integer>();
+    int nulls = 0;
+    for (int i = 0; i < RECORDS; i++)
+      if (status == null || status.equals(status(i))) {
+        if (createdAt(i) == null)
+          nulls++;
+        else
+          result.add(createdAt(i));
+      }
+
+    Collections.sort(result);
+    if (!ascending)
+      Collections.reverse(result);
+
+    for (int i = 0; i < nulls; i++)
+      if (ascending)
+        result.add(0, null);
+      else
+        result.add(null);
+
+    return result;
+  }
+
+  private static Integer createdAt(final int i) {
+    return i < RECORDS - NULL_RECORDS ? i / 3 : null;
+  }
+
+  private static String status(final int i) {
+    if (i % 100 == 1 || i % 100 == 99)
+      return "new";
+    return i % 10 == 0 ? "open" : "closed";
+  }
+}
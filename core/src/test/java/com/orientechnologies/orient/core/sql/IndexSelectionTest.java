@@ -0,0 +1,118 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndexManager;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class IndexSelectionTest {
+  private static final int    RECORDS = 20000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/indexSelectionTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass oClass = db.getMetadata().getSchema().createClass("Person");
+    oClass.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+    oClass.createProperty("gender", OType.STRING).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    oClass.createProperty("age", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Person").field("id", i).field("gender", i % 2 == 0 ? "M" : "F").field("age", i % 100).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testStatistics() {
+    final OIndexStatistics statistics = db.getMetadata().getIndexManager().analyzeIndex("Person.age");
+
+    Assert.assertEquals(statistics.getEntries(), RECORDS);
+    Assert.assertEquals(statistics.getDistinctKeys(), 100);
+    Assert.assertEquals(statistics.getHistogram().get(0), 0);
+    Assert.assertEquals(statistics.getHistogram().get(statistics.getHistogram().size() - 1), 99);
+    Assert.assertEquals(statistics.estimateEquals(), RECORDS / 100);
+
+    final long estimate = statistics.estimateBetween(10, true, 19, true);
+    Assert.assertTrue(estimate > RECORDS / 10 * 0.8 && estimate < RECORDS / 10 * 1.2, estimate + " records estimated");
+    Assert.assertEquals(statistics.estimateBetween(100, true, null, false), 0);
+  }
+
+  public void testStaleStatistics() {
+    final OIndexManager indexManager = db.getMetadata().getIndexManager();
+    final OIndexStatistics statistics = indexManager.analyzeIndex("Person.id");
+
+    Assert.assertSame(indexManager.getIndexStatistics("Person.id"), statistics);
+    Assert.assertFalse(statistics.isStale(RECORDS + RECORDS / 20));
+    Assert.assertTrue(statistics.isStale(RECORDS + RECORDS / 5));
+  }
+
+  public void testAnalyzeIndex() {
+    final List<ODocument> result = db.command(new OCommandSQL("analyze index Person.gender")).execute();
+
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0).field("index"), "Person.gender");
+    Assert.assertEquals(result.get(0).field("entries"), (long) RECORDS);
+    Assert.assertEquals(result.get(0).field("distinctKeys"), 2L);
+
+    final List<ODocument> allIndexes = db.command(new OCommandSQL("analyze index *")).execute();
+    Assert.assertEquals(allIndexes.size(), db.getMetadata().getIndexManager().getIndexes().size());
+  }
+
+  public void testMostSelectiveIndex() {
+    final ODocument explain = db.command(new OCommandSQL("explain select from Person where gender = 'M' and id = 100")).execute();
+
+    Assert.assertEquals(explain.<Set<String>> field("involvedIndexes").size(), 1);
+    Assert.assertTrue(explain.<Set<String>> field("involvedIndexes").contains("Person.id"));
+    Assert.assertEquals(explain.field("estimatedRows"), 1L);
+    Assert.assertEquals(explain.field("actualRows"), 1L);
+    Assert.assertEquals(explain.field("resultSize"), 1);
+  }
+
+  public void testRangeIndex() {
+    final ODocument explain = db.command(new OCommandSQL("explain select from Person where gender = 'F' and age < 5")).execute();
+
+    Assert.assertTrue(explain.<Set<String>> field("involvedIndexes").contains("Person.age"));
+    Assert.assertEquals(explain.field("actualRows"), (long) RECORDS / 100 * 5);
+    // ODD IDS UNDER 5 ARE OF AGES 1 AND 3
+    Assert.assertEquals(explain.field("resultSize"), RECORDS / 100 * 2);
+  }
+
+  public void testScanInsteadOfIndex() {
+    final ODocument explain = db.command(new OCommandSQL("explain select from Person where gender = 'M'")).execute();
+
+    Assert.assertNull(explain.field("involvedIndexes"));
+    Assert.assertEquals(explain.field("estimatedRows"), (long) RECORDS);
+    Assert.assertEquals(explain.field("actualRows"), (long) RECORDS);
+    Assert.assertEquals(explain.field("resultSize"), RECORDS / 2);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Person where gender = 'M'"));
+    Assert.assertEquals(result.size(), RECORDS / 2);
+  }
+}
@@ -0,0 +1,219 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OSortedResultCollectorTest {
+  public void testTopRecordsWithLimit() {
+    final List<OIdentifiable> records = createRecords(1000);
+
+    final OSortedResultCollector collector = new OSortedResultCollector(createComparator(), 5, 20, 100);
+    for (OIdentifiable record : records)
+      collector.add(record);
+
+    final Iterable<OIdentifiable> result = collector.sort();
+    Assert.assertEquals(collector.getRuns(), 0);
+
+    // SKIP AND LIMIT ARE APPLIED BY THE CALLER
+    Assert.assertEquals(toList(result), sort(records).subList(0, 25));
+  }
+
+  public void testSortedRunsAreMerged() {
+    final List<OIdentifiable> records = createRecords(1050);
+
+    final OSortedResultCollector collector = new OSortedResultCollector(createComparator(), 0, -1, 100);
+    for (OIdentifiable record : records)
+      collector.add(record);
+
+    final Iterable<OIdentifiable> result = collector.sort();
+    Assert.assertEquals(collector.getRuns(), 10);
+
+    assertSameValues(toList(result), sort(records));
+    collector.close();
+  }
+
+  public void testSkipAndLimitOnSortedRuns() {
+    final List<OIdentifiable> records = createRecords(1050);
+
+    final OSortedResultCollector collector = new OSortedResultCollector(createComparator(), 130, 500, 100);
+    for (OIdentifiable record : records)
+      collector.add(record);
+
+    final Iterable<OIdentifiable> result = collector.sort();
+    Assert.assertEquals(collector.getRuns(), 10);
+
+    assertSameValues(toList(result), sort(records).subList(130, 630));
+    collector.close();
+  }
+
+  public void testOrderByQuery() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:sortedResultCollectorTest");
+    db.create();
+
+    final Object maxRecordsInMemory = OGlobalConfiguration.QUERY_ORDER_BY_MAX_RECORDS_IN_MEMORY.getValue();
+    OGlobalConfiguration.QUERY_ORDER_BY_MAX_RECORDS_IN_MEMORY.setValue(50);
+    try {
+      db.getMetadata().getSchema().createClass("Sorted");
+
+      final Random random = new Random();
+      for (int i = 0; i < 500; i++)
+        new ODocument("Sorted").field("value", random.nextInt(100)).field("id", i).save();
+
+      List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Sorted order by value desc, id"));
+      Assert.assertEquals(result.size(), 500);
+      for (int i = 1; i < result.size(); i++) {
+        final int previous = result.get(i - 1).<Integer> field("value");
+        final int current = result.get(i).<Integer> field("value");
+        Assert.assertTrue(previous >= current);
+        if (previous == current)
+          Assert.assertTrue(result.get(i - 1).<Integer> field("id") < result.get(i).<Integer> field("id"));
+      }
+
+      final List<ODocument> all = result;
+
+      result = db.query(new OSQLSynchQuery<ODocument>("select value, id from Sorted order by value desc, id skip 20 limit 30"));
+      Assert.assertEquals(result.size(), 30);
+      for (int i = 0; i < result.size(); i++)
+        Assert.assertEquals(result.get(i).field("id"), all.get(i + 20).field("id"));
+
+      result = db.query(new OSQLSynchQuery<ODocument>("select value, id from Sorted order by value desc, id skip 20 limit 100"));
+      Assert.assertEquals(result.size(), 100);
+      for (int i = 0; i < result.size(); i++)
+        Assert.assertEquals(result.get(i).field("id"), all.get(i + 20).field("id"));
+
+    } finally {
+      OGlobalConfiguration.QUERY_ORDER_BY_MAX_RECORDS_IN_MEMORY.setValue(maxRecordsInMemory);
+      db.drop();
+    }
+  }
+
+  public void testSpilledProjectionsAreNotSaved() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:sortedResultCollectorProjectionTest");
+    db.create();
+    try {
+      db.getMetadata().getSchema().createClass("Linked");
+      final ODocument stored = new ODocument("Linked").field("name", "stored");
+      stored.save();
+
+      final List<OIdentifiable> records = new ArrayList<OIdentifiable>();
+      for (int i = 0; i < 300; i++)
+        records.add(new ODocument().field("value", 300 - i).field("id", (short) i, OType.SHORT)
+            .field("date", new Date(i * 1000L)).field("ratio", i / 2f).field("link", stored)
+            .field("unsaved", new ODocument("Linked").field("name", "unsaved " + i)));
+
+      final OSortedResultCollector collector = new OSortedResultCollector(createComparator(), 0, -1, 100);
+      for (OIdentifiable record : records)
+        collector.add(record);
+
+      final List<OIdentifiable> result = toList(collector.sort());
+      Assert.assertEquals(collector.getRuns(), 3);
+      collector.close();
+
+      // THE LINKED RECORDS NEVER SAVED ARE NOT SAVED BY THE SORT
+      Assert.assertEquals(db.countClass("Linked"), 1);
+
+      Assert.assertEquals(result.size(), 300);
+      for (int i = 0; i < result.size(); i++) {
+        final ODocument document = (ODocument) result.get(i);
+        final int id = 299 - i;
+        Assert.assertEquals(document.<Integer> field("value").intValue(), i + 1);
+        Assert.assertEquals(document.field("id"), (short) id);
+        Assert.assertEquals(document.fieldType("id"), OType.SHORT);
+        Assert.assertEquals(document.field("date"), new Date(id * 1000L));
+        Assert.assertEquals(document.field("ratio"), id / 2f);
+        Assert.assertEquals(document.<OIdentifiable> field("link").getIdentity(), stored.getIdentity());
+        Assert.assertFalse(document.<ODocument> field("unsaved").getIdentity().isPersistent());
+        Assert.assertEquals(document.<ODocument> field("unsaved").field("name"), "unsaved " + id);
+        Assert.assertFalse(document.isDirty());
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  public void testSpilledStoredRecordsAreLoaded() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:sortedResultCollectorStoredTest");
+    db.create();
+    try {
+      db.getMetadata().getSchema().createClass("Stored");
+
+      final List<OIdentifiable> records = new ArrayList<OIdentifiable>();
+      for (int i = 0; i < 300; i++)
+        records.add(new ODocument("Stored").field("value", i % 50).field("id", i).save());
+
+      final OSortedResultCollector collector = new OSortedResultCollector(createComparator(), 0, -1, 100);
+      for (OIdentifiable record : records)
+        collector.add(record);
+
+      final List<OIdentifiable> result = toList(collector.sort());
+      Assert.assertEquals(collector.getRuns(), 3);
+      collector.close();
+
+      final List<OIdentifiable> expected = sort(records);
+      assertSameValues(result, expected);
+      for (int i = 0; i < result.size(); i++) {
+        final ORID rid = result.get(i).getIdentity();
+        Assert.assertEquals(rid, expected.get(i).getIdentity());
+        Assert.assertEquals(((ODocument) result.get(i)).getClassName(), "Stored");
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static List<OIdentifiable> createRecords(final int iCount) {
+    final Random random = new Random();
+    final List<OIdentifiable> records = new ArrayList<OIdentifiable>();
+    for (int i = 0; i < iCount; i++)
+      // FEW DIFFERENT VALUES TO CHECK THE ORDER OF EQUAL RECORDS IS KEPT
+      records.add(new ODocument().field("value", random.nextInt(50)).field("id", i));
+    return records;
+  }
+
+  private static ODocumentComparator createComparator() {
+    final List<OPair<String, String>> orderCriteria = new ArrayList<OPair<String, String>>();
+    orderCriteria.add(new OPair<String, String>("value", "ASC"));
+    return new ODocumentComparator(orderCriteria);
+  }
+
+  private static List<OIdentifiable> sort(final List<OIdentifiable> iRecords) {
+    final List<OIdentifiable> sorted = new ArrayList<OIdentifiable>(iRecords);
+    Collections.sort(sorted, createComparator());
+    return sorted;
+  }
+
+  private static List<OIdentifiable> toList(final Iterable<OIdentifiable> iIterable) {
+    final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
+    for (Iterator<OIdentifiable> it = iIterable.iterator(); it.hasNext();)
+      list.add(it.next());
+    return list;
+  }
+
+  private static void assertSameValues(final List<OIdentifiable> iActual, final List<OIdentifiable> iExpected) {
+    Assert.assertEquals(iActual.size(), iExpected.size());
+    for (int i = 0; i < iActual.size(); i++) {
+      final ODocument actual = (ODocument) iActual.get(i);
+      final ODocument expected = (ODocument) iExpected.get(i);
+      Assert.assertEquals(actual.field("value"), expected.field("value"));
+      Assert.assertEquals(actual.field("id"), expected.field("id"));
+    }
+  }
+}
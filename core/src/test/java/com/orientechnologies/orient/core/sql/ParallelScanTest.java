@@ -0,0 +1,178 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+@Test
+public class ParallelScanTest {
+  private static final int    RECORDS  = 3000;
+  private static final int    CLUSTERS = 3;
+
+  private ODatabaseDocumentTx db;
+  private long                minRecords;
+  private int                 rangeSize;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/parallelScanTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass oClass = db.getMetadata().getSchema().createClass("Event");
+    oClass.createProperty("value", OType.INTEGER);
+    oClass.createProperty("tag", OType.STRING);
+
+    final String[] clusters = new String[CLUSTERS];
+    clusters[0] = "event";
+    for (int i = 1; i < CLUSTERS; i++) {
+      clusters[i] = "event_" + i;
+      oClass.addClusterId(db.addCluster(clusters[i], OStorage.CLUSTER_TYPE.PHYSICAL));
+    }
+
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Event").field("value", i).field("tag", "t" + (i % 7)).save(clusters[i % CLUSTERS]);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    minRecords = OGlobalConfiguration.QUERY_PARALLEL_SCAN_MIN_RECORDS.getValueAsLong();
+    rangeSize = OGlobalConfiguration.QUERY_PARALLEL_SCAN_RANGE_SIZE.getValueAsInteger();
+
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN_MIN_RECORDS.setValue(0);
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN_RANGE_SIZE.setValue(100);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN.setValue(false);
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN_MIN_RECORDS.setValue(minRecords);
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN_RANGE_SIZE.setValue(rangeSize);
+  }
+
+  public void testRecordsAreReturnedInScanOrder() {
+    final String query = "select from Event where value >= 1000 and tag = 't1'";
+
+    final List<ORID> serial = getRids(db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query)));
+    Assert.assertFalse(serial.isEmpty());
+
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN.setValue(true);
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertEquals(explain.field("parallelScan"), Boolean.TRUE);
+    Assert.assertEquals(explain.<Number> field("documentReads").intValue(), RECORDS);
+
+    Assert.assertEquals(getRids(db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query))), serial);
+  }
+
+  public void testSkipAndLimit() {
+    final String query = "select from Event where tag = ? skip 5 limit 7";
+
+    final List<ORID> serial = getRids(db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query), "t2"));
+    Assert.assertEquals(serial.size(), 7);
+
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN.setValue(true);
+    Assert.assertEquals(getRids(db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query), "t2")), serial);
+  }
+
+  public void testAggregatesAreMergedByRange() {
+    final String query = "select count(*) as total, sum(value) as amount, min(value) as lowest, max(value) as highest from Event where tag = 't3'";
+
+    final ODocument serial = db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query)).get(0);
+
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN.setValue(true);
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+    Assert.assertEquals(explain.field("parallelScan"), Boolean.TRUE);
+
+    final ODocument parallel = db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query)).get(0);
+    for (String field : new String[] { "total", "amount", "lowest", "highest" })
+      Assert.assertEquals(parallel.<Number> field(field).longValue(), serial.<Number> field(field).longValue(), field);
+  }
+
+  public void testRestrictedRecordsAreNotAggregated() {
+    final OClass restricted = db.getMetadata().getSchema()
+        .createClass("Secret", db.getMetadata().getSchema().getClass(OSecurityShared.RESTRICTED_CLASSNAME));
+    restricted.createProperty("value", OType.INTEGER);
+
+    final Set<OIdentifiable> reader = new HashSet<OIdentifiable>();
+    reader.add(db.getMetadata().getSecurity().getUser("reader").getDocument().getIdentity());
+
+    int allowed = 0;
+    for (int i = 0; i < RECORDS; i++) {
+      final ODocument document = new ODocument("Secret").field("value", i);
+      if (i % 3 == 0) {
+        document.field(OSecurityShared.ALLOW_READ_FIELD, reader);
+        allowed++;
+      }
+      document.save();
+    }
+
+    final String query = "select count(*) as total from Secret where value >= 0";
+
+    db.close();
+    db.open("reader", "reader");
+    try {
+      final ODocument serial = db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query)).get(0);
+      Assert.assertEquals(serial.<Number> field("total").intValue(), allowed);
+
+      OGlobalConfiguration.QUERY_PARALLEL_SCAN.setValue(true);
+
+      final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute();
+      Assert.assertEquals(explain.field("parallelScan"), Boolean.TRUE);
+
+      final ODocument parallel = db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(query)).get(0);
+      Assert.assertEquals(parallel.<Number> field("total").intValue(), allowed);
+    } finally {
+      db.close();
+      db.open("admin", "admin");
+    }
+  }
+
+  public void testFunctionsInFilterAreScannedSerially() {
+    OGlobalConfiguration.QUERY_PARALLEL_SCAN.setValue(true);
+
+    final ODocument explain = db.command(new OCommandSQL("explain select from Event where tag.toUpperCase() = 'T4'")).execute();
+    Assert.assertNull(explain.field("parallelScan"));
+    Assert.assertEquals(explain.<Number> field("resultSize").intValue(), (RECORDS + 2) / 7);
+  }
+
+  private static List<ORID> getRids(final List<ODocument> iResult) {
+    final List<ORID> rids = new ArrayList<ORID>();
+    for (ODocument document : iResult)
+      rids.add(document.getIdentity());
+    return rids;
+  }
+}
@@ -0,0 +1,106 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class StatementCacheTest {
+  private static final int    RECORDS = 100;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/statementCacheTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass oClass = db.getMetadata().getSchema().createClass("Item");
+    oClass.createProperty("num", OType.INTEGER);
+    oClass.createProperty("name", OType.STRING);
+
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("Item").field("num", i).field("name", "n" + (i % 10)).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testParsedStatementIsReused() {
+    final OSQLStatementCache cache = OSQLStatementCache.getCache(db.getStorage());
+    final String query = "select from Item where num >= ? and name = ? order by num desc limit 3";
+
+    final long hits = cache.getHits();
+    final long misses = cache.getMisses();
+
+    for (int i = 0; i < 10; i++) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query), i, "n" + i);
+
+      Assert.assertEquals(result.size(), 3);
+      for (int k = 0; k < result.size(); k++)
+        Assert.assertEquals(result.get(k).field("num"), 90 + i - k * 10);
+    }
+
+    Assert.assertEquals(cache.getMisses() - misses, 1);
+    Assert.assertEquals(cache.getHits() - hits, 9);
+  }
+
+  public void testRequestLimitIsAppliedToReusedStatement() {
+    final String query = "select from Item where name = :name";
+
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query, 4), "n1").size(), 4);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query), "n1").size(), RECORDS / 10);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query, 2), "n1").size(), 2);
+  }
+
+  public void testAggregatesAreNotCached() {
+    final OSQLStatementCache cache = OSQLStatementCache.getCache(db.getStorage());
+    final String query = "select count(*) as total from Item where name = ?";
+
+    final long hits = cache.getHits();
+    for (int i = 0; i < 3; i++) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query), "n" + i);
+      Assert.assertEquals(result.get(0).<Number> field("total").intValue(), RECORDS / 10);
+    }
+
+    Assert.assertEquals(cache.getHits(), hits);
+  }
+
+  public void testCacheIsClearedOnIndexCreation() {
+    final OSQLStatementCache cache = OSQLStatementCache.getCache(db.getStorage());
+    final String query = "select from Item where num = ?";
+
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query), 5).size(), 1);
+    Assert.assertTrue(cache.getSize() > 0);
+
+    final int version = cache.getVersion();
+    db.getMetadata().getSchema().getClass("Item").getProperty("num").createIndex(OClass.INDEX_TYPE.UNIQUE);
+
+    Assert.assertTrue(cache.getVersion() > version);
+    Assert.assertEquals(cache.getSize(), 0);
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + query)).execute(7);
+    Assert.assertEquals(explain.<Number> field("resultSize").intValue(), 1);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query), 7).size(), 1);
+  }
+}
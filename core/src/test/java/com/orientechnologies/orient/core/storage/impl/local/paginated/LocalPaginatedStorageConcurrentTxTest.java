@@ -0,0 +1,98 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Commits concurrently transactions which save records linked to new records of other clusters, so that the clusters of each
+ * transaction are known only once the linked records are reached.
+ */
+@Test
+public class LocalPaginatedStorageConcurrentTxTest {
+  private static final int    TRANSACTIONS = 300;
+
+  private ODatabaseDocumentTx databaseDocumentTx;
+  private String              url;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+    url = "plocal:" + new File(buildDirectory).getAbsolutePath() + "/localPaginatedStorageConcurrentTxTest";
+
+    databaseDocumentTx = new ODatabaseDocumentTx(url);
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+    databaseDocumentTx.getMetadata().getSchema().createClass("First");
+    databaseDocumentTx.getMetadata().getSchema().createClass("Second");
+  }
+
+  @AfterClass
+  public void afterClass() {
+    databaseDocumentTx.drop();
+  }
+
+  public void testLinkedRecordsOfOtherClustersDoNotDeadlock() throws Exception {
+    final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      futures.add(executorService.submit(new Committer("First", "Second")));
+      futures.add(executorService.submit(new Committer("Second", "First")));
+
+      for (Future<Void> future : futures)
+        future.get(2, TimeUnit.MINUTES);
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    Assert.assertEquals(databaseDocumentTx.countClass("First"), 2 * TRANSACTIONS);
+    Assert.assertEquals(databaseDocumentTx.countClass("Second"), 2 * TRANSACTIONS);
+  }
+
+  private final class Committer implements Callable<Void> {
+    private final String className;
+    private final String linkedClassName;
+
+    private Committer(String className, String linkedClassName) {
+      this.className = className;
+      this.linkedClassName = linkedClassName;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+      db.open("admin", "admin");
+      try {
+        for (int i = 0; i < TRANSACTIONS; i++) {
+          db.begin();
+          // ONLY THE LINKING RECORD IS IN THE TRANSACTION, THE LINKED ONE IS SAVED DURING ITS SERIALIZATION
+          final ODocument document = new ODocument(className);
+          document.field("linked", new ODocument(linkedClassName).field("value", i));
+          document.save();
+          db.commit();
+        }
+      } finally {
+        db.close();
+      }
+
+      return null;
+    }
+  }
+}
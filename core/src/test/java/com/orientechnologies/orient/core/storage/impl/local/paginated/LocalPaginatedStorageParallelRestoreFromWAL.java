@@ -0,0 +1,26 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * The same as {@link LocalPaginatedStorageRestoreFromWAL} but changes of pages are applied by several threads.
+ */
+@Test
+public class LocalPaginatedStorageParallelRestoreFromWAL extends LocalPaginatedStorageRestoreFromWAL {
+  private int restoreThreads;
+
+  @BeforeClass
+  public void beforeParallelRestoreClass() {
+    restoreThreads = OGlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger();
+    OGlobalConfiguration.WAL_RESTORE_THREADS.setValue(4);
+  }
+
+  @AfterClass
+  public void afterParallelRestoreClass() {
+    OGlobalConfiguration.WAL_RESTORE_THREADS.setValue(restoreThreads);
+  }
+}
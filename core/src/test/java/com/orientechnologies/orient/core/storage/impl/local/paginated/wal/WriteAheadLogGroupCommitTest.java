@@ -0,0 +1,167 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class WriteAheadLogGroupCommitTest {
+  private static final int THREADS            = 8;
+  private static final int UNITS_PER_THREAD   = 200;
+
+  private OWriteAheadLog   writeAheadLog;
+  private File             testDir;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    testDir = new File(buildDirectory, "writeAheadLogGroupCommitTest");
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    if (!testDir.exists())
+      testDir.mkdir();
+
+    writeAheadLog = createWAL();
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    if (writeAheadLog != null)
+      writeAheadLog.delete();
+
+    if (testDir.exists())
+      testDir.delete();
+  }
+
+  private OWriteAheadLog createWAL() throws Exception {
+    OLocalPaginatedStorage paginatedStorage = mock(OLocalPaginatedStorage.class);
+    when(paginatedStorage.getName()).thenReturn("WriteAheadLogGroupCommitTest");
+    when(paginatedStorage.getStoragePath()).thenReturn(testDir.getAbsolutePath());
+
+    return new OWriteAheadLog(100, -1, OWALPage.PAGE_SIZE * 16, 100L * 1024L * 1024L * 1024L, true, paginatedStorage);
+  }
+
+  public void testUnitEndIsFlushedWhenLogReturns() throws Exception {
+    final ConcurrentHashMap<OLogSequenceNumber, OOperationUnitId> units = new ConcurrentHashMap<OLogSequenceNumber, OOperationUnitId>();
+    final CountDownLatch startLatch = new CountDownLatch(1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int i = 0; i < THREADS; i++)
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          startLatch.await();
+
+          for (int n = 0; n < UNITS_PER_THREAD; n++) {
+            final OOperationUnitId unitId = OOperationUnitId.generateId();
+
+            writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+            final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitEndRecord(unitId, false));
+
+            final OLogSequenceNumber flushedLSN = writeAheadLog.getFlushedLSN();
+            Assert.assertNotNull(flushedLSN);
+            Assert.assertTrue(flushedLSN.compareTo(lsn) >= 0);
+
+            units.put(lsn, unitId);
+          }
+
+          return null;
+        }
+      }));
+
+    startLatch.countDown();
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    executor.shutdown();
+
+    writeAheadLog.close(false);
+    writeAheadLog = createWAL();
+
+    int unitsCount = 0;
+    OLogSequenceNumber lsn = writeAheadLog.begin();
+    while (lsn != null) {
+      final OWALRecord record = writeAheadLog.read(lsn);
+      if (record instanceof OAtomicUnitEndRecord) {
+        Assert.assertEquals(((OAtomicUnitEndRecord) record).getOperationUnitId(), units.get(lsn));
+        unitsCount++;
+      }
+
+      lsn = writeAheadLog.next(lsn);
+    }
+
+    Assert.assertEquals(unitsCount, THREADS * UNITS_PER_THREAD);
+  }
+
+  public void testFlushErrorFailsWaitingCommits() throws Exception {
+    // CLOSE THE FILE OF THE CURRENT SEGMENT, SO THAT EVERY FLUSH FAILS
+    final Field logSegmentsField = OWriteAheadLog.class.getDeclaredField("logSegments");
+    logSegmentsField.setAccessible(true);
+    final List<?> logSegments = (List<?>) logSegmentsField.get(writeAheadLog);
+    final Object lastSegment = logSegments.get(logSegments.size() - 1);
+
+    final Field rndFileField = lastSegment.getClass().getDeclaredField("rndFile");
+    rndFileField.setAccessible(true);
+    ((RandomAccessFile) rndFileField.get(lastSegment)).close();
+
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int i = 0; i < THREADS; i++)
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          startLatch.await();
+
+          final OOperationUnitId unitId = OOperationUnitId.generateId();
+          writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+          writeAheadLog.log(new OAtomicUnitEndRecord(unitId, false));
+          return null;
+        }
+      }));
+
+    startLatch.countDown();
+
+    for (Future<Void> future : futures) {
+      try {
+        future.get(1, TimeUnit.MINUTES);
+        Assert.fail("Commit has to fail if its record can not be flushed");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof OStorageException);
+      }
+    }
+
+    executor.shutdown();
+  }
+}
@@ -22,7 +22,8 @@ import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 
 /**
- * Service thread that catches internal messages sent by the server
+ * Service thread that catches internal messages sent by the server. With a multiplexed channel it is also the demultiplexer: it
+ * reads the header of every response and routes the response to the thread that waits for it.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  */
@@ -42,8 +43,14 @@ public class OAsynchChannelServiceThread extends OSoftThread {
 
   @Override
   protected void execute() throws Exception {
+    final boolean multiplexed = network.isMultiplexed();
     try {
-      network.beginResponse(sessionId, 0);
+      if (!multiplexed)
+        network.beginResponse(sessionId, 0);
+      else if (network.routeNextResponse())
+        // THE RESPONSE HAS BEEN READ BY THE THREAD THAT SENT THE REQUEST
+        return;
+
       final byte request = network.readByte();
 
       Object obj = null;
@@ -71,7 +78,7 @@ public class OAsynchChannelServiceThread extends OSoftThread {
       }
 
     } finally {
-      if (network != null)
+      if (network != null && !multiplexed)
         network.endResponse();
     }
   }
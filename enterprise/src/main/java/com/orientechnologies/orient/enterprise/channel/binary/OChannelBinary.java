@@ -165,6 +165,21 @@ public abstract class OChannelBinary extends OChannel {
     return tmp;
   }
 
+  /**
+   * Reads a chunk of bytes written by {@link #writeBytes(byte[], int, OChannelBinaryCompression)}.
+   *
+   * @param iCompression
+   *          Compression negotiated by the session, null if none
+   */
+  public byte[] readBytes(final OChannelBinaryCompression iCompression) throws IOException {
+    if (iCompression == null)
+      return readBytes();
+
+    final boolean compressed = readByte() == 1;
+    final byte[] content = readBytes();
+    return compressed && content != null ? iCompression.uncompress(content) : content;
+  }
+
   public List<String> readStringList() throws IOException {
     if (debug)
       OLogManager.instance().info(this, "%s - Reading string list. Reading string list items as int (4 bytes)...",
@@ -338,6 +353,32 @@ public abstract class OChannelBinary extends OChannel {
     return this;
   }
 
+  public OChannelBinary writeBytes(final byte[] iContent, final OChannelBinaryCompression iCompression) throws IOException {
+    return writeBytes(iContent, iContent != null ? iContent.length : 0, iCompression);
+  }
+
+  /**
+   * Writes a chunk of bytes, compressed if the session has negotiated a compression: in this case the chunk is preceded by a byte
+   * that tells if it has been compressed.
+   *
+   * @param iCompression
+   *          Compression negotiated by the session, null if none
+   */
+  public OChannelBinary writeBytes(final byte[] iContent, final int iLength, final OChannelBinaryCompression iCompression)
+      throws IOException {
+    if (iCompression == null)
+      return writeBytes(iContent, iLength);
+
+    final byte[] compressed = iContent != null ? iCompression.compress(iContent, iLength) : null;
+    if (compressed != null) {
+      writeByte((byte) 1);
+      return writeBytes(compressed);
+    }
+
+    writeByte((byte) 0);
+    return writeBytes(iContent, iLength);
+  }
+
   public OChannelBinary writeCollectionString(final Collection<String> iCollection) throws IOException {
     if (debug)
       OLogManager.instance().info(this, "%s - Writing strings (4+%d=%d items): %s", socket.getRemoteSocketAddress(),
@@ -21,9 +21,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.common.concur.lock.OAdaptiveLock;
@@ -36,6 +38,18 @@ import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.serialization.OMemoryInputStream;
 
+/**
+ * Client side of a binary channel. The responses are matched to the requests by the session id written in the header of both.<br/>
+ * In multiplexed mode the channel is shared by the threads of the client: the requests are written back-to-back and a
+ * demultiplexer thread reads the header of every response, then hands the channel to the first thread that waits for a response
+ * of that session. The thread reads the rest of the response and gives the channel back with {@link #endResponse()}. Since many
+ * threads can share a session, a thread is queued for the response when it releases the write lock after writing the request with
+ * {@link #writeRequestHeader(byte, int)}, so the responses of a session are given to the threads in the order of the requests. A
+ * request without response is marked with {@link #skipResponse()}, a response read by another thread is handed over with
+ * {@link #transferResponse()} and {@link #claimResponse(ResponseWaiter)}.
+ * 
+ * @see OGlobalConfiguration#CLIENT_CHANNEL_MULTIPLEX
+ */
 public class OChannelBinaryAsynchClient extends OChannelBinary {
   private final Condition             readCondition = lockRead.getUnderlying().newCondition();
 
@@ -50,6 +64,14 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
   private final String                serverURL;
   private OAsynchChannelServiceThread serviceThread;
 
+  private final boolean               multiplexed;
+  private final Condition             responseConsumed;
+  private final List<ResponseWaiter>  responseWaiters;
+  private Thread                      responseOwner;
+  private volatile boolean            closed;
+  private boolean                     requestWritten;
+  private int                         requestSessionId;
+
   public OChannelBinaryAsynchClient(final String remoteHost, final int remotePort, final OContextConfiguration iConfig,
       final int iProtocolVersion) throws IOException {
     this(remoteHost, remotePort, iConfig, iProtocolVersion, null);
@@ -62,6 +84,9 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
     maxUnreadResponses = OGlobalConfiguration.NETWORK_BINARY_READ_RESPONSE_MAX_TIMES.getValueAsInteger();
     serverURL = remoteHost + ":" + remotePort;
     socketTimeout = iConfig.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT);
+    multiplexed = iConfig.getValueAsBoolean(OGlobalConfiguration.CLIENT_CHANNEL_MULTIPLEX);
+    responseConsumed = multiplexed ? lockRead.getUnderlying().newCondition() : null;
+    responseWaiters = multiplexed ? new LinkedList<ResponseWaiter>() : null;
 
     socket.setPerformancePreferences(0, 2, 1);
 
@@ -96,7 +121,8 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
               + ". You could not use the full features of the newer version. Assure to have the same versions on both");
     }
 
-    if (asynchEventListener != null)
+    if (asynchEventListener != null || multiplexed)
+      // IN MULTIPLEXED MODE THE SERVICE THREAD READS ALL THE RESPONSES
       serviceThread = new OAsynchChannelServiceThread(asynchEventListener, this);
   }
 
@@ -109,11 +135,105 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
     releaseWriteLock();
   }
 
+  /**
+   * Writes the header of a request. The write lock must be held by the current thread.
+   * 
+   * @param iSessionId
+   *          Session of the request, the response is read by the current thread with {@link #beginResponse(int)}
+   */
+  public void writeRequestHeader(final byte iCommand, final int iSessionId) throws IOException {
+    writeByte(iCommand);
+    writeInt(iSessionId);
+
+    requestWritten = true;
+    requestSessionId = iSessionId;
+  }
+
+  /**
+   * Tells that the server doesn't answer the request being written, so no thread is queued for its response. The write lock must
+   * be held by the current thread.
+   */
+  public void skipResponse() {
+    requestWritten = false;
+  }
+
+  /**
+   * Tells that the response of the request being written is read by another thread, that must call
+   * {@link #claimResponse(ResponseWaiter)} with the returned handle before {@link #beginResponse(int)}. The write lock must be held
+   * by the current thread. The responses of a session are read in the order of the requests, so the other thread must not wait for
+   * a response of the same session written later.
+   * 
+   * @return The handle of the response, null if the channel is not multiplexed
+   */
+  public ResponseWaiter transferResponse() {
+    if (!requestWritten)
+      return null;
+
+    requestWritten = false;
+    if (!multiplexed)
+      return null;
+
+    final ReentrantLock lock = lockRead.getUnderlying();
+    lock.lock();
+    try {
+      final ResponseWaiter waiter = new ResponseWaiter(requestSessionId, null, lock.newCondition());
+      responseWaiters.add(waiter);
+      return waiter;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Makes the current thread the reader of a response handed over with {@link #transferResponse()}.
+   */
+  public void claimResponse(final ResponseWaiter iWaiter) {
+    if (iWaiter == null)
+      return;
+
+    final ReentrantLock lock = lockRead.getUnderlying();
+    lock.lock();
+    try {
+      iWaiter.thread = Thread.currentThread();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * In multiplexed mode queues the current thread for the response of the request it has written, while the write lock is still
+   * held, so the queue follows the order of the requests on the channel.
+   */
+  @Override
+  public void releaseWriteLock() {
+    if (requestWritten && lockWrite.getUnderlying().getHoldCount() == 1) {
+      requestWritten = false;
+
+      if (multiplexed) {
+        final ReentrantLock lock = lockRead.getUnderlying();
+        lock.lock();
+        try {
+          responseWaiters.add(new ResponseWaiter(requestSessionId, Thread.currentThread(), lock.newCondition()));
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    super.releaseWriteLock();
+  }
+
   public void beginResponse(final int iRequesterId) throws IOException {
     beginResponse(iRequesterId, timeout);
   }
 
   public void beginResponse(final int iRequesterId, final long iTimeout) throws IOException {
+    if (multiplexed) {
+      waitForResponse(iRequesterId, iTimeout);
+      handleStatus(currentStatus, currentSessionId);
+      return;
+    }
+
     try {
       int unreadResponse = 0;
       final long startClock = iTimeout > 0 ? System.currentTimeMillis() : 0;
@@ -207,6 +327,119 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
     }
   }
 
+  /**
+   * Reads the header of the next response and routes the response to the thread that waits for it, then waits until that thread
+   * has read the response. Called by the demultiplexer thread only.
+   * 
+   * @return false if the server pushed data: the data is left to the caller
+   */
+  boolean routeNextResponse() throws IOException {
+    final byte status = readByte();
+    final int sessionId = readInt();
+
+    if (debug)
+      OLogManager.instance().debug(this, "%s - Read response: %d-%d", socket.getLocalAddress(), (int) status, sessionId);
+
+    if (status == OChannelBinaryProtocol.PUSH_DATA)
+      return false;
+
+    final ReentrantLock lock = lockRead.getUnderlying();
+    lock.lock();
+    try {
+      currentStatus = status;
+      currentSessionId = sessionId;
+      channelRead = true;
+      signalResponseWaiter(sessionId);
+
+      // A RESPONSE NOBODY READS WOULD BLOCK ALL THE OTHERS
+      long claimTimeout = TimeUnit.SECONDS.toNanos(maxUnreadResponses);
+      while (channelRead && !closed) {
+        if (responseOwner != null)
+          responseConsumed.await();
+        else if (claimTimeout > 0)
+          claimTimeout = responseConsumed.awaitNanos(claimTimeout);
+        else
+          throw new IOException("The response for session " + sessionId + " has not been read in " + maxUnreadResponses
+              + " seconds, consider the channel as dirty");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+    return true;
+  }
+
+  private void waitForResponse(final int iRequesterId, final long iTimeout) throws IOException {
+    final ReentrantLock lock = lockRead.getUnderlying();
+    lock.lock();
+    try {
+      ResponseWaiter waiter = getResponseWaiter(Thread.currentThread(), iRequesterId);
+      if (waiter == null) {
+        // THE REQUEST HAS NOT BEEN WRITTEN WITH writeRequestHeader(): QUEUE THE THREAD NOW
+        waiter = new ResponseWaiter(iRequesterId, Thread.currentThread(), lock.newCondition());
+        responseWaiters.add(waiter);
+      }
+
+      try {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(iTimeout);
+        while (!channelRead || responseOwner != null || currentSessionId != iRequesterId
+            || getFirstResponseWaiter(iRequesterId) != waiter) {
+          if (closed)
+            throw new IOException("Channel " + socket.getRemoteSocketAddress() + " has been closed while waiting for the response");
+
+          if (iTimeout <= 0)
+            waiter.ready.await();
+          else if (remaining > 0)
+            remaining = waiter.ready.awaitNanos(remaining);
+          else {
+            // CLOSE THE SOCKET TO CHANNEL TO AVOID FURTHER DIRTY DATA
+            close();
+            throw new OTimeoutException("Timeout on reading response from the server " + socket.getRemoteSocketAddress()
+                + " for the request " + iRequesterId);
+          }
+        }
+
+        responseOwner = Thread.currentThread();
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OLockException("Thread interrupted while waiting for the response of the session " + iRequesterId);
+
+      } finally {
+        responseWaiters.remove(waiter);
+        if (channelRead && responseOwner == null)
+          // THE RESPONSE COULD BE FOR ANOTHER THREAD OF THE SAME SESSION
+          signalResponseWaiter(currentSessionId);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    if (debug)
+      OLogManager.instance().debug(this, "%s - Session %d handle response", socket.getLocalAddress(), iRequesterId);
+  }
+
+  private ResponseWaiter getResponseWaiter(final Thread iThread, final int iSessionId) {
+    for (ResponseWaiter waiter : responseWaiters)
+      if (waiter.thread == iThread && waiter.sessionId == iSessionId)
+        return waiter;
+    return null;
+  }
+
+  private ResponseWaiter getFirstResponseWaiter(final int iSessionId) {
+    for (ResponseWaiter waiter : responseWaiters)
+      if (waiter.sessionId == iSessionId)
+        return waiter;
+    return null;
+  }
+
+  private void signalResponseWaiter(final int iSessionId) {
+    final ResponseWaiter waiter = getFirstResponseWaiter(iSessionId);
+    if (waiter != null)
+      waiter.ready.signal();
+  }
+
   protected int handleStatus(final byte iResult, final int iClientTxId) throws IOException {
     if (iResult == OChannelBinaryProtocol.RESPONSE_STATUS_OK || iResult == OChannelBinaryProtocol.PUSH_DATA) {
     } else if (iResult == OChannelBinaryProtocol.RESPONSE_STATUS_ERROR) {
@@ -312,6 +545,22 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
   }
 
   public void endResponse() {
+    if (multiplexed) {
+      final ReentrantLock lock = lockRead.getUnderlying();
+      lock.lock();
+      try {
+        if (responseOwner == Thread.currentThread()) {
+          // GIVE THE CHANNEL BACK TO THE DEMULTIPLEXER
+          responseOwner = null;
+          channelRead = false;
+          responseConsumed.signal();
+        }
+      } finally {
+        lock.unlock();
+      }
+      return;
+    }
+
     channelRead = false;
 
     // WAKE UP ALL THE WAITING THREADS
@@ -333,7 +582,18 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
 
   @Override
   public void close() {
-    if (lockRead.tryAcquireLock())
+    closed = true;
+
+    if (multiplexed) {
+      lockRead.lock();
+      try {
+        for (ResponseWaiter waiter : responseWaiters)
+          waiter.ready.signal();
+        responseConsumed.signalAll();
+      } finally {
+        releaseReadLock();
+      }
+    } else if (lockRead.tryAcquireLock())
       try {
         readCondition.signalAll();
       } finally {
@@ -378,6 +638,13 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
     return srvProtocolVersion;
   }
 
+  /**
+   * Tells if the channel is shared by the threads with the requests written back-to-back.
+   */
+  public boolean isMultiplexed() {
+    return multiplexed;
+  }
+
   public OAdaptiveLock getLockRead() {
     return lockRead;
   }
@@ -389,4 +656,19 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
   public String getServerURL() {
     return serverURL;
   }
+
+  /**
+   * Place of a thread in the queue of the responses of a session.
+   */
+  public static final class ResponseWaiter {
+    private final int       sessionId;
+    private Thread          thread;
+    private final Condition ready;
+
+    private ResponseWaiter(final int iSessionId, final Thread iThread, final Condition iReady) {
+      sessionId = iSessionId;
+      thread = iThread;
+      ready = iReady;
+    }
+  }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.serialization.compression.OCompression;
+import com.orientechnologies.orient.core.serialization.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.serialization.compression.impl.ONothingCompression;
+
+/**
+ * Compression of the records and command results sent on a binary session, negotiated by the client when it opens the session.
+ * The contents smaller than the threshold, or that the codec can't reduce, are sent as they are.
+ *
+ * @see OChannelBinary#writeBytes(byte[], int, OChannelBinaryCompression)
+ * @see OChannelBinary#readBytes(OChannelBinaryCompression)
+ */
+public class OChannelBinaryCompression {
+  private static final OProfilerMBean PROFILER                = Orient.instance().getProfiler();
+
+  private static final AtomicLong     metricUncompressedBytes = new AtomicLong();
+  private static final AtomicLong     metricCompressedBytes   = new AtomicLong();
+
+  private final OCompression          compression;
+  private final int                   threshold;
+
+  static {
+    final String profilerMetric = PROFILER.getProcessMetric("network.channel.binary.compression");
+
+    PROFILER.registerHookValue(profilerMetric + ".uncompressedBytes",
+        "Bytes of the contents to send on the network channels with compression, before compressing them", METRIC_TYPE.SIZE,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return metricUncompressedBytes.get();
+          }
+        });
+    PROFILER.registerHookValue(profilerMetric + ".compressedBytes",
+        "Bytes of the contents sent on the network channels with compression, after compressing them", METRIC_TYPE.SIZE,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return metricCompressedBytes.get();
+          }
+        });
+  }
+
+  public OChannelBinaryCompression(final OCompression iCompression, final int iThreshold) {
+    compression = iCompression;
+    threshold = iThreshold;
+  }
+
+  /**
+   * Returns the compression for the codec requested by the client.
+   *
+   * @param iName
+   *          Name of the codec as registered in {@link OCompressionFactory}
+   * @return null if no codec has been requested or the codec is unknown
+   */
+  public static OChannelBinaryCompression getCompression(final String iName, final int iThreshold) {
+    if (iName == null || iName.length() == 0 || iName.equals(ONothingCompression.NAME))
+      return null;
+
+    try {
+      return new OChannelBinaryCompression(OCompressionFactory.INSTANCE.getCompression(iName), iThreshold);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Compresses the content if it's big enough.
+   *
+   * @return The compressed content or null if the content must be sent as is
+   */
+  public byte[] compress(final byte[] iContent, final int iLength) {
+    byte[] result = null;
+    if (iLength >= threshold) {
+      result = compression.compress(iLength == iContent.length ? iContent : Arrays.copyOf(iContent, iLength));
+      if (result.length >= iLength)
+        // NO GAIN
+        result = null;
+    }
+
+    metricUncompressedBytes.addAndGet(iLength);
+    metricCompressedBytes.addAndGet(result != null ? result.length : iLength);
+    return result;
+  }
+
+  public byte[] uncompress(final byte[] iContent) {
+    return compression.uncompress(iContent);
+  }
+
+  /**
+   * Returns the bytes of the contents sent with compression since the start of the process, before compressing them.
+   */
+  public static long getUncompressedBytes() {
+    return metricUncompressedBytes.get();
+  }
+
+  /**
+   * Returns the bytes of the contents sent with compression since the start of the process, as sent on the network.
+   */
+  public static long getCompressedBytes() {
+    return metricCompressedBytes.get();
+  }
+
+  public String getName() {
+    return compression.name();
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+}
@@ -58,6 +58,7 @@ public class OChannelBinaryProtocol {
   public static final byte  REQUEST_RECORD_UPDATE                  = 32;
   public static final byte  REQUEST_RECORD_DELETE                  = 33;
   public static final byte  REQUEST_RECORD_COPY                    = 34;
+  public static final byte  REQUEST_RECORD_LOAD_BATCH              = 35; // since 1.6.4
   public static final byte  REQUEST_POSITIONS_HIGHER               = 36; // since 1.3.0
   public static final byte  REQUEST_POSITIONS_LOWER                = 37; // since 1.3.0
   public static final byte  REQUEST_RECORD_CLEAN_OUT               = 38; // since 1.3.0
@@ -66,6 +67,8 @@ public class OChannelBinaryProtocol {
   public static final byte  REQUEST_COUNT                          = 40; // DEPRECATED: USE REQUEST_DATACLUSTER_COUNT
   public static final byte  REQUEST_COMMAND                        = 41;
   public static final byte  REQUEST_POSITIONS_CEILING              = 42; // since 1.3.0
+  public static final byte  REQUEST_COMMAND_FETCH                  = 43; // since 1.6.4
+  public static final byte  REQUEST_COMMAND_CLOSE                  = 44; // since 1.6.4
 
   public static final byte  REQUEST_TX_COMMIT                      = 60;
 
@@ -101,9 +104,17 @@ public class OChannelBinaryProtocol {
   public static final short RECORD_RID                             = -3;
 
   // FOR MORE INFO: https://github.com/orientechnologies/orientdb/wiki/Network-Binary-Protocol#wiki-Compatibility
-  public static final int   CURRENT_PROTOCOL_VERSION               = 19; // SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+  public static final int   CURRENT_PROTOCOL_VERSION               = 22; // SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
 
   public static OIdentifiable readIdentifiable(final OChannelBinaryAsynchClient network) throws IOException {
+    return readIdentifiable(network, null);
+  }
+
+  /**
+   * Reads a OIdentifiable instance whose content could have been compressed with the codec negotiated by the session.
+   */
+  public static OIdentifiable readIdentifiable(final OChannelBinaryAsynchClient network,
+      final OChannelBinaryCompression compression) throws IOException {
     final int classId = network.readShort();
     if (classId == RECORD_NULL)
       return null;
@@ -115,7 +126,7 @@ public class OChannelBinaryProtocol {
 
       final ORecordId rid = network.readRID();
       final ORecordVersion version = network.readVersion();
-      final byte[] content = network.readBytes();
+      final byte[] content = network.readBytes(compression);
       record.fill(rid, version, content, false);
 
       return record;
@@ -17,23 +17,38 @@ package com.orientechnologies.orient.server;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.command.OCommandResultCursor;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.raw.ODatabaseRaw;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinary;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryCompression;
 import com.orientechnologies.orient.server.config.OServerUserConfiguration;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocolData;
 
 public class OClientConnection {
-  public final int                         id;
-  public final ONetworkProtocol            protocol;
-  public final long                        since;
-  public volatile ODatabaseDocumentTx      database;
-  public volatile ODatabaseRaw             rawDatabase;
-  public volatile OServerUserConfiguration serverUser;
+  public final int                                         id;
+  public final ONetworkProtocol                            protocol;
+  public final long                                        since;
+  public volatile ODatabaseDocumentTx                      database;
+  public volatile ODatabaseRaw                             rawDatabase;
+  public volatile OServerUserConfiguration                 serverUser;
+  public volatile OChannelBinaryCompression                compression;
 
-  public ONetworkProtocolData              data = new ONetworkProtocolData();
+  public ONetworkProtocolData                              data           = new ONetworkProtocolData();
+
+  private final Map<Integer, OCommandResultCursor<Object>> cursors        = new HashMap<Integer, OCommandResultCursor<Object>>();
+  private final List<OCommandResultCursor<Object>>         expiredCursors = new ArrayList<OCommandResultCursor<Object>>();
+  private int                                              cursorSerial;
+  private int                                              requests;
+  private boolean                                          closingExpiredCursors;
 
   public OClientConnection(final int iId, final ONetworkProtocol iProtocol) throws IOException {
     this.id = iId;
@@ -42,12 +57,127 @@ public class OClientConnection {
   }
 
   public void close() {
+    final List<OCommandResultCursor<Object>> toClose;
+    synchronized (cursors) {
+      toClose = new ArrayList<OCommandResultCursor<Object>>(cursors.values());
+      toClose.addAll(expiredCursors);
+      cursors.clear();
+      expiredCursors.clear();
+    }
+    for (OCommandResultCursor<Object> cursor : toClose)
+      cursor.close();
+
     if (database != null) {
       database.close();
       database = null;
     }
   }
 
+  /**
+   * Keeps a cursor open for the next requests of the session.
+   * 
+   * @return The id of the cursor
+   */
+  public int addCursor(final OCommandResultCursor<Object> iCursor) {
+    synchronized (cursors) {
+      final int cursorId = ++cursorSerial;
+      cursors.put(cursorId, iCursor);
+      return cursorId;
+    }
+  }
+
+  public OCommandResultCursor<Object> getCursor(final int iCursorId) {
+    synchronized (cursors) {
+      return cursors.get(iCursorId);
+    }
+  }
+
+  public void closeCursor(final int iCursorId) {
+    final OCommandResultCursor<Object> cursor;
+    synchronized (cursors) {
+      cursor = cursors.remove(iCursorId);
+    }
+    if (cursor != null)
+      cursor.close();
+  }
+
+  /**
+   * Marks as expired the cursors that have been waiting for a fetch longer than the timeout: they can't be fetched anymore. Called
+   * by the timer of the connection manager, that closes them if no request of the session is running. Otherwise the session could
+   * be using the same database in the meantime, so they are closed at the next request by {@link #startRequest()}.
+   */
+  public void expireCursors(final long iTimeout) {
+    final List<OCommandResultCursor<Object>> toClose;
+    synchronized (cursors) {
+      for (Iterator<OCommandResultCursor<Object>> it = cursors.values().iterator(); it.hasNext();) {
+        final OCommandResultCursor<Object> cursor = it.next();
+        if (cursor.isExpired(iTimeout)) {
+          OLogManager.instance().debug(this, "Expiring the cursor of the command %s: no fetches in %dms", cursor.getCommand(),
+              iTimeout);
+          expiredCursors.add(cursor);
+          it.remove();
+        }
+      }
+
+      if (requests > 0 || expiredCursors.isEmpty())
+        return;
+
+      // THE NEXT REQUEST WAITS FOR THE COMMANDS TO RELEASE THE DATABASE
+      toClose = new ArrayList<OCommandResultCursor<Object>>(expiredCursors);
+      expiredCursors.clear();
+      closingExpiredCursors = true;
+    }
+
+    try {
+      for (OCommandResultCursor<Object> cursor : toClose)
+        cursor.close();
+    } finally {
+      synchronized (cursors) {
+        closingExpiredCursors = false;
+        cursors.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Called by the thread serving a request of the session before executing it: waits for the timer to close the expired cursors,
+   * then closes the cursors expired while another request was running. {@link #endRequest()} must follow.
+   */
+  public void startRequest() {
+    final List<OCommandResultCursor<Object>> toClose;
+    synchronized (cursors) {
+      while (closingExpiredCursors)
+        try {
+          cursors.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+
+      requests++;
+
+      if (expiredCursors.isEmpty())
+        return;
+
+      toClose = new ArrayList<OCommandResultCursor<Object>>(expiredCursors);
+      expiredCursors.clear();
+    }
+
+    for (OCommandResultCursor<Object> cursor : toClose)
+      cursor.close();
+  }
+
+  /**
+   * Called by the thread serving a request of the session once the request has been served: from now on the timer closes the
+   * cursors that expire.
+   */
+  public void endRequest() {
+    synchronized (cursors) {
+      if (requests > 0)
+        requests--;
+    }
+  }
+
   @Override
   public String toString() {
     return "OClientConnection [id=" + id + ", source="
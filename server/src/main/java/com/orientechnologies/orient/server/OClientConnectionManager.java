@@ -49,6 +49,8 @@ public class OClientConnectionManager {
 
       @Override
       public void run() {
+        final long cursorTimeout = OGlobalConfiguration.COMMAND_CURSOR_TIMEOUT.getValueAsLong();
+
         final Iterator<Entry<Integer, OClientConnection>> iterator = connections.entrySet().iterator();
         while (iterator.hasNext()) {
           final Entry<Integer, OClientConnection> entry = iterator.next();
@@ -67,7 +69,8 @@ public class OClientConnectionManager {
             } catch (Exception e) {
             }
             iterator.remove();
-          }
+          } else if (cursorTimeout > 0)
+            entry.getValue().expireCursors(cursorTimeout);
         }
       }
     }, delay, delay);
@@ -18,7 +18,9 @@ package com.orientechnologies.orient.server.distributed;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -202,6 +204,18 @@ public class ODistributedStorage implements OStorage, OFreezableStorage {
     }
   }
 
+  public List<ORawBuffer> readRecords(final List<ORecordId> iRecordIds, final String iFetchPlan) {
+    if (OScenarioThreadLocal.INSTANCE.get() == RUN_MODE.RUNNING_DISTRIBUTED)
+      // ALREADY DISTRIBUTED
+      return wrapped.readRecords(iRecordIds, iFetchPlan);
+
+    // EVERY RECORD IS ROUTED TO THE NODE THAT OWNS ITS CLUSTER
+    final List<ORawBuffer> buffers = new ArrayList<ORawBuffer>(iRecordIds.size());
+    for (ORecordId rid : iRecordIds)
+      buffers.add(readRecord(rid, iFetchPlan, false, null, false).getResult());
+    return buffers;
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRecordId, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, final ORecordCallback<ORecordVersion> iCallback) {
     if (OScenarioThreadLocal.INSTANCE.get() == RUN_MODE.RUNNING_DISTRIBUTED)
@@ -24,6 +24,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,6 +39,8 @@ import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.config.OServerCommandConfiguration;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkSelector;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommand;
 
 public class OServerNetworkListener extends Thread {
@@ -52,6 +55,7 @@ public class OServerNetworkListener extends Thread {
   private OServer                           server;
   private ONetworkProtocol                  protocol;
   private int                               protocolVersion   = -1;
+  private OBinaryNetworkSelector            selector;
 
   public OServerNetworkListener(final OServer iServer, final String iHostName, final String iHostPortRange,
       final String iProtocolName, final Class<? extends ONetworkProtocol> iProtocol,
@@ -69,11 +73,23 @@ public class OServerNetworkListener extends Thread {
           protocolType);
     }
 
-    listen(iHostName, iHostPortRange, iProtocolName);
     protocolType = iProtocol;
 
     readParameters(iServer.getContextConfiguration(), iParameters);
 
+    final boolean useSelector = OBinaryNetworkProtocolAbstract.class.isAssignableFrom(iProtocol)
+        && configuration.getValueAsBoolean(OGlobalConfiguration.NETWORK_BINARY_SELECTOR_ENABLED);
+
+    listen(iHostName, iHostPortRange, iProtocolName, useSelector);
+
+    if (useSelector)
+      try {
+        selector = new OBinaryNetworkSelector("OrientDB " + iProtocol.getSimpleName() + " " + inboundAddr.getPort(), configuration);
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Unable to open the selector of the connections", e);
+        System.exit(1);
+      }
+
     if (iCommands != null) {
       for (int i = 0; i < iCommands.length; ++i) {
         if (iCommands[i].stateful)
@@ -126,6 +142,9 @@ public class OServerNetworkListener extends Thread {
         serverSocket.close();
       } catch (IOException e) {
       }
+
+    if (selector != null)
+      selector.shutdown();
   }
 
   /**
@@ -133,14 +152,25 @@ public class OServerNetworkListener extends Thread {
    * 
    * @param iHostPortRange
    * @param iHostName
+   * @param iUseChannels
+   *          opens the sockets with channels, to serve them with a selector
    */
-  private void listen(final String iHostName, final String iHostPortRange, final String iProtocolName) {
+  private void listen(final String iHostName, final String iHostPortRange, final String iProtocolName, final boolean iUseChannels) {
     final int[] ports = getPorts(iHostPortRange);
 
     for (int port : ports) {
       inboundAddr = new InetSocketAddress(iHostName, port);
       try {
-        serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
+        if (iUseChannels) {
+          serverSocket = ServerSocketChannel.open().socket();
+          try {
+            serverSocket.bind(inboundAddr, 0);
+          } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+          }
+        } else
+          serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
 
         if (serverSocket.isBound()) {
           OLogManager.instance().info(
@@ -198,6 +228,9 @@ public class OServerNetworkListener extends Thread {
           // CREATE A NEW PROTOCOL INSTANCE
           protocol = protocolType.newInstance();
 
+          if (selector != null)
+            ((OBinaryNetworkProtocolAbstract) protocol).setSelector(selector);
+
           // CONFIGURE THE PROTOCOL FOR THE INCOMING CONNECTION
           protocol.config(server, socket, configuration, statelessCommands, statefulCommands);
 
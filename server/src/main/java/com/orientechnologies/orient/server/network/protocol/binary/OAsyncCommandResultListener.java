@@ -33,7 +33,7 @@ public class OAsyncCommandResultListener extends OAbstractCommandResultListener
 
     try {
       protocol.channel.writeByte((byte) 1); // ONE MORE RECORD
-      protocol.writeIdentifiable((ORecordInternal<?>) ((OIdentifiable) iRecord).getRecord());
+      protocol.writeIdentifiable((ORecordInternal<?>) ((OIdentifiable) iRecord).getRecord(), protocol.connection.compression);
 
       fetchRecord(iRecord);
 
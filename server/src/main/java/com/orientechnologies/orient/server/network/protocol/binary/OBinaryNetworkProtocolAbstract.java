@@ -49,6 +49,7 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstrac
 import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 import com.orientechnologies.orient.enterprise.channel.OChannel;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryCompression;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryServer;
 import com.orientechnologies.orient.enterprise.channel.binary.ONetworkProtocolException;
@@ -62,11 +63,13 @@ import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
  * 
  */
 public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
-  protected OChannelBinaryServer channel;
-  protected int                  requestType;
-  protected int                  clientTxId;
-  protected final Level          logClientExceptions;
-  protected final boolean        logClientFullStackTrace;
+  protected OChannelBinaryServer   channel;
+  protected int                    requestType;
+  protected int                    clientTxId;
+  protected final Level            logClientExceptions;
+  protected final boolean          logClientFullStackTrace;
+  protected OBinaryNetworkSelector selector;
+  private volatile Thread          worker;
 
   public OBinaryNetworkProtocolAbstract(final String iThreadName) {
     super(Orient.instance().getThreadGroup(), iThreadName);
@@ -148,6 +151,47 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
     }
   }
 
+  /**
+   * Serves the connection with the workers of a selector instead of its own thread. Must be set before the configuration.
+   */
+  public void setSelector(final OBinaryNetworkSelector iSelector) {
+    selector = iSelector;
+  }
+
+  /**
+   * Executes the requests already received by the connection with the current thread, when the connection is served by a
+   * selector.
+   * 
+   * @return false if the connection has been shut down
+   */
+  boolean executeReceivedRequests() throws Exception {
+    worker = Thread.currentThread();
+    try {
+      if (!isShutdownFlag())
+        do {
+          execute();
+        } while (!isShutdownFlag() && channel.inStream.available() > 0);
+    } finally {
+      worker = null;
+    }
+
+    if (!isShutdownFlag())
+      return true;
+
+    shutdown();
+    return false;
+  }
+
+  @Override
+  public void interrupt() {
+    final Thread current = worker;
+    if (current != null)
+      // THE REQUEST IS EXECUTED BY A WORKER OF THE SELECTOR
+      current.interrupt();
+    else
+      super.interrupt();
+  }
+
   @Override
   public void shutdown() {
     channel.close();
@@ -219,17 +263,24 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
    * @throws IOException
    */
   public void writeIdentifiable(final OIdentifiable o) throws IOException {
+    writeIdentifiable(o, null);
+  }
+
+  /**
+   * Writes a OIdentifiable instance compressing the record content with the codec negotiated by the session.
+   */
+  public void writeIdentifiable(final OIdentifiable o, final OChannelBinaryCompression iCompression) throws IOException {
     if (o == null)
       channel.writeShort(OChannelBinaryProtocol.RECORD_NULL);
     else if (o instanceof ORecordId) {
       channel.writeShort(OChannelBinaryProtocol.RECORD_RID);
       channel.writeRID((ORID) o);
     } else {
-      writeRecord((ORecordInternal<?>) o.getRecord());
+      writeRecord((ORecordInternal<?>) o.getRecord(), iCompression);
     }
   }
 
-  private void writeRecord(final ORecordInternal<?> iRecord) throws IOException {
+  private void writeRecord(final ORecordInternal<?> iRecord, final OChannelBinaryCompression iCompression) throws IOException {
     channel.writeShort((short) 0);
     channel.writeByte(iRecord.getRecordType());
     channel.writeRID(iRecord.getIdentity());
@@ -246,9 +297,9 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
           break;
       }
 
-      channel.writeBytes(stream, realLength);
+      channel.writeBytes(stream, realLength, iCompression);
     } catch (Exception e) {
-      channel.writeBytes(null);
+      channel.writeBytes(null, iCompression);
       final String message = "Error on unmarshalling record " + iRecord.getIdentity().toString() + " (" + e + ")";
       OLogManager.instance().error(this, message, e);
 
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+
+/**
+ * Serves the binary connections of a listener without a thread per connection. The idle connections are watched by a few selector
+ * threads: once a connection has received data, it is removed from its selector and a worker of a bounded pool executes the
+ * requests received, reading them in blocking mode as the protocol does with its own thread. Then the connection goes back to
+ * the selector. The state of the session stays in the protocol and in its client connection, not in a thread, so any worker can
+ * serve the next request.<br/>
+ * When all the workers are busy and the queue is full, the selector threads wait for a free slot and stop reading new requests.
+ *
+ * @see OGlobalConfiguration#NETWORK_BINARY_SELECTOR_ENABLED
+ */
+public class OBinaryNetworkSelector {
+  private final SelectorThread[]   selectorThreads;
+  private final ThreadPoolExecutor workers;
+  private final int                socketTimeout;
+  private final AtomicInteger      nextSelector = new AtomicInteger();
+
+  public OBinaryNetworkSelector(final String iName, final OContextConfiguration iConfiguration) throws IOException {
+    socketTimeout = iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT);
+
+    final int maxWorkers = iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_SELECTOR_WORKERS);
+    final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<Runnable>(
+        iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_SELECTOR_QUEUE_SIZE));
+
+    workers = new ThreadPoolExecutor(maxWorkers, maxWorkers, 60, TimeUnit.SECONDS, queue, new NamedThreadFactory(iName
+        + " worker"), new RejectedExecutionHandler() {
+      public void rejectedExecution(final Runnable r, final ThreadPoolExecutor iExecutor) {
+        if (iExecutor.isShutdown())
+          throw new RejectedExecutionException("Binary network selector is shut down");
+
+        // WAIT FOR A FREE SLOT: THE SELECTOR STOPS READING UNTIL THE WORKERS CATCH UP
+        try {
+          iExecutor.getQueue().put(r);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RejectedExecutionException("Interrupted while waiting for a free worker");
+        }
+      }
+    });
+    workers.allowCoreThreadTimeOut(true);
+
+    selectorThreads = new SelectorThread[iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_SELECTOR_THREADS)];
+    for (int i = 0; i < selectorThreads.length; ++i) {
+      selectorThreads[i] = new SelectorThread(iName + " selector " + (i + 1));
+      selectorThreads[i].start();
+    }
+  }
+
+  /**
+   * Starts serving the requests of a connection just configured.
+   */
+  public void register(final OBinaryNetworkProtocolAbstract iProtocol) throws IOException {
+    final SocketChannel socketChannel = iProtocol.getChannel().socket.getChannel();
+    if (socketChannel == null)
+      throw new IllegalArgumentException("The socket of the connection has not been opened by a channel");
+
+    // A WORKER DOES NOT WAIT FOREVER FOR THE REST OF A REQUEST
+    iProtocol.getChannel().socket.setSoTimeout(socketTimeout);
+
+    iProtocol.startup();
+
+    selectorThreads[(nextSelector.getAndIncrement() & Integer.MAX_VALUE) % selectorThreads.length].register(iProtocol);
+  }
+
+  public int getActiveWorkers() {
+    return workers.getActiveCount();
+  }
+
+  public void shutdown() {
+    for (SelectorThread selectorThread : selectorThreads)
+      selectorThread.shutdown();
+    workers.shutdown();
+  }
+
+  private final class SelectorThread extends Thread {
+    private final Selector                               selector;
+    private final Queue<OBinaryNetworkProtocolAbstract> pending = new ConcurrentLinkedQueue<OBinaryNetworkProtocolAbstract>();
+    private volatile boolean                             active  = true;
+
+    private SelectorThread(final String iName) throws IOException {
+      super(Orient.instance().getThreadGroup(), iName);
+      setDaemon(true);
+      selector = Selector.open();
+    }
+
+    /**
+     * Registers the connection with the selector thread: the channel can be registered only while the selector is not blocked
+     * in select().
+     */
+    private void register(final OBinaryNetworkProtocolAbstract iProtocol) {
+      pending.add(iProtocol);
+      selector.wakeup();
+    }
+
+    private void shutdown() {
+      active = false;
+      try {
+        selector.close();
+      } catch (IOException e) {
+        OLogManager.instance().debug(this, "Error on closing the selector", e);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (active) {
+          registerPending();
+
+          if (selector.select() == 0)
+            // WOKEN UP TO REGISTER NEW CONNECTIONS
+            continue;
+
+          List<OBinaryNetworkProtocolAbstract> ready = removeSelected();
+          while (!ready.isEmpty()) {
+            // DEREGISTER THE CANCELLED KEYS, SO THE CHANNELS CAN BE SWITCHED TO BLOCKING MODE
+            selector.selectNow();
+
+            for (OBinaryNetworkProtocolAbstract protocol : ready)
+              workers.execute(new Request(this, protocol));
+
+            ready = removeSelected();
+          }
+        }
+      } catch (ClosedSelectorException e) {
+        // SHUTDOWN
+      } catch (Throwable t) {
+        if (active)
+          OLogManager.instance().error(this, "Error on selecting the binary connections with requests", t);
+      }
+    }
+
+    private void registerPending() {
+      OBinaryNetworkProtocolAbstract protocol;
+      while ((protocol = pending.poll()) != null) {
+        final SocketChannel socketChannel = protocol.getChannel().socket.getChannel();
+        try {
+          socketChannel.configureBlocking(false);
+          socketChannel.register(selector, SelectionKey.OP_READ, protocol);
+        } catch (ClosedChannelException e) {
+          if (!protocol.isShutdownFlag())
+            protocol.shutdown();
+        } catch (IOException e) {
+          OLogManager.instance().error(this, "Error on registering the binary connection %s", e, socketChannel);
+          protocol.sendShutdown();
+          protocol.shutdown();
+        }
+      }
+    }
+
+    private List<OBinaryNetworkProtocolAbstract> removeSelected() {
+      final List<OBinaryNetworkProtocolAbstract> ready = new ArrayList<OBinaryNetworkProtocolAbstract>();
+
+      final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        final SelectionKey key = keys.next();
+        keys.remove();
+
+        key.cancel();
+        ready.add((OBinaryNetworkProtocolAbstract) key.attachment());
+      }
+      return ready;
+    }
+  }
+
+  /**
+   * Executes the requests received by a connection, then gives the connection back to its selector.
+   */
+  private static final class Request implements Runnable {
+    private final SelectorThread                 selectorThread;
+    private final OBinaryNetworkProtocolAbstract protocol;
+
+    private Request(final SelectorThread iSelectorThread, final OBinaryNetworkProtocolAbstract iProtocol) {
+      selectorThread = iSelectorThread;
+      protocol = iProtocol;
+    }
+
+    public void run() {
+      // CLEAR ANY INTERRUPTION LEFT BY THE PREVIOUS REQUEST OF THE WORKER
+      Thread.interrupted();
+
+      final SocketChannel socketChannel = protocol.getChannel().socket.getChannel();
+      try {
+        socketChannel.configureBlocking(true);
+
+        if (protocol.executeReceivedRequests())
+          selectorThread.register(protocol);
+
+      } catch (Throwable t) {
+        if (socketChannel.isOpen())
+          OLogManager.instance().error(this, "Error on executing the requests of the binary connection %s", t, socketChannel);
+        protocol.sendShutdown();
+        protocol.shutdown();
+      } finally {
+        ODatabaseRecordThreadLocal.INSTANCE.remove();
+      }
+    }
+  }
+
+  private static final class NamedThreadFactory implements ThreadFactory {
+    private final String        name;
+    private final AtomicInteger serial = new AtomicInteger();
+
+    private NamedThreadFactory(final String iName) {
+      name = iName;
+    }
+
+    public Thread newThread(final Runnable r) {
+      final Thread thread = new Thread(Orient.instance().getThreadGroup(), r, name + " " + serial.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -29,6 +29,7 @@ import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.command.OCommandRequestInternal;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.command.OCommandResultCursor;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
@@ -64,6 +65,7 @@ import com.orientechnologies.orient.core.storage.OStorageProxy;
 import com.orientechnologies.orient.core.storage.impl.memory.OStorageMemory;
 import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryCompression;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryServer;
 import com.orientechnologies.orient.server.OClientConnection;
@@ -97,10 +99,15 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     super.config(iServer, iSocket, iConfig, iStatelessCommands, iStatefulCommands);
 
     // SEND PROTOCOL VERSION
-    channel.writeShort((short) OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
+    channel.writeShort((short) getVersion());
 
     channel.flush();
-    start();
+
+    if (selector != null)
+      // THE REQUESTS ARE EXECUTED BY THE WORKERS OF THE SELECTOR, NOT BY A THREAD OF THE CONNECTION
+      selector.register(this);
+    else
+      start();
 
     setName("OrientDB <- BinaryClient (" + iSocket.getRemoteSocketAddress() + ")");
   }
@@ -129,6 +136,9 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
 
     if (connection != null) {
+      // THE CURSORS EXPIRED BY THE TIMER DURING A REQUEST ARE CLOSED BY THE THREAD OF THE SESSION
+      connection.startRequest();
+
       ODatabaseRecordThreadLocal.INSTANCE.set(connection.database);
       if (connection.database != null) {
         connection.data.lastDatabase = connection.database.getName();
@@ -150,26 +160,39 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       }
     }
 
-    OServerPluginHelper.invokeHandlerCallbackOnBeforeClientRequest(server, connection, (byte) requestType);
+    try {
+      OServerPluginHelper.invokeHandlerCallbackOnBeforeClientRequest(server, connection, (byte) requestType);
+    } catch (RuntimeException e) {
+      // THE REQUEST IS NOT EXECUTED: onAfterRequest() IS NOT CALLED
+      if (connection != null)
+        connection.endRequest();
+      throw e;
+    }
   }
 
   @Override
   protected void onAfterRequest() throws IOException {
-    OServerPluginHelper.invokeHandlerCallbackOnAfterClientRequest(server, connection, (byte) requestType);
+    try {
+      OServerPluginHelper.invokeHandlerCallbackOnAfterClientRequest(server, connection, (byte) requestType);
 
-    if (connection != null) {
-      if (connection.database != null)
-        if (!connection.database.isClosed())
-          connection.database.getLevel1Cache().clear();
+      if (connection != null) {
+        if (connection.database != null)
+          if (!connection.database.isClosed())
+            connection.database.getLevel1Cache().clear();
 
-      connection.data.lastCommandExecutionTime = System.currentTimeMillis() - connection.data.lastCommandReceived;
-      connection.data.totalCommandExecutionTime += connection.data.lastCommandExecutionTime;
+        connection.data.lastCommandExecutionTime = System.currentTimeMillis() - connection.data.lastCommandReceived;
+        connection.data.totalCommandExecutionTime += connection.data.lastCommandExecutionTime;
 
-      connection.data.lastCommandInfo = connection.data.commandInfo;
-      connection.data.lastCommandDetail = connection.data.commandDetail;
+        connection.data.lastCommandInfo = connection.data.commandInfo;
+        connection.data.lastCommandDetail = connection.data.commandDetail;
 
-      setDataCommandInfo("Listening");
-      connection.data.commandDetail = "-";
+        setDataCommandInfo("Listening");
+        connection.data.commandDetail = "-";
+      }
+    } finally {
+      if (connection != null)
+        // THE DATABASE IS NOT USED BY THE SESSION ANYMORE: THE TIMER CAN CLOSE THE EXPIRED CURSORS
+        connection.endRequest();
     }
   }
 
@@ -264,6 +287,10 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       readRecord();
       break;
 
+    case OChannelBinaryProtocol.REQUEST_RECORD_LOAD_BATCH:
+      readRecords();
+      break;
+
     case OChannelBinaryProtocol.REQUEST_RECORD_CREATE:
       createRecord();
       break;
@@ -299,6 +326,14 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       command();
       break;
 
+    case OChannelBinaryProtocol.REQUEST_COMMAND_FETCH:
+      fetchCursor();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_COMMAND_CLOSE:
+      closeCursor();
+      break;
+
     case OChannelBinaryProtocol.REQUEST_TX_COMMIT:
       commit();
       break;
@@ -690,6 +725,10 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     final String user = channel.readString();
     final String passwd = channel.readString();
 
+    if (connection.data.protocolVersion >= 22)
+      // COMPRESSION REQUESTED BY THE CLIENT
+      connection.compression = OChannelBinaryCompression.getCompression(channel.readString(), channel.readInt());
+
     connection.database = (ODatabaseDocumentTx) server.openDatabase(dbType, dbURL, user, passwd);
     connection.rawDatabase = ((ODatabaseRaw) ((ODatabaseComplex<?>) connection.database.getUnderlying()).getUnderlying());
 
@@ -714,6 +753,9 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
 
         if (connection.data.protocolVersion >= 14)
           channel.writeString(OConstants.getVersion());
+
+        if (connection.data.protocolVersion >= 22)
+          channel.writeString(connection.compression != null ? connection.compression.getName() : null);
       } finally {
         endResponse();
       }
@@ -725,12 +767,22 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
 
     readConnectionData();
 
-    connection.serverUser = server.serverLogin(channel.readString(), channel.readString(), "connect");
+    final String user = channel.readString();
+    final String passwd = channel.readString();
+
+    if (connection.data.protocolVersion >= 22)
+      // COMPRESSION REQUESTED BY THE CLIENT
+      connection.compression = OChannelBinaryCompression.getCompression(channel.readString(), channel.readInt());
+
+    connection.serverUser = server.serverLogin(user, passwd, "connect");
 
     beginResponse();
     try {
       sendOk(clientTxId);
       channel.writeInt(connection.id);
+
+      if (connection.data.protocolVersion >= 22)
+        channel.writeString(connection.compression != null ? connection.compression.getName() : null);
     } finally {
       endResponse();
     }
@@ -1041,7 +1093,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       return;
 
     final OTransactionOptimisticProxy tx = new OTransactionOptimisticProxy((ODatabaseRecordTx) connection.database.getUnderlying(),
-        channel);
+        channel, connection.compression);
 
     try {
       connection.database.begin(tx);
@@ -1089,13 +1141,19 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
   protected void command() throws IOException {
     setDataCommandInfo("Execute remote command");
 
-    final boolean asynch = channel.readByte() == 'a';
+    final byte mode = channel.readByte();
+    final boolean asynch = mode == 'a';
 
     final OCommandRequestText command = (OCommandRequestText) OStreamSerializerAnyStreamable.INSTANCE.fromStream(channel
         .readBytes());
 
     connection.data.commandDetail = command.getText();
 
+    if (mode == 'c') {
+      openCursor(command);
+      return;
+    }
+
     // ENABLES THE CACHE TO IMPROVE PERFORMANCE OF COMPLEX COMMANDS LIKE TRAVERSE
     // connection.database.getLevel1Cache().setEnable(true);
     beginResponse();
@@ -1141,13 +1199,13 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
           // RECORD
           channel.writeByte((byte) 'r');
           listener.result(result);
-          writeIdentifiable((OIdentifiable) result);
+          writeIdentifiable((OIdentifiable) result, connection.compression);
         } else if (OMultiValue.isMultiValue(result)) {
           channel.writeByte((byte) 'l');
           channel.writeInt(OMultiValue.getSize(result));
           for (Object o : OMultiValue.getMultiValueIterable(result)) {
             listener.result(o);
-            writeIdentifiable((OIdentifiable) o);
+            writeIdentifiable((OIdentifiable) o, connection.compression);
           }
         } else {
           // ANY OTHER (INCLUDING LITERALS)
@@ -1165,7 +1223,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
           channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT
           // ISN'T PART OF THE
           // RESULT SET
-          writeIdentifiable(doc);
+          writeIdentifiable(doc, connection.compression);
         }
 
         channel.writeByte((byte) 0); // NO MORE RECORDS
@@ -1176,6 +1234,105 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  /**
+   * Executes the command with a cursor kept open in the session, then sends the first batch of results with the id of the cursor.
+   */
+  protected void openCursor(final OCommandRequestText iCommand) throws IOException {
+    final int fetchSize = channel.readInt();
+
+    if (!isConnectionAlive())
+      return;
+
+    final OCommandResultCursor<Object> cursor = new OCommandResultCursor<Object>(connection.database,
+        (OCommandRequestText) connection.database.command(iCommand), fetchSize);
+    final int cursorId = connection.addCursor(cursor);
+
+    sendCursorBatch(cursorId, cursor, fetchSize, true);
+  }
+
+  protected void fetchCursor() throws IOException {
+    setDataCommandInfo("Fetch the results of a command");
+
+    final int cursorId = channel.readInt();
+    final int fetchSize = channel.readInt();
+
+    if (!isConnectionAlive())
+      return;
+
+    final OCommandResultCursor<Object> cursor = connection.getCursor(cursorId);
+    if (cursor == null)
+      throw new OCommandExecutionException("The cursor " + cursorId + " does not exist or has been closed after "
+          + OGlobalConfiguration.COMMAND_CURSOR_TIMEOUT.getValueAsLong() + "ms without fetches");
+
+    sendCursorBatch(cursorId, cursor, fetchSize, false);
+  }
+
+  protected void closeCursor() throws IOException {
+    setDataCommandInfo("Close the cursor of a command");
+
+    final int cursorId = channel.readInt();
+
+    if (!isConnectionAlive())
+      return;
+
+    connection.closeCursor(cursorId);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Sends the next results of the cursor followed by the records of the fetch plan. The cursor is closed when the command has
+   * ended.
+   */
+  private void sendCursorBatch(final int iCursorId, final OCommandResultCursor<Object> iCursor, final int iFetchSize,
+      final boolean iSendCursorId) throws IOException {
+    final List<Object> batch;
+    try {
+      batch = iCursor.fetch(iFetchSize);
+    } catch (RuntimeException e) {
+      connection.closeCursor(iCursorId);
+      throw e;
+    }
+
+    final boolean ended = iCursor.isEnded();
+    if (ended)
+      connection.closeCursor(iCursorId);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      if (iSendCursorId)
+        channel.writeInt(iCursorId);
+
+      final OSyncCommandResultListener listener = new OSyncCommandResultListener();
+      listener.setFetchPlan(iCursor.getCommand().getFetchPlan());
+
+      for (Object o : batch) {
+        channel.writeByte((byte) 1); // ONE MORE RECORD
+        listener.result(o);
+        writeIdentifiable((OIdentifiable) o, connection.compression);
+      }
+
+      // SEND FETCHED RECORDS TO LOAD IN CLIENT CACHE
+      for (ODocument doc : listener.getFetchedRecordsToSend()) {
+        channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT ISN'T PART OF THE RESULT SET
+        writeIdentifiable(doc, connection.compression);
+      }
+
+      channel.writeByte((byte) 0); // NO MORE RECORDS IN THIS BATCH
+      channel.writeByte((byte) (ended ? 0 : 1)); // MORE BATCHES TO FETCH
+
+    } finally {
+      endResponse();
+    }
+  }
+
   private boolean isConnectionAlive() {
     if (connection == null || connection.database == null) {
       // CONNECTION/DATABASE CLOSED, KILL IT
@@ -1251,7 +1408,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       return;
 
     final ORecordId rid = channel.readRID();
-    final byte[] buffer = channel.readBytes();
+    final byte[] buffer = channel.readBytes(connection.compression);
     final ORecordVersion version = channel.readVersion();
     final byte recordType = channel.readByte();
     final byte mode = channel.readByte();
@@ -1277,7 +1434,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
 
     final int dataSegmentId = connection.data.protocolVersion >= 10 ? channel.readInt() : 0;
     final ORecordId rid = new ORecordId(channel.readShort(), ORID.CLUSTER_POS_INVALID);
-    final byte[] buffer = channel.readBytes();
+    final byte[] buffer = channel.readBytes(connection.compression);
     final byte recordType = channel.readByte();
     final byte mode = channel.readByte();
 
@@ -1337,7 +1494,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       try {
         sendOk(clientTxId);
         channel.writeByte((byte) 1);
-        channel.writeBytes(connection.database.getStorage().getConfiguration().toStream());
+        channel.writeBytes(connection.database.getStorage().getConfiguration().toStream(), connection.compression);
         channel.writeVersion(OVersionFactory.instance().createVersion());
         channel.writeByte(ORecordBytes.RECORD_TYPE);
         channel.writeByte((byte) 0); // NO MORE RECORDS
@@ -1354,7 +1511,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
 
         if (record != null) {
           channel.writeByte((byte) 1); // HAS RECORD
-          channel.writeBytes(record.toStream());
+          channel.writeBytes(record.toStream(), connection.compression);
           channel.writeVersion(record.getRecordVersion());
           channel.writeByte(record.getRecordType());
 
@@ -1375,7 +1532,7 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
                 if (d.getIdentity().isValid()) {
                   channel.writeByte((byte) 2); // CLIENT CACHE
                   // RECORD. IT ISN'T PART OF THE RESULT SET
-                  writeIdentifiable(d);
+                  writeIdentifiable(d, connection.compression);
                 }
               }
             }
@@ -1390,6 +1547,56 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  protected void readRecords() throws IOException {
+    setDataCommandInfo("Load records");
+
+    if (!isConnectionAlive())
+      return;
+
+    final int count = channel.readInt();
+    final List<ORID> rids = new ArrayList<ORID>(count);
+    for (int i = 0; i < count; ++i)
+      rids.add(channel.readRID());
+    final String fetchPlanString = channel.readString();
+
+    final List<ORecordInternal<?>> records = connection.database.load(rids, fetchPlanString);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      final Set<ODocument> recordsToSend = new HashSet<ODocument>();
+      final Map<String, Integer> fetchPlan = fetchPlanString.length() > 0 ? OFetchHelper.buildFetchPlan(fetchPlanString) : null;
+
+      for (ORecordInternal<?> record : records)
+        if (record != null) {
+          channel.writeByte((byte) 1); // HAS RECORD
+          channel.writeBytes(record.toStream(), connection.compression);
+          channel.writeVersion(record.getRecordVersion());
+          channel.writeByte(record.getRecordType());
+
+          if (fetchPlan != null && record instanceof ODocument) {
+            final ODocument doc = (ODocument) record;
+            OFetchHelper.fetch(doc, doc, fetchPlan, new ORemoteFetchListener(recordsToSend), new ORemoteFetchContext(), "");
+          }
+        } else
+          channel.writeByte((byte) 0); // RECORD NOT FOUND
+
+      // SEND RECORDS TO LOAD IN CLIENT CACHE
+      for (ODocument d : recordsToSend)
+        if (d.getIdentity().isValid()) {
+          channel.writeByte((byte) 2); // CLIENT CACHE
+          // RECORD. IT ISN'T PART OF THE RESULT SET
+          writeIdentifiable(d, connection.compression);
+        }
+
+      channel.writeByte((byte) 0); // NO MORE RECORDS
+
+    } finally {
+      endResponse();
+    }
+  }
+
   protected void beginResponse() {
     channel.acquireWriteLock();
   }
@@ -41,6 +41,7 @@ import com.orientechnologies.orient.core.tx.OTransactionOptimistic;
 import com.orientechnologies.orient.core.tx.OTransactionRealAbstract;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinary;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryCompression;
 
 public class OTransactionOptimisticProxy extends OTransactionOptimistic {
   private final Map<ORID, ORecordOperation>        tempEntries    = new LinkedHashMap<ORID, ORecordOperation>();
@@ -48,10 +49,17 @@ public class OTransactionOptimisticProxy extends OTransactionOptimistic {
   private final Map<ORecordId, ORecordInternal<?>> updatedRecords = new HashMap<ORecordId, ORecordInternal<?>>();
   private final int                                clientTxId;
   private final OChannelBinary                     channel;
+  private final OChannelBinaryCompression          compression;
 
   public OTransactionOptimisticProxy(final ODatabaseRecordTx iDatabase, final OChannelBinary iChannel) throws IOException {
+    this(iDatabase, iChannel, null);
+  }
+
+  public OTransactionOptimisticProxy(final ODatabaseRecordTx iDatabase, final OChannelBinary iChannel,
+      final OChannelBinaryCompression iCompression) throws IOException {
     super(iDatabase);
     channel = iChannel;
+    compression = iCompression;
     clientTxId = iChannel.readInt();
   }
 
@@ -74,14 +82,14 @@ public class OTransactionOptimisticProxy extends OTransactionOptimistic {
 
         switch (recordStatus) {
         case ORecordOperation.CREATED:
-          entry.getRecord().fill(rid, OVersionFactory.instance().createVersion(), channel.readBytes(), true);
+          entry.getRecord().fill(rid, OVersionFactory.instance().createVersion(), channel.readBytes(compression), true);
 
           // SAVE THE RECORD TO RETRIEVE THEM FOR THE NEW RID TO SEND BACK TO THE REQUESTER
           createdRecords.put(rid.copy(), entry.getRecord());
           break;
 
         case ORecordOperation.UPDATED:
-          entry.getRecord().fill(rid, channel.readVersion(), channel.readBytes(), true);
+          entry.getRecord().fill(rid, channel.readVersion(), channel.readBytes(compression), true);
 
           break;
 
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OReadWriteDiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Measures amount of memory allocated by load of page which is already in disk cache. Allocated memory is taken from
+ * {@link com.sun.management.ThreadMXBean}, so test works only on JVMs which support measurement of thread allocations.
+ */
+@Test(enabled = false)
+public class DiskCacheLoadAllocationSpeedTest {
+  private static final int PAGE_SIZE   = 4 * 1024;
+  private static final int PAGES_COUNT = 10000;
+
+  public static void main(String[] iArgs) throws Exception {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    final int loads = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 10000000;
+
+    final OLocalPaginatedStorage storage = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:target/diskCacheLoadAllocationSpeedTest");
+
+    final OReadWriteDiskCache diskCache = new OReadWriteDiskCache(2L * PAGES_COUNT * PAGE_SIZE, 2L * PAGES_COUNT * PAGE_SIZE,
+        PAGE_SIZE, 10000, -1, storage, null, false, true);
+    final long fileId = diskCache.openFile("diskCacheLoadAllocationSpeedTest.tst");
+
+    for (int i = 0; i < PAGES_COUNT; i++) {
+      final OCacheEntry cacheEntry = diskCache.load(fileId, i, false);
+      cacheEntry.markDirty();
+      diskCache.release(cacheEntry);
+    }
+
+    final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+    final Random random = new Random();
+
+    for (int n = 0; n < 3; n++) {
+      final long startAllocated = threadMXBean.getThreadAllocatedBytes(threadId);
+      final long start = System.currentTimeMillis();
+
+      for (int i = 0; i < loads; i++) {
+        final OCacheEntry cacheEntry = diskCache.load(fileId, random.nextInt(PAGES_COUNT), true);
+        diskCache.release(cacheEntry);
+      }
+
+      final long elapsed = System.currentTimeMillis() - start;
+      final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - startAllocated;
+
+      System.out.printf("Loads: %d, elapsed: %d ms, throughput: %d loads/sec, allocated: %.2f bytes/load\n", loads, elapsed,
+          elapsed > 0 ? loads * 1000L / elapsed : 0, ((double) allocated) / loads);
+    }
+
+    diskCache.delete();
+    storage.delete();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OPartitionedReadWriteDiskCache;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OReadWriteDiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Measures throughput of concurrent page loads from disk cache. All pages fit in the cache, so the test shows contention on the cache
+ * itself. Test is repeated for 1, 2, 4 ... 64 threads for single lock cache and for cache split on partitions.
+ */
+@Test(enabled = false)
+public class DiskCacheMultiThreadLoadSpeedTest extends OrientMultiThreadTest {
+  private static final int             PAGE_SIZE   = 4 * 1024;
+  private static final int             PAGES_COUNT = 10000;
+
+  private static ODiskCache            diskCache;
+  private static long                  fileId;
+
+  private final int                    partitions;
+  private final OLocalPaginatedStorage storage;
+
+  public static void main(String[] iArgs) throws Exception {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    final int tot = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 10000000;
+    final int maxThreads = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 64;
+    final int partitions = iArgs.length > 2 ? Integer.parseInt(iArgs[2]) : 16;
+
+    final OLocalPaginatedStorage storage = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:target/diskCacheMultiThreadLoadSpeedTest");
+
+    for (int cachePartitions : new int[] { 1, partitions }) {
+      for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+        final DiskCacheMultiThreadLoadSpeedTest test = new DiskCacheMultiThreadLoadSpeedTest(tot, threads, cachePartitions, storage);
+
+        final long start = System.currentTimeMillis();
+        test.data.go(test);
+        final long elapsed = System.currentTimeMillis() - start;
+
+        System.out.printf("\nPartitions: %d, threads: %d, loads: %d, elapsed: %d ms, throughput: %d loads/sec\n", cachePartitions,
+            threads, tot, elapsed, elapsed > 0 ? tot * 1000L / elapsed : 0);
+      }
+    }
+
+    storage.delete();
+  }
+
+  public DiskCacheMultiThreadLoadSpeedTest(int tot, int threads, int partitions, OLocalPaginatedStorage storage) {
+    super(tot, threads, LoadPageThread.class);
+    this.partitions = partitions;
+    this.storage = storage;
+  }
+
+  @Override
+  public void init() throws IOException {
+    final long readCacheSize = 2L * PAGES_COUNT * PAGE_SIZE;
+    final long writeCacheSize = 2L * PAGES_COUNT * PAGE_SIZE;
+
+    if (partitions > 1)
+      diskCache = new OPartitionedReadWriteDiskCache(null, readCacheSize, writeCacheSize, PAGE_SIZE, 10000, -1, storage, null, false,
+          true, partitions);
+    else
+      diskCache = new OReadWriteDiskCache(readCacheSize, writeCacheSize, PAGE_SIZE, 10000, -1, storage, null, false, true);
+
+    fileId = diskCache.openFile("diskCacheMultiThreadLoadSpeedTest.tst");
+
+    for (int i = 0; i < PAGES_COUNT; i++) {
+      final OCacheEntry cacheEntry = diskCache.load(fileId, i, false);
+      cacheEntry.markDirty();
+      diskCache.release(cacheEntry);
+    }
+  }
+
+  @Override
+  public void deinit() throws IOException {
+    diskCache.delete();
+    diskCache = null;
+  }
+
+  @Test(enabled = false)
+  public static class LoadPageThread extends OrientThreadTest {
+    private final Random random = new Random();
+
+    public void cycle() throws IOException {
+      final OCacheEntry cacheEntry = diskCache.load(fileId, random.nextInt(PAGES_COUNT), false);
+      diskCache.release(cacheEntry);
+    }
+  }
+}
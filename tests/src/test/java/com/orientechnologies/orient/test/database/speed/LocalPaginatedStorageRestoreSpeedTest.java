@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.io.OFileUtils;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+/**
+ * Measures time of data restore after crash depending on WAL size and amount of threads which apply changes of pages. Crash is
+ * simulated by copying of files of opened database.
+ */
+@Test(enabled = false)
+public class LocalPaginatedStorageRestoreSpeedTest {
+  private static final String BASE_NAME = "baseRestoreSpeedTest";
+
+  public static void main(String[] iArgs) throws Exception {
+    final File buildDir = new File(iArgs.length > 0 ? iArgs[0] : "target/restoreSpeedTest");
+    final int maxThreads = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : Runtime.getRuntime().availableProcessors();
+
+    OGlobalConfiguration.DISK_CACHE_SIZE.setValue(512);
+
+    for (int records : new int[] { 10000, 50000, 100000 }) {
+      OFileUtils.deleteRecursively(buildDir);
+      buildDir.mkdirs();
+
+      final File crashedDir = new File(buildDir, "crashed");
+      createCrashedDatabase(buildDir, crashedDir, records);
+
+      for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+        final String restoreName = "restoreSpeedTest" + threads;
+        final File restoreDir = new File(buildDir, restoreName);
+        copyDatabase(crashedDir, BASE_NAME, restoreDir, restoreName);
+
+        OGlobalConfiguration.WAL_RESTORE_THREADS.setValue(threads);
+
+        final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + restoreDir.getAbsolutePath());
+
+        final long start = System.currentTimeMillis();
+        db.open("admin", "admin");
+        final long elapsed = System.currentTimeMillis() - start;
+
+        final boolean restored = ((OLocalPaginatedStorage) db.getStorage().getUnderlying()).wereDataRestoredAfterOpen();
+        System.out.printf("Records: %d, WAL size: %d KB, restore threads: %d, data restored: %b, open time: %d ms\n", records,
+            walSize(crashedDir) / 1024, threads, restored, elapsed);
+
+        db.drop();
+      }
+    }
+
+    OFileUtils.deleteRecursively(buildDir);
+  }
+
+  private static void createCrashedDatabase(File buildDir, File crashedDir, int records) throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + new File(buildDir, BASE_NAME).getAbsolutePath());
+    db.create();
+
+    final Random random = new Random();
+    final byte[] data = new byte[256];
+
+    for (int i = 0; i < records; i++) {
+      random.nextBytes(data);
+
+      final ODocument document = new ODocument("Account");
+      document.field("id", i);
+      document.field("salary", random.nextInt());
+      document.field("data", data);
+      document.save();
+    }
+
+    // LET WAL BE FLUSHED BY BACKGROUND THREAD
+    Thread.sleep(1500);
+
+    copyDatabase(new File(buildDir, BASE_NAME), BASE_NAME, crashedDir, BASE_NAME);
+
+    db.drop();
+  }
+
+  private static void copyDatabase(File fromDir, String fromName, File toDir, String toName) throws IOException {
+    toDir.mkdirs();
+
+    final File[] files = fromDir.listFiles();
+    if (files == null)
+      return;
+
+    for (File file : files) {
+      String fileName = file.getName();
+      if (fileName.startsWith(fromName + "."))
+        fileName = toName + fileName.substring(fromName.length());
+
+      copyFile(file, new File(toDir, fileName));
+    }
+  }
+
+  private static long walSize(File dir) {
+    long size = 0;
+
+    final File[] files = dir.listFiles();
+    if (files != null)
+      for (File file : files)
+        if (file.getName().endsWith(".wal"))
+          size += file.length();
+
+    return size;
+  }
+
+  private static void copyFile(File from, File to) throws IOException {
+    final FileInputStream inputStream = new FileInputStream(from);
+    try {
+      final FileOutputStream outputStream = new FileOutputStream(to);
+      try {
+        final byte[] buffer = new byte[64 * 1024];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) > 0)
+          outputStream.write(buffer, 0, bytesRead);
+      } finally {
+        outputStream.close();
+      }
+    } finally {
+      inputStream.close();
+    }
+  }
+}
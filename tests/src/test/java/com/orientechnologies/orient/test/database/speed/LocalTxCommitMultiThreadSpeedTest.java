@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.tx.OTransaction.TXTYPE;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Measures throughput of concurrent transaction commits. Every thread commits small optimistic transactions into its own class, so
+ * commits do not touch the same clusters and may proceed in parallel. Test is repeated for 1, 2, 4 ... threads up to the number of
+ * available cores to show how commit throughput scales.
+ */
+@Test(enabled = false)
+public class LocalTxCommitMultiThreadSpeedTest extends OrientMultiThreadTest {
+  private static final int           RECORDS_PER_TX = 10;
+  private static final AtomicInteger threadCounter  = new AtomicInteger();
+
+  private ODatabaseDocument          database;
+  private final int                  threadCount;
+
+  public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+    if (iArgs.length > 0)
+      System.setProperty("url", iArgs[0]);
+    else if (System.getProperty("url") == null)
+      System.setProperty("url", "plocal:target/txCommitMultiThreadSpeedTest");
+
+    final int tot = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 100000;
+    final int maxThreads = iArgs.length > 2 ? Integer.parseInt(iArgs[2]) : Runtime.getRuntime().availableProcessors();
+
+    int threads = 1;
+    while (true) {
+      final LocalTxCommitMultiThreadSpeedTest test = new LocalTxCommitMultiThreadSpeedTest(tot, threads);
+
+      final long start = System.currentTimeMillis();
+      test.data.go(test);
+      final long elapsed = System.currentTimeMillis() - start;
+
+      System.out.printf("\nThreads: %d, transactions: %d, elapsed: %d ms, throughput: %d tx/sec\n", threads,
+          tot / RECORDS_PER_TX, elapsed, elapsed > 0 ? (tot / RECORDS_PER_TX) * 1000L / elapsed : 0);
+
+      if (threads >= maxThreads)
+        break;
+
+      threads = Math.min(threads * 2, maxThreads);
+    }
+  }
+
+  public LocalTxCommitMultiThreadSpeedTest(int tot, int threads) {
+    super(tot, threads, CommitTxThread.class);
+    this.threadCount = threads;
+  }
+
+  @Override
+  public void init() {
+    database = new ODatabaseDocumentTx(System.getProperty("url"));
+    if (database.exists()) {
+      database.open("admin", "admin");
+      database.drop();
+    }
+
+    database.create();
+
+    threadCounter.set(0);
+    for (int i = 0; i < threadCount; i++)
+      database.getMetadata().getSchema().createClass("Account" + i);
+  }
+
+  @Test(enabled = false)
+  public static class CommitTxThread extends OrientThreadTest {
+    private ODatabaseDocument database;
+    private String            className;
+    private Date              date = new Date();
+
+    @Override
+    public void init() {
+      database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+      className = "Account" + threadCounter.getAndIncrement();
+    }
+
+    public void cycle() {
+      if (data.getCyclesDone() % RECORDS_PER_TX == 0)
+        database.begin(TXTYPE.OPTIMISTIC);
+
+      final ODocument record = new ODocument(className);
+      record.field("id", data.getCyclesDone());
+      record.field("name", "Luca");
+      record.field("surname", "Garulli");
+      record.field("birthDate", date);
+      record.field("salary", 3000f + data.getCyclesDone());
+
+      record.save();
+
+      if (data.getCyclesDone() % RECORDS_PER_TX == RECORDS_PER_TX - 1 || data.getCyclesDone() == data.getCycles() - 1)
+        database.commit();
+    }
+
+    @Override
+    public void deinit() throws Exception {
+      if (database != null)
+        database.close();
+      super.deinit();
+    }
+  }
+
+  @Override
+  public void deinit() {
+    long total = 0;
+    for (int i = 0; i < threadCount; i++)
+      total += database.countClass("Account" + i);
+
+    System.out.println("\nTotal committed records: " + total);
+    Assert.assertEquals(total, threadCycles / threadCount * threadCount);
+
+    if (database != null)
+      database.close();
+  }
+}
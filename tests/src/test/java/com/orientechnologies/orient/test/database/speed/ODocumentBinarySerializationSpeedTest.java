@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+
+/**
+ * Compares CSV and binary document serializers: marshalling, full unmarshalling and unmarshalling of a single field of a document
+ * with 20 fields.
+ */
+@Test(enabled = false)
+public class ODocumentBinarySerializationSpeedTest {
+  private static final String[] SINGLE_FIELD = new String[] { "name15" };
+
+  public static void main(String[] iArgs) {
+    final int cycles = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 500000;
+
+    final ODocument document = new ODocument();
+    for (int i = 0; i < 5; i++) {
+      document.field("name" + i, "Luca Garulli " + i);
+      document.field("name" + (i + 5), i * 1000);
+      document.field("name" + (i + 10), new Date(1380000000000L + i));
+      document.field("name" + (i + 15), new ORecordId("#" + (i + 10) + ":" + (i * 100000)));
+    }
+    document.field("salary", 3000.5d);
+    document.field("tags", Arrays.asList("a", "b", "c"));
+
+    for (int n = 0; n < 3; n++) {
+      test("csv", ORecordSerializerSchemaAware2CSV.INSTANCE, document, cycles);
+      test("binary", ORecordSerializerBinary.INSTANCE, document, cycles);
+    }
+  }
+
+  private static void test(final String iName, final ORecordSerializer iSerializer, final ODocument iDocument, final int iCycles) {
+    final byte[] content = iSerializer.toStream(iDocument, false);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < iCycles; i++)
+      iSerializer.toStream(iDocument, false);
+    final long toStream = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iCycles; i++)
+      iSerializer.fromStream(content, new ODocument(), null);
+    final long fromStream = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iCycles; i++)
+      iSerializer.fromStream(content, new ODocument(), SINGLE_FIELD);
+    final long singleField = System.nanoTime() - start;
+
+    System.out.printf("%-6s size: %d bytes, toStream: %d ns, fromStream: %d ns, fromStream of single field: %d ns\n", iName,
+        content.length, toStream / iCycles, fromStream / iCycles, singleField / iCycles);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+
+/**
+ * Measures ORDER BY of a full scan with and without LIMIT. Records are streamed to an asynchronous listener, so the memory used
+ * depends on the sort only: run it with a small heap to check. Set "query.orderBy.maxRecordsInMemory" to change the number of
+ * records sorted in memory.
+ */
+@Test(enabled = false)
+public class OrderBySpeedTest {
+  public static void main(String[] iArgs) {
+    final int records = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 500000;
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:orderBySpeedTest");
+    db.create();
+    try {
+      db.getMetadata().getSchema().createClass("Account").createProperty("amount", OType.INTEGER);
+
+      final Random random = new Random();
+      for (int i = 0; i < records; i++)
+        new ODocument("Account").field("id", i).field("amount", random.nextInt()).field("name", "account " + i).save();
+
+      for (int n = 0; n < 3; n++) {
+        test(db, "select from Account order by amount limit 10");
+        test(db, "select from Account order by amount");
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static void test(final ODatabaseDocumentTx iDatabase, final String iQuery) {
+    final AtomicInteger results = new AtomicInteger();
+
+    final long start = System.currentTimeMillis();
+
+    iDatabase.query(new OSQLAsynchQuery<ODocument>(iQuery, new OCommandResultListener() {
+      public boolean result(final Object iRecord) {
+        results.incrementAndGet();
+        return true;
+      }
+
+      public void end() {
+      }
+    }));
+
+    System.out.printf("%s: results: %d, elapsed: %d ms\n", iQuery, results.get(), System.currentTimeMillis() - start);
+  }
+}
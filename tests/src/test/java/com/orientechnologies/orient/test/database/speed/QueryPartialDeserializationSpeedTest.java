@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Measures a full scan query which filters and projects 2 fields of documents with 20 fields. Pass "binary" as first argument to
+ * store the documents with the binary serializer.
+ */
+@Test(enabled = false)
+public class QueryPartialDeserializationSpeedTest {
+  public static void main(String[] iArgs) {
+    final boolean binary = iArgs.length > 0 && iArgs[0].equals("binary");
+    final int records = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 100000;
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:queryPartialDeserializationSpeedTest");
+    db.create();
+    try {
+      if (binary)
+        db.command(new OCommandSQL("alter database custom recordSerializer=" + ORecordSerializerBinary.NAME)).execute();
+
+      db.getMetadata().getSchema().createClass("Account");
+      for (int i = 0; i < records; i++) {
+        final ODocument document = new ODocument("Account");
+        for (int f = 0; f < 20; f++)
+          document.field("field" + f, "value " + f + " of account " + i);
+        document.field("id", i);
+        document.save();
+      }
+
+      final OSQLSynchQuery<ODocument> query = new OSQLSynchQuery<ODocument>("select id, field3 from Account where id < 10000");
+      for (int n = 0; n < 5; n++) {
+        db.getLevel1Cache().invalidate();
+
+        final long start = System.currentTimeMillis();
+        final List<ODocument> result = db.query(query);
+        final long elapsed = System.currentTimeMillis() - start;
+
+        System.out.printf("Records: %d, results: %d, elapsed: %d ms\n", records, result.size(), elapsed);
+      }
+    } finally {
+      db.drop();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.hashindex.local.OLocalHashTable;
+import com.orientechnologies.orient.core.index.hashindex.local.OMurmurHash3HashFunction;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+/**
+ * Puts random keys in a hash table while other threads get the keys already put, and prints the percentiles of the latency of
+ * puts and gets. The highest percentiles show the puts that split buckets and the gets that waited for them.
+ */
+@Test(enabled = false)
+public class HashIndexInsertLatencySpeedTest {
+  private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99, 100 };
+
+  public static void main(String[] iArgs) throws Exception {
+    final int keys = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 1000000;
+    final int readers = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 2;
+
+    final String buildDirectory = System.getProperty("buildDirectory", ".");
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/HashIndexInsertLatencySpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    final OMurmurHash3HashFunction<Integer> hashFunction = new OMurmurHash3HashFunction<Integer>();
+    hashFunction.setValueSerializer(OIntegerSerializer.INSTANCE);
+
+    final OLocalHashTable<Integer, Integer> hashTable = new OLocalHashTable<Integer, Integer>(".imc", ".tsc", ".obf", hashFunction);
+    hashTable.create("insertLatency", OIntegerSerializer.INSTANCE, OIntegerSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) db.getStorage().getUnderlying());
+    try {
+      run(hashTable, keys, readers);
+    } finally {
+      hashTable.delete();
+      db.drop();
+    }
+  }
+
+  private static void run(final OLocalHashTable<Integer, Integer> iHashTable, final int iKeys, final int iReaders)
+      throws Exception {
+    final int[] keys = new int[iKeys];
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    for (int i = 0; i < iKeys; i++)
+      keys[i] = random.nextInt();
+
+    final AtomicInteger inserted = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(iReaders);
+    final List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+    for (int n = 0; n < iReaders; n++)
+      futures.add(executor.submit(new Callable<long[]>() {
+        public long[] call() throws Exception {
+          final MersenneTwisterFast readerRandom = new MersenneTwisterFast();
+          final long[] latencies = new long[iKeys];
+          int gets = 0;
+
+          int available;
+          while ((available = inserted.get()) < iKeys && gets < latencies.length) {
+            if (available == 0)
+              continue;
+
+            final int key = keys[readerRandom.nextInt(available)];
+            final long start = System.nanoTime();
+            iHashTable.get(key);
+            latencies[gets++] = System.nanoTime() - start;
+          }
+          return Arrays.copyOf(latencies, gets);
+        }
+      }));
+
+    final long[] putLatencies = new long[iKeys];
+    final long start = System.currentTimeMillis();
+    for (int i = 0; i < iKeys; i++) {
+      final long putStart = System.nanoTime();
+      iHashTable.put(keys[i], i);
+      putLatencies[i] = System.nanoTime() - putStart;
+
+      inserted.incrementAndGet();
+    }
+    final long elapsed = System.currentTimeMillis() - start;
+
+    System.out.printf("Keys: %d, readers: %d, elapsed: %d ms, puts/sec: %d\n", iHashTable.size(), iReaders, elapsed, iKeys * 1000L
+        / Math.max(elapsed, 1));
+    printPercentiles("put", putLatencies);
+
+    try {
+      for (Future<long[]> future : futures)
+        printPercentiles("get", future.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void printPercentiles(final String iOperation, final long[] iLatencies) {
+    if (iLatencies.length == 0)
+      return;
+
+    Arrays.sort(iLatencies);
+
+    final StringBuilder buffer = new StringBuilder();
+    buffer.append(String.format("%s latency (us), %d samples:", iOperation, iLatencies.length));
+    for (double percentile : PERCENTILES) {
+      final int index = Math.min(iLatencies.length - 1, (int) Math.ceil(iLatencies.length * percentile / 100) - 1);
+      buffer.append(String.format(" p%s=%.1f", percentile == 100 ? "max" : String.valueOf(percentile),
+          iLatencies[Math.max(index, 0)] / 1000.0));
+    }
+    System.out.println(buffer);
+  }
+}
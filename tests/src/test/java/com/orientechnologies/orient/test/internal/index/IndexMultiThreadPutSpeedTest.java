@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionLong;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OSimpleKeyIndexDefinition;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * Puts scattered keys in a unique SB-tree index through {@link OIndex#put(Object, OIdentifiable)} from 1 to the given number of
+ * threads, each with its own database, to measure how the puts of different keys scale under the shared lock of the index.
+ */
+@Test(enabled = false)
+public class IndexMultiThreadPutSpeedTest {
+  public static void main(String[] iArgs) throws Exception {
+    final int keys = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 1000000;
+    final int maxThreads = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 8;
+
+    final String buildDirectory = System.getProperty("buildDirectory", ".");
+    final String url = "plocal:" + buildDirectory + "/IndexMultiThreadPutSpeedTest";
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    try {
+      for (int threads = 1; threads <= maxThreads; threads *= 2) {
+        final String indexName = "multiThreadPut" + threads;
+        final OIndex<?> index = db.getMetadata().getIndexManager()
+            .createIndex(indexName, OClass.INDEX_TYPE.UNIQUE.toString(), new OSimpleKeyIndexDefinition(OType.INTEGER), null, null,
+                null);
+
+        final long start = System.currentTimeMillis();
+        put(url, indexName, keys, threads);
+        final long elapsed = System.currentTimeMillis() - start;
+
+        System.out.printf("Threads: %d, keys: %d, elapsed: %d ms, puts/sec: %d\n", threads, index.getSize(), elapsed, keys * 1000L
+            / Math.max(elapsed, 1));
+      }
+    } finally {
+      db.drop();
+    }
+  }
+
+  private static void put(final String iURL, final String iIndexName, final int iKeys, final int iThreads) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(iThreads);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int n = 0; n < iThreads; n++) {
+        final int thread = n;
+        futures.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            final ODatabaseDocumentTx db = new ODatabaseDocumentTx(iURL).open("admin", "admin");
+            try {
+              @SuppressWarnings("unchecked")
+              final OIndex<OIdentifiable> index = (OIndex<OIdentifiable>) db.getMetadata().getIndexManager().getIndex(iIndexName);
+
+              // THE MULTIPLICATION BY AN ODD NUMBER SCATTERS THE KEYS WITHOUT DUPLICATING THEM
+              for (int i = thread; i < iKeys; i += iThreads)
+                index.put(i * 0x9E3779B1, new ORecordId(1, new OClusterPositionLong(i)));
+            } finally {
+              db.close();
+            }
+            return null;
+          }
+        }));
+      }
+
+      for (Future<Void> future : futures)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
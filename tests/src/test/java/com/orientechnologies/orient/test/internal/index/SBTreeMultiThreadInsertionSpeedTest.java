@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionLong;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTree;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+/**
+ * Puts random keys in an SB-tree from 1 to the given number of threads, to measure how puts in different buckets scale.
+ */
+@Test(enabled = false)
+public class SBTreeMultiThreadInsertionSpeedTest {
+  public static void main(String[] iArgs) throws Exception {
+    final int keys = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 1000000;
+    final int maxThreads = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 8;
+
+    final String buildDirectory = System.getProperty("buildDirectory", ".");
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/SBTreeMultiThreadInsertionSpeedTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    final OSBTree<Integer, OIdentifiable> sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, false);
+    sbTree.create("multiThreadInsertion", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) db.getStorage().getUnderlying());
+    try {
+      for (int threads = 1; threads <= maxThreads; threads *= 2) {
+        sbTree.clear();
+
+        final long start = System.currentTimeMillis();
+        insert(sbTree, keys, threads);
+        final long elapsed = System.currentTimeMillis() - start;
+
+        System.out.printf("Threads: %d, keys: %d, elapsed: %d ms, puts/sec: %d\n", threads, sbTree.size(), elapsed, keys * 1000L
+            / Math.max(elapsed, 1));
+      }
+    } finally {
+      sbTree.delete();
+      db.drop();
+    }
+  }
+
+  private static void insert(final OSBTree<Integer, OIdentifiable> iTree, final int iKeys, final int iThreads) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(iThreads);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int n = 0; n < iThreads; n++) {
+        final int thread = n;
+        futures.add(executor.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            final MersenneTwisterFast random = new MersenneTwisterFast(thread);
+            for (int i = thread; i < iKeys; i += iThreads)
+              iTree.put(random.nextInt(), new ORecordId(1, new OClusterPositionLong(i)));
+            return null;
+          }
+        }));
+      }
+
+      for (Future<Void> future : futures)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
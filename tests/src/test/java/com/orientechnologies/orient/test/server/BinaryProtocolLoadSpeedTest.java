@@ -0,0 +1,217 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryAsynchClient;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Opens thousands of binary connections against a server started in this JVM, then sends short requests over all of them from a
+ * few client threads. Prints the throughput, the percentiles of the latency and the number of threads of the server, with a
+ * thread per connection or with the selector:<br/>
+ * <code>BinaryProtocolLoadSpeedTest [connections] [requests per connection] [client threads] [selector: true|false]</code>
+ */
+@Test(enabled = false)
+public class BinaryProtocolLoadSpeedTest {
+  private static final int      PORT        = 2524;
+  private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 100 };
+
+  public static void main(String[] iArgs) throws Exception {
+    final int connections = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 5000;
+    final int requests = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 20;
+    final int clientThreads = iArgs.length > 2 ? Integer.parseInt(iArgs[2]) : 16;
+    final boolean selector = iArgs.length > 3 ? Boolean.parseBoolean(iArgs[3]) : true;
+
+    OGlobalConfiguration.NETWORK_MAX_CONCURRENT_SESSIONS.setValue(connections * 2);
+
+    final OServer server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"><parameters>"
+        + "<parameter name=\"" + OGlobalConfiguration.NETWORK_BINARY_SELECTOR_ENABLED.getKey() + "\" value=\"" + selector + "\"/>"
+        + "</parameters></listener></listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users>"
+        + "</orient-server>");
+    server.activate();
+    try {
+      final int threadsBefore = Thread.activeCount();
+
+      final OContextConfiguration configuration = new OContextConfiguration();
+      final List<Connection> opened = new ArrayList<Connection>();
+      final long openStart = System.currentTimeMillis();
+      for (int i = 0; i < connections; i++)
+        opened.add(new Connection(configuration));
+
+      System.out.printf("Selector: %s, connections: %d opened in %d ms, server threads: %d (JVM threads: %d, before: %d)\n",
+          selector, connections, System.currentTimeMillis() - openStart, countServerThreads(), Thread.activeCount(),
+          threadsBefore);
+
+      run(opened, requests, clientThreads);
+
+      for (Connection connection : opened)
+        connection.channel.close();
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  private static void run(final List<Connection> iConnections, final int iRequests, final int iClientThreads) throws Exception {
+    final AtomicInteger maxServerThreads = new AtomicInteger();
+    final Timer timer = new Timer(true);
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        final int serverThreads = countServerThreads();
+        if (serverThreads > maxServerThreads.get())
+          maxServerThreads.set(serverThreads);
+      }
+    }, 0, 100);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(iClientThreads);
+    try {
+      final List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+      final long start = System.currentTimeMillis();
+      for (int n = 0; n < iClientThreads; n++) {
+        final int thread = n;
+        futures.add(executor.submit(new Callable<long[]>() {
+          public long[] call() throws Exception {
+            // EVERY CONNECTION IS USED BY ONE CLIENT THREAD ONLY
+            final List<Connection> mine = new ArrayList<Connection>();
+            for (int i = thread; i < iConnections.size(); i += iClientThreads)
+              mine.add(iConnections.get(i));
+
+            final long[] latencies = new long[mine.size() * iRequests];
+            int count = 0;
+            for (int r = 0; r < iRequests; r++)
+              for (Connection connection : mine) {
+                final long requestStart = System.nanoTime();
+                connection.existsDatabase();
+                latencies[count++] = System.nanoTime() - requestStart;
+              }
+            return latencies;
+          }
+        }));
+      }
+
+      final List<long[]> results = new ArrayList<long[]>();
+      int total = 0;
+      for (Future<long[]> future : futures) {
+        results.add(future.get());
+        total += results.get(results.size() - 1).length;
+      }
+      final long elapsed = System.currentTimeMillis() - start;
+
+      final long[] latencies = new long[total];
+      int offset = 0;
+      for (long[] result : results) {
+        System.arraycopy(result, 0, latencies, offset, result.length);
+        offset += result.length;
+      }
+      Arrays.sort(latencies);
+
+      final StringBuilder buffer = new StringBuilder();
+      buffer.append(String.format("Requests: %d, elapsed: %d ms, requests/sec: %d, server threads: %d\nLatency (us):", total,
+          elapsed, total * 1000L / Math.max(elapsed, 1), maxServerThreads.get()));
+      for (double percentile : PERCENTILES) {
+        final int index = Math.max(0, Math.min(latencies.length - 1, (int) Math.ceil(latencies.length * percentile / 100) - 1));
+        buffer.append(String.format(" p%s=%.1f", percentile == 100 ? "max" : String.valueOf(percentile), latencies[index] / 1000.0));
+      }
+      System.out.println(buffer);
+    } finally {
+      timer.cancel();
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Counts the live threads started by the server: the threads of the connections or the selector threads and the workers.
+   */
+  private static int countServerThreads() {
+    final Thread[] threads = new Thread[Thread.activeCount() * 2];
+    final int count = Orient.instance().getThreadGroup().enumerate(threads);
+
+    int serverThreads = 0;
+    for (int i = 0; i < count; i++)
+      if (threads[i].getName().startsWith("OrientDB"))
+        serverThreads++;
+    return serverThreads;
+  }
+
+  private static final class Connection {
+    private final OChannelBinaryAsynchClient channel;
+    private final int                        sessionId;
+
+    private Connection(final OContextConfiguration iConfiguration) throws IOException {
+      channel = new OChannelBinaryAsynchClient("127.0.0.1", PORT, iConfiguration, OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
+
+      channel.beginRequest();
+      channel.writeByte(OChannelBinaryProtocol.REQUEST_CONNECT);
+      channel.writeInt(-1);
+      channel.writeString("load test");
+      channel.writeString("1");
+      channel.writeShort((short) OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
+      channel.writeString(null);
+      channel.writeString("root");
+      channel.writeString("root");
+      // NO COMPRESSION
+      channel.writeString(null);
+      channel.writeInt(0);
+      channel.endRequest();
+
+      channel.beginResponse(-1);
+      try {
+        sessionId = channel.readInt();
+        channel.readString();
+      } finally {
+        channel.endResponse();
+      }
+    }
+
+    private void existsDatabase() throws IOException {
+      channel.beginRequest();
+      channel.writeByte(OChannelBinaryProtocol.REQUEST_DB_EXIST);
+      channel.writeInt(sessionId);
+      channel.writeString("loadTest");
+      channel.writeString("memory");
+      channel.endRequest();
+
+      channel.beginResponse(sessionId);
+      try {
+        channel.readByte();
+      } finally {
+        channel.endResponse();
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Browses the links of a document against a server started in this JVM, loading the linked documents one by one or in batches of
+ * the size configured. Prints the time taken and the documents loaded per second:<br/>
+ * <code>RemoteBatchLoadSpeedTest [links] [rounds] [batch size, 0 to load the links one by one]</code>
+ */
+@Test(enabled = false)
+public class RemoteBatchLoadSpeedTest {
+  private static final int    PORT = 2527;
+  private static final String URL  = "remote:127.0.0.1:" + PORT + "/batchLoadSpeedTest";
+
+  public static void main(String[] iArgs) throws Exception {
+    final int links = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 200;
+    final int rounds = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 50;
+    final int batchSize = iArgs.length > 2 ? Integer.parseInt(iArgs[2]) : 50;
+
+    OGlobalConfiguration.LAZYSET_BATCH_LOAD_SIZE.setValue(batchSize);
+
+    final OServer server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"/>"
+        + "</listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users></orient-server>");
+    server.activate();
+    try {
+      new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+      try {
+        final List<ODocument> items = new ArrayList<ODocument>();
+        for (int i = 0; i < links; i++)
+          items.add(new ODocument("Item").field("value", i).save());
+        final ORID rootRid = new ODocument("Root").field("items", items).save().getIdentity();
+
+        long loaded = 0;
+        final long start = System.currentTimeMillis();
+        for (int r = 0; r < rounds; r++) {
+          // START FROM AN EMPTY CACHE, SO EVERY LINK IS A RECORD TO LOAD FROM THE SERVER
+          db.getLevel1Cache().clear();
+
+          final ODocument root = db.load(rootRid);
+          final List<OIdentifiable> rootItems = root.field("items");
+          for (OIdentifiable item : rootItems)
+            if (((ODocument) item).field("value") != null)
+              loaded++;
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+
+        System.out.printf("Batch size: %d, links: %d, rounds: %d, loaded: %d, elapsed: %d ms, records/sec: %d\n", batchSize, links,
+            rounds, loaded, elapsed, loaded * 1000L / Math.max(elapsed, 1));
+      } finally {
+        db.close();
+      }
+    } finally {
+      server.shutdown();
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.hook.ORecordHookAbstract;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+import com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary;
+
+/**
+ * Loads records in batch from a server started in this JVM, and from a listener of the same server that speaks the protocol 19,
+ * which has no batch load request.
+ */
+@Test
+public class RemoteBatchLoadTest {
+  private static final int    PORT     = 2531;
+  private static final int    OLD_PORT = 2534;
+  private static final String URL      = "remote:127.0.0.1:" + PORT + "/batchLoadTest";
+  private static final String OLD_URL  = "remote:127.0.0.1:" + OLD_PORT + "/batchLoadTest";
+  private static final int    RECORDS  = 100;
+
+  private OServer             server;
+  private List<ORID>          items    = new ArrayList<ORID>();
+  private ORID                holder;
+  private ORID                deleted;
+  private ORID                missing;
+
+  /**
+   * Binary protocol of a server that precedes the batch load of records.
+   */
+  public static class OldProtocolBinary extends ONetworkProtocolBinary {
+    private static final int OLD_VERSION = 19;
+
+    @Override
+    public int getVersion() {
+      return OLD_VERSION;
+    }
+
+    @Override
+    protected void readConnectionData() throws IOException {
+      super.readConnectionData();
+      connection.data.protocolVersion = (short) Math.min(connection.data.protocolVersion, OLD_VERSION);
+    }
+
+    @Override
+    protected boolean executeRequest() throws IOException {
+      if (requestType == OChannelBinaryProtocol.REQUEST_RECORD_LOAD_BATCH)
+        // UNKNOWN TO THIS VERSION
+        return false;
+      return super.executeRequest();
+    }
+  }
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "<protocol name=\"binary19\" implementation=\"" + OldProtocolBinary.class.getName() + "\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"/>"
+        + "<listener ip-address=\"127.0.0.1\" port-range=\"" + OLD_PORT + "\" protocol=\"binary19\"/>"
+        + "</listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users></orient-server>");
+    server.activate();
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      final List<ODocument> links = new ArrayList<ODocument>();
+      for (int i = 0; i < RECORDS; i++) {
+        final ODocument item = new ODocument("Item").field("value", i).save();
+        items.add(item.getIdentity());
+        links.add(item);
+      }
+      holder = new ODocument("Holder").field("items", links).save().getIdentity();
+
+      final ODocument removed = new ODocument("Item").field("value", -1).save();
+      deleted = removed.getIdentity().copy();
+      removed.delete();
+
+      missing = new ORecordId(deleted.getClusterId(), OClusterPositionFactory.INSTANCE.valueOf(RECORDS * 1000));
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    try {
+      new OServerAdmin(URL).connect("root", "root").dropDatabase("memory").close();
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  public void testOrderAndMissingRecords() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      final List<ORID> rids = shuffledItems();
+      rids.add(RECORDS / 2, deleted);
+      rids.add(missing);
+
+      final long requests = countRequests();
+      final List<ORecordInternal<?>> records = db.load(rids, null);
+      Assert.assertEquals(countRequests() - requests, 1);
+
+      assertLoaded(rids, records);
+    } finally {
+      db.close();
+    }
+  }
+
+  public void testRecordsInTransactionAndCache() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      final ODocument cached = db.load(items.get(0));
+      cached.field("value", -100);
+
+      db.begin();
+      try {
+        final ODocument changed = db.load(items.get(1));
+        changed.field("value", -200).save();
+
+        final List<ORecordInternal<?>> records = db.load(items, null);
+        Assert.assertSame(records.get(0), cached);
+        Assert.assertEquals(((ODocument) records.get(1)).field("value"), -200);
+        for (int i = 2; i < RECORDS; i++)
+          Assert.assertEquals(((ODocument) records.get(i)).field("value"), i);
+      } finally {
+        db.rollback();
+      }
+    } finally {
+      db.close();
+    }
+  }
+
+  public void testSkippedByHook() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      final Set<ORID> skipped = new HashSet<ORID>();
+      for (int i = 0; i < RECORDS; i += 3)
+        skipped.add(items.get(i));
+
+      final ORecordHookAbstract hook = new ORecordHookAbstract() {
+        @Override
+        public RESULT onRecordBeforeRead(final ORecord<?> iRecord) {
+          return skipped.contains(iRecord.getIdentity()) ? RESULT.SKIP : RESULT.RECORD_NOT_CHANGED;
+        }
+
+        public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+          return DISTRIBUTED_EXECUTION_MODE.TARGET_NODE;
+        }
+      };
+
+      db.registerHook(hook);
+      try {
+        final List<ORecordInternal<?>> records = db.load(items, null);
+        for (int i = 0; i < RECORDS; i++)
+          if (skipped.contains(items.get(i)))
+            Assert.assertNull(records.get(i), "record " + i);
+          else
+            Assert.assertEquals(((ODocument) records.get(i)).field("value"), i);
+      } finally {
+        db.unregisterHook(hook);
+      }
+    } finally {
+      db.close();
+    }
+  }
+
+  public void testFetchPlanFillsTheCache() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      db.getLevel1Cache().clear();
+
+      final List<ORID> rids = new ArrayList<ORID>();
+      rids.add(holder);
+      rids.add(items.get(0));
+      final List<ORecordInternal<?>> records = db.load(rids, "*:1");
+      Assert.assertEquals(records.get(0).getIdentity(), holder);
+
+      // THE LINKED ITEMS ARE SENT WITH THE HOLDER, NOT REQUESTED
+      for (ORID item : items)
+        Assert.assertNotNull(db.getLevel1Cache().findRecord(item), item.toString());
+    } finally {
+      db.close();
+    }
+  }
+
+  public void testLazyListLoadsTheLinksInBatch() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      db.getLevel1Cache().clear();
+
+      final ODocument loaded = db.load(holder);
+      final List<OIdentifiable> links = loaded.field("items");
+
+      final long requests = countRequests();
+      int i = 0;
+      for (OIdentifiable link : links)
+        Assert.assertEquals(((ODocument) link.getRecord()).field("value"), i++);
+      Assert.assertEquals(i, RECORDS);
+
+      // ONE REQUEST EVERY 50 LINKS BY DEFAULT
+      Assert.assertTrue(countRequests() - requests < RECORDS / 10, "requests " + (countRequests() - requests));
+    } finally {
+      db.close();
+    }
+  }
+
+  public void testOldServerLoadsOneByOne() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(OLD_URL).open("admin", "admin");
+    try {
+      final List<ORID> rids = shuffledItems();
+      rids.add(0, missing);
+      rids.add(deleted);
+
+      final long requests = countRequests();
+      final List<ORecordInternal<?>> records = db.load(rids, null);
+      Assert.assertEquals(countRequests() - requests, rids.size());
+
+      assertLoaded(rids, records);
+    } finally {
+      db.close();
+    }
+  }
+
+  private List<ORID> shuffledItems() {
+    final List<ORID> rids = new ArrayList<ORID>(items);
+    Collections.shuffle(rids, new Random(RECORDS));
+    return rids;
+  }
+
+  private void assertLoaded(final List<ORID> iRids, final List<ORecordInternal<?>> iRecords) {
+    Assert.assertEquals(iRecords.size(), iRids.size());
+    for (int i = 0; i < iRids.size(); i++) {
+      final ORID rid = iRids.get(i);
+      if (rid.equals(deleted) || rid.equals(missing))
+        Assert.assertNull(iRecords.get(i), rid.toString());
+      else {
+        Assert.assertEquals(iRecords.get(i).getIdentity(), rid);
+        Assert.assertEquals(((ODocument) iRecords.get(i)).field("value"), items.indexOf(rid));
+      }
+    }
+  }
+
+  private static long countRequests() {
+    long requests = 0;
+    for (OClientConnection connection : OClientConnectionManager.instance().getConnections())
+      requests += connection.data.totalRequests;
+    return requests;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryCompression;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Saves documents in a transaction, then queries and loads them against a server started in this JVM, with the records and the
+ * command results compressed by the codec requested. Prints the time taken and the bytes of the contents before and after the
+ * compression, summed for client and server:<br/>
+ * <code>RemoteCompressionSpeedTest [codec: gzip, snappy or none] [records] [text size]</code>
+ */
+@Test(enabled = false)
+public class RemoteCompressionSpeedTest {
+  private static final int    PORT = 2529;
+  private static final String URL  = "remote:127.0.0.1:" + PORT + "/compressionSpeedTest";
+
+  public static void main(String[] iArgs) throws Exception {
+    final String codec = iArgs.length > 0 ? iArgs[0] : "snappy";
+    final int records = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 5000;
+    final int textSize = iArgs.length > 2 ? Integer.parseInt(iArgs[2]) : 4096;
+
+    OGlobalConfiguration.NETWORK_BINARY_COMPRESSION.setValue(codec.equals("none") ? "" : codec);
+
+    final OServer server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"/>"
+        + "</listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users></orient-server>");
+    server.activate();
+    try {
+      new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+      try {
+        db.getMetadata().getSchema().createClass("Item");
+
+        final long start = System.currentTimeMillis();
+
+        db.begin();
+        for (int i = 0; i < records; i++)
+          new ODocument("Item").field("value", i).field("text", text(i, textSize)).save();
+        db.commit();
+
+        db.getLevel1Cache().clear();
+        final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Item"));
+
+        long verified = 0;
+        for (ODocument item : result) {
+          db.getLevel1Cache().clear();
+          final ODocument loaded = db.load(item.getIdentity());
+          final int value = loaded.<Integer> field("value");
+          if (loaded.field("text").equals(text(value, textSize)) && item.field("text").equals(loaded.field("text")))
+            verified++;
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+
+        System.out.printf("Codec: %s, records: %d, verified: %d, elapsed: %d ms, bytes before compression: %d, after: %d\n", codec,
+            records, verified, elapsed, OChannelBinaryCompression.getUncompressedBytes(),
+            OChannelBinaryCompression.getCompressedBytes());
+      } finally {
+        db.close();
+      }
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  private static String text(final int iValue, final int iSize) {
+    final StringBuilder buffer = new StringBuilder(iSize);
+    while (buffer.length() < iSize)
+      buffer.append("Item ").append(iValue).append(" of the compression speed test, ").append(buffer.length()).append(". ");
+    return buffer.substring(0, iSize);
+  }
+}
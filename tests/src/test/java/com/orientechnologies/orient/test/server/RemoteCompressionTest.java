@@ -0,0 +1,250 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.command.OCommandCursor;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLCursorQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryCompression;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+/**
+ * Writes records and reads them back with every kind of request against a server started in this JVM, with the session
+ * compressed by each codec and without compression. Large and small records must arrive unchanged, and only the sessions with
+ * a codec must compress them.
+ */
+@Test
+public class RemoteCompressionTest {
+  private static final int    PORT      = 2536;
+  private static final String URL       = "remote:127.0.0.1:" + PORT + "/compressionTest";
+  private static final int    RECORDS   = 40;
+  private static final int    BIG_SIZE  = 8192;
+  private static final int    THRESHOLD = 1024;
+
+  private OServer             server;
+  private Object              compression;
+  private Object              threshold;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    compression = OGlobalConfiguration.NETWORK_BINARY_COMPRESSION.getValue();
+    threshold = OGlobalConfiguration.NETWORK_BINARY_COMPRESSION_THRESHOLD.getValue();
+    OGlobalConfiguration.NETWORK_BINARY_COMPRESSION_THRESHOLD.setValue(THRESHOLD);
+
+    server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"/>"
+        + "</listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users></orient-server>");
+    server.activate();
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      db.getMetadata().getSchema().createClass("Item");
+      db.getMetadata().getSchema().createClass("Holder");
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    try {
+      new OServerAdmin(URL).connect("root", "root").dropDatabase("memory").close();
+    } finally {
+      server.shutdown();
+      OGlobalConfiguration.NETWORK_BINARY_COMPRESSION.setValue(compression);
+      OGlobalConfiguration.NETWORK_BINARY_COMPRESSION_THRESHOLD.setValue(threshold);
+    }
+  }
+
+  @DataProvider(name = "codecs")
+  public Object[][] codecs() {
+    return new Object[][] { { "" }, { "gzip" }, { "snappy" } };
+  }
+
+  @Test(dataProvider = "codecs")
+  public void testRoundTrip(final String iCodec) throws Exception {
+    OGlobalConfiguration.NETWORK_BINARY_COMPRESSION.setValue(iCodec);
+
+    final long uncompressedBytes = OChannelBinaryCompression.getUncompressedBytes();
+    final long compressedBytes = OChannelBinaryCompression.getCompressedBytes();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      assertSessionCodec(iCodec);
+
+      // TRANSACTION COMMIT, THEN CREATE AND UPDATE OUT OF TRANSACTION
+      final List<ORID> rids = new ArrayList<ORID>();
+      db.begin();
+      final List<ODocument> created = new ArrayList<ODocument>();
+      for (int i = 0; i < RECORDS; i++)
+        created.add(newItem(iCodec, i).save());
+      db.commit();
+      for (ODocument item : created)
+        rids.add(item.getIdentity());
+
+      final ODocument updated = newItem(iCodec, RECORDS).save();
+      updated.field("text", text(iCodec, RECORDS, BIG_SIZE * 2)).save();
+      rids.add(updated.getIdentity());
+
+      final ODocument holder = new ODocument("Holder").field("codec", iCodec).field("items", new ArrayList<ORID>(rids));
+      holder.save();
+
+      // SINGLE LOAD
+      for (ORID rid : rids) {
+        db.getLevel1Cache().clear();
+        assertItem(iCodec, (ODocument) db.load(rid));
+      }
+
+      // BATCH LOAD
+      db.getLevel1Cache().clear();
+      final List<ORecordInternal<?>> loaded = db.load(rids, null);
+      Assert.assertEquals(loaded.size(), rids.size());
+      for (int i = 0; i < rids.size(); i++) {
+        Assert.assertEquals(loaded.get(i).getIdentity(), rids.get(i));
+        assertItem(iCodec, (ODocument) loaded.get(i));
+      }
+
+      // SYNCHRONOUS QUERY
+      db.getLevel1Cache().clear();
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Item where codec = ?"), iCodec);
+      Assert.assertEquals(result.size(), rids.size());
+      for (ODocument item : result)
+        assertItem(iCodec, item);
+
+      // ASYNCHRONOUS QUERY
+      db.getLevel1Cache().clear();
+      final List<ODocument> asynchResult = new ArrayList<ODocument>();
+      db.command(new OSQLAsynchQuery<ODocument>("select from Item where codec = ?", new OCommandResultListener() {
+        public boolean result(final Object iRecord) {
+          asynchResult.add((ODocument) iRecord);
+          return true;
+        }
+
+        public void end() {
+        }
+      })).execute(iCodec);
+      Assert.assertEquals(asynchResult.size(), rids.size());
+      for (ODocument item : asynchResult)
+        assertItem(iCodec, item);
+
+      // CURSOR
+      db.getLevel1Cache().clear();
+      final OCommandCursor<ODocument> cursor = db.command(
+          new OSQLCursorQuery<ODocument>("select from Item where codec = '" + iCodec + "'", RECORDS / 4)).execute();
+      int fetched = 0;
+      while (cursor.hasNext()) {
+        assertItem(iCodec, cursor.next());
+        fetched++;
+      }
+      Assert.assertEquals(fetched, rids.size());
+
+      // RECORDS OF THE FETCH PLAN
+      db.getLevel1Cache().clear();
+      final long fetchUncompressedBytes = OChannelBinaryCompression.getUncompressedBytes();
+      final List<ODocument> holders = db.query(new OSQLSynchQuery<ODocument>("select from " + holder.getIdentity())
+          .setFetchPlan("*:1"));
+      Assert.assertEquals(holders.size(), 1);
+      if (iCodec.length() > 0)
+        // THE HOLDER IS SMALL: THE LARGE ITEMS HAVE BEEN SENT WITH IT
+        Assert.assertTrue(OChannelBinaryCompression.getUncompressedBytes() - fetchUncompressedBytes > RECORDS / 2 * BIG_SIZE);
+
+      // THE LEVEL-1 CACHE KEEPS THE RECORDS WEAKLY: THE ONES ALREADY COLLECTED ARE LOADED AGAIN
+      for (ORID rid : rids) {
+        final ODocument item = (ODocument) db.getLevel1Cache().findRecord(rid);
+        if (item != null)
+          assertItem(iCodec, item);
+      }
+      final List<ODocument> links = holders.get(0).field("items");
+      Assert.assertEquals(links.size(), rids.size());
+      for (ODocument item : links)
+        assertItem(iCodec, item);
+    } finally {
+      db.close();
+    }
+
+    final long uncompressed = OChannelBinaryCompression.getUncompressedBytes() - uncompressedBytes;
+    final long compressed = OChannelBinaryCompression.getCompressedBytes() - compressedBytes;
+    if (iCodec.length() == 0)
+      Assert.assertEquals(uncompressed, 0);
+    else {
+      // EVERY LARGE RECORD HAS BEEN SENT AT LEAST 7 TIMES, AND THE TEXT IS VERY REPETITIVE
+      Assert.assertTrue(uncompressed > RECORDS / 2 * BIG_SIZE * 7, "uncompressed " + uncompressed);
+      Assert.assertTrue(compressed < uncompressed / 3, "compressed " + compressed + " of " + uncompressed);
+    }
+  }
+
+  private static void assertSessionCodec(final String iCodec) {
+    int sessions = 0;
+    for (OClientConnection connection : OClientConnectionManager.instance().getConnections())
+      if (connection.database != null
+          && ((OBinaryNetworkProtocolAbstract) connection.protocol).getChannel().socket.getLocalPort() == PORT) {
+        sessions++;
+        if (iCodec.length() == 0)
+          Assert.assertNull(connection.compression);
+        else
+          Assert.assertEquals(connection.compression.getName(), iCodec);
+      }
+    Assert.assertTrue(sessions > 0);
+  }
+
+  /**
+   * Creates an item whose text is above the threshold for the even values and below it for the odd ones.
+   */
+  private static ODocument newItem(final String iCodec, final int iValue) {
+    return new ODocument("Item").field("codec", iCodec).field("value", iValue)
+        .field("text", text(iCodec, iValue, iValue % 2 == 0 ? BIG_SIZE : THRESHOLD / 4));
+  }
+
+  private static void assertItem(final String iCodec, final ODocument iItem) {
+    final int value = iItem.<Integer> field("value");
+    final int size = value == RECORDS ? BIG_SIZE * 2 : value % 2 == 0 ? BIG_SIZE : THRESHOLD / 4;
+    Assert.assertEquals(iItem.field("codec"), iCodec);
+    Assert.assertEquals(iItem.field("text"), text(iCodec, value, size));
+  }
+
+  private static String text(final String iCodec, final int iValue, final int iSize) {
+    final StringBuilder buffer = new StringBuilder(iSize);
+    while (buffer.length() < iSize)
+      buffer.append("Item ").append(iValue).append(" compressed by '").append(iCodec).append("', ").append(buffer.length())
+          .append(". ");
+    return buffer.substring(0, iSize);
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.command.OCommandCursor;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLCursorQuery;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Leaves a cursor without fetches on a server started in this JVM: the command of the cursor must be closed once the cursor
+ * expires, even if the client sends no other request.
+ */
+@Test
+public class RemoteCursorExpireTest {
+  private static final int    PORT    = 2530;
+  private static final String URL     = "remote:127.0.0.1:" + PORT + "/cursorExpireTest";
+  private static final int    RECORDS = 500;
+  private static final long   TIMEOUT = 500;
+
+  private OServer             server;
+  private Object              cursorTimeout;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    cursorTimeout = OGlobalConfiguration.COMMAND_CURSOR_TIMEOUT.getValue();
+    OGlobalConfiguration.COMMAND_CURSOR_TIMEOUT.setValue(TIMEOUT);
+
+    server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"/>"
+        + "</listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users></orient-server>");
+    server.activate();
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      for (int i = 0; i < RECORDS; i++)
+        new ODocument("Item").field("value", i).save();
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    try {
+      new OServerAdmin(URL).connect("root", "root").dropDatabase("memory").close();
+    } finally {
+      server.shutdown();
+      OGlobalConfiguration.COMMAND_CURSOR_TIMEOUT.setValue(cursorTimeout);
+    }
+  }
+
+  public void testIdleCursorIsClosedByTheTimer() throws Exception {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      final OCommandCursor<ODocument> cursor = db.command(new OSQLCursorQuery<ODocument>("select from Item", 10)).execute();
+      for (int i = 0; i < 10; i++)
+        Assert.assertNotNull(cursor.next());
+
+      // THE COMMAND IS SUSPENDED UNTIL THE NEXT FETCH
+      Assert.assertEquals(countCursorThreads(), 1);
+
+      // NO REQUEST IS SENT: THE TIMER OF THE CONNECTIONS MUST CLOSE THE CURSOR
+      final long deadline = System.currentTimeMillis() + TIMEOUT + 3
+          * OGlobalConfiguration.SERVER_CHANNEL_CLEAN_DELAY.getValueAsLong();
+      while (countCursorThreads() > 0 && System.currentTimeMillis() < deadline)
+        Thread.sleep(100);
+      Assert.assertEquals(countCursorThreads(), 0);
+
+      try {
+        while (cursor.hasNext())
+          cursor.next();
+        Assert.fail("The cursor has expired");
+      } catch (RuntimeException e) {
+        // EXPECTED
+      }
+
+      // THE SESSION IS STILL USABLE
+      Assert.assertEquals(db.countClass("Item"), RECORDS);
+    } finally {
+      db.close();
+    }
+  }
+
+  private static int countCursorThreads() {
+    int threads = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet())
+      if (thread.isAlive() && thread.getName().equals("OrientDB command cursor"))
+        threads++;
+    return threads;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.command.OCommandCursor;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLCursorQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Reads the result of a query against a server started in this JVM, with a cursor or with a synchronous query. Prints the time
+ * taken, the records read per second and the heap used at the end of the read:<br/>
+ * <code>RemoteCursorSpeedTest [records] [fetch size, 0 to use a synchronous query]</code>
+ */
+@Test(enabled = false)
+public class RemoteCursorSpeedTest {
+  private static final int    PORT = 2528;
+  private static final String URL  = "remote:127.0.0.1:" + PORT + "/cursorSpeedTest";
+
+  public static void main(String[] iArgs) throws Exception {
+    final int records = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 100000;
+    final int fetchSize = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 1000;
+
+    final OServer server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"/>"
+        + "</listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users></orient-server>");
+    server.activate();
+    try {
+      new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+      try {
+        for (int i = 0; i < records; i++)
+          new ODocument("Item").field("value", i).field("text", "item " + i).save();
+        db.getLevel1Cache().clear();
+
+        long read = 0;
+        final long start = System.currentTimeMillis();
+        if (fetchSize > 0) {
+          final OCommandCursor<ODocument> cursor = db.command(new OSQLCursorQuery<ODocument>("select from Item", fetchSize))
+              .execute();
+          for (ODocument item : cursor)
+            if (item.field("value") != null)
+              read++;
+        } else {
+          final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Item"));
+          for (ODocument item : result)
+            if (item.field("value") != null)
+              read++;
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+
+        final Runtime runtime = Runtime.getRuntime();
+        System.out.printf("Fetch size: %d, records: %d, read: %d, elapsed: %d ms, records/sec: %d, heap used: %d KB\n", fetchSize,
+            records, read, elapsed, read * 1000L / Math.max(elapsed, 1), (runtime.totalMemory() - runtime.freeMemory()) / 1024);
+      } finally {
+        db.close();
+      }
+    } finally {
+      server.shutdown();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+
+/**
+ * Sends short requests to a server started in this JVM from many threads of the same client, each with its own database, with the
+ * channels of the pool shared by the threads or used by a thread at a time. Prints the throughput, the percentiles of the latency
+ * and the number of connections opened by the client:<br/>
+ * <code>RemoteMultiplexSpeedTest [client threads] [requests per thread] [multiplex: true|false]</code>
+ */
+@Test(enabled = false)
+public class RemoteMultiplexSpeedTest {
+  private static final int      PORT        = 2526;
+  private static final String   URL         = "remote:127.0.0.1:" + PORT + "/multiplexSpeedTest";
+  private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 100 };
+
+  public static void main(String[] iArgs) throws Exception {
+    final int clientThreads = iArgs.length > 0 ? Integer.parseInt(iArgs[0]) : 32;
+    final int requests = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 2000;
+    final boolean multiplex = iArgs.length > 2 ? Boolean.parseBoolean(iArgs[2]) : true;
+
+    OGlobalConfiguration.CLIENT_CHANNEL_MULTIPLEX.setValue(multiplex);
+
+    final OServer server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"/>"
+        + "</listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users></orient-server>");
+    server.activate();
+    try {
+      new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+      for (int i = 0; i < 100; i++)
+        new ODocument("Item").field("value", i).save();
+      db.close();
+
+      run(clientThreads, requests, multiplex);
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  private static void run(final int iClientThreads, final int iRequests, final boolean iMultiplex) throws Exception {
+    final AtomicInteger maxConnections = new AtomicInteger();
+    final Timer timer = new Timer(true);
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        final int connections = countConnections();
+        if (connections > maxConnections.get())
+          maxConnections.set(connections);
+      }
+    }, 0, 100);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(iClientThreads);
+    try {
+      final List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+      final long start = System.currentTimeMillis();
+      for (int n = 0; n < iClientThreads; n++)
+        futures.add(executor.submit(new Callable<long[]>() {
+          public long[] call() throws Exception {
+            final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+            try {
+              final long[] latencies = new long[iRequests];
+              for (int i = 0; i < iRequests; i++) {
+                final long requestStart = System.nanoTime();
+                // EVERY COUNT IS A ROUND TRIP TO THE SERVER
+                db.countClass("Item");
+                latencies[i] = System.nanoTime() - requestStart;
+              }
+              return latencies;
+            } finally {
+              db.close();
+            }
+          }
+        }));
+
+      final long[] latencies = new long[iClientThreads * iRequests];
+      int offset = 0;
+      for (Future<long[]> future : futures) {
+        final long[] result = future.get();
+        System.arraycopy(result, 0, latencies, offset, result.length);
+        offset += result.length;
+      }
+      final long elapsed = System.currentTimeMillis() - start;
+      Arrays.sort(latencies);
+
+      final StringBuilder buffer = new StringBuilder();
+      buffer.append(String.format("Multiplex: %s, threads: %d, connections: %d, requests: %d, elapsed: %d ms, requests/sec: %d\n"
+          + "Latency (us):", iMultiplex, iClientThreads, maxConnections.get(), latencies.length, elapsed, latencies.length * 1000L
+          / Math.max(elapsed, 1)));
+      for (double percentile : PERCENTILES) {
+        final int index = Math.max(0, Math.min(latencies.length - 1, (int) Math.ceil(latencies.length * percentile / 100) - 1));
+        buffer.append(String.format(" p%s=%.1f", percentile == 100 ? "max" : String.valueOf(percentile), latencies[index] / 1000.0));
+      }
+      System.out.println(buffer);
+    } finally {
+      timer.cancel();
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Counts the sockets opened by the client: the sessions of the databases share them.
+   */
+  private static int countConnections() {
+    final Set<ONetworkProtocol> protocols = Collections.newSetFromMap(new IdentityHashMap<ONetworkProtocol, Boolean>());
+    for (OClientConnection connection : OClientConnectionManager.instance().getConnections())
+      protocols.add(connection.protocol);
+    return protocols.size();
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.ORecordCallback;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+/**
+ * Creates, updates and deletes records in synchronous, asynchronous and no answer mode from many sessions that share a single
+ * multiplexed channel, against a server started in this JVM.
+ */
+@Test
+public class RemoteMultiplexTest {
+  private static final int    PORT       = 2533;
+  private static final String URL        = "remote:127.0.0.1:" + PORT + "/multiplexTest";
+  private static final int    THREADS    = 8;
+  private static final int    ITERATIONS = 200;
+
+  private OServer             server;
+  private Object              multiplex;
+  private Object              maxPool;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    multiplex = OGlobalConfiguration.CLIENT_CHANNEL_MULTIPLEX.getValue();
+    maxPool = OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.getValue();
+    OGlobalConfiguration.CLIENT_CHANNEL_MULTIPLEX.setValue(true);
+    OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(1);
+
+    server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"/>"
+        + "</listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/></users></orient-server>");
+    server.activate();
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      db.getMetadata().getSchema().createClass("Item");
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    try {
+      new OServerAdmin(URL).connect("root", "root").dropDatabase("memory").close();
+    } finally {
+      server.shutdown();
+      OGlobalConfiguration.CLIENT_CHANNEL_MULTIPLEX.setValue(multiplex);
+      OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(maxPool);
+    }
+  }
+
+  public void testMixedOperationModes() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int n = 0; n < THREADS; n++)
+        futures.add(executor.submit(new Client()));
+
+      for (Future<Void> future : futures)
+        future.get(2, TimeUnit.MINUTES);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      // TWO RECORDS OF FOUR ARE DELETED AT EVERY ITERATION
+      Assert.assertEquals(db.countClass("Item"), THREADS * ITERATIONS * 2);
+    } finally {
+      db.close();
+    }
+  }
+
+  private static final class Client implements Callable<Void> {
+    public Void call() throws Exception {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+      try {
+        final OStorage storage = db.getStorage();
+        final int clusterId = db.getClusterIdByName("item");
+
+        final CountDownLatch asynchResponses = new CountDownLatch(ITERATIONS * 2);
+        final AtomicInteger asynchErrors = new AtomicInteger();
+
+        final ORecordCallback<OClusterPosition> createCallback = new ORecordCallback<OClusterPosition>() {
+          public void call(ORecordId iRID, OClusterPosition iParameter) {
+            if (iParameter == null || !iParameter.isPersistent())
+              asynchErrors.incrementAndGet();
+            asynchResponses.countDown();
+          }
+        };
+        final ORecordCallback<Boolean> deleteCallback = new ORecordCallback<Boolean>() {
+          public void call(ORecordId iRID, Boolean iParameter) {
+            if (!Boolean.TRUE.equals(iParameter))
+              asynchErrors.incrementAndGet();
+            asynchResponses.countDown();
+          }
+        };
+
+        for (int i = 0; i < ITERATIONS; i++) {
+          // SYNCHRONOUS
+          final ORecordId updated = new ORecordId(clusterId);
+          final OPhysicalPosition updatedPosition = storage.createRecord(0, updated, content(i), newVersion(),
+              ODocument.RECORD_TYPE, 0, null).getResult();
+
+          // NO ANSWER, THEN READ SYNCHRONOUSLY
+          storage.updateRecord(updated, content(-i), updatedPosition.recordVersion, ODocument.RECORD_TYPE, 2, null);
+          final ORawBuffer buffer = storage.readRecord(updated, null, true, null, false).getResult();
+          Assert.assertEquals(new ODocument().fromStream(buffer.buffer).field("value"), -i);
+
+          // ASYNCHRONOUS
+          storage.createRecord(0, new ORecordId(clusterId), content(i), newVersion(), ODocument.RECORD_TYPE, 1, createCallback);
+          storage.deleteRecord(updated, buffer.version, 1, deleteCallback);
+
+          // NO ANSWER
+          storage.createRecord(0, new ORecordId(clusterId), content(i), newVersion(), ODocument.RECORD_TYPE, 2, null);
+          final ORecordId deleted = new ORecordId(clusterId);
+          final OPhysicalPosition deletedPosition = storage.createRecord(0, deleted, content(i), newVersion(),
+              ODocument.RECORD_TYPE, 0, null).getResult();
+          storage.deleteRecord(deleted, deletedPosition.recordVersion, 2, null);
+        }
+
+        Assert.assertTrue(asynchResponses.await(1, TimeUnit.MINUTES));
+        Assert.assertEquals(asynchErrors.get(), 0);
+
+        // THE SESSION IS STILL IN STEP WITH THE CHANNEL
+        Assert.assertTrue(db.countClass("Item") > 0);
+      } finally {
+        db.close();
+      }
+      return null;
+    }
+
+    private static byte[] content(final int iValue) {
+      return new ODocument().field("value", iValue).toStream();
+    }
+
+    private static ORecordVersion newVersion() {
+      return OVersionFactory.instance().createVersion();
+    }
+  }
+}
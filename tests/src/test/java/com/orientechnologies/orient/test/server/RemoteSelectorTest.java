@@ -0,0 +1,237 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.client.remote.OServerAdmin;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryAsynchClient;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+/**
+ * Creates, reads, queries and deletes records from many sessions against a server started in this JVM whose binary listener
+ * serves the connections with a selector and fewer workers than sessions.
+ */
+@Test
+public class RemoteSelectorTest {
+  private static final int    PORT       = 2535;
+  private static final String URL        = "remote:127.0.0.1:" + PORT + "/selectorTest";
+  private static final int    THREADS    = 12;
+  private static final int    WORKERS    = 2;
+  private static final int    ITERATIONS = 50;
+  private static final int    BIG_SIZE   = 512 * 1024;
+
+  private OServer             server;
+  private Object              maxPool;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    // A CHANNEL FOR EVERY SESSION
+    maxPool = OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.getValue();
+    OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(THREADS);
+
+    server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol name=\"binary\" implementation=\"com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary\"/>"
+        + "</protocols><listeners><listener ip-address=\"127.0.0.1\" port-range=\"" + PORT + "\" protocol=\"binary\"><parameters>"
+        + "<parameter name=\"" + OGlobalConfiguration.NETWORK_BINARY_SELECTOR_ENABLED.getKey() + "\" value=\"true\"/>"
+        + "<parameter name=\"" + OGlobalConfiguration.NETWORK_BINARY_SELECTOR_THREADS.getKey() + "\" value=\"1\"/>"
+        + "<parameter name=\"" + OGlobalConfiguration.NETWORK_BINARY_SELECTOR_WORKERS.getKey() + "\" value=\"" + WORKERS + "\"/>"
+        + "<parameter name=\"" + OGlobalConfiguration.NETWORK_BINARY_SELECTOR_QUEUE_SIZE.getKey() + "\" value=\"" + WORKERS
+        + "\"/></parameters></listener></listeners></network><users><user name=\"root\" password=\"root\" resources=\"*\"/>"
+        + "</users></orient-server>");
+    server.activate();
+
+    new OServerAdmin(URL).connect("root", "root").createDatabase("document", "memory").close();
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      db.getMetadata().getSchema().createClass("Item");
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    try {
+      new OServerAdmin(URL).connect("root", "root").dropDatabase("memory").close();
+    } finally {
+      server.shutdown();
+      OGlobalConfiguration.CLIENT_CHANNEL_MAX_POOL.setValue(maxPool);
+    }
+  }
+
+  public void testConcurrentSessions() throws Exception {
+    final AtomicInteger maxWorkers = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int n = 0; n < THREADS; n++)
+        futures.add(executor.submit(new Client(n, start, maxWorkers)));
+
+      start.countDown();
+      for (Future<Void> future : futures)
+        future.get(5, TimeUnit.MINUTES);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // THE CONNECTIONS HAVE NO THREAD OF THEIR OWN
+    Assert.assertTrue(maxWorkers.get() > 0);
+    Assert.assertTrue(maxWorkers.get() <= WORKERS, "workers " + maxWorkers.get());
+    for (OClientConnection connection : OClientConnectionManager.instance().getConnections())
+      if (((OBinaryNetworkProtocolAbstract) connection.protocol).getChannel().socket.getLocalPort() == PORT)
+        Assert.assertFalse(((Thread) connection.protocol).isAlive());
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+    try {
+      // ONE RECORD OF THREE IS DELETED AT EVERY ITERATION
+      Assert.assertEquals(db.countClass("Item"), THREADS * ITERATIONS * 2);
+    } finally {
+      db.close();
+    }
+  }
+
+  public void testClosedConnectionIsDisconnected() throws Exception {
+    final OChannelBinaryAsynchClient channel = new OChannelBinaryAsynchClient("127.0.0.1", PORT, new OContextConfiguration(),
+        OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
+
+    channel.beginRequest();
+    channel.writeByte(OChannelBinaryProtocol.REQUEST_CONNECT);
+    channel.writeInt(-1);
+    channel.writeString("selector test");
+    channel.writeString("1");
+    channel.writeShort((short) OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
+    channel.writeString(null);
+    channel.writeString("root");
+    channel.writeString("root");
+    channel.writeString(null);
+    channel.writeInt(0);
+    channel.endRequest();
+
+    final int sessionId;
+    channel.beginResponse(-1);
+    try {
+      sessionId = channel.readInt();
+      channel.readString();
+    } finally {
+      channel.endResponse();
+    }
+    Assert.assertNotNull(OClientConnectionManager.instance().getConnection(sessionId));
+
+    // THE SELECTOR READS THE END OF THE STREAM: THE CONNECTION MUST BE RELEASED WITHOUT ANY REQUEST
+    channel.close();
+
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (OClientConnectionManager.instance().getConnection(sessionId) != null && System.currentTimeMillis() < deadline)
+      Thread.sleep(50);
+    Assert.assertNull(OClientConnectionManager.instance().getConnection(sessionId));
+  }
+
+  /**
+   * Counts the live workers of the selector of the listener.
+   */
+  private static int countWorkers() {
+    final Thread[] threads = new Thread[Thread.activeCount() * 2];
+    final int count = Orient.instance().getThreadGroup().enumerate(threads);
+
+    int workers = 0;
+    for (int i = 0; i < count; i++)
+      if (threads[i].isAlive() && threads[i].getName().startsWith("OrientDB ONetworkProtocolBinary " + PORT + " worker"))
+        workers++;
+    return workers;
+  }
+
+  private static final class Client implements Callable<Void> {
+    private final int            thread;
+    private final CountDownLatch start;
+    private final AtomicInteger  maxWorkers;
+
+    private Client(final int iThread, final CountDownLatch iStart, final AtomicInteger iMaxWorkers) {
+      thread = iThread;
+      start = iStart;
+      maxWorkers = iMaxWorkers;
+    }
+
+    public Void call() throws Exception {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+      try {
+        start.await();
+
+        final char[] content = new char[BIG_SIZE];
+        Arrays.fill(content, (char) ('a' + thread));
+        final String big = new String(content);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+          final int value = thread * ITERATIONS + i;
+
+          // A RECORD LARGER THAN THE SOCKET BUFFERS IS READ BY THE WORKER IN MANY CHUNKS
+          final ORID bigRid = new ODocument("Item").field("value", value).field("big", big).save().getIdentity();
+          final ORID smallRid = new ODocument("Item").field("value", value).save().getIdentity();
+          final ORID deletedRid = new ODocument("Item").field("value", value).save().getIdentity();
+
+          db.getLevel1Cache().clear();
+          final ODocument loaded = db.load(bigRid);
+          Assert.assertEquals(loaded.field("value"), value);
+          Assert.assertEquals(loaded.field("big"), big);
+
+          final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from " + smallRid));
+          Assert.assertEquals(result.size(), 1);
+          Assert.assertEquals(result.get(0).field("value"), value);
+
+          // THE POSITION CAN BE REUSED AT ONCE BY ANOTHER SESSION: THE DELETES ARE CHECKED BY THE FINAL COUNT
+          db.load(deletedRid).delete();
+
+          final int workers = countWorkers();
+          if (workers > maxWorkers.get())
+            maxWorkers.set(workers);
+        }
+      } finally {
+        db.close();
+      }
+      return null;
+    }
+  }
+}